@@ -0,0 +1,196 @@
+/**
+ *  VectorAPIKernel
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.ai.llama3.Tensor;
+
+import java.nio.ByteBuffer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import net.yacy.ai.llama3.Model.GGMLType;
+
+/**
+ * The {@link VectorKernel} with the Vector API of jdk.incubator.vector.
+ * This class is compiled for Java 17 with --add-modules jdk.incubator.vector and loaded by {@link VectorKernels}.
+ * The values of the buffers are copied in bulk into arrays of the thread, because only the array load operations
+ * of the Vector API are the same in all jdk versions since 17; the ByteBuffer operations were replaced by MemorySegment operations.
+ */
+public final class VectorAPIKernel implements VectorKernel {
+
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I = VectorSpecies.of(int.class, F.vectorShape());
+    private static final VectorSpecies<Short> S = VectorSpecies.of(short.class, VectorShape.forBitSize(F.vectorBitSize() / 2));
+    private static final VectorSpecies<Byte> B = ByteVector.SPECIES_128; // 16 bytes, half of a Q8_0 block and all nibbles of a Q4_0 block
+    private static final int LANES = F.length();
+    private static final int PARTS = B.length() / LANES; // number of float vectors from one byte vector
+
+    private static final int Q8_BLOCK = GGMLType.Q8_0.blockSize, Q8_TYPE = GGMLType.Q8_0.typeSize;
+    private static final int Q4_BLOCK = GGMLType.Q4_0.blockSize, Q4_TYPE = GGMLType.Q4_0.typeSize;
+
+    private static final class Scratch {
+        private byte[] bytes = new byte[0];
+        private short[] shorts = new short[0];
+        private float[] floats = new float[0];
+    }
+
+    private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public VectorAPIKernel() {
+        if (LANES < 4 || LANES > B.length()) throw new UnsupportedOperationException("unsupported vector size " + F.vectorBitSize());
+    }
+
+    /**
+     * a view of the buffer which reads from absolute positions in the byte order of the buffer
+     */
+    private static ByteBuffer view(final ByteBuffer buffer) {
+        return buffer.duplicate().clear().order(buffer.order());
+    }
+
+    private static byte[] bytes(final ByteBuffer buffer, final int offset, final int length) {
+        final Scratch s = scratch.get();
+        if (s.bytes.length < length) s.bytes = new byte[length];
+        view(buffer).get(offset, s.bytes, 0, length);
+        return s.bytes;
+    }
+
+    private static short[] shorts(final ByteBuffer buffer, final int byteOffset, final int length) {
+        final Scratch s = scratch.get();
+        if (s.shorts.length < length) s.shorts = new short[length];
+        view(buffer).asShortBuffer().get(byteOffset / Short.BYTES, s.shorts, 0, length);
+        return s.shorts;
+    }
+
+    private static float[] floats(final ByteBuffer buffer, final int byteOffset, final int length) {
+        final Scratch s = scratch.get();
+        if (s.floats.length < length) s.floats = new float[length];
+        view(buffer).asFloatBuffer().get(byteOffset / Float.BYTES, s.floats, 0, length);
+        return s.floats;
+    }
+
+    @Override
+    public float dot(final float[] a, final int aOffset, final float[] b, final int bOffset, final int size) {
+        final int upper = F.loopBound(size);
+        FloatVector acc0 = FloatVector.zero(F), acc1 = FloatVector.zero(F);
+        int i = 0;
+        for (; i + LANES < upper; i += 2 * LANES) {
+            acc0 = FloatVector.fromArray(F, a, aOffset + i).fma(FloatVector.fromArray(F, b, bOffset + i), acc0);
+            acc1 = FloatVector.fromArray(F, a, aOffset + i + LANES).fma(FloatVector.fromArray(F, b, bOffset + i + LANES), acc1);
+        }
+        for (; i < upper; i += LANES) {
+            acc0 = FloatVector.fromArray(F, a, aOffset + i).fma(FloatVector.fromArray(F, b, bOffset + i), acc0);
+        }
+        float result = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) result += a[aOffset + i] * b[bOffset + i];
+        return result;
+    }
+
+    @Override
+    public float dotF32(final ByteBuffer a, final int aByteOffset, final float[] b, final int bOffset, final int size) {
+        return dot(floats(a, aByteOffset, size), 0, b, bOffset, size);
+    }
+
+    @Override
+    public float dotF16(final ByteBuffer a, final int aByteOffset, final float[] b, final int bOffset, final int size) {
+        final short[] h = shorts(a, aByteOffset, size);
+        final int upper = F.loopBound(size);
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            final IntVector bits = (IntVector) ShortVector.fromArray(S, h, i).castShape(I, 0);
+            // sign, exponent and mantissa shifted to the float positions, the exponent bias is changed from 15 to 127;
+            // subnormal values are flushed to zero and infinities or NaN are not supported, both do not appear in model weights
+            final IntVector zeroExponentMask = bits.and(0x7C00).neg().lanewise(VectorOperators.ASHR, 31);
+            final IntVector f = bits.and(0x8000).lanewise(VectorOperators.LSHL, 16)
+                    .or(bits.and(0x7FFF).add(0x1C000).lanewise(VectorOperators.LSHL, 13).and(zeroExponentMask));
+            acc = f.reinterpretAsFloats().fma(FloatVector.fromArray(F, b, bOffset + i), acc);
+        }
+        float result = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) result += AbstractFloatTensor.float16ToFloat(h[i]) * b[bOffset + i];
+        return result;
+    }
+
+    @Override
+    public float dotBF16(final ByteBuffer a, final int aByteOffset, final float[] b, final int bOffset, final int size) {
+        final short[] h = shorts(a, aByteOffset, size);
+        final int upper = F.loopBound(size);
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            final IntVector bits = (IntVector) ShortVector.fromArray(S, h, i).castShape(I, 0);
+            acc = bits.lanewise(VectorOperators.LSHL, 16).reinterpretAsFloats().fma(FloatVector.fromArray(F, b, bOffset + i), acc);
+        }
+        float result = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < size; i++) result += Float.intBitsToFloat(h[i] << 16) * b[bOffset + i];
+        return result;
+    }
+
+    @Override
+    public float dotQ8_0(final ByteBuffer a, final int aByteOffset, final float[] b, final int bOffset, final int blocks) {
+        final byte[] q = bytes(a, aByteOffset, blocks * Q8_TYPE);
+        FloatVector acc = FloatVector.zero(F);
+        for (int block = 0; block < blocks; block++) {
+            final float scale = AbstractFloatTensor.float16ToFloat(a.getShort(aByteOffset + block * Q8_TYPE));
+            final int quantOffset = block * Q8_TYPE + GGMLType.FLOAT16_BYTES;
+            final int thatOffset = bOffset + block * Q8_BLOCK;
+            FloatVector sum = FloatVector.zero(F);
+            for (int k = 0; k < Q8_BLOCK; k += B.length()) {
+                final ByteVector quants = ByteVector.fromArray(B, q, quantOffset + k);
+                for (int p = 0; p < PARTS; p++) {
+                    sum = ((FloatVector) quants.castShape(F, p)).fma(FloatVector.fromArray(F, b, thatOffset + k + p * LANES), sum);
+                }
+            }
+            acc = sum.fma(FloatVector.broadcast(F, scale), acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float dotQ4_0(final ByteBuffer a, final int aByteOffset, final float[] b, final int bOffset, final int blocks) {
+        final byte[] q = bytes(a, aByteOffset, blocks * Q4_TYPE);
+        final int half = Q4_BLOCK / 2;
+        FloatVector acc = FloatVector.zero(F);
+        for (int block = 0; block < blocks; block++) {
+            final float scale = AbstractFloatTensor.float16ToFloat(a.getShort(aByteOffset + block * Q4_TYPE));
+            final int thatOffset = bOffset + block * Q4_BLOCK;
+            // the low nibbles are the first half of the block, the high nibbles the second half
+            final ByteVector packed = ByteVector.fromArray(B, q, block * Q4_TYPE + GGMLType.FLOAT16_BYTES);
+            final ByteVector low = packed.and((byte) 0x0F).sub((byte) 8);
+            final ByteVector high = packed.lanewise(VectorOperators.LSHR, 4).and((byte) 0x0F).sub((byte) 8);
+            FloatVector sum = FloatVector.zero(F);
+            for (int p = 0; p < PARTS; p++) {
+                sum = ((FloatVector) low.castShape(F, p)).fma(FloatVector.fromArray(F, b, thatOffset + p * LANES), sum);
+                sum = ((FloatVector) high.castShape(F, p)).fma(FloatVector.fromArray(F, b, thatOffset + half + p * LANES), sum);
+            }
+            acc = sum.fma(FloatVector.broadcast(F, scale), acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public String toString() {
+        return "Vector API, " + LANES + " float lanes";
+    }
+}
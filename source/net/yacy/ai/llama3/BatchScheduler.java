@@ -0,0 +1,372 @@
+/**
+ *  BatchScheduler
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.ai.llama3;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Continuous batching of concurrent generation sessions of one model.
+ * A single worker thread admits new sessions, ingests their prompts chunk by chunk (starting after a prefix
+ * which is copied from the {@link PrefixCache}) and computes one token of all sessions which are in the
+ * generation phase in a single forward pass, so the weights of each layer are read once for all sessions.
+ * Finished sessions leave the batch after each step and waiting sessions take their place.
+ */
+public class BatchScheduler {
+
+    private final Llama model;
+    private final int maxSessions;
+    private final int prefillBatchSize;
+    private final PrefixCache prefixCache;
+    private final Llama.State batch; // the activations of one decoding step
+    private final LinkedBlockingQueue<Session> queue;
+    private final List<Session> active;
+    private final List<Llama.State> pool; // states of finished sessions, re-used for new sessions
+    private final Metrics metrics;
+    private Thread worker;
+    private volatile boolean running;
+
+    /**
+     * @param model the model
+     * @param maxSessions the maximum number of sessions which are computed together
+     * @param prefillBatchSize the number of prompt tokens which are ingested together
+     * @param prefixCache the cache of prompt prefixes, may be null
+     */
+    public BatchScheduler(final Llama model, final int maxSessions, final int prefillBatchSize, final PrefixCache prefixCache) {
+        this.model = model;
+        this.maxSessions = maxSessions;
+        this.prefillBatchSize = prefillBatchSize;
+        this.prefixCache = prefixCache;
+        this.batch = new Llama.State(model.configuration(), maxSessions, false);
+        this.queue = new LinkedBlockingQueue<>();
+        this.active = new ArrayList<>();
+        this.pool = new ArrayList<>();
+        this.metrics = new Metrics();
+        this.worker = null;
+        this.running = true;
+    }
+
+    /**
+     * submit a generation session
+     * @param promptTokens the prompt tokens, not empty
+     * @param prefixLength the number of the first prompt tokens which are stored in the prefix cache, i.e. the system prompt; 0 if nothing shall be stored
+     * @param stopTokens set of tokens that abort generation
+     * @param maxTokens maximum number of generated tokens; 0 or negative for no limit but the context length
+     * @param sampler the sampler of the session; a sampler must not be shared by sessions
+     * @param onTokenGenerated callback which is called in the thread of the scheduler for every generated token, may be null
+     * @return the session
+     */
+    public Session submit(final List<Integer> promptTokens, final int prefixLength, final Set<Integer> stopTokens, final int maxTokens,
+                          final Sampler sampler, final IntConsumer onTokenGenerated) {
+        if (promptTokens.isEmpty()) throw new IllegalArgumentException("empty prompt");
+        final Session session = new Session(promptTokens, prefixLength, stopTokens, maxTokens, sampler, onTokenGenerated);
+        synchronized (this) {
+            if (!this.running) throw new IllegalStateException("scheduler is closed");
+            this.queue.add(session);
+            if (this.worker == null) {
+                this.worker = new Thread("BatchScheduler.run") {
+                    @Override
+                    public void run() {
+                        BatchScheduler.this.run();
+                    }
+                };
+                this.worker.setDaemon(true);
+                this.worker.start();
+            }
+        }
+        return session;
+    }
+
+    /**
+     * stop the worker thread; sessions which are not finished are completed exceptionally
+     */
+    public void close() {
+        final Thread w;
+        synchronized (this) {
+            this.running = false;
+            w = this.worker;
+        }
+        if (w != null) {
+            w.interrupt();
+            try {w.join(10000);} catch (final InterruptedException e) {}
+        }
+        Session session;
+        while ((session = this.queue.poll()) != null) session.result.completeExceptionally(new IllegalStateException("scheduler is closed"));
+    }
+
+    public Metrics metrics() {
+        return this.metrics;
+    }
+
+    private void run() {
+        while (this.running) {
+            try {
+                // admit waiting sessions
+                if (this.active.isEmpty()) {
+                    final Session session = this.queue.poll(1, TimeUnit.SECONDS);
+                    if (session != null) this.admit(session);
+                    continue;
+                }
+                while (this.active.size() < this.maxSessions && !this.queue.isEmpty()) this.admit(this.queue.poll());
+
+                // ingest one prompt chunk, so that a long prompt does not stall the decoding of the other sessions
+                for (final Session session: this.active) {
+                    if (session.promptIndex < session.promptTokens.size()) {
+                        this.prefill(session);
+                        break;
+                    }
+                }
+
+                // one decoding step for all sessions which generate tokens
+                final List<Session> decoding = new ArrayList<>(this.active.size());
+                for (final Session session: this.active) {
+                    if (session.promptIndex >= session.promptTokens.size() && !session.result.isDone()) decoding.add(session);
+                }
+                if (!decoding.isEmpty()) this.decode(decoding);
+
+                // remove finished sessions
+                for (int i = this.active.size() - 1; i >= 0; i--) {
+                    final Session session = this.active.get(i);
+                    if (session.result.isDone()) {
+                        this.active.remove(i);
+                        this.pool.add(session.state);
+                        session.state = null;
+                    }
+                }
+            } catch (final InterruptedException e) {
+                break;
+            } catch (final RuntimeException e) {
+                for (final Session session: this.active) session.result.completeExceptionally(e);
+                this.active.clear();
+            }
+        }
+        for (final Session session: this.active) session.result.completeExceptionally(new IllegalStateException("scheduler is closed"));
+        this.active.clear();
+    }
+
+    private void admit(final Session session) {
+        session.state = this.pool.isEmpty() ? this.model.createNewState(this.prefillBatchSize) : this.pool.remove(this.pool.size() - 1);
+        session.startTime = System.nanoTime();
+        if (this.prefixCache != null) {
+            session.cachedTokens = this.prefixCache.restore(this.model.configuration(), session.promptTokens, session.state);
+            session.promptIndex = session.cachedTokens;
+            session.position = session.cachedTokens;
+        }
+        this.active.add(session);
+    }
+
+    private void prefill(final Session session) {
+        final Llama.Configuration config = this.model.configuration();
+        final int n = Math.min(session.state.batchsize, Math.min(session.promptTokens.size() - session.promptIndex, config.contextLength - session.position));
+        if (n <= 0) {
+            session.finish(); // the context is full
+            return;
+        }
+        final int[] tokens = new int[n];
+        for (int i = 0; i < n; i++) tokens[i] = session.promptTokens.get(session.promptIndex + i);
+        final boolean last = session.promptIndex + n >= session.promptTokens.size();
+        Llama.forward(this.model, session.state, tokens, session.position, last);
+        session.promptIndex += n;
+        session.position += n;
+        this.metrics.promptTokens.addAndGet(n);
+        if (!last) return;
+
+        if (this.prefixCache != null && session.prefixLength > session.cachedTokens && session.prefixLength <= session.position) {
+            this.prefixCache.store(config, session.promptTokens.subList(0, session.prefixLength), session.state);
+        }
+        session.firstTokenTime = System.nanoTime();
+        this.metrics.firstTokenNanos.addAndGet(session.firstTokenTime - session.startTime);
+        session.accept(session.sampler.sampleToken(session.state.logits));
+    }
+
+    private void decode(final List<Session> decoding) {
+        final long start = System.nanoTime();
+        final int n = decoding.size();
+        final Llama.State[] states = new Llama.State[n];
+        final int[] tokens = new int[n];
+        final int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            final Session session = decoding.get(i);
+            states[i] = session.state;
+            tokens[i] = session.state.latestToken;
+            positions[i] = session.position;
+        }
+        Llama.forward(this.model, this.batch, states, tokens, positions);
+        for (final Session session: decoding) {
+            session.position++;
+            session.accept(session.sampler.sampleToken(session.state.logits));
+        }
+        this.metrics.decodeSteps.incrementAndGet();
+        this.metrics.decodedTokens.addAndGet(n);
+        this.metrics.decodeNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * a generation session; the generated tokens are available with the future of {@link #result()}
+     */
+    public class Session {
+
+        private final List<Integer> promptTokens;
+        private final int prefixLength;
+        private final Set<Integer> stopTokens;
+        private final int maxTokens;
+        private final Sampler sampler;
+        private final IntConsumer onTokenGenerated;
+        private final List<Integer> generatedTokens;
+        private final CompletableFuture<List<Integer>> result;
+        private Llama.State state;
+        private int promptIndex, position, cachedTokens;
+        private volatile long startTime, firstTokenTime, endTime;
+
+        private Session(final List<Integer> promptTokens, final int prefixLength, final Set<Integer> stopTokens, final int maxTokens,
+                        final Sampler sampler, final IntConsumer onTokenGenerated) {
+            this.promptTokens = promptTokens;
+            this.prefixLength = prefixLength;
+            this.stopTokens = stopTokens;
+            this.maxTokens = maxTokens;
+            this.sampler = sampler;
+            this.onTokenGenerated = onTokenGenerated;
+            this.generatedTokens = new ArrayList<>();
+            this.result = new CompletableFuture<>();
+            this.state = null;
+            this.promptIndex = 0;
+            this.position = 0;
+            this.cachedTokens = 0;
+            this.startTime = 0;
+            this.firstTokenTime = 0;
+            this.endTime = 0;
+        }
+
+        private void accept(final int token) {
+            this.generatedTokens.add(token);
+            BatchScheduler.this.metrics.generatedTokens.incrementAndGet();
+            if (this.onTokenGenerated != null) this.onTokenGenerated.accept(token);
+            this.state.latestToken = token;
+            if (this.stopTokens.contains(token) ||
+                (this.maxTokens > 0 && this.generatedTokens.size() >= this.maxTokens) ||
+                this.position >= BatchScheduler.this.model.configuration().contextLength) this.finish();
+        }
+
+        private void finish() {
+            this.endTime = System.nanoTime();
+            BatchScheduler.this.metrics.sessions.incrementAndGet();
+            this.result.complete(this.generatedTokens);
+        }
+
+        /**
+         * @return the future of the generated tokens, including the stop token, if any
+         */
+        public CompletableFuture<List<Integer>> result() {
+            return this.result;
+        }
+
+        /**
+         * @return the number of prompt tokens which were copied from the prefix cache
+         */
+        public int cachedTokens() {
+            return this.cachedTokens;
+        }
+
+        /**
+         * @return the time from the admission of the session to the first generated token in milliseconds, or -1 if there is no token yet
+         */
+        public long timeToFirstToken() {
+            return this.firstTokenTime == 0 ? -1 : (this.firstTokenTime - this.startTime) / 1000000L;
+        }
+
+        /**
+         * @return the number of generated tokens per second after the first token
+         */
+        public double tokensPerSecond() {
+            if (this.firstTokenTime == 0) return 0.0d;
+            final long time = (this.endTime == 0 ? System.nanoTime() : this.endTime) - this.firstTokenTime;
+            return time <= 0 ? 0.0d : (this.generatedTokens.size() - 1) * 1.0e9d / time;
+        }
+    }
+
+    /**
+     * metrics of all sessions of a scheduler
+     */
+    public static class Metrics {
+
+        private final AtomicLong sessions = new AtomicLong(0);
+        private final AtomicLong promptTokens = new AtomicLong(0);
+        private final AtomicLong generatedTokens = new AtomicLong(0);
+        private final AtomicLong firstTokenNanos = new AtomicLong(0);
+        private final AtomicLong decodeSteps = new AtomicLong(0);
+        private final AtomicLong decodedTokens = new AtomicLong(0);
+        private final AtomicLong decodeNanos = new AtomicLong(0);
+
+        /**
+         * @return the number of finished sessions
+         */
+        public long sessions() {
+            return this.sessions.get();
+        }
+
+        /**
+         * @return the number of ingested prompt tokens, without the tokens from the prefix cache
+         */
+        public long promptTokens() {
+            return this.promptTokens.get();
+        }
+
+        public long generatedTokens() {
+            return this.generatedTokens.get();
+        }
+
+        /**
+         * @return the average number of sessions in a decoding step
+         */
+        public double averageBatchSize() {
+            final long steps = this.decodeSteps.get();
+            return steps == 0 ? 0.0d : ((double) this.decodedTokens.get()) / steps;
+        }
+
+        /**
+         * @return the number of tokens of all sessions which are generated per second in the decoding steps
+         */
+        public double tokensPerSecond() {
+            final long time = this.decodeNanos.get();
+            return time == 0 ? 0.0d : this.decodedTokens.get() * 1.0e9d / time;
+        }
+
+        /**
+         * @return the average time to the first token of the sessions in milliseconds
+         */
+        public double averageTimeToFirstToken() {
+            final long sessions = this.sessions.get();
+            return sessions == 0 ? 0.0d : this.firstTokenNanos.get() / 1.0e6d / sessions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sessions=%d, promptTokens=%d, generatedTokens=%d, averageBatchSize=%.2f, tokensPerSecond=%.2f, averageTimeToFirstToken=%.1fms",
+                    this.sessions(), this.promptTokens(), this.generatedTokens(), this.averageBatchSize(), this.tokensPerSecond(), this.averageTimeToFirstToken());
+        }
+    }
+}
@@ -24,6 +24,7 @@ package net.yacy.ai.llama3;
 
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.function.IntConsumer;
@@ -185,6 +186,15 @@ public final class Llama {
         public int latestToken;
 
         State(Configuration config, int batchsize) {
+            this(config, batchsize, true);
+        }
+
+        /**
+         * @param config the model configuration
+         * @param batchsize the number of token rows of the activation buffers
+         * @param kvCache false for a state which only holds the activations of a batch of sessions, each with its own kv cache
+         */
+        State(Configuration config, int batchsize, boolean kvCache) {
             this.batchsize = batchsize;
             this.x = allocate(batchsize, config.dim);
             this.xb = allocate(batchsize, config.dim);
@@ -199,8 +209,8 @@ public final class Llama {
 
             this.logits = DirectBufferFloatTensor.allocate(config.vocabularySize);
             int kvDim = (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
-            this.keyCache = Stream.generate(() -> DirectBufferFloatTensor.allocate(config.contextLength, kvDim)).limit(config.numberOfLayers).toArray(FloatTensor[]::new);
-            this.valueCache = Stream.generate(() -> DirectBufferFloatTensor.allocate(config.contextLength, kvDim)).limit(config.numberOfLayers).toArray(FloatTensor[]::new);
+            this.keyCache = kvCache ? Stream.generate(() -> DirectBufferFloatTensor.allocate(config.contextLength, kvDim)).limit(config.numberOfLayers).toArray(FloatTensor[]::new) : null;
+            this.valueCache = kvCache ? Stream.generate(() -> DirectBufferFloatTensor.allocate(config.contextLength, kvDim)).limit(config.numberOfLayers).toArray(FloatTensor[]::new) : null;
         }
 
         private static FloatTensor[] allocate(int numTokens, int... dims) {
@@ -224,6 +234,54 @@ public final class Llama {
     }
 
     static FloatTensor forward(Llama model, State state, int[] tokens, int position, boolean computeLogits) {
+        final int nTokens = tokens.length;
+        final State[] caches = new State[nTokens];
+        final int[] positions = new int[nTokens];
+        for (int t = 0; t < nTokens; t++) {
+            caches[t] = state;
+            positions[t] = position + t;
+        }
+        layers(model, state, caches, tokens, positions, computeLogits);
+        state.idxPrevBlock = nTokens - 1;
+        if (!computeLogits) return null;
+
+        // classifier into logits
+        Configuration config = model.configuration();
+        model.weights().wcls.matmul(state.x[nTokens - 1], state.logits, config.vocabularySize, config.dim);
+        return state.logits;
+    }
+
+    /**
+     * Forward one token of each of several sessions (continuous batching). All sessions share the weight matmuls
+     * of each layer, while the attention of each session uses its own kv cache.
+     * @param model the model
+     * @param batch a state with at least states.length activation rows; its kv cache is not used
+     * @param states the states of the sessions; the logits of each session are written to its state
+     * @param tokens the token of each session
+     * @param positions the position of the token of each session in its context
+     */
+    static void forward(Llama model, State batch, State[] states, int[] tokens, int[] positions) {
+        final int n = tokens.length;
+        layers(model, batch, states, tokens, positions, true);
+        Configuration config = model.configuration();
+        final FloatTensor[] logits = new FloatTensor[n];
+        for (int t = 0; t < n; t++) {
+            logits[t] = states[t].logits;
+            states[t].idxPrevBlock = 0;
+        }
+        model.weights().wcls.matmul(n, Arrays.copyOf(batch.x, n), logits, config.vocabularySize, config.dim);
+    }
+
+    /**
+     * forward token rows through all layers
+     * @param model the model
+     * @param state the activations, one row for each token
+     * @param caches the state with the kv cache of each token row
+     * @param tokens the tokens
+     * @param positions the position of each token in the context of its kv cache
+     * @param computeLogits if false, the attention and ffn of the last layer and the final rmsnorm are skipped
+     */
+    private static void layers(Llama model, State state, State[] caches, int[] tokens, int[] positions, boolean computeLogits) {
         // a few convenience variables
         Configuration config = model.configuration();
         Weights weights = model.weights();
@@ -257,8 +315,8 @@ public final class Llama {
             AbstractFloatTensor.parallelFor(0, nTokens, t -> {
                 for (int i = 0; i < dim; i += 2) {
                     int head_dim = i % headSize;
-                    float fcr = weights.freq_cis_real.get((position + t) * (headSize / 2) + (head_dim / 2));
-                    float fci = weights.freq_cis_imag.get((position + t) * (headSize / 2) + (head_dim / 2));
+                    float fcr = weights.freq_cis_real.get(positions[t] * (headSize / 2) + (head_dim / 2));
+                    float fci = weights.freq_cis_imag.get(positions[t] * (headSize / 2) + (head_dim / 2));
                     int rotn = i < kvDim ? 2 : 1; // how many vectors? 2 = q & k, 1 = q only
                     for (int vi = 0; vi < rotn; vi++) {
                         FloatTensor vec = vi == 0 ? state.q[t] : state.k[t]; // the vector to rotate (query or key)
@@ -272,14 +330,13 @@ public final class Llama {
 
             // save key,value at this time step (position) to our kv cache
             AbstractFloatTensor.parallelFor(0, nTokens, t -> {
-                state.k[t].copyTo(0, state.keyCache[curLayer], (position + t) * kvDim, kvDim);
-                state.v[t].copyTo(0, state.valueCache[curLayer], (position + t) * kvDim, kvDim);
+                state.k[t].copyTo(0, caches[t].keyCache[curLayer], positions[t] * kvDim, kvDim);
+                state.v[t].copyTo(0, caches[t].valueCache[curLayer], positions[t] * kvDim, kvDim);
             });
 
             // If the logits are not required, the attention and FFN of the last layer can be skipped entirely.
             if (!computeLogits && curLayer == config.numberOfLayers - 1) {
-                state.idxPrevBlock = nTokens - 1;
-                return null;
+                return;
             }
 
             // multihead attention. iterate over all heads
@@ -288,23 +345,26 @@ public final class Llama {
                 int h = (int) (ht % config.numberOfHeads);
                 int qOffset = h * headSize;
                 int attOffset = h * config.contextLength;
+                int position = positions[token];
+                FloatTensor keyCache = caches[token].keyCache[curLayer];
+                FloatTensor valueCache = caches[token].valueCache[curLayer];
 
-                for (int t = 0; t <= position + token; t++) {
+                for (int t = 0; t <= position; t++) {
                     int keyCacheOffset = t * kvDim + (h / kvMul) * headSize;
-                    float score = state.q[token].dot(qOffset, state.keyCache[curLayer], keyCacheOffset, headSize);
+                    float score = state.q[token].dot(qOffset, keyCache, keyCacheOffset, headSize);
                     score /= sqrtHeadSize;
                     state.att[token].setFloat(attOffset + t, score);
                 }
 
-                state.att[token].softmaxInPlace(attOffset, position + token + 1);
+                state.att[token].softmaxInPlace(attOffset, position + 1);
 
                 int xbOffset = h * headSize;
                 state.xb[token].fillInPlace(xbOffset, headSize, 0f);
 
-                for (int t = 0; t <= position + token; t++) {
+                for (int t = 0; t <= position; t++) {
                     int vOffset = t * kvDim + (h / kvMul) * headSize;
                     float a = state.att[token].getFloat(attOffset + t);
-                    state.xb[token].saxpyInPlace(xbOffset, state.valueCache[curLayer], vOffset, headSize, a);
+                    state.xb[token].saxpyInPlace(xbOffset, valueCache, vOffset, headSize, a);
                 }
             });
 
@@ -348,12 +408,6 @@ public final class Llama {
         AbstractFloatTensor.parallelFor(0, nTokens, t -> {
             rmsnorm(state.x[t], state.x[t], weights.rms_final_weight, dim, config.rmsNormEps);
         });
-
-        // classifier into logits
-        weights.wcls.matmul(state.x[nTokens - 1], state.logits, config.vocabularySize, dim);
-        state.idxPrevBlock = nTokens - 1;
-
-        return state.logits;
     }
 
     /**
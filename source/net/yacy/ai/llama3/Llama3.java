@@ -37,11 +37,31 @@ public class Llama3 {
     
     // Batch-size used in prompt evaluation.
     private static final int BATCH_SIZE = Integer.getInteger("llama.BatchSize", 16);
+    // Maximum number of sessions which are computed together in continuous batching.
+    private static final int BATCH_SESSIONS = Integer.getInteger("llama.BatchSessions", 8);
+    // Number of cached key/value states of prompt prefixes.
+    private static final int PREFIX_CACHE_ENTRIES = Integer.getInteger("llama.PrefixCacheEntries", 4);
 
     Llama model;
+    final PrefixCache prefixCache;
+    private BatchScheduler scheduler;
     
     public Llama3(final Path modelPath, int contextLength) throws IOException {
         this.model = ModelLoader.loadModel(modelPath, contextLength, true);
+        this.prefixCache = new PrefixCache(PREFIX_CACHE_ENTRIES);
+        this.scheduler = null;
+    }
+
+    /**
+     * @return the scheduler which computes concurrent sessions in batches, started with the first session
+     */
+    public synchronized BatchScheduler scheduler() {
+        if (this.scheduler == null) this.scheduler = new BatchScheduler(this.model, BATCH_SESSIONS, BATCH_SIZE, this.prefixCache);
+        return this.scheduler;
+    }
+
+    public PrefixCache prefixCache() {
+        return this.prefixCache;
     }
     
     public class TokenSampler {
@@ -104,23 +124,38 @@ public class Llama3 {
             return result;
         }
         
-        public List<Integer> runInstructOnce(IntConsumer onTokenGenerated) {
-            Llama.State state = model.createNewState(BATCH_SIZE);
-            ChatFormat chatFormat = new ChatFormat(model.tokenizer());
-
+        /**
+         * the instruct prompt: begin of text, system prompt, user prompt and the header of the assistant turn
+         * @param chatFormat the chat format
+         * @param prefixLength an array of length 1 which gets the number of tokens of the begin of text and the system prompt
+         */
+        private List<Integer> instructPrompt(ChatFormat chatFormat, int[] prefixLength) {
             List<Integer> promptTokens = new ArrayList<>();
             promptTokens.add(chatFormat.beginOfText);
             if (context.systemPrompt != null) {
                 promptTokens.addAll(chatFormat.encodeMessage(new ChatFormat.Message(ChatFormat.Role.SYSTEM, context.systemPrompt)));
             }
             //System.out.println("Context after System Prompt: " + toString(model, promptTokens));
+            prefixLength[0] = promptTokens.size();
             promptTokens.addAll(chatFormat.encodeMessage(new ChatFormat.Message(ChatFormat.Role.USER, context.prompt)));
             //System.out.println("Context after User Prompt: " + toString(model, promptTokens));
             promptTokens.addAll(chatFormat.encodeHeader(new ChatFormat.Message(ChatFormat.Role.ASSISTANT, "")));
             //System.out.println("Context after Assistant Prompt: " + toString(model, promptTokens));
+            return promptTokens;
+        }
 
+        public List<Integer> runInstructOnce(IntConsumer onTokenGenerated) {
+            Llama.State state = model.createNewState(BATCH_SIZE);
+            ChatFormat chatFormat = new ChatFormat(model.tokenizer());
+
+            int[] prefixLength = new int[1];
+            List<Integer> promptTokens = instructPrompt(chatFormat, prefixLength);
+
+            // start after the system prompt if its key/value state is cached
+            int startPosition = prefixCache.restore(model.configuration(), promptTokens, state);
             Set<Integer> stopTokens = chatFormat.getStopTokens();
-            List<Integer> responseTokens = Llama.generateTokens(model, state, 0, promptTokens, stopTokens, context.maxTokens, sampler, onTokenGenerated);
+            List<Integer> responseTokens = Llama.generateTokens(model, state, startPosition, promptTokens.subList(startPosition, promptTokens.size()), stopTokens, context.maxTokens, sampler, onTokenGenerated);
+            if (startPosition < prefixLength[0]) prefixCache.store(model.configuration(), promptTokens.subList(0, prefixLength[0]), state);
 
             // remove stop token at the end of the response, if present
             if (!responseTokens.isEmpty() && stopTokens.contains(responseTokens.get(responseTokens.size()-1))) {
@@ -129,6 +164,18 @@ public class Llama3 {
             //System.out.println(model.tokenizer().decode(responseTokens));
             return responseTokens;
         }
+
+        /**
+         * submit the instruct prompt to the scheduler, so that it is computed together with concurrent sessions
+         * @param onTokenGenerated callback for every generated token, called in the thread of the scheduler
+         * @return the session with the future of the response tokens, including the stop token, if any
+         */
+        public BatchScheduler.Session submitInstruct(IntConsumer onTokenGenerated) {
+            ChatFormat chatFormat = new ChatFormat(model.tokenizer());
+            int[] prefixLength = new int[1];
+            List<Integer> promptTokens = instructPrompt(chatFormat, prefixLength);
+            return scheduler().submit(promptTokens, prefixLength[0], chatFormat.getStopTokens(), context.maxTokens, sampler, onTokenGenerated);
+        }
     }
     
     
@@ -0,0 +1,178 @@
+/**
+ *  PrefixCache
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.ai.llama3;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.ai.llama3.Tensor.DirectBufferFloatTensor;
+import net.yacy.ai.llama3.Tensor.FloatTensor;
+
+/**
+ * A cache of the key/value state of prompt prefixes, i.e. the system prompt and a RAG preamble which are
+ * the same for many requests. Because of the causal attention, the keys and values of the first tokens of a prompt
+ * do not depend on the following tokens, so the cached rows can be copied into the kv cache of a new session
+ * and the ingestion of the prompt starts after the prefix.
+ * The entries are evicted in least-recently-used order.
+ */
+public class PrefixCache {
+
+    private final int maxEntries;
+    private final LinkedList<Entry> entries; // the most recently used entry first
+    private final AtomicLong hits, misses, reusedTokens;
+
+    private static class Entry {
+        private final int[] tokens;
+        private final FloatTensor[] keys, values; // (n_layer, tokens, kv_dim)
+
+        private Entry(final int[] tokens, final FloatTensor[] keys, final FloatTensor[] values) {
+            this.tokens = tokens;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        private boolean isPrefixOf(final List<Integer> prompt) {
+            if (prompt.size() < this.tokens.length) return false;
+            for (int i = 0; i < this.tokens.length; i++) if (prompt.get(i).intValue() != this.tokens[i]) return false;
+            return true;
+        }
+    }
+
+    /**
+     * @param maxEntries the maximum number of cached prefixes
+     */
+    public PrefixCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedList<>();
+        this.hits = new AtomicLong(0);
+        this.misses = new AtomicLong(0);
+        this.reusedTokens = new AtomicLong(0);
+    }
+
+    /**
+     * copy the kv cache rows of the longest cached prefix of a prompt into the kv cache of a state
+     * @param config the model configuration
+     * @param prompt the prompt tokens
+     * @param state the state of a new session
+     * @return the number of prompt tokens which are in the kv cache of the state now, at least one token of the prompt is left for the ingestion
+     */
+    public int restore(final Llama.Configuration config, final List<Integer> prompt, final Llama.State state) {
+        Entry best = null;
+        synchronized (this.entries) {
+            for (final Entry entry: this.entries) {
+                if ((best == null || entry.tokens.length > best.tokens.length) && entry.isPrefixOf(prompt)) best = entry;
+            }
+            if (best == null || prompt.size() < 2) {
+                this.misses.incrementAndGet();
+                return 0;
+            }
+            this.entries.remove(best);
+            this.entries.addFirst(best);
+        }
+        final int n = Math.min(best.tokens.length, prompt.size() - 1);
+        final int kvDim = kvDim(config);
+        for (int l = 0; l < config.numberOfLayers; l++) {
+            best.keys[l].copyTo(0, state.keyCache[l], 0, n * kvDim);
+            best.values[l].copyTo(0, state.valueCache[l], 0, n * kvDim);
+        }
+        this.hits.incrementAndGet();
+        this.reusedTokens.addAndGet(n);
+        return n;
+    }
+
+    /**
+     * store the kv cache rows of a prompt prefix
+     * @param config the model configuration
+     * @param prefix the prefix tokens; the state must contain the keys and values of these tokens at the positions 0..prefix.size() - 1
+     * @param state the state of a session which has ingested the prefix
+     */
+    public void store(final Llama.Configuration config, final List<Integer> prefix, final Llama.State state) {
+        if (prefix.isEmpty() || this.maxEntries <= 0) return;
+        final int[] tokens = new int[prefix.size()];
+        for (int i = 0; i < tokens.length; i++) tokens[i] = prefix.get(i);
+        synchronized (this.entries) {
+            for (final Entry entry: this.entries) {
+                if (entry.tokens.length == tokens.length && entry.isPrefixOf(prefix)) return; // already cached
+            }
+        }
+        final int kvDim = kvDim(config);
+        final FloatTensor[] keys = new FloatTensor[config.numberOfLayers];
+        final FloatTensor[] values = new FloatTensor[config.numberOfLayers];
+        for (int l = 0; l < config.numberOfLayers; l++) {
+            keys[l] = DirectBufferFloatTensor.allocate(tokens.length, kvDim);
+            values[l] = DirectBufferFloatTensor.allocate(tokens.length, kvDim);
+            state.keyCache[l].copyTo(0, keys[l], 0, tokens.length * kvDim);
+            state.valueCache[l].copyTo(0, values[l], 0, tokens.length * kvDim);
+        }
+        synchronized (this.entries) {
+            this.entries.addFirst(new Entry(tokens, keys, values));
+            while (this.entries.size() > this.maxEntries) this.entries.removeLast();
+        }
+    }
+
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * @return the number of cached tokens
+     */
+    public long tokens() {
+        long tokens = 0;
+        synchronized (this.entries) {
+            for (final Entry entry: this.entries) tokens += entry.tokens.length;
+        }
+        return tokens;
+    }
+
+    public long hits() {
+        return this.hits.get();
+    }
+
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return the number of prompt tokens which were not ingested because they were copied from the cache
+     */
+    public long reusedTokens() {
+        return this.reusedTokens.get();
+    }
+
+    private static int kvDim(final Llama.Configuration config) {
+        return (config.dim * config.numberOfKeyValueHeads) / config.numberOfHeads;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefixCache[entries=" + this.size() + ", tokens=" + this.tokens() + ", hits=" + this.hits() + ", misses=" + this.misses() + ", reusedTokens=" + this.reusedTokens() + "]";
+    }
+}
@@ -181,6 +181,12 @@ public abstract class AbstractFloatTensor implements FloatTensor {
 
 
     public void matmul(final FloatTensor that, final FloatTensor out, final int dim0, final int dim1) {
+        final VectorKernel kernel = VectorKernels.KERNEL;
+        if (kernel != null && isVectorizable(dim1)) {
+            final float[] values = VectorKernels.toArray(that, dim1);
+            parallelFor(0, dim0, i -> out.setFloat(i, vectorDot(kernel, i * dim1, values, 0, dim1)));
+            return;
+        }
         parallelFor(0, dim0, i -> out.setFloat(i, dot(i * dim1, that, 0, dim1)));
     }
 
@@ -188,6 +194,17 @@ public abstract class AbstractFloatTensor implements FloatTensor {
         if (that.length != out.length) {
             throw new IllegalArgumentException(String.format("that.len=%d, out.len=%d", that.length, out.length));
         }
+        final VectorKernel kernel = VectorKernels.KERNEL;
+        if (kernel != null && isVectorizable(dim1)) {
+            final float[][] values = new float[context][];
+            for (int c = 0; c < context; c++) values[c] = VectorKernels.toArray(that[c], dim1);
+            parallelForLong(0, dim0 * context, ti -> {
+                int idxArr = (int) (ti / dim0);
+                int i = (int) (ti % dim0);
+                out[idxArr].setFloat(i, vectorDot(kernel, i * dim1, values[idxArr], 0, dim1));
+            });
+            return;
+        }
         parallelForLong(0, dim0 * context, ti -> {
             int idxArr = (int) (ti / dim0);
             int i = (int) (ti % dim0);
@@ -195,6 +212,27 @@ public abstract class AbstractFloatTensor implements FloatTensor {
         });
     }
 
+    /**
+     * @param dim1 the number of values in a row of a matmul
+     * @return true if the dot product of a row can be computed with {@link #vectorDot(VectorKernel, int, float[], int, int)}
+     */
+    boolean isVectorizable(final int dim1) {
+        return false;
+    }
+
+    /**
+     * dot product computed with a SIMD kernel
+     * @param kernel the kernel
+     * @param thisOffset the first value of this tensor
+     * @param that the values of the other tensor
+     * @param thatOffset the first value of the array
+     * @param size the number of values
+     * @return the dot product
+     */
+    float vectorDot(final VectorKernel kernel, final int thisOffset, final float[] that, final int thatOffset, final int size) {
+        throw new UnsupportedOperationException("vectorDot");
+    }
+
     @FunctionalInterface
     public interface AggregateFunction {
         float apply(float acc, float value);
@@ -125,8 +125,22 @@ public final class ArrayFloatTensor extends AbstractFloatTensor implements Float
         return result;
     }
     
+    @Override
+    final boolean isVectorizable(final int dim1) {
+        return true;
+    }
+
+    @Override
+    final float vectorDot(final VectorKernel kernel, final int thisOffset, final float[] that, final int thatOffset, final int size) {
+        return kernel.dot(this.values, thisOffset, that, thatOffset, size);
+    }
+
     @Override
     public final void matmul(final FloatTensor that, final FloatTensor out, final int dim0, final int dim1) {
+        if (VectorKernels.KERNEL != null) {
+            super.matmul(that, out, dim0, dim1);
+            return;
+        }
     	if (that instanceof ArrayFloatTensor) {
     	    AbstractFloatTensor.parallelFor(0, dim0, i -> ((ArrayFloatTensor) out).values[i] = this.dot(i * dim1, that, 0, dim1));
     	} else {
@@ -139,6 +153,10 @@ public final class ArrayFloatTensor extends AbstractFloatTensor implements Float
         if (that.length != out.length) {
             throw new IllegalArgumentException(String.format("that.len=%d, out.len=%d", that.length, out.length));
         }
+        if (VectorKernels.KERNEL != null) {
+            super.matmul(context, that, out, dim0, dim1);
+            return;
+        }
         AbstractFloatTensor.parallelForLong(0, dim0 * context, ti -> {
             int idxArr = (int) (ti / dim0);
             int i = (int) (ti % dim0);
@@ -71,4 +71,14 @@ public final class BF16FloatTensor extends AbstractFloatTensor implements FloatT
         return Float.intBitsToFloat(buffer.getShort(index * GGMLType.BFLOAT16_BYTES) << 16);
     }
 
+    @Override
+    final boolean isVectorizable(final int dim1) {
+        return true;
+    }
+
+    @Override
+    final float vectorDot(final VectorKernel kernel, final int thisOffset, final float[] that, final int thatOffset, final int size) {
+        return kernel.dotBF16(this.buffer, thisOffset * GGMLType.BFLOAT16_BYTES, that, thatOffset, size);
+    }
+
 }
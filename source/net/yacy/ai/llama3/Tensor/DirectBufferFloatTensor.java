@@ -130,12 +130,22 @@ public class DirectBufferFloatTensor extends AbstractFloatTensor implements Floa
 
         // remaining values
         for (int j = limit; j < size; j++) {
-            result += this.byteBuffer.getFloat(j << 2) * that.getFloat(j);
+            result += this.byteBuffer.getFloat((thisOffset + j) << 2) * that.getFloat(thatOffset + j);
         }
         
         return result;
     }
 
+    @Override
+    final boolean isVectorizable(final int dim1) {
+        return true;
+    }
+
+    @Override
+    final float vectorDot(final VectorKernel kernel, final int thisOffset, final float[] that, final int thatOffset, final int size) {
+        return kernel.dotF32(this.byteBuffer, thisOffset << 2, that, thatOffset, size);
+    }
+
     /*
     
     @Override
@@ -72,4 +72,14 @@ public final class F16FloatTensor extends AbstractFloatTensor implements FloatTe
         return float16ToFloat(buffer.getShort(index * GGMLType.FLOAT16_BYTES));
     }
 
+    @Override
+    final boolean isVectorizable(final int dim1) {
+        return true;
+    }
+
+    @Override
+    final float vectorDot(final VectorKernel kernel, final int thisOffset, final float[] that, final int thatOffset, final int size) {
+        return kernel.dotF16(this.buffer, thisOffset * GGMLType.FLOAT16_BYTES, that, thatOffset, size);
+    }
+
 }
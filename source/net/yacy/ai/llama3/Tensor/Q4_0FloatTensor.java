@@ -223,5 +223,15 @@ public final class Q4_0FloatTensor extends AbstractFloatTensor implements FloatT
         
         return (float) result;
     }
-    
+
+    @Override
+    final boolean isVectorizable(final int dim1) {
+        return dim1 % GGMLType.Q4_0.blockSize == 0;
+    }
+
+    @Override
+    final float vectorDot(final VectorKernel kernel, final int thisOffset, final float[] that, final int thatOffset, final int size) {
+        return kernel.dotQ4_0(this.buffer, thisOffset / GGMLType.Q4_0.blockSize * GGMLType.Q4_0.typeSize, that, thatOffset, size / GGMLType.Q4_0.blockSize);
+    }
+
 }
\ No newline at end of file
@@ -131,4 +131,15 @@ public final class Q8_0FloatTensor extends AbstractFloatTensor {
             that.setFloat(i, quant * scale);
         }
     }
+
+    @Override
+    final boolean isVectorizable(final int dim1) {
+        return dim1 % GGMLType.Q8_0.blockSize == 0;
+    }
+
+    @Override
+    final float vectorDot(final VectorKernel kernel, final int thisOffset, final float[] that, final int thatOffset, final int size) {
+        return kernel.dotQ8_0(this.buffer, thisOffset / GGMLType.Q8_0.blockSize * GGMLType.Q8_0.typeSize, that, thatOffset, size / GGMLType.Q8_0.blockSize);
+    }
+
 }
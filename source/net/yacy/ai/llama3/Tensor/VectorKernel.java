@@ -0,0 +1,67 @@
+/**
+ *  VectorKernel
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.ai.llama3.Tensor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SIMD dot products of the tensor types with an array of floats, as used in the rows of a matmul.
+ * The implementation uses the Vector API of jdk.incubator.vector; it is in the source-vector directory
+ * because it is compiled for Java 17, while YaCy is compiled for Java 11. See {@link VectorKernels}.
+ * All offsets of the ByteBuffers are absolute byte positions, the byte order is the order of the buffer.
+ */
+public interface VectorKernel {
+
+    /**
+     * dot product of two float arrays
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int size);
+
+    /**
+     * dot product of 32 bit floats in a buffer with a float array
+     */
+    float dotF32(ByteBuffer a, int aByteOffset, float[] b, int bOffset, int size);
+
+    /**
+     * dot product of 16 bit floats in a buffer with a float array
+     */
+    float dotF16(ByteBuffer a, int aByteOffset, float[] b, int bOffset, int size);
+
+    /**
+     * dot product of bfloat16 values in a buffer with a float array
+     */
+    float dotBF16(ByteBuffer a, int aByteOffset, float[] b, int bOffset, int size);
+
+    /**
+     * dot product of Q8_0 blocks in a buffer with a float array
+     * @param aByteOffset the position of the first block
+     * @param blocks the number of blocks, each with {@link net.yacy.ai.llama3.Model.GGMLType#Q8_0} block size values
+     */
+    float dotQ8_0(ByteBuffer a, int aByteOffset, float[] b, int bOffset, int blocks);
+
+    /**
+     * dot product of Q4_0 blocks in a buffer with a float array
+     * @param aByteOffset the position of the first block
+     * @param blocks the number of blocks, each with {@link net.yacy.ai.llama3.Model.GGMLType#Q4_0} block size values
+     */
+    float dotQ4_0(ByteBuffer a, int aByteOffset, float[] b, int bOffset, int blocks);
+
+}
@@ -0,0 +1,94 @@
+/**
+ *  VectorKernels
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.ai.llama3.Tensor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Selection of the {@link VectorKernel} at run time. The kernel is used if
+ * - the jvm is started with --add-modules jdk.incubator.vector,
+ * - the kernel class was compiled (this needs a JDK 17 or later at build time),
+ * - the system property llama.VectorAPI is not false and
+ * - the kernel passes a self test.
+ * Otherwise {@link #KERNEL} is null and the tensors use their scalar dot products.
+ */
+public final class VectorKernels {
+
+    private static final String KERNEL_CLASS = "net.yacy.ai.llama3.Tensor.VectorAPIKernel";
+
+    public static final VectorKernel KERNEL = load();
+
+    private VectorKernels() {}
+
+    private static VectorKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty("llama.VectorAPI", "true"))) return null;
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) return null;
+        try {
+            final VectorKernel kernel = (VectorKernel) Class.forName(KERNEL_CLASS).getDeclaredConstructor().newInstance();
+            return selfTest(kernel) ? kernel : null;
+        } catch (final Throwable e) {
+            // the class is missing or the Vector API of this jdk is not compatible with the compiled kernel
+            return null;
+        }
+    }
+
+    /**
+     * call all methods of the kernel, so that linkage errors appear here and not in the inference
+     */
+    private static boolean selfTest(final VectorKernel kernel) {
+        final int size = 64;
+        final float[] a = new float[size], b = new float[size];
+        float expected = 0f;
+        for (int i = 0; i < size; i++) {
+            a[i] = i % 7 - 3;
+            b[i] = i % 5 - 2;
+            expected += a[i] * b[i];
+        }
+        final ByteBuffer f32 = ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < size; i++) f32.putFloat(i * Float.BYTES, a[i]);
+        final ByteBuffer zero = ByteBuffer.allocateDirect(size * Float.BYTES).order(ByteOrder.nativeOrder());
+        return kernel.dot(a, 0, b, 0, size) == expected &&
+               kernel.dotF32(f32, 0, b, 0, size) == expected &&
+               kernel.dotF16(zero, 0, b, 0, size) == 0f &&
+               kernel.dotBF16(zero, 0, b, 0, size) == 0f &&
+               kernel.dotQ8_0(zero, 0, b, 0, 2) == 0f &&
+               kernel.dotQ4_0(zero, 0, b, 0, 2) == 0f;
+    }
+
+    /**
+     * the values of a tensor as array, to be used as the second operand of a kernel
+     * @param tensor the tensor
+     * @param size the number of values
+     * @return the values array of an ArrayFloatTensor or a copy of the values
+     */
+    static float[] toArray(final FloatTensor tensor, final int size) {
+        if (tensor instanceof ArrayFloatTensor) return ((ArrayFloatTensor) tensor).values;
+        final float[] values = new float[size];
+        if (tensor instanceof DirectBufferFloatTensor) {
+            final ByteBuffer buffer = ((DirectBufferFloatTensor) tensor).byteBuffer;
+            buffer.duplicate().order(buffer.order()).asFloatBuffer().get(values);
+        } else {
+            for (int i = 0; i < size; i++) values[i] = tensor.getFloat(i);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ *  SymmetricDeleteIndex
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A spelling index which finds all words within a given edit distance of a word without generating
+ * the variations of the word over an alphabet (symmetric delete spelling correction).
+ * For each word, all strings which result from deleting up to maxDistance characters of the first prefixLength
+ * characters are computed and stored. A lookup computes the same deletions for the given word; words which share
+ * a deletion are candidates, and the candidates are verified with the Damerau-Levenshtein distance.
+ * The deletions are not stored as strings but as pairs of their hash and the word number in a sorted array,
+ * so the index needs 8 bytes per deletion. New words are collected in an unsorted array which is merged
+ * into the sorted array from time to time.
+ */
+public class SymmetricDeleteIndex {
+
+    private final static int MAX_UNSORTED = 1024;
+
+    private final int maxDistance;
+    private final int prefixLength;
+    private final Map<String, Integer> ids; // the lower case words and their numbers
+    private String[] words;
+    private int[] counts;
+    private long[] sorted; // hash << 32 | word number, sorted
+    private int sortedSize;
+    private long[] unsorted; // like sorted, but not sorted
+    private int unsortedSize;
+
+    /**
+     * @param maxDistance the maximum edit distance of a lookup
+     * @param prefixLength the number of characters of a word which are used for the deletions; longer words are verified by the distance computation
+     */
+    public SymmetricDeleteIndex(final int maxDistance, final int prefixLength) {
+        this.maxDistance = maxDistance;
+        this.prefixLength = prefixLength;
+        this.ids = new HashMap<>();
+        this.clear();
+    }
+
+    public synchronized void clear() {
+        this.ids.clear();
+        this.words = new String[16];
+        this.counts = new int[16];
+        this.sorted = new long[0];
+        this.sortedSize = 0;
+        this.unsorted = new long[64];
+        this.unsortedSize = 0;
+    }
+
+    /**
+     * @return the number of words
+     */
+    public synchronized int size() {
+        return this.ids.size();
+    }
+
+    /**
+     * add a word or increase its count
+     * @param word the word
+     * @param count the count which is added to the count of the word, used to order the results of a lookup
+     */
+    public synchronized void add(final String word, final int count) {
+        final String key = word.toLowerCase(Locale.ROOT);
+        if (key.isEmpty()) return;
+        final Integer id = this.ids.get(key);
+        if (id != null) {
+            this.counts[id] += count;
+            return;
+        }
+        final int n = this.ids.size();
+        if (n == this.words.length) {
+            this.words = Arrays.copyOf(this.words, n * 2);
+            this.counts = Arrays.copyOf(this.counts, n * 2);
+        }
+        this.words[n] = word;
+        this.counts[n] = count;
+        this.ids.put(key, n);
+        for (final String delete: deletes(key.substring(0, Math.min(key.length(), this.prefixLength)), this.maxDistance)) {
+            if (this.unsortedSize == this.unsorted.length) this.unsorted = Arrays.copyOf(this.unsorted, this.unsortedSize * 2);
+            this.unsorted[this.unsortedSize++] = pair(delete.hashCode(), n);
+        }
+        // merge when the unsorted array is large compared to the sorted array, so that adding many words is not quadratic
+        if (this.unsortedSize > Math.max(MAX_UNSORTED, this.sortedSize / 4)) this.merge();
+    }
+
+    /**
+     * find all words within the given edit distance of a word
+     * @param word the word
+     * @param maxDistance the maximum edit distance (insertions, deletions, substitutions and transpositions of adjacent characters); not larger than the maximum distance of the index
+     * @return the words ordered by the distance and then by their count, including the word itself if it is in the index
+     */
+    public synchronized List<String> lookup(final String word, int maxDistance) {
+        maxDistance = Math.min(maxDistance, this.maxDistance);
+        final String key = word.toLowerCase(Locale.ROOT);
+        final List<String> result = new ArrayList<>();
+        if (key.isEmpty() || this.ids.isEmpty()) return result;
+        if (this.unsortedSize > MAX_UNSORTED) this.merge();
+        final Set<Integer> checked = new HashSet<>();
+        final List<int[]> found = new ArrayList<>(); // word number and distance
+        for (final String delete: deletes(key.substring(0, Math.min(key.length(), this.prefixLength)), maxDistance)) {
+            final int hash = delete.hashCode();
+            final long low = pair(hash, 0), high = pair(hash, -1);
+            // the sorted pairs with the hash
+            int p = Arrays.binarySearch(this.sorted, 0, this.sortedSize, low);
+            if (p < 0) p = -p - 1;
+            for (; p < this.sortedSize && this.sorted[p] <= high; p++) {
+                this.check(key, (int) this.sorted[p], maxDistance, checked, found);
+            }
+            // the unsorted pairs with the hash
+            for (int i = 0; i < this.unsortedSize; i++) {
+                if (this.unsorted[i] >= low && this.unsorted[i] <= high) this.check(key, (int) this.unsorted[i], maxDistance, checked, found);
+            }
+        }
+        found.sort((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(this.counts[b[0]], this.counts[a[0]]));
+        for (final int[] f: found) result.add(this.words[f[0]]);
+        return result;
+    }
+
+    private void check(final String key, final int id, final int maxDistance, final Set<Integer> checked, final List<int[]> found) {
+        if (!checked.add(id)) return;
+        final String candidate = this.words[id].toLowerCase(Locale.ROOT);
+        if (Math.abs(candidate.length() - key.length()) > maxDistance) return;
+        final int d = distance(key, candidate, maxDistance);
+        if (d <= maxDistance) found.add(new int[]{id, d});
+    }
+
+    private void merge() {
+        Arrays.sort(this.unsorted, 0, this.unsortedSize);
+        final long[] merged = new long[this.sortedSize + this.unsortedSize];
+        int i = 0, j = 0, k = 0;
+        while (i < this.sortedSize && j < this.unsortedSize) {
+            merged[k++] = this.sorted[i] <= this.unsorted[j] ? this.sorted[i++] : this.unsorted[j++];
+        }
+        while (i < this.sortedSize) merged[k++] = this.sorted[i++];
+        while (j < this.unsortedSize) merged[k++] = this.unsorted[j++];
+        this.sorted = merged;
+        this.sortedSize = merged.length;
+        this.unsorted = new long[64];
+        this.unsortedSize = 0;
+    }
+
+    private static long pair(final int hash, final int id) {
+        return ((long) hash << 32) | (id & 0xffffffffL);
+    }
+
+    /**
+     * compute all strings which result from deleting up to maxDistance characters, including the string itself
+     */
+    private static Set<String> deletes(final String s, final int maxDistance) {
+        final Set<String> deletes = new HashSet<>();
+        deletes.add(s);
+        Set<String> level = deletes;
+        for (int d = 0; d < maxDistance; d++) {
+            final Set<String> next = new HashSet<>();
+            for (final String t: level) {
+                for (int i = 0; i < t.length(); i++) {
+                    final String u = t.substring(0, i) + t.substring(i + 1);
+                    if (!deletes.contains(u)) next.add(u);
+                }
+            }
+            deletes.addAll(next);
+            level = next;
+        }
+        return deletes;
+    }
+
+    /**
+     * the Damerau-Levenshtein distance (optimal string alignment) of two strings
+     * @return the distance, or a value larger than maxDistance if the distance is larger than maxDistance
+     */
+    public static int distance(final String a, final String b, final int maxDistance) {
+        final int n = a.length(), m = b.length();
+        if (Math.abs(n - m) > maxDistance) return maxDistance + 1;
+        int[] prev2 = new int[m + 1], prev = new int[m + 1], row = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            row[0] = i;
+            int rowMin = row[0];
+            for (int j = 1; j <= m; j++) {
+                final int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, row[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                row[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > maxDistance) return maxDistance + 1;
+            final int[] t = prev2;
+            prev2 = prev;
+            prev = row;
+            row = t;
+        }
+        return prev[m];
+    }
+}
@@ -30,6 +30,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
@@ -55,10 +56,12 @@ public class WordCache {
     private static final int commonWordsMaxSize = 20000;  // maximum size of common word cache
     private static final int commonWordsMinLength = 5;    // words must have that length at minimum
     private static OrderedScoreMap<StringBuilder> commonWords = new OrderedScoreMap<>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
+    private static final SymmetricDeleteIndex commonSpelling = new SymmetricDeleteIndex(2, 6); // the common words for spelling suggestions
 
     // dictionaries
     private final File dictionaryPath;
     final Map<String, Dictionary> dictionaries;
+    private final SymmetricDeleteIndex spelling; // the words of all dictionaries for spelling suggestions
 
     public static class Dictionary {
 
@@ -202,6 +205,7 @@ public class WordCache {
     public WordCache(final File dictionaryPath) {
         this.dictionaryPath = dictionaryPath;
         this.dictionaries = new ConcurrentHashMap<>();
+        this.spelling = new SymmetricDeleteIndex(2, 6);
         reload();
     }
 
@@ -217,8 +221,22 @@ public class WordCache {
             return;
         }
         commonWords.inc(word);
+        commonSpelling.add(word.toString(), 1);
         if (!(commonWords.sizeSmaller(commonWordsMaxSize))) {
             commonWords.shrinkToMaxSize(commonWordsMaxSize / 2);
+            // build the spelling index again without the removed words
+            synchronized (commonSpelling) {
+                commonSpelling.clear();
+                final Iterator<StringBuilder> i = commonWords.keys(false);
+                try {
+                    while (i.hasNext()) {
+                        final StringBuilder w = i.next();
+                        commonSpelling.add(w.toString(), commonWords.get(w));
+                    }
+                } catch (final ConcurrentModificationException e) {
+                    ConcurrentLog.logException(e);
+                }
+            }
         }
     }
 
@@ -241,6 +259,7 @@ public class WordCache {
                 try {
                     final Dictionary dict = new Dictionary(new File(this.dictionaryPath, f));
                     this.dictionaries.put(f.substring(0, f.length() - 6), dict);
+                    for (final StringBuilder w: dict.getWords()) this.spelling.add(w.toString(), 0);
                 } catch (final IOException e) {
                     log.warn(e);
                 }
@@ -284,6 +303,19 @@ public class WordCache {
         return ret;
     }
 
+    /**
+     * construct a set of spelling suggestions to a given string
+     * @param string input value that is used to match suggestions
+     * @param maxDistance the maximum number of inserted, deleted, changed or swapped characters, at most 2
+     * @return set that contains all words of the dictionaries and the common words which are similar to the input value
+     */
+    public Set<StringBuilder> suggest(final StringBuilder string, final int maxDistance) {
+        final Set<StringBuilder> ret = new HashSet<>();
+        for (final String s: this.spelling.lookup(string.toString(), maxDistance)) ret.add(new StringBuilder(s));
+        for (final String s: commonSpelling.lookup(string.toString(), maxDistance)) ret.add(new StringBuilder(s));
+        return ret;
+    }
+
     /**
      * check if the library contains the given word
      * @param s the given word
@@ -332,6 +364,7 @@ public class WordCache {
 
     public static void clearCommonWords() {
         commonWords.clear();
+        commonSpelling.clear();
     }
 
     /**
@@ -26,12 +26,13 @@ package net.yacy.cora.document.id;
 import java.io.File;
 import java.io.Serializable;
 import java.net.MalformedURLException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashSet;
 import java.util.Set;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.order.Base64Order;
-import net.yacy.cora.order.Digest;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.util.ByteArray;
 import net.yacy.cora.util.CommonPattern;
@@ -234,16 +235,12 @@ public class DigestURL extends MultiProtocolURL implements Serializable {
 
         final int id = Domains.getDomainID(this.host, this.hostAddress); // id=7: tld is local
         final boolean isHTTP = isHTTP();
-        int p = (this.host == null || this.host.indexOf(':') >= 0) ? -1 : this.host.lastIndexOf('.');
-        String dom = (p > 0) ? dom = this.host.substring(0, p) : "";
-        p = dom.lastIndexOf('.'); // locate subdomain
-        final String subdom;
-        if (p <= 0) {
-            subdom = "";
-        } else {
-            subdom = dom.substring(0, p);
-            dom = dom.substring(p + 1);
-        }
+
+        // locate the domain and the subdomain within the host name: host = subdom.dom.tld
+        final int tldStart = (this.host == null || this.host.indexOf(':') >= 0) ? -1 : this.host.lastIndexOf('.');
+        final int domEnd = (tldStart > 0) ? tldStart : 0;
+        final int subdomEnd = (domEnd > 0) ? this.host.lastIndexOf('.', domEnd - 1) : -1;
+        final int domStart = (subdomEnd <= 0) ? 0 : subdomEnd + 1;
 
         // find rootpath
         final String normalizedPath;
@@ -258,60 +255,123 @@ public class DigestURL extends MultiProtocolURL implements Serializable {
             rootpathStart = 1;
         if (normalizedPath.endsWith("/"))
             rootpathEnd = normalizedPath.length() - 2;
-        p = normalizedPath.indexOf('/', rootpathStart);
+        final int p = normalizedPath.indexOf('/', rootpathStart);
         // following doesn't recognize mixed notation e.g. c:\\tmp/test.html correct -> solved by using normalized path
         //if (this.isFile() && p < 0) p = this.path.indexOf('\\', rootpathStart); // double-check for windows path (if it's a file url)
-        String rootpath = "";
-        if (p > 0 && p < rootpathEnd) {
-            rootpath = normalizedPath.substring(rootpathStart, p);
-        }
+        final boolean hasRootpath = p > 0 && p < rootpathEnd;
 
         // we collected enough information to compute the fragments that are
         // basis for hashes
-        final int l = dom.length();
+        final int l = domEnd - domStart;
         final int domlengthKey = (l <= 8) ? 0 : (l <= 12) ? 1 : (l <= 16) ? 2 : 3;
         final byte flagbyte = (byte) (((isHTTP) ? 0 : 32) | (id << 2) | domlengthKey);
 
-        // combine the attributes
-        final StringBuilder hashs = new StringBuilder(12);
-        assert hashs.length() == 0;
+        // combine the attributes; all fragments are written into the hash without intermediate strings
+        final HashBuffer buffer = hashBuffer.get();
+        final byte[] b = new byte[12];
         // form the 'local' part of the hash
-        final String normalform = toNormalform(true, true); // normalizes also Windows backslash in path to '/' for file url
-        final String b64l = Base64Order.enhancedCoder.encode(Digest.encodeMD5Raw(normalform));
-        if (b64l.length() < 5) return null;
-        hashs.append(b64l.substring(0, 5)); // 5 chars
-        assert hashs.length() == 5;
-        hashs.append(subdomPortPath(subdom, this.port, rootpath)); // 1 char
-        assert hashs.length() == 6;
+        final StringBuilder sb = buffer.clear();
+        this.appendNormalform(sb, true, true); // normalizes also Windows backslash in path to '/' for file url
+        Base64Order.enhancedCoder.encodePrefix(buffer.md5(sb), b, 0, 5); // 5 chars
+        subdomPortPath(buffer, subdomEnd > 0 ? this.host : "", 0, Math.max(0, subdomEnd), this.port, normalizedPath, rootpathStart, hasRootpath ? p : rootpathStart, b, 5); // 1 char
         // form the 'global' part of the hash
-        hashs.append(hosthash5(this.protocol, this.host, this.port)); // 5 chars
-        assert hashs.length() == 11;
-        hashs.append(Base64Order.enhancedCoder.encodeByte(flagbyte)); // 1 char
-        assert hashs.length() == 12;
+        hosthash5(buffer, this.protocol, this.host, this.port, b, 6); // 5 chars
+        b[11] = (byte) Base64Order.enhancedCoder.encodeByte(flagbyte); // 1 char
 
         // return result hash
-        final byte[] b = ASCII.getBytes(hashs.toString());
-        assert b.length == 12;
         return b;
     }
 
-    private static char subdomPortPath(final String subdom, final int port, final String rootpath) {
-        final StringBuilder sb = new StringBuilder(subdom.length() + rootpath.length() + 8);
-        sb.append(subdom).append(':').append(Integer.toString(port)).append(':').append(rootpath);
-        return Base64Order.enhancedCoder.encode(Digest.encodeMD5Raw(sb.toString())).charAt(0);
+    /**
+     * Reusable buffers for the hash computation: the url hash is computed for every link that is extracted from a document
+     * and the url normal forms are mostly unique, so caching the digests does not help but allocating new buffers for each url does hurt.
+     */
+    private static final class HashBuffer {
+        private final MessageDigest digest;
+        private final StringBuilder sb = new StringBuilder(256);
+        private byte[] bytes = new byte[256];
+
+        private HashBuffer() {
+            MessageDigest d = null;
+            try {
+                d = MessageDigest.getInstance("MD5");
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            this.digest = d;
+        }
+
+        private StringBuilder clear() {
+            this.sb.setLength(0);
+            return this.sb;
+        }
+
+        /**
+         * compute the md5 of the UTF-8 encoding of a char sequence; the encoding is the same as in String.getBytes(StandardCharsets.UTF_8)
+         * @param s the char sequence
+         * @return the md5 digest
+         */
+        private byte[] md5(final CharSequence s) {
+            final int len = s.length();
+            if (this.bytes.length < len * 3) this.bytes = new byte[len * 3];
+            final byte[] out = this.bytes;
+            int n = 0;
+            for (int i = 0; i < len; i++) {
+                final char c = s.charAt(i);
+                if (c < 0x80) {
+                    out[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[n++] = (byte) (0xc0 | (c >> 6));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        final int cp = Character.toCodePoint(c, s.charAt(++i));
+                        out[n++] = (byte) (0xf0 | (cp >> 18));
+                        out[n++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                        out[n++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                        out[n++] = (byte) (0x80 | (cp & 0x3f));
+                    } else {
+                        out[n++] = (byte) '?'; // malformed surrogate is replaced as in String.getBytes
+                    }
+                } else {
+                    out[n++] = (byte) (0xe0 | (c >> 12));
+                    out[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    out[n++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+            this.digest.reset();
+            this.digest.update(out, 0, n);
+            return this.digest.digest();
+        }
     }
 
+    private static final ThreadLocal<HashBuffer> hashBuffer = ThreadLocal.withInitial(HashBuffer::new);
 
-    private static final String hosthash5(final String protocol, final String host, final int port) {
+    private static void subdomPortPath(final HashBuffer buffer,
+            final String subdom, final int subdomStart, final int subdomEnd, final int port,
+            final String path, final int rootpathStart, final int rootpathEnd,
+            final byte[] out, final int offset) {
+        final StringBuilder sb = buffer.clear();
+        sb.append(subdom, subdomStart, subdomEnd).append(':').append(port).append(':').append(path, rootpathStart, rootpathEnd);
+        Base64Order.enhancedCoder.encodePrefix(buffer.md5(sb), out, offset, 1);
+    }
+
+    private static void hosthash5(final HashBuffer buffer, final String protocol, final String host, final int port, final byte[] out, final int offset) {
+        final StringBuilder sb = buffer.clear();
         if (host == null) {
-            return Base64Order.enhancedCoder.encode(Digest.encodeMD5Raw(protocol)).substring(0, 5);
+            sb.append(protocol);
+        } else {
+            sb.append(protocol).append(':');
+            if (host.indexOf(':') >= 0) {sb.append('[').append(host).append(']');} else sb.append(host);
+            sb.append(':').append(port);
         }
-        final boolean isIPv6HostIP = host.indexOf(':') >= 0;
-        final StringBuilder sb = new StringBuilder(host.length() + 15);
-        sb.append(protocol).append(':');
-        if (isIPv6HostIP) {sb.append('[').append(host).append(']');} else sb.append(host);
-        sb.append(':').append(Integer.toString(port));
-        return Base64Order.enhancedCoder.encode(Digest.encodeMD5Raw(sb.toString())).substring(0, 5);
+        Base64Order.enhancedCoder.encodePrefix(buffer.md5(sb), out, offset, 5);
+    }
+
+    private static final String hosthash5(final String protocol, final String host, final int port) {
+        final byte[] b = new byte[5];
+        hosthash5(hashBuffer.get(), protocol, host, port, b, 0);
+        return ASCII.String(b);
     }
 
     /**
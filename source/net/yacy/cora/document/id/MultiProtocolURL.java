@@ -159,14 +159,16 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
     }
 
     // session id handling
-    private static final Object PRESENT = new Object();
-    private static final ConcurrentHashMap<String, Object> sessionIDnames = new ConcurrentHashMap<>();
+    // the values are the lower case search patterns {"sid=", "&sid="} of the session id name
+    private static final ConcurrentHashMap<String, String[]> sessionIDnames = new ConcurrentHashMap<>();
 
     public static final void initSessionIDNames(final Set<String> idNames) {
         for (String s: idNames) {
             if (s == null) continue;
             s = s.trim();
-            if (!s.isEmpty()) sessionIDnames.put(s, PRESENT);
+            if (s.isEmpty()) continue;
+            final String lc = s.toLowerCase(Locale.ROOT);
+            sessionIDnames.put(s, new String[]{lc + "=", "&" + lc + "="});
         }
     }
 
@@ -561,6 +563,7 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
     private static final String resolveBackpath(final String path) {
         String p = path;
         if (p.isEmpty() || p.charAt(0) != '/') { p = "/" + p; }
+        if (p.indexOf("/.") < 0 && p.indexOf("//") < 0) return p; // nothing to resolve, this is the case for most paths
         final Matcher qm = CommonPattern.QUESTION.matcher(p); // do not resolve backpaths in the post values
         final int end = qm.find() ? qm.start() : p.length();
         final Matcher matcher = backPathPattern.matcher(p);
@@ -654,7 +657,7 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
 	 *      definition</a>
 	 */
 	private static String escapePath(final String pathToEscape, final boolean isPattern) {
-		if (pathToEscape == null) {
+		if (pathToEscape == null || !needsEscape(pathToEscape, isPattern)) {
 			return pathToEscape;
 		}
 		final StringBuilder ptmp = new StringBuilder(pathToEscape.length() + 10);
@@ -709,6 +712,27 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
 		return pathToEscape;
 	}
 
+	/**
+	 * @param pathToEscape the path part to check
+	 * @param isPattern when true, regular meta-characters are allowed
+	 * @return false when {@link #escapePath(String, boolean)} would return the path unchanged
+	 */
+	private static boolean needsEscape(final String pathToEscape, final boolean isPattern) {
+		final int len = pathToEscape.length();
+		for (int i = 0; i < len; i++) {
+			final char ch = pathToEscape.charAt(i);
+			if (ch == '%' && (i + 2) < len) {
+				final char digit1 = pathToEscape.charAt(i + 1);
+				final char digit2 = pathToEscape.charAt(i + 2);
+				if (!isHexDigit(digit1) || !isHexDigit(digit2) || Character.isLowerCase(digit1) || Character.isLowerCase(digit2)) return true;
+				i += 2;
+			} else if (!(isPattern && PATTERN_METACHARACTERS.get(ch)) && (ch > 0x7F || !UNRESERVED_PATH.get(ch))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Decode UTF-8 percent-encoded characters eventually found in the given path.
 	 * <ul>
@@ -1009,8 +1033,9 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
         }
         String q = this.searchpart;
         if (removeSessionID) {
-            for (final String sid: sessionIDnames.keySet()) {
-                if (q.toLowerCase(Locale.ROOT).startsWith(sid.toLowerCase(Locale.ROOT) + "=")) {
+            String ql = q.toLowerCase(Locale.ROOT);
+            for (final String[] sid: sessionIDnames.values()) {
+                if (ql.startsWith(sid[0])) {
                     final int p = q.indexOf('&');
                     if (p < 0) {
                         if (excludeAnchor || this.anchor == null) return this.path;
@@ -1021,9 +1046,10 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
                         return sb.toString();
                     }
                     q = q.substring(p + 1);
+                    ql = q.toLowerCase(Locale.ROOT);
                     continue;
                 }
-                final int p = q.toLowerCase(Locale.ROOT).indexOf("&" + sid.toLowerCase(Locale.ROOT) + "=",0);
+                final int p = ql.indexOf(sid[1], 0);
                 if (p < 0) continue;
                 final int p1 = q.indexOf('&', p+1);
                 if (p1 < 0) {
@@ -1031,6 +1057,7 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
                 } else {
                     q = q.substring(0, p) + q.substring(p1);
                 }
+                ql = q.toLowerCase(Locale.ROOT);
             }
         }
         final StringBuilder sb = new StringBuilder(120);
@@ -1312,9 +1339,23 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
      * @return
      */
     public String toNormalform(final boolean excludeAnchor, final boolean removeSessionID) {
+        final StringBuilder u = new StringBuilder(20 + this.path.length() + ((this.host == null) ? 0 : this.host.length()));
+        this.appendNormalform(u, excludeAnchor, removeSessionID);
+        return u.toString();
+    }
+
+    /**
+     * Appends the normal form of the URL to a given buffer, the result is the same as in {@link #toNormalform(boolean, boolean)}.
+     * This can be used to compute the normal form in a reused buffer without creating a new string.
+     * @param u the buffer where the normal form is appended
+     * @param excludeAnchor
+     * @param removeSessionID
+     */
+    public void appendNormalform(final StringBuilder u, final boolean excludeAnchor, final boolean removeSessionID) {
         boolean defaultPort = false;
         if (this.protocol.equals("mailto")) {
-            return this.protocol + ":" + this.userInfo + "@" + this.host;
+            u.append(this.protocol).append(':').append(this.userInfo).append('@').append(this.host);
+            return;
         } else if (isHTTP()) {
             if (this.port < 0 || this.port == 80)  { defaultPort = true; }
         } else if (isHTTPS()) {
@@ -1328,7 +1369,6 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
         }
         String urlPath = this.getFile(excludeAnchor, removeSessionID);
         final String h = getHost();
-        final StringBuilder u = new StringBuilder(20 + (urlPath == null ? 0 : urlPath.length()) + ((h == null) ? 0 : h.length()));
         u.append(this.protocol);
         u.append("://");
         if (h != null) {
@@ -1346,9 +1386,6 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
             urlPath = urlPath.replace('\\', '/');
         }
         u.append(urlPath);
-        final String result = u.toString();
-
-        return result;
     }
 
     /**
@@ -1456,9 +1493,9 @@ public class MultiProtocolURL implements Serializable, Comparable<MultiProtocolU
 
     public final boolean isIndividual() {
         final String q = unescape(this.path.toLowerCase(Locale.ROOT));
-        for (final String sid: sessionIDnames.keySet()) {
-            if (q.startsWith(sid.toLowerCase(Locale.ROOT) + "=")) return true;
-            final int p = q.indexOf("&" + sid.toLowerCase(Locale.ROOT) + "=",0);
+        for (final String[] sid: sessionIDnames.values()) {
+            if (q.startsWith(sid[0])) return true;
+            final int p = q.indexOf(sid[1], 0);
             if (p >= 0) return true;
         }
         int pos;
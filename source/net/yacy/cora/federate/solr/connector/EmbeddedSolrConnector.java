@@ -26,17 +26,33 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -64,11 +80,13 @@ import org.apache.solr.search.DocIterator;
 import org.apache.solr.search.DocList;
 import org.apache.solr.search.DocSet;
 import org.apache.solr.search.DocSlice;
+import org.apache.solr.search.QParserPlugin;
 import org.apache.solr.search.QueryResultKey;
 import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.util.RefCounted;
 
+import net.yacy.cora.federate.solr.embedded.FilterQParserPlugin;
 import net.yacy.cora.federate.solr.instance.EmbeddedInstance;
 import net.yacy.cora.federate.solr.instance.SolrInstance;
 import net.yacy.cora.util.ConcurrentLog;
@@ -83,6 +101,7 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
     //private final SuggestComponent suggestHandler;
     private final EmbeddedInstance instance;
     private final SolrCore core;
+    private FilterQParserPlugin filterParser;
 
     public EmbeddedSolrConnector(final EmbeddedInstance instance) {
         super();
@@ -95,6 +114,7 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
         //this.suggestHandler.init(new NamedList<Object>());
         //this.suggestHandler.inform(this.core);
         config();
+        initFilterParser();
         super.init(this.instance.getDefaultServer());
 
     }
@@ -110,6 +130,7 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
         //this.suggestHandler.init(new NamedList<Object>());
         //this.suggestHandler.inform(this.core);
         config();
+        initFilterParser();
         super.init(this.instance.getServer(coreName));
     }
 
@@ -148,6 +169,49 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
         // This part may vary based on how SolrConfig applies updates
     }
 
+    /**
+     * find the cached filter query parser, which is declared in solrconfig.xml, and let it warm
+     * the filter cache with every new searcher
+     */
+    private void initFilterParser() {
+        this.filterParser = null;
+        try {
+            final QParserPlugin plugin = this.core.getQueryPlugin(FilterQParserPlugin.NAME);
+            if (plugin instanceof FilterQParserPlugin) {
+                this.filterParser = (FilterQParserPlugin) plugin;
+                this.filterParser.listen(this.core);
+            }
+        } catch (final Throwable e) {
+            ConcurrentLog.warn("EmbeddedSolrConnector", "no cached filter query parser: " + e.getMessage());
+        }
+    }
+
+    /**
+     * route the filter queries of a request through the cached filter query parser.
+     * The given params are not modified because they may be sent to other peers as well.
+     * @param params
+     * @return the params with the rewritten filter queries or the given params if no filter query can be cached
+     */
+    private ModifiableSolrParams cachedFilterQueries(final ModifiableSolrParams params) {
+        if (this.filterParser == null) return params;
+        final String[] fqs = params.getParams(CommonParams.FQ);
+        if (fqs == null || fqs.length == 0) return params;
+        final String[] cfqs = new String[fqs.length];
+        boolean changed = false;
+        for (int i = 0; i < fqs.length; i++) {
+            if (FilterQParserPlugin.isCacheable(fqs[i])) {
+                cfqs[i] = "{!" + FilterQParserPlugin.NAME + "}" + fqs[i];
+                changed = true;
+            } else {
+                cfqs[i] = fqs[i];
+            }
+        }
+        if (!changed) return params;
+        final ModifiableSolrParams cparams = new ModifiableSolrParams(params);
+        cparams.set(CommonParams.FQ, cfqs);
+        return cparams;
+    }
+
     @Override
     public int hashCode() {
         return this.instance.hashCode();
@@ -178,6 +242,31 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
         @SuppressWarnings("unchecked")
         final SolrCache<Integer, Document> documentCache = solrConfig.documentCacheConfig == null ? null : solrConfig.documentCacheConfig.newInstance();
         if (documentCache != null) documentCache.clear();
+        // the filter cache holds sets for each index segment: drop only the sets of segments which are not searched any more
+        if (this.filterParser != null) {
+            final RefCounted<SolrIndexSearcher> refCountedIndexSearcher = this.core.getSearcher();
+            try {
+                this.filterParser.getCache().retain(refCountedIndexSearcher.get().getIndexReader());
+            } finally {
+                refCountedIndexSearcher.decref();
+            }
+        }
+    }
+
+    /**
+     * get the version of the index which is visible to searches. Written documents become visible with a commit
+     * which registers a new searcher; this is the time when the version changes.
+     * @return the version of the index reader of the registered searcher or -1 if no searcher is registered
+     */
+    public long getSearcherVersion() {
+        if (this.isClosed()) return -1;
+        final RefCounted<SolrIndexSearcher> refCountedIndexSearcher = this.core.getRegisteredSearcher();
+        if (refCountedIndexSearcher == null) return -1;
+        try {
+            return refCountedIndexSearcher.get().getIndexReader().getVersion();
+        } finally {
+            refCountedIndexSearcher.decref();
+        }
     }
 
     public SolrInstance getInstance() {
@@ -366,7 +455,7 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
         QueryResponse rsp;
         try {
             // System.out.println("*** PARAMS: " + params);
-            rsp = this.server.query(params);
+            rsp = this.server.query(cachedFilterQueries(params));
             Thread.currentThread().setName(threadname);
             if (rsp != null) if (log.isFine()) log.fine(rsp.getResults().getNumFound() + " results for " + ql);
             return rsp;
@@ -388,7 +477,7 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
      */
     @Override
     public SolrDocumentList getDocumentListByParams(final ModifiableSolrParams params) throws IOException, SolrException {
-        final SolrQueryRequest req = this.request(params);
+        final SolrQueryRequest req = this.request(cachedFilterQueries(params));
         SolrQueryResponse response = null;
         final String q = params.get(CommonParams.Q);
         final String fq = params.get(CommonParams.FQ);
@@ -406,6 +495,88 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
     }
 
 
+    /**
+     * get the documents for many ids directly from the lucene index. This does not create a Solr request and
+     * response for each document: the ids are looked up in sorted order with one terms enumeration in each
+     * index segment and the stored fields are read from the current searcher.
+     * The result holds all requested documents, so the caller must bound the number of ids.
+     * @param ids the document ids (url hashes)
+     * @param fields the stored fields to read; if no field is given, all stored fields are read
+     * @return a map from the id to the document for all ids which exist in the index
+     * @throws IOException
+     */
+    public Map<String, SolrDocument> getDocumentsByIds(final Collection<String> ids, final String ... fields) throws IOException {
+        final Map<String, SolrDocument> docs = new HashMap<>();
+        if (ids == null || ids.isEmpty()) return docs;
+        final Set<String> fieldSet = fields == null || fields.length == 0 ? null : new HashSet<>(Arrays.asList(fields));
+        final TreeSet<BytesRef> terms = new TreeSet<>();
+        for (final String id: ids) terms.add(new BytesRef(id));
+        final String idField = CollectionSchema.id.getSolrFieldName();
+        final RefCounted<SolrIndexSearcher> refCountedIndexSearcher = this.core.getSearcher();
+        try {
+            final SolrIndexSearcher searcher = refCountedIndexSearcher.get();
+            for (final LeafReaderContext leaf: searcher.getIndexReader().leaves()) {
+                if (terms.isEmpty()) break;
+                final Terms leafTerms = leaf.reader().terms(idField);
+                if (leafTerms == null) continue;
+                final TermsEnum termsEnum = leafTerms.iterator();
+                final Bits liveDocs = leaf.reader().getLiveDocs();
+                PostingsEnum postings = null;
+                final Iterator<BytesRef> i = terms.iterator();
+                termloop: while (i.hasNext()) {
+                    final BytesRef term = i.next();
+                    if (!termsEnum.seekExact(term)) continue termloop;
+                    postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                    for (int docid = postings.nextDoc(); docid != DocIdSetIterator.NO_MORE_DOCS; docid = postings.nextDoc()) {
+                        if (liveDocs != null && !liveDocs.get(docid)) continue;
+                        final Document doc = searcher.doc(leaf.docBase + docid, fieldSet);
+                        docs.put(term.utf8ToString(), this.doc2SolrDoc(doc));
+                        i.remove(); // ids are unique, do not look for this id in other segments
+                        continue termloop;
+                    }
+                }
+            }
+        } finally {
+            refCountedIndexSearcher.decref();
+        }
+        return docs;
+    }
+
+    /**
+     * get the most frequent terms of a field from the term dictionary of the current searcher.
+     * The whole dictionary of the field is enumerated, so this should not be called for each search request.
+     * @param field the field name
+     * @param filter the terms which are accepted
+     * @param minDocFreq the minimum number of documents which contain a term
+     * @param maxTerms the maximum number of terms
+     * @return a map from the terms to their document frequency with at most maxTerms terms which have the highest document frequency
+     * @throws IOException
+     */
+    public Map<String, Integer> getFrequentTerms(final String field, final Predicate<String> filter, final int minDocFreq, final int maxTerms) throws IOException {
+        final Map<String, Integer> terms = new HashMap<>();
+        if (this.isClosed() || maxTerms <= 0) return terms;
+        final PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<>(Comparator.comparingInt(Map.Entry::getValue)); // the least frequent term first
+        final RefCounted<SolrIndexSearcher> refCountedIndexSearcher = this.core.getSearcher();
+        try {
+            final Terms fieldTerms = MultiTerms.getTerms(refCountedIndexSearcher.get().getIndexReader(), field);
+            if (fieldTerms == null) return terms;
+            final TermsEnum termsEnum = fieldTerms.iterator();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                final int docFreq = termsEnum.docFreq();
+                if (docFreq < minDocFreq) continue;
+                if (top.size() >= maxTerms && docFreq <= top.peek().getValue()) continue;
+                final String s = term.utf8ToString();
+                if (!filter.test(s)) continue;
+                if (top.size() >= maxTerms) top.poll();
+                top.add(new AbstractMap.SimpleImmutableEntry<>(s, docFreq));
+            }
+        } finally {
+            refCountedIndexSearcher.decref();
+        }
+        for (final Map.Entry<String, Integer> entry: top) terms.put(entry.getKey(), entry.getValue());
+        return terms;
+    }
+
     private class DocListSearcher implements AutoCloseable {
         private SolrQueryRequest request;
         private DocList response;
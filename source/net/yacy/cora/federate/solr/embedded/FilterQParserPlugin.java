@@ -0,0 +1,122 @@
+/**
+ *  FilterQParserPlugin
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.solr.embedded;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrEventListener;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.QueryUtils;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.SyntaxError;
+import org.apache.solr.search.WrappedQuery;
+
+import net.yacy.cora.util.ConcurrentLog;
+
+/**
+ * Query parser for filter queries which uses a {@link SegmentFilterCache}.
+ * The parser is registered in solrconfig.xml with the name {@link #NAME}; a filter query
+ * <code>{!yacyfilter}language_s:"en"</code> is parsed with the standard lucene parser on first use only,
+ * and the matching documents are cached for each index segment. The queries are not put into the
+ * filterCache of Solr, which is dropped completely with each commit.
+ */
+public class FilterQParserPlugin extends QParserPlugin {
+
+    public static final String NAME = "yacyfilter";
+
+    private SegmentFilterCache cache = new SegmentFilterCache(256, 64L * 1024L * 1024L);
+    private final AtomicBoolean listening = new AtomicBoolean(false);
+
+    @Override
+    public void init(final NamedList<?> args) {
+        super.init(args);
+        if (args == null) return;
+        final Object maxEntries = args.get("maxEntries");
+        final Object maxRamMB = args.get("maxRamMB");
+        this.cache = new SegmentFilterCache(
+                maxEntries == null ? 256 : Integer.parseInt(maxEntries.toString()),
+                (maxRamMB == null ? 64L : Long.parseLong(maxRamMB.toString())) * 1024L * 1024L);
+    }
+
+    public SegmentFilterCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * warm the cache for the segments of each new searcher of the core. This is done only once for each core.
+     * @param core the core where this plugin is registered
+     */
+    public void listen(final SolrCore core) {
+        if (!this.listening.compareAndSet(false, true)) return;
+        core.registerNewSearcherListener(new SolrEventListener() {
+            @Override
+            public void newSearcher(final SolrIndexSearcher newSearcher, final SolrIndexSearcher currentSearcher) {
+                final long start = System.currentTimeMillis();
+                final int computed = FilterQParserPlugin.this.cache.warm(newSearcher);
+                if (computed > 0) ConcurrentLog.fine("FilterQParserPlugin", "warmed " + computed + " segment filters in " + (System.currentTimeMillis() - start) + " ms");
+            }
+
+            @Override
+            public void postCommit() {}
+
+            @Override
+            public void postSoftCommit() {}
+
+            @Override
+            public void init(final NamedList<?> args) {}
+        });
+    }
+
+    /**
+     * check if a filter query can be served by this parser: the query must not have local params
+     * (tags are needed for facet exclusions) and must not depend on the current time
+     * @param fq a filter query
+     * @return true if the filter query can be prefixed with the local param of this parser
+     */
+    public static boolean isCacheable(final String fq) {
+        return fq != null && fq.length() > 0 && !fq.startsWith("{!") && !fq.contains("NOW");
+    }
+
+    @Override
+    public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params, final SolrQueryRequest req) {
+        return new QParser(qstr, localParams, params, req) {
+            @Override
+            public Query parse() throws SyntaxError {
+                final String fq = this.getString();
+                Query filter = FilterQParserPlugin.this.cache.get(fq);
+                if (filter == null) {
+                    final Query query = this.subQuery(fq, "lucene").getQuery();
+                    if (query == null) return null;
+                    filter = FilterQParserPlugin.this.cache.put(fq, QueryUtils.makeQueryable(query));
+                }
+                final WrappedQuery wrapped = new WrappedQuery(filter);
+                wrapped.setCache(false);
+                return wrapped;
+            }
+        };
+    }
+}
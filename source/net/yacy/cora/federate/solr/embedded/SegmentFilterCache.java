@@ -0,0 +1,340 @@
+/**
+ *  SegmentFilterCache
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.solr.embedded;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+/**
+ * A cache of parsed filter queries and their matching documents.
+ * The filter queries which YaCy sends with every search (content domain, language, collection, host) are
+ * parsed only once and kept as Lucene queries. The documents matching a filter are stored separately for
+ * each index segment, keyed by the segment core. A commit only adds new segments and removes merged
+ * segments, so the sets of all unchanged segments stay valid and only the new segments must be computed,
+ * while a searcher-wide cache must compute the complete filter again after each commit.
+ * The sets of a segment are removed when the segment is closed.
+ */
+public class SegmentFilterCache {
+
+    private final int maxEntries;
+    private final long maxRamBytes;
+    private final LinkedHashMap<String, Entry> entries; // access-ordered, guarded by this
+    private final Set<IndexReader.CacheKey> segments;   // segments with a registered close listener
+    private final AtomicLong ramBytes, hits, misses;
+
+    /**
+     * @param maxEntries the maximum number of cached filter queries
+     * @param maxRamBytes the maximum memory used by the document sets of all filters
+     */
+    public SegmentFilterCache(final int maxEntries, final long maxRamBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxRamBytes = Math.max(0, maxRamBytes);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        this.segments = ConcurrentHashMap.newKeySet();
+        this.ramBytes = new AtomicLong(0);
+        this.hits = new AtomicLong(0);
+        this.misses = new AtomicLong(0);
+    }
+
+    /**
+     * get a cached filter
+     * @param key the filter query string
+     * @return the filter query or null if the key is not cached
+     */
+    public synchronized Query get(final String key) {
+        final Entry entry = this.entries.get(key);
+        return entry == null ? null : new Filter(entry);
+    }
+
+    /**
+     * add a filter to the cache
+     * @param key the filter query string
+     * @param query the parsed filter query, must be a query which can be executed by lucene (no pure negative query)
+     * @return a query which matches the same documents as the given query using the cache
+     */
+    public synchronized Query put(final String key, final Query query) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, query);
+            this.entries.put(key, entry);
+            while (this.entries.size() > this.maxEntries) evictEldest();
+        }
+        return new Filter(entry);
+    }
+
+    /**
+     * compute the document sets of all cached filters for those segments of a new searcher which are not yet cached.
+     * This is called after a commit, before the new searcher is used for requests.
+     * @param searcher the new searcher
+     * @return the number of computed segment sets
+     */
+    public int warm(final IndexSearcher searcher) {
+        int computed = 0;
+        for (final Entry entry: snapshot()) {
+            final InnerWeight inner = new InnerWeight(searcher, entry.query);
+            for (final LeafReaderContext context: searcher.getIndexReader().leaves()) {
+                final IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+                if (helper == null || entry.sets.containsKey(helper.getKey())) continue;
+                try {
+                    docIdSet(entry, context, inner);
+                    computed++;
+                } catch (final IOException e) {
+                    break;
+                }
+            }
+        }
+        return computed;
+    }
+
+    /**
+     * remove the document sets of all segments which are not part of the given reader.
+     * Segments which are merged away are removed when they are closed; this removes them already
+     * while an old searcher still holds them open.
+     * @param reader the current reader of the index
+     */
+    public void retain(final IndexReader reader) {
+        final Set<IndexReader.CacheKey> current = new HashSet<IndexReader.CacheKey>();
+        for (final LeafReaderContext context: reader.leaves()) {
+            final IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+            if (helper != null) current.add(helper.getKey());
+        }
+        for (final Entry entry: snapshot()) {
+            final Iterator<Map.Entry<IndexReader.CacheKey, DocIdSet>> i = entry.sets.entrySet().iterator();
+            while (i.hasNext()) {
+                final Map.Entry<IndexReader.CacheKey, DocIdSet> set = i.next();
+                if (!current.contains(set.getKey())) {
+                    i.remove();
+                    this.ramBytes.addAndGet(-set.getValue().ramBytesUsed());
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        for (final Entry entry: this.entries.values()) entry.evict();
+        this.entries.clear();
+        this.ramBytes.set(0);
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /** @return the memory used by the cached document sets in bytes */
+    public long ramBytesUsed() {
+        return this.ramBytes.get();
+    }
+
+    /** @return the number of segment lookups which were answered from the cache */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /** @return the number of segment lookups which had to execute the filter query */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    private synchronized List<Entry> snapshot() {
+        return new ArrayList<Entry>(this.entries.values());
+    }
+
+    private synchronized void evictEldest() {
+        final Iterator<Entry> i = this.entries.values().iterator();
+        if (!i.hasNext()) return;
+        final Entry eldest = i.next();
+        i.remove();
+        this.ramBytes.addAndGet(-eldest.evict());
+    }
+
+    private void evictSegment(final IndexReader.CacheKey key) {
+        this.segments.remove(key);
+        for (final Entry entry: snapshot()) {
+            final DocIdSet set = entry.sets.remove(key);
+            if (set != null) this.ramBytes.addAndGet(-set.ramBytesUsed());
+        }
+    }
+
+    /**
+     * get the matching documents of a filter in one segment, from the cache or computed with the filter query
+     */
+    private DocIdSet docIdSet(final Entry entry, final LeafReaderContext context, final InnerWeight inner) throws IOException {
+        final IndexReader.CacheHelper helper = context.reader().getCoreCacheHelper();
+        if (helper != null) {
+            final DocIdSet set = entry.sets.get(helper.getKey());
+            if (set != null) {
+                this.hits.incrementAndGet();
+                return set;
+            }
+        }
+        this.misses.incrementAndGet();
+        final DocIdSet set = compute(context, inner.get());
+        if (helper == null || entry.evicted) return set;
+        final IndexReader.CacheKey key = helper.getKey();
+        if (this.segments.add(key)) helper.addClosedListener(this::evictSegment);
+        if (entry.sets.putIfAbsent(key, set) == null) {
+            if (this.ramBytes.addAndGet(set.ramBytesUsed()) > this.maxRamBytes) {
+                synchronized (this) {
+                    while (this.ramBytes.get() > this.maxRamBytes && this.entries.size() > 1) evictEldest();
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * execute the filter query on one segment. Deleted documents are not included; documents which are deleted
+     * later remain in the set, which is allowed because lucene skips deleted documents itself.
+     */
+    private static DocIdSet compute(final LeafReaderContext context, final Weight weight) throws IOException {
+        final int maxDoc = context.reader().maxDoc();
+        final Scorer scorer = weight.scorer(context);
+        if (scorer == null) return DocIdSet.EMPTY;
+        final Bits live = context.reader().getLiveDocs();
+        final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(maxDoc);
+        final DocIdSetIterator i = scorer.iterator();
+        for (int doc = i.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = i.nextDoc()) {
+            if (live == null || live.get(doc)) builder.add(doc);
+        }
+        return builder.build();
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final Query query;
+        private final Map<IndexReader.CacheKey, DocIdSet> sets;
+        private volatile boolean evicted;
+
+        private Entry(final String key, final Query query) {
+            this.key = key;
+            this.query = query;
+            this.sets = new ConcurrentHashMap<IndexReader.CacheKey, DocIdSet>();
+            this.evicted = false;
+        }
+
+        /**
+         * @return the memory of the removed sets
+         */
+        private long evict() {
+            this.evicted = true;
+            long ram = 0;
+            final Collection<DocIdSet> values = this.sets.values();
+            for (final DocIdSet set: values) ram += set.ramBytesUsed();
+            this.sets.clear();
+            return ram;
+        }
+    }
+
+    /**
+     * the weight of the original filter query, created only if a segment set must be computed
+     */
+    private static final class InnerWeight {
+
+        private final IndexSearcher searcher;
+        private final Query query;
+        private Weight weight;
+
+        private InnerWeight(final IndexSearcher searcher, final Query query) {
+            this.searcher = searcher;
+            this.query = query;
+            this.weight = null;
+        }
+
+        private synchronized Weight get() throws IOException {
+            if (this.weight == null) this.weight = this.searcher.createWeight(this.searcher.rewrite(this.query), ScoreMode.COMPLETE_NO_SCORES, 1.0f);
+            return this.weight;
+        }
+    }
+
+    /**
+     * a constant-score query which reads the matching documents of each segment from the cache
+     */
+    private final class Filter extends Query {
+
+        private final Entry entry;
+
+        private Filter(final Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Weight createWeight(final IndexSearcher searcher, final ScoreMode scoreMode, final float boost) throws IOException {
+            final InnerWeight inner = new InnerWeight(searcher, this.entry.query);
+            return new ConstantScoreWeight(this, boost) {
+                @Override
+                public Scorer scorer(final LeafReaderContext context) throws IOException {
+                    final DocIdSetIterator i = docIdSet(Filter.this.entry, context, inner).iterator();
+                    return i == null ? null : new ConstantScoreScorer(this, score(), scoreMode, i);
+                }
+
+                @Override
+                public boolean isCacheable(final LeafReaderContext context) {
+                    return false; // this is already a cache
+                }
+            };
+        }
+
+        @Override
+        public void visit(final QueryVisitor visitor) {
+            visitor.visitLeaf(this);
+        }
+
+        @Override
+        public String toString(final String field) {
+            return "filter(" + this.entry.key + ")";
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return sameClassAs(other) && this.entry.key.equals(((Filter) other).entry.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return classHash() ^ this.entry.key.hashCode();
+        }
+    }
+}
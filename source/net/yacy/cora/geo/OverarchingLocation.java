@@ -28,10 +28,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+import net.yacy.cora.document.SymmetricDeleteIndex;
+
 public class OverarchingLocation implements Locations {
 
     public static int MINIMUM_NAME_LENGTH = 4;
     private final Map<String, Locations> services;
+    private volatile SymmetricDeleteIndex spelling; // the location names for spelling suggestions, built on demand
 
     /**
      * create a new overarching localization object
@@ -47,6 +50,7 @@ public class OverarchingLocation implements Locations {
      */
     public void activateLocation(final String nickname, final Locations service) {
         this.services.put(nickname, service);
+        this.spelling = null;
     }
 
     /**
@@ -55,6 +59,7 @@ public class OverarchingLocation implements Locations {
      */
     public void deactivateLocalization(final String nickname) {
         this.services.remove(nickname);
+        this.spelling = null;
     }
 
     /**
@@ -140,6 +145,32 @@ public class OverarchingLocation implements Locations {
         return recommendations;
     }
 
+    /**
+     * suggest a set of names which are similar to a given name
+     * @param s a possibly misspelled name
+     * @param maxDistance the maximum number of inserted, deleted, changed or swapped characters, at most 2
+     * @return a set of location names within the given distance
+     */
+    public Set<StringBuilder> suggest(final StringBuilder s, final int maxDistance) {
+        final Set<StringBuilder> suggestions = new HashSet<StringBuilder>();
+        if (s.length() == 0) {
+            return suggestions;
+        }
+        SymmetricDeleteIndex index;
+        synchronized (this) {
+            index = this.spelling;
+            if (index == null) {
+                index = new SymmetricDeleteIndex(2, 6);
+                for (final String name: locationNames()) index.add(name, 0);
+                this.spelling = index;
+            }
+        }
+        for (final String name: index.lookup(s.toString(), maxDistance)) {
+            suggestions.add(new StringBuilder(name));
+        }
+        return suggestions;
+    }
+
     /**
      * return an nickname of the localization service
      * @return the nickname
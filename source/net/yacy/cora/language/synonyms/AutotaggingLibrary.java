@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -50,6 +51,10 @@ public class AutotaggingLibrary {
     /** mapping from vocabulary name to the tagging vocabulary */
     private final Map<String, Tagging> vocabularies;
     private final Map<String, Object> allTags;
+    /** all vocabularies compiled for the matching of clear text */
+    private volatile TagAutomaton automaton;
+    private final AtomicBoolean automatonBuilding;
+    private volatile long automatonTime;
 
     /**
      * create a Autotagging object:
@@ -64,7 +69,9 @@ public class AutotaggingLibrary {
         this.vocabularies = new ConcurrentHashMap<String, Tagging>();
         this.autotaggingPath = autotaggingPath;
         this.allTags = new ConcurrentHashMap<String, Object>();
+        this.automatonBuilding = new AtomicBoolean(false);
         if (this.autotaggingPath == null || !this.autotaggingPath.exists()) {
+            this.automaton = new TagAutomaton(this.vocabularies, getMaxWordsInTerm());
             return;
         }
         final String[] files = this.autotaggingPath.list();
@@ -84,6 +91,7 @@ public class AutotaggingLibrary {
                 }
             }
         }
+        this.automaton = new TagAutomaton(this.vocabularies, getMaxWordsInTerm());
     }
 
     /**
@@ -103,6 +111,8 @@ public class AutotaggingLibrary {
                 this.allTags.put(t, PRESENT);
             }
         }
+        this.automatonBuilding = new AtomicBoolean(false);
+        this.automaton = new TagAutomaton(this.vocabularies, getMaxWordsInTerm());
     }
 
     public File getVocabularyFile(String name) {
@@ -111,7 +121,9 @@ public class AutotaggingLibrary {
 
     public void deleteVocabulary(String name) {
         Tagging v = this.vocabularies.remove(name);
-        if (v == null || v.getFile() == null) return;
+        if (v == null) return;
+        buildAutomaton();
+        if (v.getFile() == null) return;
         v.getFile().delete();
     }
 
@@ -139,6 +151,7 @@ public class AutotaggingLibrary {
         for (String t: voc.tags()) {
             this.allTags.put(t, PRESENT);
         }
+        buildAutomaton();
     }
 
     public void addPlaces(Locations locations) {
@@ -152,10 +165,45 @@ public class AutotaggingLibrary {
         for (String t: voc.tags()) {
             this.allTags.put(t, PRESENT);
         }
+        buildAutomaton();
     }
 
     public void removePlaces() {
-        this.vocabularies.remove("Locations");
+        if (this.vocabularies.remove("Locations") != null) buildAutomaton();
+    }
+
+    /**
+     * Get the automaton which matches the synonyms of all vocabularies in a text.
+     * If the vocabularies were changed since the automaton was built, a new automaton is built in the background,
+     * at most every 10 seconds because vocabularies may be extended with each document;
+     * until then, the returned automaton looks up the changed vocabularies directly.
+     * @return the current automaton
+     */
+    public TagAutomaton getAutomaton() {
+        final TagAutomaton a = this.automaton;
+        if (System.currentTimeMillis() - this.automatonTime > 10000 && !a.isCurrent(this.vocabularies)) buildAutomaton();
+        return a;
+    }
+
+    /**
+     * build the automaton in a background thread, unless a build is already running
+     */
+    private void buildAutomaton() {
+        if (!this.automatonBuilding.compareAndSet(false, true)) return;
+        new Thread("AutotaggingLibrary.buildAutomaton") {
+            @Override
+            public void run() {
+                try {
+                    final long start = System.currentTimeMillis();
+                    final TagAutomaton a = new TagAutomaton(AutotaggingLibrary.this.vocabularies, getMaxWordsInTerm());
+                    AutotaggingLibrary.this.automaton = a;
+                    AutotaggingLibrary.this.automatonTime = System.currentTimeMillis();
+                    log.info("built tag automaton with " + a.size() + " synonyms in " + (AutotaggingLibrary.this.automatonTime - start) + " milliseconds");
+                } finally {
+                    AutotaggingLibrary.this.automatonBuilding.set(false);
+                }
+            }
+        }.start();
     }
 
     public int size() {
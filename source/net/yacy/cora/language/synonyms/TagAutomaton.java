@@ -0,0 +1,344 @@
+/**
+ *  TagAutomaton
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.language.synonyms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import net.yacy.cora.lod.vocabulary.Tagging;
+import net.yacy.cora.util.CommonPattern;
+
+/**
+ * An Aho-Corasick automaton over words which contains the synonyms of all vocabularies that are matched from clear text.
+ * A {@link Matcher} reads the words of a text one after another and finds all synonyms which end at each word,
+ * without building and looking up the combinations of the last words.
+ * The automaton is a snapshot of the vocabularies: vocabularies which were added or changed after the automaton was built
+ * are looked up word by word from the vocabulary itself until the automaton is built again.
+ */
+public class TagAutomaton {
+
+    private final static int ROOT = 0;
+    private final static long EMPTY = -1L;
+
+    private final Map<String, Tagging> vocabularies; // the live vocabularies, used for vocabularies which are not in the automaton
+    private final Map<String, Tagging> taggings; // the vocabularies in the automaton
+    private final Map<String, Integer> versions; // the versions of the vocabularies in the automaton
+    private final int maxWords;
+    private final Map<String, Integer> tokens; // the words of all synonyms and their numbers
+
+    // the transitions: an open addressing hash table with keys node << 32 | token and the target nodes as values
+    private long[] gotoKeys;
+    private int[] gotoValues;
+    private int gotoCount;
+
+    private int nodes;
+    private int[] parent, token, fail, dict; // dict is the next node on the failure path which has outputs, -1 if there is none
+    private int[] outStart; // the outputs of a node n are outName/outTagging/outSynonym[outStart[n] .. outStart[n + 1] - 1]
+    private String[] outName;
+    private Tagging[] outTagging;
+    private String[] outSynonym;
+
+    /**
+     * build the automaton
+     * @param vocabularies the vocabularies; the map is used later for vocabularies which are not in the automaton
+     * @param maxWords the maximum number of words of a synonym; longer synonyms are not matched
+     */
+    public TagAutomaton(final Map<String, Tagging> vocabularies, final int maxWords) {
+        this.vocabularies = vocabularies;
+        this.maxWords = maxWords;
+        this.taggings = new HashMap<>();
+        this.versions = new HashMap<>();
+        this.tokens = new HashMap<>();
+        this.gotoKeys = new long[1024];
+        Arrays.fill(this.gotoKeys, EMPTY);
+        this.gotoValues = new int[1024];
+        this.gotoCount = 0;
+        this.nodes = 1;
+        this.parent = new int[1024];
+        this.token = new int[1024];
+        this.parent[ROOT] = -1;
+        this.token[ROOT] = -1;
+
+        // build the trie
+        final List<Integer> outNode = new ArrayList<>();
+        final List<String> outNameList = new ArrayList<>();
+        final List<Tagging> outTaggingList = new ArrayList<>();
+        final List<String> outSynonymList = new ArrayList<>();
+        for (final Map.Entry<String, Tagging> entry: vocabularies.entrySet()) {
+            final Tagging tagging = entry.getValue();
+            // the version is read first; a change during the built makes the automaton outdated
+            this.versions.put(entry.getKey(), tagging.version());
+            this.taggings.put(entry.getKey(), tagging);
+            if (tagging.isMatchFromLinkedData()) continue;
+            synonymloop: for (final String synonym: tagging.tags()) {
+                final String[] words = CommonPattern.SPACE.split(synonym);
+                if (words.length == 0 || words.length > maxWords) continue synonymloop;
+                for (final String word: words) if (word.isEmpty()) continue synonymloop;
+                int node = ROOT;
+                for (final String word: words) {
+                    Integer t = this.tokens.get(word);
+                    if (t == null) {
+                        t = this.tokens.size();
+                        this.tokens.put(word, t);
+                    }
+                    int child = this.child(node, t);
+                    if (child < 0) {
+                        child = this.newNode(node, t);
+                    }
+                    node = child;
+                }
+                outNode.add(node);
+                outNameList.add(entry.getKey());
+                outTaggingList.add(tagging);
+                outSynonymList.add(synonym);
+            }
+        }
+
+        // sort the outputs by node
+        this.outStart = new int[this.nodes + 1];
+        for (final int node: outNode) this.outStart[node + 1]++;
+        for (int n = 0; n < this.nodes; n++) this.outStart[n + 1] += this.outStart[n];
+        this.outName = new String[outNode.size()];
+        this.outTagging = new Tagging[outNode.size()];
+        this.outSynonym = new String[outNode.size()];
+        final int[] fill = Arrays.copyOf(this.outStart, this.nodes);
+        for (int i = 0; i < outNode.size(); i++) {
+            final int p = fill[outNode.get(i)]++;
+            this.outName[p] = outNameList.get(i);
+            this.outTagging[p] = outTaggingList.get(i);
+            this.outSynonym[p] = outSynonymList.get(i);
+        }
+
+        // compute the failure links in order of the depth of the nodes, so that the links of shorter paths are known
+        final int[] depth = new int[this.nodes];
+        int maxDepth = 0;
+        for (int n = 1; n < this.nodes; n++) {
+            depth[n] = depth[this.parent[n]] + 1; // a parent is always created before its children
+            maxDepth = Math.max(maxDepth, depth[n]);
+        }
+        final int[] byDepth = new int[maxDepth + 2];
+        for (int n = 0; n < this.nodes; n++) byDepth[depth[n] + 1]++;
+        for (int d = 0; d <= maxDepth; d++) byDepth[d + 1] += byDepth[d];
+        final int[] order = new int[this.nodes];
+        for (int n = 0; n < this.nodes; n++) order[byDepth[depth[n]]++] = n;
+        this.fail = new int[this.nodes];
+        this.dict = new int[this.nodes];
+        this.dict[ROOT] = -1;
+        for (int i = 1; i < this.nodes; i++) {
+            final int n = order[i];
+            int f = ROOT;
+            if (this.parent[n] != ROOT) {
+                f = this.fail[this.parent[n]];
+                int g;
+                while ((g = this.child(f, this.token[n])) < 0 && f != ROOT) f = this.fail[f];
+                f = g < 0 ? ROOT : g;
+            }
+            this.fail[n] = f;
+            this.dict[n] = this.hasOutputs(f) ? f : this.dict[f];
+        }
+        // the parent and token arrays are only needed during the built
+        this.parent = null;
+        this.token = null;
+    }
+
+    /**
+     * @return the number of synonyms in the automaton
+     */
+    public int size() {
+        return this.outSynonym.length;
+    }
+
+    /**
+     * @param vocabularies the current vocabularies
+     * @return true if the automaton contains exactly the given vocabularies in their current versions
+     */
+    public boolean isCurrent(final Map<String, Tagging> vocabularies) {
+        if (vocabularies.size() != this.taggings.size()) return false;
+        for (final Map.Entry<String, Tagging> entry: vocabularies.entrySet()) {
+            if (!this.isCurrent(entry.getKey(), entry.getValue())) return false;
+        }
+        return true;
+    }
+
+    private boolean isCurrent(final String name, final Tagging tagging) {
+        if (this.taggings.get(name) != tagging) return false;
+        final Integer version = this.versions.get(name);
+        return version != null && version.intValue() == tagging.version();
+    }
+
+    /**
+     * @return a new matcher to read the words of one text
+     */
+    public Matcher matcher() {
+        return new Matcher();
+    }
+
+    private boolean hasOutputs(final int node) {
+        return this.outStart[node + 1] > this.outStart[node];
+    }
+
+    private static int hash(final long key, final int mask) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int child(final int node, final int t) {
+        final long key = ((long) node << 32) | t;
+        final int mask = this.gotoKeys.length - 1;
+        for (int i = hash(key, mask); ; i = (i + 1) & mask) {
+            final long k = this.gotoKeys[i];
+            if (k == key) return this.gotoValues[i];
+            if (k == EMPTY) return -1;
+        }
+    }
+
+    private void putChild(final long[] keys, final int[] values, final long key, final int value) {
+        final int mask = keys.length - 1;
+        int i = hash(key, mask);
+        while (keys[i] != EMPTY) i = (i + 1) & mask;
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    private int newNode(final int node, final int t) {
+        if (this.nodes == this.parent.length) {
+            this.parent = Arrays.copyOf(this.parent, this.nodes * 2);
+            this.token = Arrays.copyOf(this.token, this.nodes * 2);
+        }
+        final int child = this.nodes++;
+        this.parent[child] = node;
+        this.token[child] = t;
+        if (2 * (this.gotoCount + 1) > this.gotoKeys.length) {
+            // keep the load factor of the transition table below 1/2
+            final long[] keys = new long[this.gotoKeys.length * 2];
+            final int[] values = new int[keys.length];
+            Arrays.fill(keys, EMPTY);
+            for (int i = 0; i < this.gotoKeys.length; i++) {
+                if (this.gotoKeys[i] != EMPTY) this.putChild(keys, values, this.gotoKeys[i], this.gotoValues[i]);
+            }
+            this.gotoKeys = keys;
+            this.gotoValues = values;
+        }
+        this.putChild(this.gotoKeys, this.gotoValues, ((long) node << 32) | t, child);
+        this.gotoCount++;
+        return child;
+    }
+
+    /**
+     * normalize a lower case word like {@link Tagging#normalizeTerm(String)}, but without pattern matching for the common words
+     * which do not contain characters that are replaced
+     */
+    private static String normalizeWord(final String word) {
+        for (int i = 0; i < word.length(); i++) {
+            final char c = word.charAt(i);
+            if (c == '\u00E4' || c == '\u00F6' || c == '\u00FC' || c == '\u00DF' || c == ',' || Character.isWhitespace(c) || Character.isUpperCase(c)) {
+                return Tagging.normalizeTerm(word);
+            }
+        }
+        return word;
+    }
+
+    /**
+     * The state of the automaton while the words of one text are read.
+     */
+    public class Matcher {
+
+        private int state;
+        private final String[] wordcache; // the last words, for vocabularies which are not in the automaton
+
+        private Matcher() {
+            this.state = ROOT;
+            this.wordcache = new String[TagAutomaton.this.maxWords - 1];
+            Arrays.fill(this.wordcache, "");
+        }
+
+        /**
+         * read the next word and report the tags of all synonyms which end with this word.
+         * For each synonym, the tag of the first matching vocabulary is reported.
+         * @param word the next word of the text in lower case
+         * @param vocabularyNames the names of the vocabularies which shall be matched
+         * @param tags receives the tags
+         */
+        public void next(final String word, final Set<String> vocabularyNames, final Consumer<Tagging.Metatag> tags) {
+            if (vocabularyNames.isEmpty()) return;
+            final String normalized = normalizeWord(word);
+            if (normalized.indexOf(' ') < 0) {
+                this.step(normalized, vocabularyNames, tags);
+            } else {
+                for (final String w: CommonPattern.SPACE.split(normalized)) {
+                    if (!w.isEmpty()) this.step(w, vocabularyNames, tags);
+                }
+            }
+
+            // look up vocabularies which were added or changed after the automaton was built
+            for (final String vocabularyName: vocabularyNames) {
+                final Tagging t = TagAutomaton.this.vocabularies.get(vocabularyName);
+                if (t != null && !t.isMatchFromLinkedData() && !TagAutomaton.this.isCurrent(vocabularyName, t)) {
+                    this.lookup(t, word, tags);
+                }
+            }
+            System.arraycopy(this.wordcache, 1, this.wordcache, 0, this.wordcache.length - 1);
+            if (this.wordcache.length > 0) this.wordcache[this.wordcache.length - 1] = word;
+        }
+
+        private void step(final String word, final Set<String> vocabularyNames, final Consumer<Tagging.Metatag> tags) {
+            final Integer t = TagAutomaton.this.tokens.get(word);
+            if (t == null) {
+                // no synonym contains this word
+                this.state = ROOT;
+                return;
+            }
+            int g;
+            while ((g = TagAutomaton.this.child(this.state, t)) < 0 && this.state != ROOT) this.state = TagAutomaton.this.fail[this.state];
+            this.state = g < 0 ? ROOT : g;
+            for (int node = TagAutomaton.this.hasOutputs(this.state) ? this.state : TagAutomaton.this.dict[this.state]; node > 0; node = TagAutomaton.this.dict[node]) {
+                outloop: for (int i = TagAutomaton.this.outStart[node]; i < TagAutomaton.this.outStart[node + 1]; i++) {
+                    final String name = TagAutomaton.this.outName[i];
+                    final Tagging tagging = TagAutomaton.this.outTagging[i];
+                    // vocabularies which were changed are looked up directly
+                    if (!vocabularyNames.contains(name) || !TagAutomaton.this.isCurrent(name, tagging)) continue outloop;
+                    final Tagging.Metatag tag = tagging.getMetatagFromSynonym(TagAutomaton.this.outSynonym[i]);
+                    if (tag != null) {
+                        tags.accept(tag);
+                        break outloop;
+                    }
+                }
+            }
+        }
+
+        private void lookup(final Tagging t, final String word, final Consumer<Tagging.Metatag> tags) {
+            for (int wordc = 1; wordc <= this.wordcache.length + 1; wordc++) {
+                final StringBuilder sb = new StringBuilder();
+                for (int w = 0; w < wordc - 1; w++) {
+                    sb.append(this.wordcache[this.wordcache.length - wordc + w + 1]).append(' ');
+                }
+                sb.append(word);
+                final Tagging.Metatag tag = t.getMetatagFromSynonym(Tagging.normalizeTerm(sb.toString()));
+                if (tag != null) tags.accept(tag);
+            }
+        }
+    }
+}
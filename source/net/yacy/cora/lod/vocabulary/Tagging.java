@@ -71,6 +71,9 @@ public class Tagging {
 
     private String predicate, namespace, objectspace;
 
+    /** incremented whenever the synonyms or the matching mode of this vocabulary change */
+    private volatile int version;
+
     /**
      * helper class: Synonym and Objectlink tuple
      */
@@ -286,6 +289,7 @@ public class Tagging {
             }
         } catch (final InterruptedException e) {
         }
+        this.version++;
         long time = Math.max(1, System.currentTimeMillis() - start);
         ConcurrentLog.info("Tagging", "Finished Vocabulary Initialization for " + this.propFile + "; " + count + " lines; " + time + " milliseconds; " + (1000L * count / time) + " lines / second");
     }
@@ -315,6 +319,16 @@ public class Tagging {
      */
     public void setMatchFromLinkedData(final boolean facetFromLinkedData) {
         this.matchFromLinkedData = facetFromLinkedData;
+        this.version++;
+    }
+
+    /**
+     * @return a number which changes whenever the synonyms or the matching mode of
+     *         this vocabulary change; used to detect outdated copies of the
+     *         vocabulary
+     */
+    public int version() {
+        return this.version;
     }
 
     public int size() {
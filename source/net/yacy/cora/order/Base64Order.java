@@ -206,6 +206,25 @@ public class Base64Order extends AbstractOrder<byte[]> implements ByteOrder, Com
         return ASCII.String(this.encodeSubstring(in, rfc1521compliantLength));
     }
 
+    /**
+     * write the first characters of the b64-encoding of the input into a byte array without creating the complete encoding.
+     * The written characters are the same as in encode(in).substring(0, length).
+     * @param in the input, which must have enough bytes for the requested characters
+     * @param out the target array
+     * @param offset the position of the first character in the target array
+     * @param length the number of characters
+     */
+    public final void encodePrefix(final byte[] in, final byte[] out, final int offset, final int length) {
+        assert ((length + 3) / 4) * 3 <= in.length : "length = " + length + ", in.length = " + in.length;
+        int pos = 0, written = 0;
+        while (written < length) {
+            final long l = ((((0XffL & in[pos++]) << 8) | (0XffL & in[pos++])) << 8) | (0XffL & in[pos++]);
+            for (int shift = 18; shift >= 0 && written < length; shift -= 6) {
+                out[offset + written++] = this.alpha[(byte) ((l >> shift) & 0x3F)];
+            }
+        }
+    }
+
     public final byte[] encodeSubstring(final byte[] in, final int sublen) {
         if (in.length == 0) return new byte[0];
         assert sublen <= ((in.length + 2) / 3) * 4 : "sublen = " + sublen + ", expected: " + ((in.length + 2) / 3) * 4;
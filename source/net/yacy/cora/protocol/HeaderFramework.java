@@ -96,6 +96,7 @@ public class HeaderFramework extends TreeMap<String, String> implements Map<Stri
     public static final String RANGE = "Range";
 
     public static final String LOCATION = "Location";
+    public static final String RETRY_AFTER = "Retry-After";
     public static final String ETAG = "ETag";
     public static final String VIA = "Via";
 
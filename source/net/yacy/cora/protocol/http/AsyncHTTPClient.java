@@ -0,0 +1,454 @@
+/**
+ *  AsyncHTTPClient
+ *  Copyright 2026 by Michael Peter Christen
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.protocol.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.ResponseInfo;
+import java.nio.ByteBuffer;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+
+import net.yacy.cora.protocol.ConnectionInfo;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.util.Memory;
+import net.yacy.kelondro.util.Formatter;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * Non-blocking HTTP client used for the asynchronous variants of the HTTPClient GETbytes and POSTbytes methods.
+ * It is based on the java.net.http client of the JDK which multiplexes all connections on one selector thread:
+ * a request does not occupy a thread while it waits for the remote server, so that the fan-out to many peers
+ * or hosts needs only a handful of threads. https connections negotiate HTTP/2 with ALPN where the server supports it,
+ * plain http connections use HTTP/1.1 with keep-alive because a h2c upgrade handshake is hardly supported and costs a round trip.
+ * Size limits and gzip decoding follow the rules of the blocking HTTPClient.
+ */
+public final class AsyncHTTPClient {
+
+    /** headers which are set by the JDK client itself and must not be given in a request */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    /** threads for response processing; the network IO itself is done by the selector thread of the client */
+    private static volatile ThreadPoolExecutor executor = null;
+
+    /** SSL context of the clients, accepting all certificates without host name verification like the blocking HTTPClient */
+    private static final SSLContext TRUST_ALL_SSL_CONTEXT = initTrustAllSSLContext();
+
+    private static volatile HttpClient redirectingClient = null, directClient = null;
+
+    /**
+     * get the response processing threads. The pool is created again if it was stopped with {@link #shutdown()},
+     * i.e. when the connection manager of the HTTPClient was closed and the clients are used afterwards.
+     * @return the thread pool
+     */
+    private static ThreadPoolExecutor executor() {
+        ThreadPoolExecutor pool = executor;
+        if (pool != null && !pool.isShutdown()) return pool;
+        synchronized (AsyncHTTPClient.class) {
+            pool = executor;
+            if (pool == null || pool.isShutdown()) {
+                final int threads = Math.max(2, (int) Memory.cores());
+                pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory(AsyncHTTPClient.class.getSimpleName()));
+                pool.allowCoreThreadTimeOut(true);
+                executor = pool;
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * get the shared client instance
+     * @param redirecting if the client shall follow redirects
+     * @return a client, created at the first call
+     */
+    private static HttpClient client(final boolean redirecting) {
+        HttpClient client = redirecting ? redirectingClient : directClient;
+        if (client != null) return client;
+        synchronized (AsyncHTTPClient.class) {
+            client = redirecting ? redirectingClient : directClient;
+            if (client == null) {
+                client = initClient(redirecting);
+                if (redirecting) redirectingClient = client; else directClient = client;
+            }
+        }
+        return client;
+    }
+
+    private static HttpClient initClient(final boolean redirecting) {
+        final HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(redirecting ? HttpClient.Redirect.ALWAYS : HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(HTTPClient.default_timeout))
+                .proxy(PROXY_SELECTOR)
+                .authenticator(PROXY_AUTHENTICATOR)
+                .executor(command -> executor().execute(command));
+        if (TRUST_ALL_SSL_CONTEXT != null) builder.sslContext(TRUST_ALL_SSL_CONTEXT);
+        return builder.build();
+    }
+
+    /**
+     * Create a SSL context which accepts all certificates. The JDK client verifies the host name in the trust manager
+     * when it is an X509ExtendedTrustManager; a plain X509TrustManager would be wrapped by JSSE with a host name check.
+     * This policy is the same as the one of the blocking HTTPClient (trust all, NoopHostnameVerifier), but is restricted
+     * to the clients of this class.
+     * @return the SSL context or null if TLS is not available
+     */
+    private static SSLContext initTrustAllSSLContext() {
+        final TrustManager trustManager = new X509ExtendedTrustManager() {
+            @Override
+            public void checkClientTrusted(final X509Certificate[] chain, final String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(final X509Certificate[] chain, final String authType) {
+            }
+
+            @Override
+            public void checkClientTrusted(final X509Certificate[] chain, final String authType, final Socket socket) {
+            }
+
+            @Override
+            public void checkServerTrusted(final X509Certificate[] chain, final String authType, final Socket socket) {
+            }
+
+            @Override
+            public void checkClientTrusted(final X509Certificate[] chain, final String authType, final SSLEngine engine) {
+            }
+
+            @Override
+            public void checkServerTrusted(final X509Certificate[] chain, final String authType, final SSLEngine engine) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[] { trustManager }, null);
+            return sslContext;
+        } catch (final NoSuchAlgorithmException | KeyManagementException e) {
+            // should not happen
+            return null;
+        }
+    }
+
+    /**
+     * stop the response processing threads; called at shutdown. The threads are started again at the next request.
+     */
+    public static void shutdown() {
+        final ThreadPoolExecutor pool = executor;
+        if (pool != null) pool.shutdown();
+    }
+
+    /**
+     * GET a resource
+     * @param uri the url to get
+     * @param headers request headers or null
+     * @param userAgent the user agent
+     * @param timeout time in milliseconds for the complete exchange
+     * @param redirecting if redirects shall be followed
+     * @param maxBytes maximum response bytes to read, -1 for no limit
+     * @return a future of the content bytes; the content is null if the response status is not 200.
+     *         The future completes exceptionally with an IOException when the content exceeds maxBytes.
+     */
+    public static CompletableFuture<byte[]> GETbytes(final URI uri, final Set<Entry<String, String>> headers,
+            final String userAgent, final int timeout, final boolean redirecting, final int maxBytes) {
+        final HttpRequest.Builder request = newRequest(uri, headers, userAgent, timeout);
+        request.GET();
+        return send(request.build(), null, redirecting, maxBytes, 0L, timeout);
+    }
+
+    /**
+     * POST an entity
+     * @param uri the url to post to
+     * @param vhost name of the server at the address of the url which should respond, or null
+     * @param entity the request body, i.e. a multipart entity
+     * @param usegzip if the body shall be gzipped
+     * @param headers request headers or null
+     * @param userAgent the user agent
+     * @param timeout time in milliseconds for the complete exchange
+     * @param redirecting if redirects shall be followed
+     * @param maxBytes maximum response bytes to read, -1 for no limit
+     * @return a future of the response bytes; the content is null if the response status is not 200
+     */
+    public static CompletableFuture<byte[]> POSTbytes(final URI uri, final String vhost, final HttpEntity entity, final boolean usegzip,
+            final Set<Entry<String, String>> headers, final String userAgent, final int timeout, final boolean redirecting, final int maxBytes) {
+        final HttpRequest.Builder request = newRequest(uri, headers, userAgent, timeout);
+        final byte[] body;
+        try {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream(entity.getContentLength() > 0 ? (int) entity.getContentLength() : 4096);
+            if (usegzip) {
+                new GzipCompressingEntity(entity).writeTo(bos);
+                request.header(HeaderFramework.CONTENT_ENCODING, HeaderFramework.CONTENT_ENCODING_GZIP);
+            } else {
+                entity.writeTo(bos);
+            }
+            body = bos.toByteArray();
+        } catch (final IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (entity.getContentType() != null) request.header(HeaderFramework.CONTENT_TYPE, entity.getContentType().getValue());
+        request.POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        return send(request.build(), vhost, redirecting, maxBytes, body.length, timeout);
+    }
+
+    private static HttpRequest.Builder newRequest(final URI uri, final Set<Entry<String, String>> headers, final String userAgent, final int timeout) {
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(Duration.ofMillis(timeout));
+        // HTTP/2 needs ALPN, which is only available with TLS
+        if (!"https".equalsIgnoreCase(uri.getScheme())) request.version(HttpClient.Version.HTTP_1_1);
+        if (headers != null) {
+            for (final Entry<String, String> entry: headers) {
+                if (RESTRICTED_HEADERS.contains(entry.getKey().toLowerCase(Locale.ROOT))) continue;
+                request.setHeader(entry.getKey(), entry.getValue());
+            }
+        }
+        if (userAgent != null) request.setHeader(HeaderFramework.USER_AGENT, userAgent);
+        request.setHeader(HeaderFramework.ACCEPT_ENCODING, HeaderFramework.CONTENT_ENCODING_GZIP);
+        return request;
+    }
+
+    private static CompletableFuture<byte[]> send(final HttpRequest request, final String vhost, final boolean redirecting, final int maxBytes, final long upbytes, final int timeout) {
+        final int limit = maxBytes < 0 ? Integer.MAX_VALUE : maxBytes;
+        final URI uri = request.uri();
+        final String target = vhost == null ? uri.toString() : uri + " (vhost=" + vhost + ")";
+        final int id = System.identityHashCode(request);
+        final int port = uri.getPort();
+        ConnectionInfo.addConnection(new ConnectionInfo(uri.getScheme(), port == -1 ? uri.getHost() : uri.getHost() + ":" + port,
+                request.method() + " " + uri.getPath(), id, System.currentTimeMillis(), upbytes));
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        client(redirecting).sendAsync(request, info -> bodySubscriber(info, limit, result)).whenComplete((response, e) -> {
+            if (e == null) {
+                result.complete(response.body());
+            } else {
+                Throwable cause = e;
+                while (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+                result.completeExceptionally(cause instanceof IOException ? cause : new IOException(cause.getMessage() + " for url " + target, cause));
+            }
+        });
+        // the request timeout of the JDK client only covers the time until the response header arrives
+        result.orTimeout(timeout, TimeUnit.MILLISECONDS);
+        return result.handle((content, e) -> {
+            ConnectionInfo.removeConnection(id);
+            if (e == null) return content;
+            if (e instanceof TimeoutException) throw new CompletionException(new IOException("timeout after " + timeout + " ms for url " + target, e));
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+    }
+
+    private static BodySubscriber<byte[]> bodySubscriber(final ResponseInfo info, final int maxBytes, final CompletableFuture<byte[]> result) {
+        if (info.statusCode() != HttpStatus.SC_OK) return HttpResponse.BodySubscribers.replacing(null);
+        final boolean gzip = info.headers().firstValue(HeaderFramework.CONTENT_ENCODING)
+                .map(encoding -> encoding.toLowerCase(Locale.ROOT).contains(HeaderFramework.CONTENT_ENCODING_GZIP)).orElse(false);
+        final long contentLength = info.headers().firstValueAsLong(HeaderFramework.CONTENT_LENGTH).orElse(-1L);
+        if (!gzip && contentLength > maxBytes) {
+            // the anticipated content length already exceeds the limit: abort without loading the content
+            return new LimitedBodySubscriber(maxBytes, true, 0, result, "Content to download exceed maximum value of ");
+        }
+        // the limit applies to the uncompressed content; compressed content may be slightly larger because of the gzip header and stored blocks
+        final int rawLimit = gzip ? (int) Math.min(Integer.MAX_VALUE, maxBytes + maxBytes / 1000L + 1024L) : maxBytes;
+        final int initialSize = contentLength > 0 ? (int) Math.min(rawLimit, contentLength) : 4096;
+        final LimitedBodySubscriber raw = new LimitedBodySubscriber(rawLimit, false, initialSize, result, "Download exceeded maximum value of ");
+        if (!gzip) return raw;
+        return HttpResponse.BodySubscribers.mapping(raw, compressed -> {
+            try {
+                return gunzip(compressed, maxBytes);
+            } catch (final IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * uncompress gzipped content
+     * @param compressed the gzipped bytes
+     * @param maxBytes maximum size of the uncompressed content
+     * @return the uncompressed content
+     * @throws IOException when the content is not gzipped or exceeds the limit
+     */
+    static byte[] gunzip(final byte[] compressed, final int maxBytes) throws IOException {
+        try (final InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxBytes, compressed.length * 4));
+            final byte[] buffer = new byte[4096];
+            long sum = 0;
+            int l;
+            while ((l = in.read(buffer)) != -1) {
+                sum += l;
+                if (sum > maxBytes) throw new IOException("Download exceeded maximum value of " + Formatter.bytesToString(maxBytes));
+                out.write(buffer, 0, l);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * a body subscriber which collects the content into a byte array and cancels the download
+     * as soon as the content exceeds the limit or the exchange was completed otherwise, i.e. by a timeout
+     */
+    private static final class LimitedBodySubscriber implements BodySubscriber<byte[]> {
+
+        private final int maxBytes;
+        private final CompletableFuture<byte[]> exchange;
+        private final CompletableFuture<byte[]> body = new CompletableFuture<>();
+        private final String limitMessage;
+        private final ByteArrayOutputStream buffer;
+        private Flow.Subscription subscription = null;
+        private long sum = 0;
+
+        /**
+         * @param maxBytes the maximum number of bytes to load
+         * @param reject true if the download shall be rejected immediately
+         * @param initialSize the expected size
+         * @param exchange the future of the complete exchange
+         * @param limitMessage message of the exception when the limit is exceeded
+         */
+        private LimitedBodySubscriber(final int maxBytes, final boolean reject, final int initialSize, final CompletableFuture<byte[]> exchange, final String limitMessage) {
+            this.maxBytes = maxBytes;
+            this.exchange = exchange;
+            this.limitMessage = limitMessage;
+            this.buffer = reject ? null : new ByteArrayOutputStream(initialSize);
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription s) {
+            this.subscription = s;
+            if (this.buffer == null) {
+                s.cancel();
+                this.body.completeExceptionally(new IOException(this.limitMessage + Formatter.bytesToString(this.maxBytes)));
+                return;
+            }
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(final List<ByteBuffer> items) {
+            if (this.body.isDone()) return;
+            if (this.exchange.isDone()) {
+                // timeout or cancelled by the caller
+                this.subscription.cancel();
+                this.body.completeExceptionally(new IOException("download cancelled"));
+                return;
+            }
+            for (final ByteBuffer item: items) {
+                this.sum += item.remaining();
+                if (this.sum > this.maxBytes) {
+                    this.subscription.cancel();
+                    this.body.completeExceptionally(new IOException(this.limitMessage + Formatter.bytesToString(this.maxBytes)));
+                    return;
+                }
+                if (item.hasArray()) {
+                    this.buffer.write(item.array(), item.arrayOffset() + item.position(), item.remaining());
+                } else {
+                    final byte[] b = new byte[item.remaining()];
+                    item.get(b);
+                    this.buffer.write(b, 0, b.length);
+                }
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (this.buffer != null) this.body.complete(this.buffer.toByteArray());
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return this.body;
+        }
+    }
+
+    /**
+     * route the requests through the remote proxy according to the ProxySettings
+     */
+    private static final ProxySelector PROXY_SELECTOR = new ProxySelector() {
+
+        @Override
+        public List<Proxy> select(final URI uri) {
+            final ProxySettings.Protocol protocol = "https".equalsIgnoreCase(uri.getScheme()) ? ProxySettings.Protocol.HTTPS : ProxySettings.Protocol.HTTP;
+            if (ProxySettings.getProxyHost() != null && uri.getHost() != null && ProxySettings.useForHost(uri.getHost(), protocol)) {
+                return Collections.singletonList(new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved(ProxySettings.host, ProxySettings.port)));
+            }
+            return Collections.singletonList(Proxy.NO_PROXY);
+        }
+
+        @Override
+        public void connectFailed(final URI uri, final SocketAddress sa, final IOException e) {
+        }
+    };
+
+    /**
+     * provide the remote proxy credentials; authentication to other servers is not supported in the asynchronous mode
+     */
+    private static final Authenticator PROXY_AUTHENTICATOR = new Authenticator() {
+
+        @Override
+        protected PasswordAuthentication getPasswordAuthentication() {
+            if (getRequestorType() != RequestorType.PROXY || ProxySettings.user == null || ProxySettings.user.isEmpty()) return null;
+            return new PasswordAuthentication(ProxySettings.user, ProxySettings.password == null ? new char[0] : ProxySettings.password.toCharArray());
+        }
+    };
+
+}
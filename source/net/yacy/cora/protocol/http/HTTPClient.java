@@ -39,6 +39,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -123,7 +124,7 @@ import net.yacy.kelondro.util.NamePrefixThreadFactory;
  */
 public class HTTPClient implements Closeable {
 
-    private static final int default_timeout = 6000;
+    static final int default_timeout = 6000;
 
     /** Maximum number of simultaneously open outgoing HTTP connections in the pool */
     private static final int maxcon = 200;
@@ -142,6 +143,9 @@ public class HTTPClient implements Closeable {
             .register(AuthSchemes.DIGEST, new YaCyDigestSchemeFactory())
             .build();
 
+    /** SSL context accepting all certificates */
+    private static final SSLContext TRUST_ALL_SSL_CONTEXT = initTrustAllSSLContext();
+
     /** The connection manager holding the configured connection pool for this client */
     public static final PoolingHttpClientConnectionManager CONNECTION_MANAGER = initPoolingConnectionManager();
 
@@ -175,6 +179,8 @@ public class HTTPClient implements Closeable {
     private String host = null;
     private final long timeout;
     private final HttpClientBuilder clientBuilder;
+    private String userAgent;
+    private boolean redirecting = true;
 
     private static ExecutorService executor = Executors
             .newCachedThreadPool(new NamePrefixThreadFactory(HTTPClient.class.getSimpleName() + ".execute"));
@@ -190,6 +196,7 @@ public class HTTPClient implements Closeable {
         this.timeout = agent.clientTimeout();
         this.clientBuilder = initClientBuilder();
         this.clientBuilder.setUserAgent(agent.userAgent());
+        this.userAgent = agent.userAgent();
         this.reqConfBuilder = RequestConfig.copy(DFLTREQUESTCONFIG);
         this.setTimout(agent.clientTimeout());
     }
@@ -199,6 +206,7 @@ public class HTTPClient implements Closeable {
         this.timeout = timeout;
         this.clientBuilder = initClientBuilder();
         this.clientBuilder.setUserAgent(agent.userAgent());
+        this.userAgent = agent.userAgent();
         this.reqConfBuilder = RequestConfig.copy(DFLTREQUESTCONFIG);
         this.setTimout(timeout);
     }
@@ -349,6 +357,7 @@ public class HTTPClient implements Closeable {
             if (CONNECTION_MANAGER != null) {
                 CONNECTION_MANAGER.shutdown();
             }
+            AsyncHTTPClient.shutdown();
         }
     }
 
@@ -380,6 +389,7 @@ public class HTTPClient implements Closeable {
      */
     public void setUserAgent(final ClientIdentification.Agent agent) {
         this.clientBuilder.setUserAgent(agent.userAgent());
+        this.userAgent = agent.userAgent();
     }
 
     /**
@@ -397,6 +407,7 @@ public class HTTPClient implements Closeable {
      * @param redirecting
      */
     public void setRedirecting(final boolean redirecting) {
+        this.redirecting = redirecting;
         this.reqConfBuilder.setRedirectsEnabled(redirecting);
         this.reqConfBuilder.setRelativeRedirectsAllowed(redirecting);
     }
@@ -448,6 +459,26 @@ public class HTTPClient implements Closeable {
     }
 
 
+    /**
+     * This method GETs a page from the server without blocking the calling thread.
+     * The request uses the non-blocking AsyncHTTPClient with the headers, user agent, timeout and redirect setting of this client;
+     * authentication is not supported. This client object is not used for the request and does not need to be closed.
+     *
+     * @param url the url to get
+     * @param maxBytes maximum response bytes to read
+     * @return a future of the content bytes, which are null if the response status is not 200.
+     * The future completes exceptionally with an IOException when an error occurred or the content exceeds maxBytes.
+     */
+    public CompletableFuture<byte[]> GETbytesAsync(final MultiProtocolURL url, final int maxBytes) {
+        final URI uri;
+        try {
+            uri = URI.create(url.toNormalform(true));
+        } catch (final IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException(e.getMessage()));
+        }
+        return AsyncHTTPClient.GETbytes(uri, this.headers, this.userAgent, (int) this.timeout, this.redirecting, maxBytes);
+    }
+
     /**
      * This method GETs a page from the server.
      *
@@ -682,6 +713,29 @@ public class HTTPClient implements Closeable {
         return null;
     }
 
+    /**
+     * Send data using HTTP POST method to the server named by vhost without blocking the calling thread.
+     * The request uses the non-blocking AsyncHTTPClient with the headers, user agent, timeout and redirect setting of this client;
+     * authentication is not supported. This client object is not used for the request and does not need to be closed.
+     *
+     * @param url address to request on the server
+     * @param vhost name of the server at address which should respond. When null, localhost is assumed.
+     * @param post data to send (name-value-pairs)
+     * @param usegzip if the body should be gzipped
+     * @return a future of the response body, which is null if the response status is not 200
+     */
+    public CompletableFuture<byte[]> POSTbytesAsync(final MultiProtocolURL url, final String vhost, final Map<String, ContentBody> post, final boolean usegzip) {
+        final URI uri;
+        try {
+            uri = URI.create(url.toNormalform(true));
+        } catch (final IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException(e.getMessage()));
+        }
+        final MultipartEntityBuilder entityBuilder = MultipartEntityBuilder.create();
+        for (final Entry<String,ContentBody> part : post.entrySet()) entityBuilder.addPart(part.getKey(), part.getValue());
+        return AsyncHTTPClient.POSTbytes(uri, vhost == null ? Domains.LOCALHOST : vhost, entityBuilder.build(), usegzip, this.headers, this.userAgent, (int) this.timeout, this.redirecting, Integer.MAX_VALUE);
+    }
+
     /**
      * send stream-data to the server named by uri
      *
@@ -1131,7 +1185,7 @@ public class HTTPClient implements Closeable {
                 this.upbytes));
     }
 
-    private static SSLConnectionSocketFactory getSSLSocketFactory() {
+    private static SSLContext initTrustAllSSLContext() {
         final TrustManager trustManager = new X509TrustManager() {
             @Override
             public void checkClientTrusted(final X509Certificate[] chain, final String authType) throws CertificateException {
@@ -1157,8 +1211,11 @@ public class HTTPClient implements Closeable {
             // should not happen
             // e.printStackTrace();
         }
+        return sslContext;
+    }
 
-        return new SSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE) {
+    private static SSLConnectionSocketFactory getSSLSocketFactory() {
+        return new SSLConnectionSocketFactory(TRUST_ALL_SSL_CONTEXT, NoopHostnameVerifier.INSTANCE) {
 
             @Override
             protected void prepareSocket(final SSLSocket socket) throws IOException {
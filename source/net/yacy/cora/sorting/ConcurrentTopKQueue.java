@@ -0,0 +1,441 @@
+/**
+ *  ConcurrentTopKQueue
+ *  Copyright 2026 by Michael Peter Christen
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.sorting;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.yacy.cora.sorting.WeakPriorityBlockingQueue.Element;
+
+/**
+ * A bounded top-k queue with the same element and weight semantics as the WeakPriorityBlockingQueue,
+ * but designed for many concurrent producers: elements are stored in a lock-free skip list,
+ * elements which are not better than the current tail of a full queue are dropped without any locking
+ * and overflow is trimmed in batches by a single thread at a time.
+ * Only the consumer side (moving elements to the drained list and positional reads) is guarded by a lock;
+ * threads waiting for new elements are woken up by a condition which producers signal only if somebody waits.
+ */
+public class ConcurrentTopKQueue<E> implements Serializable {
+
+    private static final long serialVersionUID = -1553407452296102616L;
+
+    private final ConcurrentSkipListSet<Element<E>> queue;      // elements waiting to be taken, ordered by their weight
+    private final AtomicInteger queueSize;                       // size of the queue; ConcurrentSkipListSet.size() is not constant-time
+    private final AtomicBoolean trimming;                        // true while one thread removes the overflow from the tail
+    private final ArrayList<Element<E>> drained;                 // elements that had been taken, in the order of retrieval; guarded by lock
+    private final Set<Element<E>> drainedElements;               // fast lookup for elements in drained
+    private volatile int drainedSize;
+    private final ReentrantLock lock;
+    private final Condition notEmpty;
+    private final AtomicInteger waiting;                         // number of threads waiting for notEmpty
+    private final int maxsize;
+
+    /**
+     * create a new ConcurrentTopKQueue
+     * @param maxsize the maximum size of the queue, -1 for unlimited. When the queue exceeds this number, the worst entries are removed
+     * @param drain if true, all elements taken from the queue are recorded and can be retrieved with element()
+     */
+    public ConcurrentTopKQueue(final int maxsize, final boolean drain) {
+        this.queue = new ConcurrentSkipListSet<Element<E>>();
+        this.queueSize = new AtomicInteger(0);
+        this.trimming = new AtomicBoolean(false);
+        this.drained = drain ? new ArrayList<Element<E>>() : null;
+        this.drainedElements = drain ? ConcurrentHashMap.<Element<E>>newKeySet() : null;
+        this.drainedSize = 0;
+        this.lock = new ReentrantLock();
+        this.notEmpty = this.lock.newCondition();
+        this.waiting = new AtomicInteger(0);
+        this.maxsize = maxsize;
+    }
+
+    /**
+     * clear the queue
+     */
+    public void clear() {
+        this.lock.lock();
+        try {
+            if (this.drained != null) {
+                this.drained.clear();
+                this.drainedElements.clear();
+                this.drainedSize = 0;
+            }
+            while (this.queue.pollFirst() != null) this.queueSize.decrementAndGet();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * test if the queue is empty
+     * @return true if the queue is empty and nothing had been drained, false if not
+     */
+    public boolean isEmpty() {
+        return this.queue.isEmpty() && this.drainedSize == 0;
+    }
+
+    /**
+     * get the number of elements in the queue, waiting to be removed with poll()
+     * @return
+     */
+    public int sizeQueue() {
+        return Math.max(0, this.queueSize.get());
+    }
+
+    /**
+     * get the number of elements that had been drained so far and are waiting
+     * in a list to get enumerated with element()
+     * @return
+     */
+    public int sizeDrained() {
+        return this.drainedSize;
+    }
+
+    /**
+     * get the number of elements that are available for retrieval
+     * this is a combined number of sizeQueue() and sizeDrained();
+     * @return
+     */
+    public int sizeAvailable() {
+        final int s = sizeQueue() + this.drainedSize;
+        return this.maxsize < 0 ? s : Math.min(this.maxsize, s);
+    }
+
+    /**
+     * put a element on the queue using a order of the weight
+     * elements that had been on the queue cannot be put in again,
+     * they are checked against the drained elements.
+     * This method does not lock: elements which would be removed from the tail anyway are dropped immediately.
+     * @param element the element (must have a equals() method)
+     */
+    public void put(final Element<E> element) {
+        if (offer(element)) {
+            trim();
+            signal();
+        }
+    }
+
+    /**
+     * put a batch of elements on the queue. The overflow is trimmed and waiting consumers
+     * are signalled only once for the whole batch.
+     * @param elements
+     */
+    public void putAll(final Collection<? extends Element<E>> elements) {
+        boolean added = false;
+        for (final Element<E> element: elements) {
+            if (offer(element)) added = true;
+        }
+        if (added) {
+            trim();
+            signal();
+        }
+    }
+
+    private boolean offer(final Element<E> element) {
+        if (this.drainedElements != null && this.drainedElements.contains(element)) return false;
+        if (this.maxsize >= 0 && this.queueSize.get() >= this.maxsize) {
+            // the queue is full: an element which is not better than the tail would be removed immediately
+            final Element<E> tail = last();
+            if (tail != null && element.compareTo(tail) >= 0) return false;
+        }
+        if (!this.queue.add(element)) return false;
+        this.queueSize.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * remove the overflow from the tail of the queue. Only one thread trims at a time,
+     * other threads just leave their overflow to the running trim process.
+     */
+    private void trim() {
+        if (this.maxsize < 0) return;
+        while (this.queueSize.get() > this.maxsize && this.trimming.compareAndSet(false, true)) {
+            try {
+                while (this.queueSize.get() > this.maxsize) {
+                    if (this.queue.pollLast() == null) break;
+                    this.queueSize.decrementAndGet();
+                }
+            } finally {
+                this.trimming.set(false);
+            }
+        }
+    }
+
+    private void signal() {
+        if (this.waiting.get() == 0) return;
+        this.lock.lock();
+        try {
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * return the element with the smallest weight and remove it from the queue
+     * @return null if no element is on the queue or the head of the queue
+     */
+    public Element<E> poll() {
+        if (this.drained == null) return pollFirst();
+        this.lock.lock();
+        try {
+            return takeUnsafe();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting if necessary
+     * up to the specified wait time if no elements are present on this queue.
+     * @param timeout milliseconds until timeout
+     * @return the head element from the queue
+     * @throws InterruptedException
+     */
+    public Element<E> poll(final long timeout) throws InterruptedException {
+        Element<E> element = poll();
+        if (element != null || timeout <= 0) return element;
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.waiting.incrementAndGet();
+        try {
+            this.lock.lockInterruptibly();
+            try {
+                while ((element = takeUnsafe()) == null) {
+                    if (nanos <= 0L) return null;
+                    nanos = this.notEmpty.awaitNanos(nanos);
+                }
+                return element;
+            } finally {
+                this.lock.unlock();
+            }
+        } finally {
+            this.waiting.decrementAndGet();
+        }
+    }
+
+    private Element<E> pollFirst() {
+        final Element<E> element = this.queue.pollFirst();
+        if (element != null) this.queueSize.decrementAndGet();
+        return element;
+    }
+
+    /**
+     * take the head of the queue and record it in the drained list; the lock must be held if drained != null
+     */
+    private Element<E> takeUnsafe() {
+        final Element<E> element = pollFirst();
+        if (element == null) return null;
+        if (this.drained != null && (this.maxsize == -1 || this.drained.size() < this.maxsize)) {
+            this.drained.add(element);
+            this.drainedElements.add(element);
+            this.drainedSize = this.drained.size();
+        }
+        return element;
+    }
+
+    /**
+     * Enqueue again all drained elements. Do nothing when there is no internal drained list.
+     */
+    public void requeueDrainedElements() {
+        if (this.drained == null) return;
+        final ArrayList<Element<E>> requeue;
+        this.lock.lock();
+        try {
+            requeue = new ArrayList<Element<E>>(this.drained);
+            this.drained.clear();
+            this.drainedElements.clear();
+            this.drainedSize = 0;
+        } finally {
+            this.lock.unlock();
+        }
+        putAll(requeue);
+    }
+
+    /**
+     * Return the element with the smallest weight from the internal queue, but do not remove it
+     * @return null if no element is on the queue or the head of the queue
+     */
+    public Element<E> peek() {
+        try {
+            return this.queue.first();
+        } catch (final NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Return the element with the highest weight, but do not remove it
+     * @return null if no element is on the queue or the tail of the queue
+     */
+    public Element<E> getLastInQueue() {
+        return last();
+    }
+
+    /**
+     * Return the best elements from the queue, but do not remove them.
+     * This is weakly consistent: elements which are put or taken concurrently may or may not be included.
+     * @param count the maximum number of elements
+     * @return the first elements of the queue in the order of poll()
+     */
+    public ArrayList<Element<E>> head(final int count) {
+        final ArrayList<Element<E>> head = new ArrayList<Element<E>>(Math.max(0, Math.min(count, sizeQueue())));
+        final Iterator<Element<E>> i = this.queue.iterator();
+        while (head.size() < count && i.hasNext()) head.add(i.next());
+        return head;
+    }
+
+    private Element<E> last() {
+        try {
+            return this.queue.last();
+        } catch (final NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * all objects that have been returned by poll are stored in a back-up list
+     * where they can be retrieved afterward. The elements from that list are stored in
+     * the specific order as they had been retrieved. This method returns the elements
+     * in that specific order and if the list is not large enough, elements available
+     * with poll() are taken and written to the list until the required position is
+     * written.
+     * @param position inside the drained queue
+     * @return the element from the recorded position or null if that position is not available
+     */
+    public Element<E> element(final int position) {
+        if (this.drained == null) return null;
+        this.lock.lock();
+        try {
+            while (position >= this.drained.size()) {
+                final int s = this.drained.size();
+                if (takeUnsafe() == null || this.drained.size() <= s) break;
+            }
+            return position < this.drained.size() ? this.drained.get(position) : null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * retrieve an element from the drained queue but wait until a timeout
+     * until returning null when no element will be available within the time
+     * from the input queue. Waiting threads are woken up as soon as new elements are put.
+     * @param position inside the drained queue
+     * @param time the timeout in milliseconds
+     * @return the element from the recorded position or null if that position is not available within the timeout
+     * @throws InterruptedException
+     */
+    public Element<E> element(final int position, final long time) throws InterruptedException {
+        if (this.drained == null) return null;
+        if (this.maxsize >= 0 && position >= this.maxsize) return null; // this position will never be recorded
+        long nanos = time == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(time);
+        this.waiting.incrementAndGet();
+        try {
+            this.lock.lockInterruptibly();
+            try {
+                while (position >= this.drained.size()) {
+                    if (takeUnsafe() != null) continue;
+                    if (nanos <= 0L) return null;
+                    nanos = this.notEmpty.awaitNanos(nanos);
+                }
+                return this.drained.get(position);
+            } finally {
+                this.lock.unlock();
+            }
+        } finally {
+            this.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * return the specific amount of entries as they would be retrievable with element()
+     * if count is < 0 then all elements are taken
+     * @param count
+     * @return a copy of the list of drained elements
+     */
+    public ArrayList<Element<E>> list(final int count) {
+        if (this.drained == null) return null;
+        this.lock.lock();
+        try {
+            if (count < 0) {
+                while (takeUnsafe() != null) {
+                    // drain all elements to the recorded positions
+                }
+            } else {
+                if (count > sizeAvailable()) throw new RuntimeException("list(" + count + ") exceeded avaiable number of elements (" + sizeAvailable() + ")");
+                while (count > this.drained.size()) {
+                    if (takeUnsafe() == null) break;
+                }
+            }
+            return new ArrayList<Element<E>>(this.drained);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * iterate over all elements available. All elements that are still in the queue are drained to recorded positions
+     * @return an iterator over all drained positions. The iterator works on a snapshot but supports remove().
+     */
+    public Iterator<Element<E>> iterator() {
+        final ArrayList<Element<E>> snapshot = list(-1);
+        if (snapshot == null) return null;
+        final Iterator<Element<E>> i = snapshot.iterator();
+        return new Iterator<Element<E>>() {
+            private Element<E> current = null;
+            @Override
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+            @Override
+            public Element<E> next() {
+                this.current = i.next();
+                return this.current;
+            }
+            @Override
+            public void remove() {
+                if (this.current == null) throw new IllegalStateException();
+                i.remove();
+                ConcurrentTopKQueue.this.lock.lock();
+                try {
+                    if (ConcurrentTopKQueue.this.drained.remove(this.current)) {
+                        ConcurrentTopKQueue.this.drainedElements.remove(this.current);
+                        ConcurrentTopKQueue.this.drainedSize = ConcurrentTopKQueue.this.drained.size();
+                    }
+                } finally {
+                    ConcurrentTopKQueue.this.lock.unlock();
+                }
+                this.current = null;
+            }
+        };
+    }
+
+}
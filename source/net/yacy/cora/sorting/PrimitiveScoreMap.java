@@ -0,0 +1,624 @@
+/**
+ *  PrimitiveScoreMap
+ *  Copyright 2026 by Michael Peter Christen
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.sorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A concurrent score map which stores keys and scores in primitive open-addressing tables.
+ * The map is split into segments, each guarded by its own StampedLock; reads are done optimistically.
+ * Compared to the ConcurrentScoreMap there is no AtomicInteger and no map node per key.
+ * Keys which are incremented under contention and have a high score are promoted to a LongAdder
+ * so that concurrent feeders do not serialize on a single segment lock for the most frequent keys.
+ * The sorted views are incremental: keys(up) heapifies the scores once and sorts only as far as it is iterated.
+ */
+public class PrimitiveScoreMap<E> extends AbstractScoreMap<E> implements ReversibleScoreMap<E> {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final int INITIAL_CAPACITY = 8; // per segment, must be a power of two
+    private static final int HOT_MIN_SCORE = 64;   // contended keys below that score are not promoted to a LongAdder
+    private static final int HOT_MAX_KEYS = 64;    // maximum number of keys with a LongAdder
+
+    /** the segments of the map, selected with the highest bits of the hash */
+    private final Segment[] segments;
+
+    /** striped counters for hot keys; the score of such a key is the sum of the segment score and the adder */
+    private final ConcurrentHashMap<E, LongAdder> hot;
+
+    /** sum of all scores */
+    private final LongAdder gcount;
+
+    /** Eventual registered object listening on map updates */
+    private ScoreMapUpdatesListener updatesListener;
+
+    public PrimitiveScoreMap() {
+        this(null);
+    }
+
+    /**
+     * @param updatesListener an eventual object listening on score map updates
+     */
+    public PrimitiveScoreMap(final ScoreMapUpdatesListener updatesListener) {
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) this.segments[i] = new Segment();
+        this.hot = new ConcurrentHashMap<E, LongAdder>();
+        this.gcount = new LongAdder();
+        this.updatesListener = updatesListener;
+    }
+
+    /**
+     * an open-addressing table with linear probing. Keys and scores are replaced together
+     * as one Table object on resize so that optimistic readers always see consistent arrays.
+     */
+    private static final class Table {
+        private final Object[] keys;
+        private final int[] scores;
+        private Table(final int capacity) {
+            this.keys = new Object[capacity];
+            this.scores = new int[capacity];
+        }
+    }
+
+    private static final class Segment extends StampedLock {
+        private static final long serialVersionUID = 3104467127281815009L;
+        private volatile Table table = new Table(INITIAL_CAPACITY);
+        private volatile int size = 0;
+
+        /**
+         * find a key in the table
+         * @return the slot of the key or -(insertion slot + 1) if the key is not in the table
+         */
+        private static int find(final Table t, final Object key, final int hash) {
+            final int mask = t.keys.length - 1;
+            int slot = hash & mask;
+            for (int probe = 0; probe <= mask; probe++) {
+                final Object k = t.keys[slot];
+                if (k == null) return -(slot + 1);
+                if (k.equals(key)) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -(slot + 1);
+        }
+
+        /**
+         * optimistic read of a score
+         * @return the score or Integer.MIN_VALUE if the key is not in the table
+         */
+        private int read(final Object key, final int hash) {
+            long stamp = tryOptimisticRead();
+            if (stamp != 0L) {
+                try {
+                    final Table t = this.table;
+                    final int slot = find(t, key, hash);
+                    final int score = slot >= 0 ? t.scores[slot] : Integer.MIN_VALUE;
+                    if (validate(stamp)) return score;
+                } catch (final RuntimeException e) {
+                    // inconsistent state during a concurrent write, fall back to the read lock
+                }
+            }
+            stamp = readLock();
+            try {
+                final Table t = this.table;
+                final int slot = find(t, key, hash);
+                return slot >= 0 ? t.scores[slot] : Integer.MIN_VALUE;
+            } finally {
+                unlockRead(stamp);
+            }
+        }
+
+        /** add to the score of a key, the write lock must be held */
+        private int add(final Object key, final int hash, final int delta) {
+            Table t = this.table;
+            int slot = find(t, key, hash);
+            if (slot >= 0) {
+                t.scores[slot] += delta;
+                return t.scores[slot];
+            }
+            if ((this.size + 1) * 4 > t.keys.length * 3) {
+                t = resize(t.keys.length << 1);
+                slot = find(t, key, hash);
+            }
+            slot = -slot - 1;
+            t.scores[slot] = delta;
+            t.keys[slot] = key;
+            this.size++;
+            return delta;
+        }
+
+        /** remove the key at the given slot using backward-shift deletion, the write lock must be held */
+        private void remove(final Table t, int slot) {
+            final int mask = t.keys.length - 1;
+            int next = (slot + 1) & mask;
+            while (t.keys[next] != null) {
+                final int home = spread(t.keys[next].hashCode()) & mask;
+                // move the entry at next to slot if its home position is not within (slot, next]
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    t.keys[slot] = t.keys[next];
+                    t.scores[slot] = t.scores[next];
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            t.keys[slot] = null;
+            t.scores[slot] = 0;
+            this.size--;
+        }
+
+        private Table resize(final int capacity) {
+            final Table o = this.table;
+            final Table n = new Table(capacity);
+            for (int i = 0; i < o.keys.length; i++) {
+                final Object k = o.keys[i];
+                if (k == null) continue;
+                final int slot = -find(n, k, spread(k.hashCode())) - 1;
+                n.keys[slot] = k;
+                n.scores[slot] = o.scores[i];
+            }
+            this.table = n;
+            return n;
+        }
+
+        private void clear() {
+            this.table = new Table(INITIAL_CAPACITY);
+            this.size = 0;
+        }
+    }
+
+    private static int spread(final int h) {
+        final int x = h * 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+
+    private Segment segment(final int hash) {
+        return this.segments[hash >>> (32 - SEGMENT_BITS)];
+    }
+
+    /**
+     * Dispatch the update event to the eventually registered listener.
+     */
+    private void dispatchUpdateToListener() {
+        if (this.updatesListener != null) {
+            this.updatesListener.updatedScoreMap();
+        }
+    }
+
+    /**
+     * @param updatesListener an eventual object which wants to listen to successful updates on this score map
+     */
+    public void setUpdatesListener(final ScoreMapUpdatesListener updatesListener) {
+        this.updatesListener = updatesListener;
+    }
+
+    private int hotScore(final Object key) {
+        if (this.hot.isEmpty()) return 0;
+        final LongAdder adder = this.hot.get(key);
+        return adder == null ? 0 : adder.intValue();
+    }
+
+    @Override
+    public void inc(final E obj) {
+        inc(obj, 1);
+    }
+
+    @Override
+    public void inc(final E obj, final int incrementScore) {
+        if (obj == null) return;
+        if (!this.hot.isEmpty()) {
+            final LongAdder adder = this.hot.get(obj);
+            if (adder != null) {
+                adder.add(incrementScore);
+                this.gcount.add(incrementScore);
+                dispatchUpdateToListener();
+                return;
+            }
+        }
+        final int hash = spread(obj.hashCode());
+        final Segment s = segment(hash);
+        long stamp = s.tryWriteLock();
+        final boolean contended = stamp == 0L;
+        if (contended) stamp = s.writeLock();
+        try {
+            final Table t = s.table;
+            final int slot = contended && this.hot.size() < HOT_MAX_KEYS ? Segment.find(t, obj, hash) : -1;
+            if (slot >= 0 && t.scores[slot] >= HOT_MIN_SCORE) {
+                // this key is frequently incremented by concurrent threads: count it in a striped counter
+                this.hot.computeIfAbsent(obj, k -> new LongAdder()).add(incrementScore);
+            } else {
+                s.add(obj, hash, incrementScore);
+            }
+        } finally {
+            s.unlockWrite(stamp);
+        }
+        this.gcount.add(incrementScore);
+        dispatchUpdateToListener();
+    }
+
+    @Override
+    public void dec(final E obj) {
+        inc(obj, -1);
+    }
+
+    @Override
+    public void dec(final E obj, final int decrementScore) {
+        inc(obj, -decrementScore);
+    }
+
+    @Override
+    public void set(final E obj, final int newScore) {
+        if (obj == null) return;
+        final int hash = spread(obj.hashCode());
+        final Segment s = segment(hash);
+        final long stamp = s.writeLock();
+        try {
+            final Table t = s.table;
+            final int slot = Segment.find(t, obj, hash);
+            final LongAdder adder = this.hot.remove(obj);
+            final int old = (slot >= 0 ? t.scores[slot] : 0) + (adder == null ? 0 : adder.intValue());
+            if (slot >= 0) t.scores[slot] = newScore; else s.add(obj, hash, newScore);
+            this.gcount.add((long) newScore - old);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+        dispatchUpdateToListener();
+    }
+
+    @Override
+    public int delete(final E obj) {
+        if (obj == null) return 0;
+        final int hash = spread(obj.hashCode());
+        final Segment s = segment(hash);
+        final int score;
+        final long stamp = s.writeLock();
+        try {
+            final Table t = s.table;
+            final int slot = Segment.find(t, obj, hash);
+            final LongAdder adder = this.hot.remove(obj);
+            if (slot < 0) return 0;
+            score = t.scores[slot] + (adder == null ? 0 : adder.intValue());
+            s.remove(t, slot);
+        } finally {
+            s.unlockWrite(stamp);
+        }
+        this.gcount.add(-score);
+        dispatchUpdateToListener();
+        return score;
+    }
+
+    @Override
+    public boolean containsKey(final E obj) {
+        if (obj == null) return false;
+        final int hash = spread(obj.hashCode());
+        return segment(hash).read(obj, hash) != Integer.MIN_VALUE;
+    }
+
+    @Override
+    public int get(final E obj) {
+        if (obj == null) return 0;
+        final int hash = spread(obj.hashCode());
+        final int score = segment(hash).read(obj, hash);
+        if (score == Integer.MIN_VALUE) return 0;
+        return score + hotScore(obj);
+    }
+
+    public long totalCount() {
+        return this.gcount.sum();
+    }
+
+    @Override
+    public void clear() {
+        for (final Segment s: this.segments) {
+            final long stamp = s.writeLock();
+            try {
+                s.clear();
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+        this.hot.clear();
+        this.gcount.reset();
+        dispatchUpdateToListener();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final Segment s: this.segments) size += s.size;
+        return size;
+    }
+
+    @Override
+    public boolean sizeSmaller(final int size) {
+        return size() < size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (final Segment s: this.segments) if (s.size > 0) return false;
+        return true;
+    }
+
+    /**
+     * a consistent-per-segment copy of all keys and their scores in two parallel arrays
+     */
+    private final class Snapshot {
+        private Object[] keys;
+        private int[] scores;
+        private int size;
+
+        private Snapshot() {
+            int capacity = 0;
+            for (final Segment s: PrimitiveScoreMap.this.segments) capacity += s.size;
+            this.keys = new Object[Math.max(capacity, 8)];
+            this.scores = new int[this.keys.length];
+            this.size = 0;
+            for (final Segment s: PrimitiveScoreMap.this.segments) {
+                final long stamp = s.readLock();
+                try {
+                    final Table t = s.table;
+                    if (this.size + s.size > this.keys.length) {
+                        this.keys = Arrays.copyOf(this.keys, (this.size + s.size) * 2);
+                        this.scores = Arrays.copyOf(this.scores, this.keys.length);
+                    }
+                    for (int i = 0; i < t.keys.length; i++) {
+                        if (t.keys[i] == null) continue;
+                        this.keys[this.size] = t.keys[i];
+                        this.scores[this.size++] = t.scores[i];
+                    }
+                } finally {
+                    s.unlockRead(stamp);
+                }
+            }
+            if (!PrimitiveScoreMap.this.hot.isEmpty()) {
+                for (int i = 0; i < this.size; i++) this.scores[i] += hotScore(this.keys[i]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private E key(final int i) {
+            return (E) this.keys[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        final Snapshot snapshot = new Snapshot();
+        final StringBuilder sb = new StringBuilder(snapshot.size * 16 + 2).append('{');
+        for (int i = 0; i < snapshot.size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(snapshot.key(i)).append('=').append(snapshot.scores[i]);
+        }
+        return sb.append('}').toString();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        final Snapshot snapshot = new Snapshot();
+        return new Iterator<E>() {
+            private int p = 0;
+            @Override
+            public boolean hasNext() {
+                return this.p < snapshot.size;
+            }
+            @Override
+            public E next() {
+                if (this.p >= snapshot.size) throw new NoSuchElementException();
+                return snapshot.key(this.p++);
+            }
+        };
+    }
+
+    /**
+     * encode a score and a snapshot position in one long so that the natural order of the long is the order of the score
+     */
+    private static long pack(final int score, final int position) {
+        return (((long) score) << 32) | position;
+    }
+
+    private static int position(final long packed) {
+        return (int) (packed & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Creates and returns a sorted view to the keys. Sortorder is the score value.
+     * The view is incremental: the scores are heapified once and every call to next() costs only log(n),
+     * so iterating only the first k elements does not pay for sorting the whole map.
+     * @param up true = asc order, false = reverse order
+     * @return iterator accessing the keys in order of score values
+     */
+    @Override
+    public Iterator<E> keys(final boolean up) {
+        final Snapshot snapshot = new Snapshot();
+        final long[] heap = new long[snapshot.size];
+        // for a descending order we use a min-heap of the negated scores
+        for (int i = 0; i < snapshot.size; i++) heap[i] = up ? pack(snapshot.scores[i], i) : pack(-snapshot.scores[i], i);
+        for (int i = (heap.length >>> 1) - 1; i >= 0; i--) siftDown(heap, i, heap.length);
+        return new Iterator<E>() {
+            private int n = heap.length;
+            @Override
+            public boolean hasNext() {
+                return this.n > 0;
+            }
+            @Override
+            public E next() {
+                if (this.n == 0) throw new NoSuchElementException();
+                final long top = heap[0];
+                heap[0] = heap[--this.n];
+                siftDown(heap, 0, this.n);
+                return snapshot.key(position(top));
+            }
+        };
+    }
+
+    /**
+     * get the k keys with the highest scores, in descending order of their score.
+     * This uses a bounded heap of size k and does not sort the whole map.
+     * @param k the maximum number of keys
+     * @return a list of at most k keys
+     */
+    public List<E> topKeys(final int k) {
+        final Snapshot snapshot = new Snapshot();
+        final int m = Math.min(k, snapshot.size);
+        if (m <= 0) return new ArrayList<E>(0);
+        final long[] heap = new long[m]; // a min-heap of the best m scores
+        for (int i = 0; i < m; i++) heap[i] = pack(snapshot.scores[i], i);
+        for (int i = (m >>> 1) - 1; i >= 0; i--) siftDown(heap, i, m);
+        for (int i = m; i < snapshot.size; i++) {
+            final long p = pack(snapshot.scores[i], i);
+            if (p > heap[0]) {
+                heap[0] = p;
+                siftDown(heap, 0, m);
+            }
+        }
+        Arrays.sort(heap);
+        final ArrayList<E> list = new ArrayList<E>(m);
+        for (int i = m - 1; i >= 0; i--) list.add(snapshot.key(position(heap[i])));
+        return list;
+    }
+
+    private static void siftDown(final long[] heap, int i, final int n) {
+        final long x = heap[i];
+        int c;
+        while ((c = (i << 1) + 1) < n) {
+            if (c + 1 < n && heap[c + 1] < heap[c]) c++;
+            if (x <= heap[c]) break;
+            heap[i] = heap[c];
+            i = c;
+        }
+        heap[i] = x;
+    }
+
+    /**
+     * Creates and returns a sorted view of the keys, sorted by their own natural order.
+     * @param up true = asc order, false = reverse order
+     * @return iterator accessing the keys in natural order
+     */
+    public Iterator<E> keysByNaturalOrder(final boolean up) {
+        final TreeSet<E> sortedKeys = up ? new TreeSet<E>() : new TreeSet<E>(Collections.reverseOrder());
+        for (final E key: this) sortedKeys.add(key);
+        return sortedKeys.iterator();
+    }
+
+    /**
+     * @return a copy of all keys in no specific order
+     */
+    public List<E> keySnapshot() {
+        final Snapshot snapshot = new Snapshot();
+        final ArrayList<E> list = new ArrayList<E>(snapshot.size);
+        for (int i = 0; i < snapshot.size; i++) list.add(snapshot.key(i));
+        return list;
+    }
+
+    @Override
+    public int shrinkToMaxSize(final int maxsize) {
+        final Snapshot snapshot = new Snapshot();
+        if (snapshot.size <= maxsize) return 0;
+        if (maxsize <= 0) {
+            final int s = size();
+            clear();
+            return s;
+        }
+        // find the smallest minScore so that at most maxsize entries have a score >= minScore
+        final int[] scores = Arrays.copyOf(snapshot.scores, snapshot.size);
+        Arrays.sort(scores);
+        final int p = scores.length - maxsize;
+        final int minScore = scores[p - 1] == scores[p] ? scores[p] + 1 : scores[p];
+        return shrinkToMinScore(minScore);
+    }
+
+    @Override
+    public int shrinkToMinScore(final int minScore) {
+        int deletedNb = 0;
+        for (final Segment s: this.segments) {
+            final long stamp = s.writeLock();
+            try {
+                final Table t = s.table;
+                final Table n = new Table(t.keys.length);
+                int deleted = 0;
+                for (int i = 0; i < t.keys.length; i++) {
+                    final Object k = t.keys[i];
+                    if (k == null) continue;
+                    final int score = t.scores[i] + hotScore(k);
+                    if (score < minScore) {
+                        if (!this.hot.isEmpty()) this.hot.remove(k);
+                        this.gcount.add(-score);
+                        deleted++;
+                        continue;
+                    }
+                    final int slot = -Segment.find(n, k, spread(k.hashCode())) - 1;
+                    n.keys[slot] = k;
+                    n.scores[slot] = t.scores[i];
+                }
+                s.size -= deleted;
+                s.table = n;
+                deletedNb += deleted;
+            } finally {
+                s.unlockWrite(stamp);
+            }
+        }
+        if (deletedNb > 0) dispatchUpdateToListener();
+        return deletedNb;
+    }
+
+    private int[] minMax(final boolean max) {
+        final Snapshot snapshot = new Snapshot();
+        if (snapshot.size == 0) return null;
+        int best = 0;
+        for (int i = 1; i < snapshot.size; i++) {
+            if (max ? snapshot.scores[i] > snapshot.scores[best] : snapshot.scores[i] < snapshot.scores[best]) best = i;
+        }
+        return new int[]{best, snapshot.scores[best]};
+    }
+
+    @Override
+    public int getMinScore() {
+        final int[] m = minMax(false);
+        return m == null ? -1 : m[1];
+    }
+
+    @Override
+    public int getMaxScore() {
+        final int[] m = minMax(true);
+        return m == null ? -1 : m[1];
+    }
+
+    @Override
+    public E getMaxKey() {
+        final List<E> top = topKeys(1);
+        return top.isEmpty() ? null : top.get(0);
+    }
+
+    @Override
+    public E getMinKey() {
+        final Iterator<E> i = keys(true);
+        return i.hasNext() ? i.next() : null;
+    }
+
+}
@@ -112,6 +112,14 @@ public interface ARC<K, V> extends Iterable<Map.Entry<K, V>> {
      * clear the cache
      */
     public void clear();
+
+    /**
+     * remove entries from the cache to release memory. The entries which were accessed only once
+     * are removed first, the entries which were accessed again only if that was not enough.
+     * @param count the number of entries which shall be removed
+     * @return the number of removed entries
+     */
+    public int evict(int count);
     
     /**
      * iterator implements the Iterable interface
@@ -183,6 +183,28 @@ public final class ConcurrentARC<K, V> extends AbstractMap<K, V> implements Map<
     	for (final ARC<K, V> a: this.arc) a.clear();
     }
 
+    /**
+     * remove entries from the cache; every partition gives away its share of the entries
+     * and is locked only while its own entries are removed
+     * @param count the number of entries which shall be removed
+     * @return the number of removed entries
+     */
+    @Override
+    public final int evict(final int count) {
+        final int share = (count + this.arc.length - 1) / this.arc.length;
+        int removed = 0;
+        for (final ARC<K, V> a: this.arc) {
+            if (removed >= count) break;
+            removed += a.evict(Math.min(share, count - removed));
+        }
+        // partitions with less entries than their share leave a rest for the others
+        for (final ARC<K, V> a: this.arc) {
+            if (removed >= count) break;
+            removed += a.evict(count - removed);
+        }
+        return removed;
+    }
+
     /**
      * get the size of the ARC.
      * @return the complete number of entries in the ARC cache
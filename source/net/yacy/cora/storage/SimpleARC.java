@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -210,6 +211,32 @@ abstract class SimpleARC<K, V> extends AbstractMap<K, V> implements Map<K, V>, I
         this.levelB.clear();
     }
 
+    /**
+     * remove entries from the cache, first from level A, then from level B
+     * @param count the number of entries which shall be removed
+     * @return the number of removed entries
+     */
+    @Override
+    public final synchronized int evict(final int count) {
+        int removed = evict(this.levelA, count);
+        if (removed < count) removed += evict(this.levelB, count - removed);
+        return removed;
+    }
+
+    private static <K, V> int evict(final Map<K, V> level, final int count) {
+        // the keys are removed with the remove method of the map, which may maintain a key order
+        final List<K> keys = new ArrayList<K>();
+        synchronized (level) {
+            for (final K key: level.keySet()) {
+                if (keys.size() >= count) break;
+                keys.add(key);
+            }
+        }
+        int removed = 0;
+        for (final K key: keys) if (level.remove(key) != null) removed++;
+        return removed;
+    }
+
     /**
      * get the size of the ARC. this returns the sum of main and ghost cache
      * @return the complete number of entries in the ARC cache
@@ -28,13 +28,19 @@ package net.yacy.crawler;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import net.yacy.cora.date.ISO8601Formatter;
 import net.yacy.cora.document.encoding.ASCII;
@@ -72,6 +78,106 @@ public final class CrawlStacker implements WorkflowTask<Request>{
 
     private final static ConcurrentLog log = new ConcurrentLog("STACKCRAWL");
 
+    /**
+     * The crawler components which are read by the acceptance checks of the stacker, and the error url db
+     * which stores the rejected urls. The checks can be tested with an own implementation.
+     */
+    interface Backend {
+
+        /**
+         * @param handle the handle of a crawl profile
+         * @return the active crawl profile with that handle or null if it does not exist
+         */
+        public CrawlProfile getProfile(String handle);
+
+        /**
+         * @param protocol a url protocol
+         * @return true if the loader supports the protocol
+         */
+        public boolean isSupportedProtocol(String protocol);
+
+        /**
+         * @param url a url
+         * @return true if the url is listed in the crawler blacklist
+         */
+        public boolean isBlacklisted(DigestURL url);
+
+        /**
+         * @param urlhash a url hash
+         * @return the process which handles the url or null if the url is unknown to the crawler, see {@link CrawlQueues#exists(byte[])}
+         */
+        public HarvestProcess exists(byte[] urlhash);
+
+        /**
+         * @param urlhashes url hashes
+         * @return the known url hashes with the process which handles them, see {@link CrawlQueues#exists(Collection)}
+         */
+        public Map<String, HarvestProcess> exists(Collection<String> urlhashes);
+
+        /**
+         * @param urlhash a url hash
+         * @return the time when the url was loaded into the index, negative if the url is not in the index
+         */
+        public long getLoadTime(byte[] urlhash);
+
+        /**
+         * store a rejected url into the error url db
+         * @param entry the rejected request
+         * @param profile the crawl profile of the request, may be null
+         * @param reason the reject reason
+         */
+        public void reject(Request entry, CrawlProfile profile, String reason);
+    }
+
+    /** the backend of a running peer */
+    private static class SwitchboardBackend implements Backend {
+
+        private final CrawlQueues nextQueue;
+        private final CrawlSwitchboard crawler;
+        private final Segment indexSegment;
+
+        private SwitchboardBackend(final CrawlQueues nextQueue, final CrawlSwitchboard crawler, final Segment indexSegment) {
+            this.nextQueue = nextQueue;
+            this.crawler = crawler;
+            this.indexSegment = indexSegment;
+        }
+
+        @Override
+        public CrawlProfile getProfile(final String handle) {
+            return this.crawler.get(UTF8.getBytes(handle));
+        }
+
+        @Override
+        public boolean isSupportedProtocol(final String protocol) {
+            return Switchboard.getSwitchboard().loader.isSupportedProtocol(protocol);
+        }
+
+        @Override
+        public boolean isBlacklisted(final DigestURL url) {
+            return Switchboard.urlBlacklist.isListed(BlacklistType.CRAWLER, url);
+        }
+
+        @Override
+        public HarvestProcess exists(final byte[] urlhash) {
+            return this.nextQueue.exists(urlhash);
+        }
+
+        @Override
+        public Map<String, HarvestProcess> exists(final Collection<String> urlhashes) {
+            return this.nextQueue.exists(urlhashes);
+        }
+
+        @Override
+        public long getLoadTime(final byte[] urlhash) {
+            return this.indexSegment.getLoadTime(urlhash);
+        }
+
+        @Override
+        public void reject(final Request entry, final CrawlProfile profile, final String reason) {
+            this.nextQueue.errorURL.push(entry.url(), entry.depth(), profile, FailCategory.FINAL_LOAD_CONTEXT, reason, -1);
+        }
+    }
+
     private final RobotsTxt robots;
     private final WorkflowProcessor<Request>  requestQueue;
     public  final CrawlQueues       nextQueue;
@@ -80,6 +186,7 @@ public final class CrawlStacker implements WorkflowTask<Request>{
     private final SeedDB            peers;
     private final boolean           acceptLocalURLs, acceptGlobalURLs;
     private final FilterEngine      domainList;
+    private final Backend           backend;
 
     // this is the process that checks url for double-occurrences and for allowance/disallowance by robots.txt
 
@@ -92,6 +199,30 @@ public final class CrawlStacker implements WorkflowTask<Request>{
             final boolean acceptLocalURLs,
             final boolean acceptGlobalURLs,
             final FilterEngine domainList) {
+        this(robots, cq, cs, indexSegment, peers, acceptLocalURLs, acceptGlobalURLs, domainList, new SwitchboardBackend(cq, cs, indexSegment));
+    }
+
+    /**
+     * create a stacker which only runs the acceptance checks and the link pre-filter on the given backend
+     */
+    CrawlStacker(
+            final Backend backend,
+            final boolean acceptLocalURLs,
+            final boolean acceptGlobalURLs,
+            final FilterEngine domainList) {
+        this(null, null, null, null, null, acceptLocalURLs, acceptGlobalURLs, domainList, backend);
+    }
+
+    private CrawlStacker(
+            final RobotsTxt robots,
+            final CrawlQueues cq,
+            final CrawlSwitchboard cs,
+            final Segment indexSegment,
+            final SeedDB peers,
+            final boolean acceptLocalURLs,
+            final boolean acceptGlobalURLs,
+            final FilterEngine domainList,
+            final Backend backend) {
         this.robots = robots;
         this.nextQueue = cq;
         this.crawler = cs;
@@ -100,6 +231,7 @@ public final class CrawlStacker implements WorkflowTask<Request>{
         this.acceptLocalURLs = acceptLocalURLs;
         this.acceptGlobalURLs = acceptGlobalURLs;
         this.domainList = domainList;
+        this.backend = backend;
         this.requestQueue = new WorkflowProcessor<>("CrawlStacker", "This process checks new urls before they are enqueued into the balancer (proper, double-check, correct domain, filter)", new String[]{"Balancer"}, this, 10000, null, WorkflowProcessor.availableCPU);
         CrawlStacker.log.info("STACKCRAWL thread initialized.");
     }
@@ -147,8 +279,7 @@ public final class CrawlStacker implements WorkflowTask<Request>{
 
             // if the url was rejected we store it into the error URL db
             if (rejectReason != null && !rejectReason.startsWith(CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX)) {
-                final CrawlProfile profile = this.crawler.get(UTF8.getBytes(entry.profileHandle()));
-                this.nextQueue.errorURL.push(entry.url(), entry.depth(), profile, FailCategory.FINAL_LOAD_CONTEXT, rejectReason, -1);
+                this.backend.reject(entry, this.backend.getProfile(entry.profileHandle()), rejectReason);
             }
         } catch (final Exception e) {
             CrawlStacker.log.warn("Error while processing stackCrawl entry.\n" + "Entry: " + entry.toString() + "Error: " + e.toString(), e);
@@ -164,6 +295,86 @@ public final class CrawlStacker implements WorkflowTask<Request>{
         this.requestQueue.enQueue(entry);
     }
 
+    /**
+     * Enqueue the links of a document. This is the batch version of {@link #enqueueEntry(Request)} for link-rich pages:
+     * links with the same url hash are enqueued only once, the url filters of the crawl profile are applied to
+     * all links in one pass and links which are already known to the crawler or the index are removed
+     * before they enter the stacker queue. The remaining links are checked completely with {@link #stackCrawl(Request)}.
+     * @param links the links of a document, all using the same crawl profile
+     */
+    public void enqueueLinks(final Collection<Request> links) {
+        for (final Request entry: this.preFilterLinks(links)) this.enqueueEntry(entry);
+    }
+
+    /**
+     * The pre-filter of {@link #enqueueLinks(Collection)}. A link which is rejected here gets the same result as
+     * in {@link #process(Request)}: links which do not pass the url filters of the profile are stored into the error url db
+     * with the reject reason of {@link #checkAcceptanceChangeable(DigestURL, CrawlProfile, int)}, which also decides
+     * which reason is stored if more than one test fails. Known links are removed without an error record,
+     * as the "double in" rejection of {@link #checkAcceptanceInitially(DigestURL, CrawlProfile)}.
+     * @param links the links of a document, all using the same crawl profile
+     * @return the links which shall enter the stacker queue, in the order of the given links
+     */
+    List<Request> preFilterLinks(final Collection<Request> links) {
+        final List<Request> accepted = new ArrayList<>();
+        if (links.isEmpty()) return accepted;
+        final String profileHandle = links.iterator().next().profileHandle();
+        final CrawlProfile profile = profileHandle == null ? null : this.backend.getProfile(profileHandle);
+
+        // remove double links
+        final Map<String, Request> unique = new LinkedHashMap<>();
+        for (final Request entry: links) {
+            if (profile == null || !profileHandle.equals(entry.profileHandle())) {
+                accepted.add(entry); // the stacker handles the error cases
+                continue;
+            }
+            unique.putIfAbsent(ASCII.String(entry.url().hash()), entry);
+        }
+        if (unique.isEmpty()) return accepted;
+        final int count = unique.size();
+
+        // filter with must-match and must-not-match for URLs, rejected urls are stored into the error URL db as in process()
+        final Pattern mustMatch = profile.urlMustMatchPattern();
+        final Pattern mustNotMatch = profile.urlMustNotMatchPattern();
+        if (mustMatch != CrawlProfile.MATCH_ALL_PATTERN || mustNotMatch != CrawlProfile.MATCH_NEVER_PATTERN) {
+            final Iterator<Request> i = unique.values().iterator();
+            while (i.hasNext()) {
+                final Request entry = i.next();
+                if (entry.depth() <= 0) continue;
+                final String urlstring = entry.url().toNormalform(true);
+                if ((mustMatch == CrawlProfile.MATCH_ALL_PATTERN || mustMatch.matcher(urlstring).matches()) &&
+                    (mustNotMatch == CrawlProfile.MATCH_NEVER_PATTERN || !mustNotMatch.matcher(urlstring).matches())) continue;
+                // the complete test finds the same reason as the stacker, i.e. a blacklisted url is rejected because of the blacklist
+                final String rejectReason = this.checkAcceptanceChangeable(entry.url(), profile, entry.depth());
+                if (rejectReason == null) continue;
+                i.remove();
+                try {
+                    this.backend.reject(entry, profile, rejectReason);
+                } catch (final Exception e) {
+                    CrawlStacker.log.warn("Error while storing rejected link " + urlstring + ": " + e.toString(), e);
+                }
+            }
+        }
+
+        // remove links which are in the crawler, in the crawl queues or in the index; these are not stored as error
+        final Map<String, HarvestProcess> existing = this.backend.exists(unique.keySet());
+        final long recrawlIfOlder = profile.recrawlIfOlder();
+        final Iterator<Map.Entry<String, Request>> i = unique.entrySet().iterator();
+        while (i.hasNext()) {
+            final Map.Entry<String, Request> entry = i.next();
+            if (existing.containsKey(entry.getKey())) {
+                i.remove();
+                continue;
+            }
+            final long oldDate = this.backend.getLoadTime(entry.getValue().url().hash());
+            if (oldDate >= 0 && recrawlIfOlder <= oldDate) i.remove();
+        }
+
+        if (CrawlStacker.log.isFine()) CrawlStacker.log.fine("ENQUEUE " + unique.size() + " of " + links.size() + " links (" + count + " unique)");
+        accepted.addAll(unique.values());
+        return accepted;
+    }
+
     public void enqueueEntriesAsynchronous(
             final byte[] initiator,
             final String profileHandle,
@@ -347,8 +558,7 @@ public final class CrawlStacker implements WorkflowTask<Request>{
     public String stackCrawl(final Request entry) {
         //this.log.logFinest("stackCrawl: nexturlString='" + nexturlString + "'");
 
-        final byte[] handle = UTF8.getBytes(entry.profileHandle());
-        final CrawlProfile profile = this.crawler.get(handle);
+        final CrawlProfile profile = this.backend.getProfile(entry.profileHandle());
         String error;
         if (profile == null) {
             error = "LOST STACKER PROFILE HANDLE '" + entry.profileHandle() + "' for URL " + entry.url().toNormalform(true);
@@ -426,12 +636,12 @@ public final class CrawlStacker implements WorkflowTask<Request>{
     public String checkAcceptanceInitially(final DigestURL url, final CrawlProfile profile) {
 
         // check if the url is double registered
-        final HarvestProcess dbocc = this.nextQueue.exists(url.hash()); // returns the name of the queue if entry exists
+        final HarvestProcess dbocc = this.backend.exists(url.hash()); // returns the name of the queue if entry exists
         if (dbocc != null) {
             return CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX + ": " + dbocc.name();
         }
         final String urls = url.toNormalform(false);
-        final long oldDate = this.indexSegment.getLoadTime(url.hash());
+        final long oldDate = this.backend.getLoadTime(url.hash());
 
         // deny urls that exceed allowed number of occurrences
         final int maxAllowedPagesPerDomain = profile.domMaxPages();
@@ -481,7 +691,7 @@ public final class CrawlStacker implements WorkflowTask<Request>{
         // check if the protocol is supported
         final String urlProtocol = url.getProtocol();
         final String urlstring = url.toNormalform(true);
-        if (!Switchboard.getSwitchboard().loader.isSupportedProtocol(urlProtocol)) {
+        if (!this.backend.isSupportedProtocol(urlProtocol)) {
             CrawlStacker.log.severe("Unsupported protocol in URL '" + urlstring + "'.");
             return "unsupported protocol";
         }
@@ -494,7 +704,7 @@ public final class CrawlStacker implements WorkflowTask<Request>{
         }
 
         // check blacklist
-        if (Switchboard.urlBlacklist.isListed(BlacklistType.CRAWLER, url)) {
+        if (this.backend.isBlacklisted(url)) {
             CrawlStacker.log.fine("URL '" + urlstring + "' is in blacklist.");
             return "url in blacklist";
         }
@@ -31,8 +31,10 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -189,6 +191,30 @@ public class CrawlQueues {
         return null;
     }
 
+    /**
+     * tests which of the given hashes occur in any database. This is the batch version of {@link #exists(byte[])}:
+     * the worker entries are read only once for all hashes.
+     * @param hashes url hashes
+     * @return a map from the existing hashes to the name of the database where they occur
+     */
+    public Map<String, HarvestProcess> exists(final Collection<String> hashes) {
+        final Map<String, HarvestProcess> existing = new HashMap<>();
+        if (hashes.isEmpty()) return existing;
+        if (this.delegatedURL != null) {
+            for (final String hash: hashes) {
+                if (this.delegatedURL.containsKey(hash)) existing.put(hash, HarvestProcess.DELEGATED);
+            }
+        }
+        final Set<String> workerHashes = new HashSet<>();
+        for (final Request request: this.activeWorkerEntries().values()) {
+            workerHashes.add(ASCII.String(request.url().hash()));
+        }
+        for (final String hash: hashes) {
+            if (workerHashes.contains(hash)) existing.putIfAbsent(hash, HarvestProcess.WORKER);
+        }
+        return existing;
+    }
+
     /**
      * count the number of same host names in the worker
      * @param host
@@ -57,6 +57,7 @@ import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.blob.Tables;
+import net.yacy.kelondro.blob.TablesSecondaryIndex;
 import net.yacy.kelondro.data.word.WordReference;
 import net.yacy.kelondro.rwi.IndexCell;
 import net.yacy.search.Switchboard;
@@ -93,6 +94,19 @@ public class WorkTables extends Tables {
 
     public WorkTables(final File workPath) {
         super(workPath, 12);
+        // the api table is searched for recorded urls and sorted in the process scheduler
+        try {
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_URL, TablesSecondaryIndex.Type.EQUALITY);
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_TYPE, TablesSecondaryIndex.Type.STRING);
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_COMMENT, TablesSecondaryIndex.Type.STRING);
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_APICALL_COUNT, TablesSecondaryIndex.Type.NUMBER);
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_APICALL_SCHEDULE_TIME, TablesSecondaryIndex.Type.NUMBER);
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_DATE_RECORDING, TablesSecondaryIndex.Type.DATE);
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_DATE_LAST_EXEC, TablesSecondaryIndex.Type.DATE);
+            this.createSecondaryIndex(TABLE_API_NAME, TABLE_API_COL_DATE_NEXT_EXEC, TablesSecondaryIndex.Type.DATE);
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        }
     }
 
     /**
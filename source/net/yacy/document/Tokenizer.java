@@ -35,6 +35,7 @@ import java.util.TreeMap;
 import net.yacy.cora.document.WordCache;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.language.synonyms.SynonymLibrary;
+import net.yacy.cora.language.synonyms.TagAutomaton;
 import net.yacy.cora.lod.vocabulary.Tagging;
 import net.yacy.cora.order.NaturalOrder;
 import net.yacy.kelondro.data.word.Word;
@@ -68,10 +69,6 @@ public class Tokenizer {
         this.words = new TreeMap<String, Word>(NaturalOrder.naturalComparator);
         this.synonyms = new LinkedHashSet<String>();
         assert text != null;
-        final String[] wordcache = new String[LibraryProvider.autotagging.getMaxWordsInTerm() - 1];
-        for (int i = 0; i < wordcache.length; i++) {
-            wordcache[i] = "";
-        }
         String k;
         int wordlen;
         int allwordcounter = 0;
@@ -80,6 +77,13 @@ public class Tokenizer {
         boolean comb_indexof = false, last_last = false, last_index = false;
         //final Map<StringBuilder, Phrase> sentences = new HashMap<StringBuilder, Phrase>(100);
         if (LibraryProvider.autotagging.isEmpty()) doAutotagging = false;
+        Set<String> vocabularyNames = null;
+        TagAutomaton.Matcher tagMatcher = null;
+        if (doAutotagging) {
+            vocabularyNames = LibraryProvider.autotagging.getVocabularyNames();
+            extendVocabularies(root, scraper, vocabularyNames);
+            tagMatcher = LibraryProvider.autotagging.getAutomaton().matcher();
+        }
 
         // read source
         WordTokenizer wordenum = new WordTokenizer(new SentenceReader(text), meaningLib);
@@ -98,14 +102,8 @@ public class Tokenizer {
 
                 // get tags from autotagging
                 if (doAutotagging) {
-                    Set<String> vocabularyNames = LibraryProvider.autotagging.getVocabularyNames();
-                    extendVocabularies(root, scraper, vocabularyNames);
-                    
-                    extractAutoTagsFromText(wordcache, word, vocabularyNames);
+                    tagMatcher.next(word, vocabularyNames, this::addTag);
                 }
-                // shift wordcache
-                System.arraycopy(wordcache, 1, wordcache, 0, wordcache.length - 1);
-                wordcache[wordcache.length - 1] = word;
 
                 // check index.of detection
                 if (last_last && comb_indexof && word.equals("modified")) {
@@ -175,44 +173,19 @@ public class Tokenizer {
     }
 
     /**
-     * Check whether a single word or multiple ones match tags
-     * from the given autotagging vocabularies. Then fill this instance "tags" map
-     * with the eventually matching tags found.
+     * Add a tag which was found by the autotagging to this instance "tags" map.
      * 
-     * @param wordcache
-     *            the words to be checked for matching a tag as a single word or as combination of words 
-     * @param word
-     *            an additional word to be considered for tag matching
-     * @param vocabularyNames
-     *            names of the autotagging vocabularies to check
+     * @param tag
+     *            a tag from one of the autotagging vocabularies
      */
-    protected void extractAutoTagsFromText(final String[] wordcache, final String word, final Set<String> vocabularyNames) {
-        Tagging.Metatag tag;
-        if (vocabularyNames.size() > 0) {
-            for (int wordc = 1; wordc <= wordcache.length + 1; wordc++) {
-                // wordc is number of words that are tested
-                StringBuilder sb = new StringBuilder();
-                if (wordc == 1) {
-                    sb.append(word);
-                } else {
-                    for (int w = 0; w < wordc - 1; w++) {
-                        sb.append(wordcache[wordcache.length - wordc + w + 1]).append(' ');
-                    }
-                    sb.append(word);
-                }
-                String testterm = sb.toString().trim();
-                tag = LibraryProvider.autotagging.getTagFromTerm(vocabularyNames, testterm);
-                if (tag != null) {
-                    String navigatorName = tag.getVocabularyName();
-                    Set<Tagging.Metatag> tagset = this.tags.get(navigatorName);
-                    if (tagset == null) {
-                        tagset = new HashSet<Tagging.Metatag>();
-                        this.tags.put(navigatorName, tagset);
-                    }
-                    tagset.add(tag);
-                }
-            }
+    protected void addTag(final Tagging.Metatag tag) {
+        final String navigatorName = tag.getVocabularyName();
+        Set<Tagging.Metatag> tagset = this.tags.get(navigatorName);
+        if (tagset == null) {
+            tagset = new HashSet<Tagging.Metatag>();
+            this.tags.put(navigatorName, tagset);
         }
+        tagset.add(tag);
     }
 
     /**
@@ -0,0 +1,253 @@
+/**
+ *  ArchiveEntryParser
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt am Main, Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.util.Memory;
+import net.yacy.document.AbstractParser;
+import net.yacy.document.Document;
+import net.yacy.document.Parser;
+import net.yacy.document.TextParser;
+import net.yacy.document.VocabularyScraper;
+import net.yacy.document.parser.html.TagValency;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * Parses the entries of one archive concurrently in a parse pool which is shared by all archive parsers.
+ * The archive parser extracts an entry into a temporary file and submits it; while the entry is parsed,
+ * the next entries are extracted. The parsed sub documents are added to the main document of the archive
+ * as soon as all previous entries are done, so the content order is the same as with sequential parsing
+ * and the sub documents are released early instead of being held until the end of the archive.
+ * Each archive is limited in the number of entries, the total size of the entries and the parsing time;
+ * when a limit is reached, the main document is marked as partially parsed.
+ */
+public class ArchiveEntryParser {
+
+    /** maximum number of entries parsed in one archive */
+    private static int maxEntries = 10000;
+
+    /** maximum sum of the uncompressed entry sizes parsed in one archive */
+    private static long maxBytes = 1024L * 1024L * 1024L;
+
+    /** maximum time in milliseconds to parse one archive */
+    private static long maxTime = 5L * 60L * 1000L;
+
+    private static final int poolSize = Math.max(1, (int) Memory.cores());
+
+    private static final ThreadPoolExecutor pool = initPool();
+
+    /** marks the threads of the parse pool; archives inside archives are parsed there sequentially to prevent that the pool waits for itself */
+    private static final ThreadLocal<Boolean> inPool = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private static ThreadPoolExecutor initPool() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory(ArchiveEntryParser.class.getSimpleName()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * set the limits for each archive
+     * @param entries maximum number of entries parsed in one archive
+     * @param bytes maximum sum of the uncompressed entry sizes parsed in one archive
+     * @param time maximum time in milliseconds to parse one archive
+     */
+    public static void setLimits(final int entries, final long bytes, final long time) {
+        maxEntries = entries;
+        maxBytes = bytes;
+        maxTime = time;
+    }
+
+    private final String parserName;
+    private final Document maindoc;
+    private final long deadline;
+    private final boolean concurrent;
+    private final Semaphore slots;
+    private final List<Future<?>> tasks;
+    private final Set<File> pendingFiles; // the files of submitted tasks which did not start; a task which starts takes its file from this set and deletes it
+    private final Map<Integer, Document[]> results;
+    private int submitted, merged;
+    private long bytes;
+    private boolean closed;
+
+    /**
+     * @param parserName name of the archive parser for logging
+     * @param maindoc the document of the archive which receives the parsed entries as sub documents
+     */
+    public ArchiveEntryParser(final String parserName, final Document maindoc) {
+        this.parserName = parserName;
+        this.maindoc = maindoc;
+        this.deadline = System.currentTimeMillis() + maxTime;
+        this.concurrent = !inPool.get().booleanValue() && poolSize > 1;
+        this.slots = new Semaphore(poolSize);
+        this.tasks = new ArrayList<>();
+        this.pendingFiles = ConcurrentHashMap.newKeySet();
+        this.results = new HashMap<>();
+        this.submitted = 0;
+        this.merged = 0;
+        this.bytes = 0;
+        this.closed = false;
+    }
+
+    /**
+     * check the limits of the archive before an entry is extracted
+     * @param size the uncompressed size of the next entry
+     * @return true if the entry can be parsed, false if a limit is reached; then the main document is marked as partially parsed
+     */
+    public boolean accept(final long size) {
+        if (this.submitted >= maxEntries || this.bytes + size > maxBytes || System.currentTimeMillis() > this.deadline) {
+            AbstractParser.log.info(this.parserName + " parser: limit reached after " + this.submitted + " entries in " + this.maindoc.dc_source().toNormalform(true));
+            this.maindoc.setPartiallyParsed(true);
+            return false;
+        }
+        this.bytes += size;
+        return true;
+    }
+
+    /**
+     * parse an extracted entry. The temporary file is owned by this object afterwards and deleted when it is parsed.
+     * If all threads of the pool are busy with entries of this archive, this waits until one is free.
+     * @param name the name of the entry within the archive
+     * @param tmp the temporary file containing the entry
+     * @param location the url of the entry
+     * @param mime the mime type of the entry
+     * @throws InterruptedException
+     */
+    public void submit(final String name, final File tmp, final DigestURL location, final String mime,
+            final TagValency defaultValency, final Set<String> valencySwitchTagNames, final VocabularyScraper scraper, final int timezoneOffset) throws InterruptedException {
+        final int sequence = this.submitted++;
+        if (!this.concurrent) {
+            this.deliver(sequence, this.parse(name, tmp, location, mime, defaultValency, valencySwitchTagNames, scraper, timezoneOffset));
+            return;
+        }
+        final long wait = this.deadline - System.currentTimeMillis();
+        if (wait <= 0 || !this.slots.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+            // no time left: skip this entry
+            this.maindoc.setPartiallyParsed(true);
+            FileUtils.deletedelete(tmp);
+            this.deliver(sequence, null);
+            return;
+        }
+        this.pendingFiles.add(tmp);
+        try {
+            this.tasks.add(pool.submit(() -> {
+                try {
+                    // the file was deleted by finish() if the archive was finished before the task started
+                    if (!this.pendingFiles.remove(tmp)) return;
+                    inPool.set(Boolean.TRUE);
+                    this.deliver(sequence, this.parse(name, tmp, location, mime, defaultValency, valencySwitchTagNames, scraper, timezoneOffset));
+                } catch (final InterruptedException e) {
+                    // cancelled because of the time limit
+                } finally {
+                    this.slots.release();
+                }
+            }));
+        } catch (final RuntimeException e) {
+            // pool rejected the task, i.e. at shutdown
+            this.slots.release();
+            this.pendingFiles.remove(tmp);
+            FileUtils.deletedelete(tmp);
+            this.deliver(sequence, null);
+        }
+    }
+
+    /**
+     * wait until all submitted entries are parsed or the time limit is reached.
+     * Entries which are not finished at the deadline are cancelled and the main document is marked as partially parsed.
+     * @throws InterruptedException
+     */
+    public void finish() throws InterruptedException {
+        try {
+            for (final Future<?> task: this.tasks) {
+                final long wait = this.deadline - System.currentTimeMillis();
+                try {
+                    if (wait <= 0) throw new TimeoutException();
+                    task.get(wait, TimeUnit.MILLISECONDS);
+                } catch (final TimeoutException e) {
+                    AbstractParser.log.info(this.parserName + " parser: time limit reached in " + this.maindoc.dc_source().toNormalform(true));
+                    this.maindoc.setPartiallyParsed(true);
+                    break;
+                } catch (final ExecutionException e) {
+                    AbstractParser.log.warn(this.parserName + " parser: " + e.getMessage());
+                }
+            }
+        } finally {
+            synchronized (this) {
+                this.closed = true;
+            }
+            for (final Future<?> task: this.tasks) task.cancel(true);
+            // files of tasks which did not start; the files of running tasks are deleted by the tasks when their parser has returned
+            for (final File tmp: this.pendingFiles) {
+                if (this.pendingFiles.remove(tmp)) FileUtils.deletedelete(tmp);
+            }
+        }
+    }
+
+    private Document[] parse(final String name, final File tmp, final DigestURL location, final String mime,
+            final TagValency defaultValency, final Set<String> valencySwitchTagNames, final VocabularyScraper scraper, final int timezoneOffset) throws InterruptedException {
+        try {
+            return TextParser.parseSource(location, mime, null, defaultValency, valencySwitchTagNames, scraper, timezoneOffset, 999, tmp, null);
+        } catch (final Parser.Failure e) {
+            AbstractParser.log.warn(this.parserName + " parser entry " + name + ": " + e.getMessage());
+            return null;
+        } finally {
+            FileUtils.deletedelete(tmp);
+        }
+    }
+
+    /**
+     * store the result of an entry and add all results to the main document which are next in the order of the archive
+     * @param sequence the number of the entry in the archive
+     * @param docs the parsed documents or null if the entry could not be parsed
+     */
+    private synchronized void deliver(final int sequence, final Document[] docs) {
+        if (this.closed) return;
+        this.results.put(sequence, docs == null ? new Document[0] : docs);
+        Document[] next;
+        while ((next = this.results.remove(this.merged)) != null) {
+            this.merged++;
+            if (next.length == 0) continue;
+            try {
+                this.maindoc.addSubDocuments(next);
+            } catch (final IOException e) {
+                AbstractParser.log.warn(this.parserName + " parser: " + e.getMessage());
+            }
+        }
+    }
+
+}
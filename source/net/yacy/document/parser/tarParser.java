@@ -93,41 +93,43 @@ public class tarParser extends AbstractParser implements Parser {
 
         // create maindoc for this tar container
         final Document maindoc = createMainDocument(location, mimeType, charset, this);
-        // loop through the elements in the tar file and parse every single file inside
-        while (true) {
-            try {
-                File tmp = null;
-                entry = tis.getNextEntry();
-                if (entry == null) break;
-                if (entry.isDirectory() || entry.getSize() <= 0) continue;
-                final String name = entry.getName();
-                final int idx = name.lastIndexOf('.');
-                final String mime = TextParser.mimeOf((idx > -1) ? name.substring(idx + 1) : "");
+        // loop through the elements in the tar file and parse every single file inside;
+        // the entries are parsed concurrently while the next entries are extracted
+        final ArchiveEntryParser entryParser = new ArchiveEntryParser("tar", maindoc);
+        try {
+            while (true) {
                 try {
-                    tmp = FileUtils.createTempFile(this.getClass(), name);
-                    FileUtils.copy(tis, tmp, entry.getSize());
-                    /*
-                     * Create an appropriate sub location to prevent unwanted fallback to the tarparser on resources included in the archive.
-                     * We use the tar file name as the parent sub path. Example : http://host/archive.tar/name.
-                     * Indeed if we create a sub location with a '#' separator such as http://host/archive.tar#name, the
-                     * extension of the URL is still ".tar", thus incorrectly making the tar parser
-                     * as a possible parser for the sub resource.
-                     */
-                    final DigestURL subLocation = new DigestURL(parentTarURL, name);
-                    final Document[] subDocs = TextParser.parseSource(subLocation, mime, null, defaultValency, valencySwitchTagNames, scraper, timezoneOffset, 999, tmp, null);
-                    if (subDocs == null) {
-                        continue;
+                    File tmp = null;
+                    entry = tis.getNextEntry();
+                    if (entry == null) break;
+                    if (entry.isDirectory() || entry.getSize() <= 0) continue;
+                    if (!entryParser.accept(entry.getSize())) break;
+                    final String name = entry.getName();
+                    final int idx = name.lastIndexOf('.');
+                    final String mime = TextParser.mimeOf((idx > -1) ? name.substring(idx + 1) : "");
+                    try {
+                        tmp = FileUtils.createTempFile(this.getClass(), name);
+                        FileUtils.copy(tis, tmp, entry.getSize());
+                        /*
+                         * Create an appropriate sub location to prevent unwanted fallback to the tarparser on resources included in the archive.
+                         * We use the tar file name as the parent sub path. Example : http://host/archive.tar/name.
+                         * Indeed if we create a sub location with a '#' separator such as http://host/archive.tar#name, the
+                         * extension of the URL is still ".tar", thus incorrectly making the tar parser
+                         * as a possible parser for the sub resource.
+                         */
+                        final DigestURL subLocation = new DigestURL(parentTarURL, name);
+                        entryParser.submit(name, tmp, subLocation, mime, defaultValency, valencySwitchTagNames, scraper, timezoneOffset);
+                        tmp = null; // deleted by the entry parser
+                    } finally {
+                        if (tmp != null) FileUtils.deletedelete(tmp);
                     }
-                    maindoc.addSubDocuments(subDocs);
-                } catch (final Parser.Failure e) {
-                    AbstractParser.log.warn("tar parser entry " + name + ": " + e.getMessage());
-                } finally {
-                    if (tmp != null) FileUtils.deletedelete(tmp);
+                } catch (final IOException e) {
+                    AbstractParser.log.warn("tar parser:" + e.getMessage());
+                    break;
                 }
-            } catch (final IOException e) {
-                AbstractParser.log.warn("tar parser:" + e.getMessage());
-                break;
             }
+        } finally {
+            entryParser.finish();
         }
         return new Document[]{maindoc};
     }
@@ -107,34 +107,38 @@ public class zipParser extends AbstractParser implements Parser {
                 false,
                 new Date());
 
-        // loop through the elements in the zip file and parse every single file inside
-        while (true) {
-            try {
-                File tmp = null;
-                if (zis.available() <= 0) break;
-                entry = zis.getNextEntry();
-                if (entry == null) break;
-                if (entry.isDirectory() || entry.getSize() <= 0) continue;
-                final String name = entry.getName();
-                final int idx = name.lastIndexOf('.');
-                final String mime = TextParser.mimeOf((idx >= 0) ? name.substring(idx + 1) : "");
+        // loop through the elements in the zip file and parse every single file inside;
+        // the entries are parsed concurrently while the next entries are extracted
+        final ArchiveEntryParser entryParser = new ArchiveEntryParser("ZIP", maindoc);
+        try {
+            while (true) {
                 try {
-                    tmp = FileUtils.createTempFile(this.getClass(), name);
-                    FileUtils.copy(zis, tmp, entry.getSize());
-                    final DigestURL virtualURL = DigestURL.newURL(location, "#" + name);
-                    //this.log.logInfo("ZIP file parser: " + virtualURL.toNormalform(false, false));
-                    final Document[] docs = TextParser.parseSource(virtualURL, mime, null, defaultValency, valencySwitchTagNames, scraper, timezoneOffset, 999, tmp, null);
-                    if (docs == null) continue;
-                    maindoc.addSubDocuments(docs);
-                } catch (final Parser.Failure e) {
-                    AbstractParser.log.warn("ZIP parser entry " + name + ": " + e.getMessage());
-                } finally {
-                    if (tmp != null) FileUtils.deletedelete(tmp);
+                    File tmp = null;
+                    if (zis.available() <= 0) break;
+                    entry = zis.getNextEntry();
+                    if (entry == null) break;
+                    if (entry.isDirectory() || entry.getSize() <= 0) continue;
+                    if (!entryParser.accept(entry.getSize())) break;
+                    final String name = entry.getName();
+                    final int idx = name.lastIndexOf('.');
+                    final String mime = TextParser.mimeOf((idx >= 0) ? name.substring(idx + 1) : "");
+                    try {
+                        tmp = FileUtils.createTempFile(this.getClass(), name);
+                        FileUtils.copy(zis, tmp, entry.getSize());
+                        final DigestURL virtualURL = DigestURL.newURL(location, "#" + name);
+                        //this.log.logInfo("ZIP file parser: " + virtualURL.toNormalform(false, false));
+                        entryParser.submit(name, tmp, virtualURL, mime, defaultValency, valencySwitchTagNames, scraper, timezoneOffset);
+                        tmp = null; // deleted by the entry parser
+                    } finally {
+                        if (tmp != null) FileUtils.deletedelete(tmp);
+                    }
+                } catch (final IOException e) {
+                    AbstractParser.log.warn("ZIP parser:" + e.getMessage());
+                    break;
                 }
-            } catch (final IOException e) {
-                AbstractParser.log.warn("ZIP parser:" + e.getMessage());
-                break;
             }
+        } finally {
+            entryParser.finish();
         }
         return new Document[]{maindoc};
     }
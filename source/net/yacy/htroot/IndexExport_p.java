@@ -74,10 +74,15 @@ public class IndexExport_p {
             prop.put("lurlexporterror", 0);
             prop.put("lurlexport_exportfile", export.file().toString());
             prop.put("lurlexport_urlcount", export.docCount());
+            prop.put("lurlexport_docspersecond", Math.round(export.docsPerSecond()));
+            prop.put("lurlexport_parallel", export.threads() > 1 ? 1 : 0);
+            prop.put("lurlexport_parallel_partitionsdone", export.partitionsDone());
+            prop.put("lurlexport_parallel_partitions", Fulltext.EXPORT_PARTITIONS);
             prop.put("reload", 1);
         } else {
             prop.put("lurlexport", 1);
             prop.put("lurlexport_exportfilepath", sb.getDataPath() + "/DATA/EXPORT/");
+            prop.put("lurlexport_partitions", Fulltext.EXPORT_PARTITIONS);
             if (export == null) {
                 // there has never been an export
                 prop.put("lurlexportfinished", 0);
@@ -87,6 +92,7 @@ public class IndexExport_p {
                 prop.put("lurlexportfinished", 1);
                 prop.put("lurlexportfinished_exportfile", export.file().toString());
                 prop.put("lurlexportfinished_urlcount", export.docCount());
+                prop.put("lurlexportfinished_docspersecond", Math.round(export.docsPerSecond()));
                 if (export.failed() == null) {
                     prop.put("lurlexporterror", 0);
                 } else {
@@ -117,6 +123,8 @@ public class IndexExport_p {
             if (maxChunkSize <= 0) maxChunkSize = Long.MAX_VALUE;
             final String path = post.get("exportfilepath", "");
             final boolean minified = post.get("minified", "no").equals("yes");
+            final int threads = post.getInt("exportthreads", 1);
+            final boolean resume = threads > 1 && post.getBoolean("exportresume");
 
             // store this call as api call: we do this even if there is a chance that it fails because recurring calls may do not fail
             if (maxseconds != -1) sb.tables.recordAPICall(post, "IndexExport_p.html", WorkTables.TABLE_API_TYPE_DUMP, format + "-dump, q=" + query + ", maxseconds=" + maxseconds);
@@ -188,13 +196,15 @@ public class IndexExport_p {
                     }
                 }
 
-                final String filename = SwitchboardConstants.YACY_PACK_PREFIX +
+                // a resumed parallel export continues to write into the chunks of the unfinished export
+                final String resumable = resume ? Fulltext.resumableExport(filepath, filter, query, format, dom, text, maxChunkSize, minified) : null;
+                final String filename = resumable != null ? resumable : SwitchboardConstants.YACY_PACK_PREFIX +
                         "f" + GenericFormatter.SHORT_MINUTE_FORMATTER.format(firstdate) + "_" +
                         "l" + GenericFormatter.SHORT_MINUTE_FORMATTER.format(lastdate) + "_" +
                         "n" + GenericFormatter.SHORT_MINUTE_FORMATTER.format(new Date(now)) + "_" +
                         "c" + String.format("%1$012d", doccount)+ "_tc"; // the name ends with the transaction token ('c' = 'created')
 
-                export = sb.index.fulltext().export(filepath, filename, format.getExt(), filter, query, format, dom, text, maxChunkSize, minified);
+                export = sb.index.fulltext().export(filepath, filename, format.getExt(), filter, query, format, dom, text, maxChunkSize, minified, threads, resumable != null);
 
             } catch (final IOException e) {
                 prop.put("lurlexporterror", 1);
@@ -206,6 +216,10 @@ public class IndexExport_p {
             // show result
             prop.put("lurlexport_exportfile", export.file().toString());
             prop.put("lurlexport_urlcount", export.docCount());
+            prop.put("lurlexport_docspersecond", Math.round(export.docsPerSecond()));
+            prop.put("lurlexport_parallel", export.threads() > 1 ? 1 : 0);
+            prop.put("lurlexport_parallel_partitionsdone", export.partitionsDone());
+            prop.put("lurlexport_parallel_partitions", Fulltext.EXPORT_PARTITIONS);
             if ((export != null) && (export.failed() == null)) {
                 prop.put("lurlexport", 2);
             }
@@ -216,6 +216,11 @@ public class PerformanceMemory_p {
         prop.putNum("searchevent.miss", SearchEventCache.cacheMiss);
         prop.putNum("searchevent.insert", SearchEventCache.cacheInsert);
         prop.putNum("searchevent.delete", SearchEventCache.cacheDelete);
+        prop.putNum("localresults.size", SearchEventCache.localResults.size());
+        prop.putNum("localresults.hit", SearchEventCache.localResults.hits());
+        prop.putNum("localresults.miss", SearchEventCache.localResults.misses());
+        prop.putNum("localresults.insert", SearchEventCache.localResults.inserts());
+        prop.putNum("localresults.delete", SearchEventCache.localResults.evictions() + SearchEventCache.localResults.invalidations());
         // return rewrite values for templates
         return prop;
     }
@@ -338,21 +338,20 @@ public class Table_API_p {
         int filteredSize = 0;
         try {
             tablesize = sb.tables.size(WorkTables.TABLE_API_NAME);
-            final Iterator<Tables.Row> plainIterator = sb.tables.iterator(WorkTables.TABLE_API_NAME);
 			final Iterator<Tables.Row> mapIterator;
 			if(sortColumn.isEmpty()) {
-				mapIterator = plainIterator;
+				mapIterator = sb.tables.iterator(WorkTables.TABLE_API_NAME);
 			} else {
 				if (WorkTables.TABLE_API_COL_APICALL_COUNT.equals(sortColumn)
 						|| WorkTables.TABLE_API_COL_APICALL_SCHEDULE_TIME.equals(sortColumn)) {
-					mapIterator = Tables.orderByInt(plainIterator, sortColumn, 0, sortDir).iterator();
+					mapIterator = sb.tables.orderByInt(WorkTables.TABLE_API_NAME, sortColumn, 0, sortDir).iterator();
 				} else if (WorkTables.TABLE_API_COL_DATE.equals(sortColumn)
 						|| WorkTables.TABLE_API_COL_DATE_RECORDING.equals(sortColumn)
 						|| WorkTables.TABLE_API_COL_DATE_LAST_EXEC.equals(sortColumn)
 						|| WorkTables.TABLE_API_COL_DATE_NEXT_EXEC.equals(sortColumn)) {
-					mapIterator = Tables.orderByDate(plainIterator, sortColumn, now, sortDir).iterator();
+					mapIterator = sb.tables.orderByDate(WorkTables.TABLE_API_NAME, sortColumn, now, sortDir).iterator();
 				} else {
-					mapIterator = Tables.orderByString(plainIterator, sortColumn, "", sortDir).iterator();
+					mapIterator = sb.tables.orderByString(WorkTables.TABLE_API_NAME, sortColumn, "", sortDir).iterator();
 				}
 			}
             Tables.Row r;
@@ -28,11 +28,14 @@
 package net.yacy.htroot.api;
 
 import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
 
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.util.Memory;
 import net.yacy.crawler.CrawlSwitchboard;
 import net.yacy.crawler.data.CrawlProfile;
+import net.yacy.http.AdmissionControl;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.io.ByteCount;
 import net.yacy.kelondro.util.MemoryControl;
@@ -117,6 +120,30 @@ public class status_p {
         prop.putNum("noloadCrawlSize", sb.crawlQueues.noloadCrawlJobSize());
         prop.put("noloadCrawlState", STATE_RUNNING);
 
+        // admission control of the http server
+        int admissionCount = 0;
+        final AdmissionControl admission = sb.getHttpServer() == null ? null : sb.getHttpServer().getAdmissionControl();
+        if (admission != null) {
+            for (final Map.Entry<AdmissionControl.EndpointClass, AdmissionControl.Limit> entry: admission.limits().entrySet()) {
+                final AdmissionControl.Limit limit = entry.getValue();
+                final String prefix = "admission_" + admissionCount + "_";
+                prop.put(prefix + "name", entry.getKey().name().toLowerCase(Locale.ROOT));
+                prop.put(prefix + "limit", limit.limit());
+                prop.put(prefix + "inflight", limit.inflight());
+                prop.put(prefix + "queued", limit.queued());
+                prop.put(prefix + "admitted", limit.admitted());
+                prop.put(prefix + "rejected", limit.rejected());
+                prop.put(prefix + "failed", limit.failed());
+                prop.put(prefix + "latency", Math.round(limit.latency()));
+                prop.put(prefix + "baselineLatency", Math.round(limit.baselineLatency()));
+                prop.put(prefix + "queueWait", Math.round(limit.queueWait()));
+                admissionCount++;
+            }
+        }
+        prop.put("admission", admissionCount);
+        prop.put("admissionThreads", admission == null ? 0 : admission.budget().used());
+        prop.put("admissionMaxThreads", admission == null ? 0 : admission.budget().max());
+
         // generate crawl profile table
         int count = 0;
         final int domlistlength = (post == null) ? 160 : post.getInt("domlistlength", 160);
@@ -157,6 +184,9 @@ public class status_p {
 
         prop.put("postprocessingCollectionRemainingCount", collectionRemainingCount);
         prop.put("postprocessingWebgraphRemainingCount", webgraphRemainingCount);
+        prop.put("postprocessingBacklogHosts", sb.index.fulltext().changeLog().hostBacklog());
+        prop.put("postprocessingBacklogUrls", sb.index.fulltext().changeLog().urlBacklog());
+        prop.put("postprocessingBacklogFullScan", sb.index.fulltext().changeLog().isAll() ? 1 : 0);
         prop.put("postprocessingRunning_activity", CollectionConfiguration.postprocessingActivity);
         prop.put("postprocessingSpeed", speed);
         prop.put("postprocessingElapsedTime", timeSinceStart);
@@ -0,0 +1,349 @@
+/**
+ *  AdmissionControl
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.http;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive admission control for the http server. Requests are grouped into endpoint classes and each
+ * class has its own concurrency limit, so that a flood of public search requests cannot take the threads
+ * away from the peer protocol and the administration pages.
+ *
+ * The limit of a class is computed from the observed latency with a gradient: while the current latency
+ * stays close to the latency without load, the limit grows by a small queue allowance; when the latency
+ * rises, the limit shrinks with the ratio of both. Failed requests (server errors) cut the limit
+ * multiplicatively. Requests over the limit wait a short time in a bounded queue and are rejected
+ * if no slot becomes free, so that the caller can answer with a fast 503.
+ *
+ * Waiting requests block a server thread. All classes therefore share a {@link ThreadBudget} which is
+ * smaller than the server thread pool: a request which would exceed it is rejected at once instead of
+ * waiting, so the limited classes can never occupy all threads of the server.
+ */
+public class AdmissionControl {
+
+    /** the endpoint classes, each with its own limit */
+    public enum EndpointClass {
+        /** the peer-to-peer protocol at /yacy/ */
+        PEER,
+        /** public search interfaces */
+        SEARCH,
+        /** machine interfaces: /api/, the llm and mcp servlets */
+        API,
+        /** pages which require administration rights */
+        ADMIN;
+    }
+
+    /**
+     * find the endpoint class of a request path
+     * @param path the path of the request
+     * @return the class or null if the path is not limited (static files and public pages)
+     */
+    public static EndpointClass classify(final String path) {
+        if (path == null) return null;
+        if (path.startsWith("/yacy/")) return EndpointClass.PEER;
+        if (path.contains("_p.")) return EndpointClass.ADMIN;
+        if (path.startsWith("/yacysearch") || path.startsWith("/yacyinteractive") || path.startsWith("/suggest.") ||
+            path.startsWith("/solr/") || path.startsWith("/gsa/")) return EndpointClass.SEARCH;
+        if (path.startsWith("/api/") || path.startsWith("/v1/") || path.startsWith("/tools")) return EndpointClass.API;
+        return null;
+    }
+
+    /**
+     * the number of server threads which the requests of all endpoint classes may occupy together,
+     * either processing or waiting for a slot
+     */
+    public static class ThreadBudget {
+
+        private final int max;
+        private final AtomicInteger used;
+
+        /**
+         * @param max the maximum number of occupied threads
+         */
+        public ThreadBudget(final int max) {
+            this.max = Math.max(1, max);
+            this.used = new AtomicInteger(0);
+        }
+
+        /**
+         * @return true if a thread was taken from the budget, false if the budget is exhausted
+         */
+        private boolean tryTake() {
+            while (true) {
+                final int u = this.used.get();
+                if (u >= this.max) return false;
+                if (this.used.compareAndSet(u, u + 1)) return true;
+            }
+        }
+
+        /** take a thread even if the budget is exhausted */
+        private void take() {
+            this.used.incrementAndGet();
+        }
+
+        private void give() {
+            this.used.decrementAndGet();
+        }
+
+        public int max() {
+            return this.max;
+        }
+
+        public int used() {
+            return this.used.get();
+        }
+    }
+
+    /**
+     * the adaptive concurrency limit of one endpoint class
+     */
+    public static class Limit {
+
+        private static final double TOLERANCE = 1.5;     // latency increase which is accepted without reducing the limit
+        private static final double SMOOTHING = 0.2;     // weight of a new limit
+        private static final double BACKOFF = 0.9;       // multiplicative decrease after a failure
+        private static final double SHORT_WEIGHT = 0.1;  // ewma weight of the current latency
+        private static final double LONG_WEIGHT = 0.002; // ewma weight of the latency without load
+
+        private final int minLimit, maxLimit, maxQueue;
+        private final long maxWait;
+        private final ThreadBudget budget;
+        private double limit;
+        private int inflight, queued;
+        private long admitted, rejected, failed;
+        private double shortLatency, longLatency, queueWait; // milliseconds
+
+        /**
+         * @param minLimit the lowest concurrency limit
+         * @param maxLimit the highest concurrency limit
+         * @param maxQueue the maximum number of requests which wait for a free slot
+         * @param maxWait the maximum time in milliseconds a request waits for a free slot
+         */
+        public Limit(final int minLimit, final int maxLimit, final int maxQueue, final long maxWait) {
+            this(minLimit, maxLimit, maxQueue, maxWait, new ThreadBudget(Integer.MAX_VALUE));
+        }
+
+        /**
+         * @param minLimit the lowest concurrency limit
+         * @param maxLimit the highest concurrency limit
+         * @param maxQueue the maximum number of requests which wait for a free slot
+         * @param maxWait the maximum time in milliseconds a request waits for a free slot
+         * @param budget the server threads shared with the other endpoint classes
+         */
+        public Limit(final int minLimit, final int maxLimit, final int maxQueue, final long maxWait, final ThreadBudget budget) {
+            this.budget = budget;
+            this.minLimit = Math.max(1, minLimit);
+            this.maxLimit = Math.max(this.minLimit, maxLimit);
+            this.maxQueue = Math.max(0, maxQueue);
+            this.maxWait = Math.max(0, maxWait);
+            this.limit = Math.max(this.minLimit, this.maxLimit / 2);
+            this.inflight = 0;
+            this.queued = 0;
+            this.admitted = 0;
+            this.rejected = 0;
+            this.failed = 0;
+            this.shortLatency = 0.0d;
+            this.longLatency = 0.0d;
+            this.queueWait = 0.0d;
+        }
+
+        /**
+         * acquire a slot for a request. The slot must be returned with {@link #release(long, boolean)}.
+         * A request waits for a slot only if the queue of the class is not full and the thread budget is not exhausted,
+         * otherwise it is rejected at once.
+         * @param exempt if true, the request gets a slot even if the limit is reached (i.e. requests from localhost)
+         * @return true if the request is admitted, false if it must be rejected
+         */
+        public synchronized boolean acquire(final boolean exempt) {
+            if (exempt) {
+                this.budget.take();
+                this.inflight++;
+                this.admitted++;
+                return true;
+            }
+            if (this.inflight < (int) this.limit) {
+                if (!this.budget.tryTake()) {
+                    this.rejected++;
+                    return false;
+                }
+                this.inflight++;
+                this.admitted++;
+                return true;
+            }
+            if (this.queued >= this.maxQueue || this.maxWait == 0 || !this.budget.tryTake()) {
+                this.rejected++;
+                return false;
+            }
+            // the waiting thread holds its budget share; it is kept for processing when the request is admitted
+            boolean admit = false;
+            this.queued++;
+            final long start = System.currentTimeMillis();
+            try {
+                long remaining = this.maxWait;
+                while (this.inflight >= (int) this.limit) {
+                    if (remaining <= 0) {
+                        this.rejected++;
+                        return false;
+                    }
+                    this.wait(remaining);
+                    remaining = this.maxWait - (System.currentTimeMillis() - start);
+                }
+                this.inflight++;
+                this.admitted++;
+                this.queueWait = this.queueWait * (1.0d - SHORT_WEIGHT) + (System.currentTimeMillis() - start) * SHORT_WEIGHT;
+                admit = true;
+                return true;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.rejected++;
+                return false;
+            } finally {
+                this.queued--;
+                if (!admit) this.budget.give();
+            }
+        }
+
+        /**
+         * return a slot and adapt the limit to the latency of the request
+         * @param latency the time in nanoseconds the request was processed
+         * @param failure true if the request failed with a server error
+         */
+        public synchronized void release(final long latency, final boolean failure) {
+            final int load = this.inflight;
+            this.inflight--;
+            this.budget.give();
+            this.notifyAll();
+            if (failure) {
+                this.failed++;
+                this.limit = Math.max(this.minLimit, this.limit * BACKOFF);
+                return;
+            }
+            final double rtt = Math.max(0.01d, latency / 1000000.0d);
+            if (this.shortLatency == 0.0d) {
+                this.shortLatency = rtt;
+                this.longLatency = rtt;
+                return;
+            }
+            this.shortLatency = this.shortLatency * (1.0d - SHORT_WEIGHT) + rtt * SHORT_WEIGHT;
+            this.longLatency = this.longLatency * (1.0d - LONG_WEIGHT) + rtt * LONG_WEIGHT;
+            // let the baseline follow if the latency dropped permanently
+            if (this.longLatency > 2.0d * this.shortLatency) this.longLatency *= 0.95d;
+            // a class which does not use its limit does not tell anything about the capacity
+            if (load < this.limit / 2) return;
+            final double gradient = Math.max(0.5d, Math.min(1.0d, TOLERANCE * this.longLatency / this.shortLatency));
+            final double newLimit = this.limit * gradient + Math.sqrt(this.limit);
+            this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, this.limit * (1.0d - SMOOTHING) + newLimit * SMOOTHING));
+        }
+
+        /**
+         * @return the number of seconds after which a rejected client should try again
+         */
+        public synchronized int retryAfter() {
+            final double seconds = this.shortLatency * (this.queued + this.inflight + 1) / Math.max(1.0d, this.limit) / 1000.0d;
+            return (int) Math.max(1, Math.min(60, Math.ceil(seconds)));
+        }
+
+        public synchronized int limit() {
+            return (int) this.limit;
+        }
+
+        public synchronized int inflight() {
+            return this.inflight;
+        }
+
+        public synchronized int queued() {
+            return this.queued;
+        }
+
+        public synchronized long admitted() {
+            return this.admitted;
+        }
+
+        public synchronized long rejected() {
+            return this.rejected;
+        }
+
+        public synchronized long failed() {
+            return this.failed;
+        }
+
+        /** @return the average latency of the latest requests in milliseconds */
+        public synchronized double latency() {
+            return this.shortLatency;
+        }
+
+        /** @return the long-term latency, which is close to the latency without load, in milliseconds */
+        public synchronized double baselineLatency() {
+            return this.longLatency;
+        }
+
+        /** @return the average time in milliseconds the latest queued requests waited for a slot */
+        public synchronized double queueWait() {
+            return this.queueWait;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "limit=" + (int) this.limit + ", inflight=" + this.inflight + ", queued=" + this.queued +
+                   ", admitted=" + this.admitted + ", rejected=" + this.rejected + ", failed=" + this.failed +
+                   ", latency=" + Math.round(this.shortLatency) + "ms, baseline=" + Math.round(this.longLatency) + "ms";
+        }
+    }
+
+    private final Map<EndpointClass, Limit> limits;
+    private final ThreadBudget budget;
+
+    /**
+     * @param maxLimits the highest concurrency limit of each endpoint class; classes without entry are not limited
+     * @param maxQueue the maximum number of waiting requests of each class
+     * @param maxWait the maximum time in milliseconds a request waits for a slot
+     * @param maxThreads the maximum number of server threads which the requests of all classes may occupy together;
+     *        this must be lower than the size of the server thread pool
+     */
+    public AdmissionControl(final Map<EndpointClass, Integer> maxLimits, final int maxQueue, final long maxWait, final int maxThreads) {
+        this.limits = new EnumMap<EndpointClass, Limit>(EndpointClass.class);
+        this.budget = new ThreadBudget(maxThreads);
+        for (final Map.Entry<EndpointClass, Integer> entry: maxLimits.entrySet()) {
+            if (entry.getValue() > 0) this.limits.put(entry.getKey(), new Limit(2, entry.getValue(), maxQueue, maxWait, this.budget));
+        }
+    }
+
+    /**
+     * @return the server threads shared by all endpoint classes
+     */
+    public ThreadBudget budget() {
+        return this.budget;
+    }
+
+    /**
+     * @param endpointClass
+     * @return the limit of the class or null if the class is not limited
+     */
+    public Limit limit(final EndpointClass endpointClass) {
+        return endpointClass == null ? null : this.limits.get(endpointClass);
+    }
+
+    public Map<EndpointClass, Limit> limits() {
+        return this.limits;
+    }
+}
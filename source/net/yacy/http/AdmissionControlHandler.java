@@ -0,0 +1,89 @@
+/**
+ *  AdmissionControlHandler
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.http;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import net.yacy.cora.protocol.Domains;
+import net.yacy.cora.protocol.HeaderFramework;
+
+/**
+ * Jetty handler which applies the {@link AdmissionControl} to all requests before they reach the
+ * YaCy handlers and servlets. Rejected requests get a 503 status with a Retry-After header without
+ * any further processing. Requests from localhost can be exempted from the limits, so the administrator
+ * can still reach the peer under overload.
+ */
+public class AdmissionControlHandler extends HandlerWrapper {
+
+    private final AdmissionControl control;
+    private final boolean exemptLocalhost;
+
+    /**
+     * @param s the server
+     * @param h the wrapped handler
+     * @param control the admission control
+     * @param exemptLocalhost if true, requests from localhost are admitted even if the limit of their class is reached
+     */
+    public AdmissionControlHandler(final Server s, final Handler h, final AdmissionControl control, final boolean exemptLocalhost) {
+        super();
+        this.setServer(s);
+        this.setHandler(h);
+        this.control = control;
+        this.exemptLocalhost = exemptLocalhost;
+    }
+
+    public AdmissionControl getAdmissionControl() {
+        return this.control;
+    }
+
+    @Override
+    public void handle(final String target, final Request baseRequest, final HttpServletRequest request,
+            final HttpServletResponse response) throws IOException, ServletException {
+        final AdmissionControl.Limit limit = this.control.limit(AdmissionControl.classify(target));
+        if (limit == null) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        if (!limit.acquire(this.exemptLocalhost && Domains.isLocalhost(request.getRemoteAddr()))) {
+            response.setHeader(HeaderFramework.RETRY_AFTER, Integer.toString(limit.retryAfter()));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "server overloaded, try again later");
+            baseRequest.setHandled(true);
+            return;
+        }
+        final long start = System.nanoTime();
+        boolean failure = true;
+        try {
+            super.handle(target, baseRequest, request, response);
+            failure = response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            limit.release(System.nanoTime() - start, failure);
+        }
+    }
+}
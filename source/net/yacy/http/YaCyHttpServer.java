@@ -25,6 +25,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.security.KeyStore;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import javax.net.ssl.KeyManagerFactory;
@@ -51,6 +54,7 @@ import org.eclipse.jetty.util.ProcessorUtils;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.webapp.WebAppContext;
 
 import net.yacy.cora.util.ConcurrentLog;
@@ -65,6 +69,7 @@ import net.yacy.utils.PKCS12Tool;
 public class YaCyHttpServer {
 
     private final Server server;
+    private final AdmissionControl admissionControl;
 
     /**
      * @param port TCP Port to listen for http requests
@@ -231,6 +236,28 @@ public class YaCyHttpServer {
 
         // wrap all handlers
         final Handler crashHandler = new CrashProtectionHandler(this.server, allrequesthandlers);
+        // limit the concurrent requests of each endpoint class and reject overload early
+        final Handler admissionHandler;
+        if (sb.getConfigBool(SwitchboardConstants.SERVER_ADMISSION, true)) {
+            final Map<AdmissionControl.EndpointClass, Integer> maxLimits = new EnumMap<>(AdmissionControl.EndpointClass.class);
+            for (final AdmissionControl.EndpointClass c: AdmissionControl.EndpointClass.values()) {
+                maxLimits.put(c, sb.getConfigInt(SwitchboardConstants.SERVER_ADMISSION_PREFIX + c.name().toLowerCase(Locale.ROOT) + ".maxLimit", 32));
+            }
+            // waiting requests block a server thread: keep the limited requests below the size of the thread pool
+            final int poolSize = this.server.getThreadPool() instanceof ThreadPool.SizedThreadPool ?
+                    ((ThreadPool.SizedThreadPool) this.server.getThreadPool()).getMaxThreads() : 200;
+            int maxThreads = sb.getConfigInt(SwitchboardConstants.SERVER_ADMISSION_MAXTHREADS, 0);
+            if (maxThreads <= 0 || maxThreads >= poolSize) maxThreads = poolSize * 3 / 4;
+            this.admissionControl = new AdmissionControl(maxLimits,
+                    sb.getConfigInt(SwitchboardConstants.SERVER_ADMISSION_QUEUE, 32),
+                    sb.getConfigLong(SwitchboardConstants.SERVER_ADMISSION_MAXWAIT, 500),
+                    maxThreads);
+            admissionHandler = new AdmissionControlHandler(this.server, crashHandler, this.admissionControl,
+                    sb.getConfigBool(SwitchboardConstants.SERVER_ADMISSION_EXEMPT_LOCALHOST, true));
+        } else {
+            this.admissionControl = null;
+            admissionHandler = crashHandler;
+        }
         // check server access restriction and add InetAccessHandler if restrictions are needed
         // otherwise don't (to save performance)
         final String white = sb.getConfig("serverClient", "*");
@@ -260,15 +287,15 @@ public class YaCyHttpServer {
             if (i > 0) {
                 final String loopbackAddress = InetAddress.getLoopbackAddress().getHostAddress();
                 whiteListHandler.include(loopbackAddress);
-                whiteListHandler.setHandler(crashHandler);
+                whiteListHandler.setHandler(admissionHandler);
                 this.server.setHandler(whiteListHandler);
 
                 ConcurrentLog.info("SERVER","activated IP access restriction to: [" + loopbackAddress + "," + white +"]");
             } else {
-                this.server.setHandler(crashHandler); // InetAccessHandler not needed
+                this.server.setHandler(admissionHandler); // InetAccessHandler not needed
             }
         } else {
-            this.server.setHandler(crashHandler); // InetAccessHandler not needed
+            this.server.setHandler(admissionHandler); // InetAccessHandler not needed
         }
     }
 
@@ -290,6 +317,13 @@ public class YaCyHttpServer {
         this.server.join();
     }
 
+    /**
+     * @return the admission control of the server or null if it is switched off
+     */
+    public AdmissionControl getAdmissionControl() {
+        return this.admissionControl;
+    }
+
     /**
      * @return true if ssl/https connector is available
      */
@@ -101,6 +101,7 @@ public class ArrayStack implements BLOB {
 
     /** the thread pool for the keeperOf executor service */
     private final ExecutorService executor;
+    private volatile ShrinkListener shrinkListener;
 
     // use our own formatter to prevent concurrency locks with other processes
     private final static GenericFormatter my_SHORT_MILSEC_FORMATTER  = new GenericFormatter(GenericFormatter.newShortMilsecFormat(), 1);
@@ -909,6 +910,25 @@ public class ArrayStack implements BLOB {
         this.executor.shutdown();
     }
 
+    /**
+     * Listener for the references which are removed when reference containers are merged or rewritten,
+     * because they are double or exceed the maximum number of references
+     */
+    public interface ShrinkListener {
+        /**
+         * @param termHash the term of the container
+         * @param removed the number of removed references
+         */
+        void shrunk(byte[] termHash, int removed);
+    }
+
+    /**
+     * @param listener the listener which is informed about references removed in {@link #mergeMount(File, File, ReferenceFactory, File, int)}, or null
+     */
+    public void setShrinkListener(final ShrinkListener listener) {
+        this.shrinkListener = listener;
+    }
+
     /**
      * merge two blob files into one. If the second file is given as null,
      * then the first file is only rewritten into a new one.
@@ -926,7 +946,7 @@ public class ArrayStack implements BLOB {
         if (f2 == null) {
             // this is a rewrite
             ConcurrentLog.info("KELONDRO", "BLOBArray: rewrite of " + f1.getName());
-            final File resultFile = rewriteWorker(factory, this.keylength, this.ordering, f1, newFile, writeBuffer);
+            final File resultFile = rewriteWorker(factory, this.keylength, this.ordering, f1, newFile, writeBuffer, this.shrinkListener);
             if (resultFile == null) {
                 ConcurrentLog.warn("KELONDRO", "BLOBArray: rewrite of file " + f1 + " returned null. newFile = " + newFile);
                 return null;
@@ -941,7 +961,7 @@ public class ArrayStack implements BLOB {
             return resultFile;
         }
         ConcurrentLog.info("KELONDRO", "BLOBArray: merging " + f1.getName() + " with " + f2.getName());
-        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, f1, f2, newFile, writeBuffer);
+        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, f1, f2, newFile, writeBuffer, this.shrinkListener);
         if (resultFile == null) {
             ConcurrentLog.warn("KELONDRO", "BLOBArray: merge of files " + f1 + ", " + f2 + " returned null. newFile = " + newFile);
             return null;
@@ -958,7 +978,7 @@ public class ArrayStack implements BLOB {
 
     private static <ReferenceType extends Reference> File mergeWorker(
                     final ReferenceFactory<ReferenceType> factory,
-                    final int keylength, final ByteOrder order, final File f1, final File f2, final File newFile, final int writeBuffer) {
+                    final int keylength, final ByteOrder order, final File f1, final File f2, final File newFile, final int writeBuffer, final ShrinkListener listener) {
         // iterate both files and write a new one
         ReferenceIterator<ReferenceType> i1 = null;
         try {
@@ -985,7 +1005,7 @@ public class ArrayStack implements BLOB {
                 final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
                 try {
                     final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
-                    merge(i1, i2, order, writer);
+                    merge(i1, i2, order, writer, listener);
                     writer.close(true);
                 } catch (final IOException e) {
                     ConcurrentLog.severe("KELONDRO", "ArrayStack: cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
@@ -1018,7 +1038,7 @@ public class ArrayStack implements BLOB {
 
     private static <ReferenceType extends Reference> File rewriteWorker(
             final ReferenceFactory<ReferenceType> factory,
-            final int keylength, final ByteOrder order, final File f, final File newFile, final int writeBuffer) {
+            final int keylength, final ByteOrder order, final File f, final File newFile, final int writeBuffer, final ShrinkListener listener) {
         // iterate both files and write a new one
 
         CloneableIterator<ReferenceContainer<ReferenceType>> i = null;
@@ -1036,7 +1056,7 @@ public class ArrayStack implements BLOB {
         final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
         try {
             final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
-            rewrite(i, order, writer);
+            rewrite(i, order, writer, listener);
             writer.close(true);
             i.close();
         } catch (final IOException e) {
@@ -1058,7 +1078,7 @@ public class ArrayStack implements BLOB {
     private static <ReferenceType extends Reference> void merge(
             final CloneableIterator<ReferenceContainer<ReferenceType>> i1,
             final CloneableIterator<ReferenceContainer<ReferenceType>> i2,
-            final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
+            final ByteOrder ordering, final HeapWriter writer, final ShrinkListener listener) throws IOException, SpaceExceededException {
         assert i1.hasNext();
         assert i2.hasNext();
         byte[] c1lh, c2lh;
@@ -1071,8 +1091,11 @@ public class ArrayStack implements BLOB {
             assert c2 != null;
             e = ordering.compare(c1.getTermHash(), c2.getTermHash());
             if (e < 0) {
-            	s = c1.shrinkReferences();
-            	if (s > 0) ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
+                s = c1.shrinkReferences();
+                if (s > 0) {
+                    ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
+                    if (listener != null) listener.shrunk(c1.getTermHash(), s);
+                }
                 writer.add(c1.getTermHash(), c1.exportCollection());
                 if (i1.hasNext()) {
                     c1lh = c1.getTermHash();
@@ -1085,7 +1108,10 @@ public class ArrayStack implements BLOB {
             }
             if (e > 0) {
                 s = c2.shrinkReferences();
-                if (s > 0) ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
+                if (s > 0) {
+                    ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
+                    if (listener != null) listener.shrunk(c2.getTermHash(), s);
+                }
                 writer.add(c2.getTermHash(), c2.exportCollection());
                 if (i2.hasNext()) {
                     c2lh = c2.getTermHash();
@@ -1097,10 +1123,15 @@ public class ArrayStack implements BLOB {
                 break;
             }
             assert e == 0;
-            // merge the entries
+            // merge the entries; double references are removed
+            s = c1.size() + c2.size();
             c1 = c1.merge(c2);
+            if (listener != null && s > c1.size()) listener.shrunk(c1.getTermHash(), s - c1.size());
             s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
+            if (s > 0) {
+                ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
+                if (listener != null) listener.shrunk(c1.getTermHash(), s);
+            }
             writer.add(c1.getTermHash(), c1.exportCollection());
             c1lh = c1.getTermHash();
             c2lh = c2.getTermHash();
@@ -1130,7 +1161,10 @@ public class ArrayStack implements BLOB {
         while (c1 != null) {
             //System.out.println("FLUSH REMAINING 1: " + c1.getWordHash());
             s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
+            if (s > 0) {
+                ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
+                if (listener != null) listener.shrunk(c1.getTermHash(), s);
+            }
             writer.add(c1.getTermHash(), c1.exportCollection());
             if (i1.hasNext()) {
                 c1lh = c1.getTermHash();
@@ -1143,7 +1177,10 @@ public class ArrayStack implements BLOB {
         while (c2 != null) {
             //System.out.println("FLUSH REMAINING 2: " + c2.getWordHash());
             s = c2.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
+            if (s > 0) {
+                ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
+                if (listener != null) listener.shrunk(c2.getTermHash(), s);
+            }
             writer.add(c2.getTermHash(), c2.exportCollection());
             if (i2.hasNext()) {
                 c2lh = c2.getTermHash();
@@ -1158,7 +1195,7 @@ public class ArrayStack implements BLOB {
 
     private static <ReferenceType extends Reference> void rewrite(
             final CloneableIterator<ReferenceContainer<ReferenceType>> i,
-            final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
+            final ByteOrder ordering, final HeapWriter writer, final ShrinkListener listener) throws IOException, SpaceExceededException {
         assert i.hasNext();
         byte[] clh;
         ReferenceContainer<ReferenceType> c;
@@ -1167,7 +1204,10 @@ public class ArrayStack implements BLOB {
         while (true) {
             assert c != null;
             s = c.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c.getTermHash()) + " by " + s + " to " + c.size() + " entries");
+            if (s > 0) {
+                ConcurrentLog.info("KELONDRO", "ArrayStack: shrinking index for " + ASCII.String(c.getTermHash()) + " by " + s + " to " + c.size() + " entries");
+                if (listener != null) listener.shrunk(c.getTermHash(), s);
+            }
             writer.add(c.getTermHash(), c.exportCollection());
             if (i.hasNext()) {
                 clh = c.getTermHash();
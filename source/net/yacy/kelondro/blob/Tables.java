@@ -33,12 +33,14 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -68,14 +70,16 @@ public class Tables implements Iterable<String> {
 	private static final String suffix = ".bheap";
     private static final String system_table_pkcounter = "pkcounter";
     private static final String system_table_pkcounter_counterName = "pk";
+    private static final String system_table_secondaryindex = "secondaryindex";
 
     private final File location;
     private final ConcurrentHashMap<String, BEncodedHeap> tables;
     private final ConcurrentHashMap<String, TablesColumnIndex> cidx;
+    private final ConcurrentHashMap<String, TablesSecondaryIndex> sidx;
     private int keymaxlen;
 
     // use our own formatter to prevent concurrency locks with other processes
-    private final static GenericFormatter my_SHORT_MILSEC_FORMATTER  = new GenericFormatter(GenericFormatter.newShortMilsecFormat(), 1);
+    final static GenericFormatter my_SHORT_MILSEC_FORMATTER  = new GenericFormatter(GenericFormatter.newShortMilsecFormat(), 1);
 
     public Tables(final File location, final int keymaxlen) {
         this.location = new File(location.getAbsolutePath());
@@ -95,6 +99,107 @@ public class Tables implements Iterable<String> {
             }
         }
         this.cidx = new ConcurrentHashMap<String, TablesColumnIndex>();
+        this.sidx = new ConcurrentHashMap<String, TablesSecondaryIndex>();
+    }
+
+    /**
+     * declare a secondary index for a column of a table. The declaration is stored persistently;
+     * the index is maintained with each insert, update and delete done with this Tables object and used by
+     * {@link #iterator(String, String, byte[])}, {@link #rangeIterator(String, String, byte[], byte[])}
+     * and the orderBy methods which take a table name. Writes which bypass this object using {@link #getHeap(String)}
+     * are not visible in the index. Declaring an existing index again does nothing.
+     * @param table the table name
+     * @param columnName the column name
+     * @param type the index type
+     * @throws IOException
+     */
+    public void createSecondaryIndex(final String table, final String columnName, final TablesSecondaryIndex.Type type) throws IOException {
+        final BEncodedHeap heap = getHeap(system_table_secondaryindex);
+        try {
+            final byte[] declared = heap.getProp(UTF8.getBytes(table), columnName);
+            if (declared != null && type.name().equals(UTF8.String(declared))) return;
+            heap.update(UTF8.getBytes(table), columnName, UTF8.getBytes(type.name()));
+        } catch (final SpaceExceededException e) {
+            throw new IOException(e.getMessage());
+        }
+        this.sidx.remove(table); // computed again with the next access
+    }
+
+    /**
+     * remove a secondary index of a table
+     * @param table the table name
+     * @param columnName the column name
+     * @throws IOException
+     */
+    public void dropSecondaryIndex(final String table, final String columnName) throws IOException {
+        if (!hasSecondaryIndexDeclarations()) return;
+        final BEncodedHeap heap = getHeap(system_table_secondaryindex);
+        try {
+            final Map<String, byte[]> declarations = heap.get(UTF8.getBytes(table));
+            if (declarations == null || declarations.remove(columnName) == null) return;
+            heap.insert(UTF8.getBytes(table), declarations);
+        } catch (final SpaceExceededException e) {
+            throw new IOException(e.getMessage());
+        }
+        this.sidx.remove(table);
+    }
+
+    /**
+     * @param table the table name
+     * @param columnName the column name
+     * @return the type of the secondary index of the column or null if there is no such index
+     */
+    public TablesSecondaryIndex.Type getSecondaryIndexType(final String table, final String columnName) {
+        final TablesSecondaryIndex index = secondaryIndex(table);
+        return index == null ? null : index.type(columnName);
+    }
+
+    private boolean hasSecondaryIndexDeclarations() {
+        return hasHeap(system_table_secondaryindex) || new File(this.location, system_table_secondaryindex + suffix).exists();
+    }
+
+    /**
+     * get the secondary indexes of a table; the indexes are computed with a scan of the table at the first access
+     * @param table the table name
+     * @return the index or null if no index is declared for the table
+     */
+    private TablesSecondaryIndex secondaryIndex(final String table) {
+        TablesSecondaryIndex index = this.sidx.get(table);
+        if (index != null) return index.isEmpty() ? null : index;
+        if (table.equals(system_table_secondaryindex) || table.equals(system_table_pkcounter)) return null;
+        synchronized (this.sidx) {
+            index = this.sidx.get(table);
+            if (index != null) return index.isEmpty() ? null : index;
+            index = new TablesSecondaryIndex(this.keymaxlen);
+            try {
+                final Map<String, byte[]> declarations = hasSecondaryIndexDeclarations() ? getHeap(system_table_secondaryindex).get(UTF8.getBytes(table)) : null;
+                if (declarations != null) {
+                    for (final Map.Entry<String, byte[]> d: declarations.entrySet()) {
+                        try {
+                            index.addColumn(d.getKey(), TablesSecondaryIndex.Type.valueOf(UTF8.String(d.getValue())));
+                        } catch (final IllegalArgumentException e) {
+                            ConcurrentLog.warn("Tables", "unknown index type for column " + d.getKey() + " of table " + table);
+                        }
+                    }
+                }
+                if (!index.isEmpty()) {
+                    final long start = System.currentTimeMillis();
+                    final Iterator<Map.Entry<byte[], Map<String, byte[]>>> i = getHeap(table).iterator();
+                    int count = 0;
+                    while (i != null && i.hasNext()) {
+                        final Map.Entry<byte[], Map<String, byte[]>> entry = i.next();
+                        index.insert(entry.getKey(), entry.getValue());
+                        count++;
+                    }
+                    ConcurrentLog.info("Tables", "computed secondary index of table " + table + " for columns " + index.columns().keySet() + " from " + count + " rows in " + (System.currentTimeMillis() - start) + " ms");
+                }
+            } catch (final IOException | SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+                return null; // try again with the next access
+            }
+            this.sidx.put(table, index);
+        }
+        return index.isEmpty() ? null : index;
     }
 
     public TablesColumnIndex getIndex(final String tableName, TablesColumnIndex.INDEXTYPE indexType) throws TableColumnIndexException, IOException {
@@ -265,6 +370,7 @@ public class Tables implements Iterable<String> {
     }
 
     public void close(final String tablename) {
+        this.sidx.remove(tablename);
         final BEncodedHeap heap = this.tables.remove(tablename);
         if (heap == null) return;
         heap.close();
@@ -273,6 +379,7 @@ public class Tables implements Iterable<String> {
     public synchronized void close() {
         for (final BEncodedHeap heap: this.tables.values()) heap.close();
         this.tables.clear();
+        this.sidx.clear();
     }
 
     public void clear() {
@@ -294,6 +401,7 @@ public class Tables implements Iterable<String> {
             ConcurrentLog.logException(e);
         } finally {
             this.tables.remove(tablename);
+            this.sidx.remove(tablename);
         }
     }
 
@@ -389,6 +497,8 @@ public class Tables implements Iterable<String> {
         } catch (final SpaceExceededException e) {
             throw new IOException(e.getMessage());
         }
+        final TablesSecondaryIndex index = secondaryIndex(table);
+        if (index != null) index.insert(pk, map);
     }
 
     public void insert(final String table, final Row row) throws IOException {
@@ -398,6 +508,8 @@ public class Tables implements Iterable<String> {
         } catch (final SpaceExceededException e) {
             throw new IOException(e.getMessage());
         }
+        final TablesSecondaryIndex index = secondaryIndex(table);
+        if (index != null) index.insert(row.pk, row);
     }
 
     public void update(final String table, final byte[] pk, final Map<String, byte[]> map) throws IOException {
@@ -407,6 +519,8 @@ public class Tables implements Iterable<String> {
         } catch (final SpaceExceededException e) {
             throw new IOException(e.getMessage());
         }
+        final TablesSecondaryIndex index = secondaryIndex(table);
+        if (index != null) index.update(pk, map);
     }
 
     public void update(final String table, final Row row) throws IOException {
@@ -416,6 +530,8 @@ public class Tables implements Iterable<String> {
         } catch (final SpaceExceededException e) {
             throw new IOException(e.getMessage());
         }
+        final TablesSecondaryIndex index = secondaryIndex(table);
+        if (index != null) index.update(row.pk, row);
     }
 
     public byte[] createRow(final String table) throws IOException, SpaceExceededException {
@@ -432,6 +548,8 @@ public class Tables implements Iterable<String> {
     public void delete(final String table, final byte[] pk) throws IOException {
         final BEncodedHeap heap = getHeap(table);
         heap.delete(pk);
+        final TablesSecondaryIndex index = secondaryIndex(table);
+        if (index != null) index.delete(pk);
     }
 
     public boolean has(final String table, final byte[] key) throws IOException {
@@ -454,6 +572,9 @@ public class Tables implements Iterable<String> {
     }
 
     public Iterator<Row> iterator(final String table, final String whereColumn, final byte[] whereValue) throws IOException {
+        final TablesSecondaryIndex index = whereValue == null ? null : secondaryIndex(table);
+        final List<byte[]> pks = index == null ? null : index.equal(whereColumn, whereValue);
+        if (pks != null) return new IndexRowIterator(table, pks, whereColumn, whereValue);
         return new HeapRowIterator(table, whereColumn, whereValue);
     }
 
@@ -470,9 +591,47 @@ public class Tables implements Iterable<String> {
     }
 
     public Iterator<Row> iterator(final String table, final String whereColumn, final byte[] whereValue, final boolean up) throws IOException {
+        final TablesSecondaryIndex index = whereValue == null ? null : secondaryIndex(table);
+        final List<byte[]> pks = index == null ? null : index.equal(whereColumn, whereValue);
+        if (pks != null) {
+            if (!up) Collections.reverse(pks);
+            return new IndexRowIterator(table, pks, whereColumn, whereValue);
+        }
         return new OrderedRowIterator(table, whereColumn, whereValue, up);
     }
 
+    /**
+     * iterate the rows of a table where the value of a column is within a range. With a sorted secondary index
+     * the range and the order of the rows is defined by the index type, otherwise the values are compared
+     * in their byte order with a scan of the table.
+     * @param table the table name
+     * @param whereColumn the column name
+     * @param fromValue the lowest value (inclusive) or null for no lower bound
+     * @param toValue the highest value (exclusive) or null for no upper bound
+     * @return the rows in the range, in the order of the column if a sorted index exists
+     * @throws IOException
+     */
+    public Iterator<Row> rangeIterator(final String table, final String whereColumn, final byte[] fromValue, final byte[] toValue) throws IOException {
+        final TablesSecondaryIndex index = secondaryIndex(table);
+        final List<byte[]> pks = index == null ? null : index.range(whereColumn, fromValue, toValue);
+        if (pks != null) return new IndexRowIterator(table, pks, null, null);
+        final Iterator<Row> i = new HeapRowIterator(table);
+        return new LookAheadIterator<Row>() {
+            @Override
+            protected Row next0() {
+                while (i.hasNext()) {
+                    final Row r = i.next();
+                    final byte[] value = r.get(whereColumn);
+                    if (value == null) continue;
+                    if (fromValue != null && TablesColumnIndex.NATURALORDER.compare(value, fromValue) < 0) continue;
+                    if (toValue != null && TablesColumnIndex.NATURALORDER.compare(value, toValue) >= 0) continue;
+                    return r;
+                }
+                return null;
+            }
+        };
+    }
+
     public Iterator<Row> iterator(final String table, final String whereColumn, final Pattern wherePattern, final boolean up) throws IOException {
         return new OrderedRowIterator(table, whereColumn, wherePattern, up);
     }
@@ -615,6 +774,103 @@ public class Tables implements Iterable<String> {
 		return sortTree;
 	}
 
+	/**
+	 * @param table
+	 *            the table name
+	 * @param sortColumn
+	 *            the name of the column to use for sorting.
+	 * @param defaultValue
+	 *            the default value to use when the column value is null.
+	 * @param sortDir
+	 *            the sorting direction. When null, {@link SortDirection#ASC} is applied.
+	 * @return all the rows of the table sorted on the given column name, using a
+	 *         secondary index of type NUMBER if the column has one
+	 * @throws IOException
+	 */
+	public Collection<Row> orderByInt(final String table, final String sortColumn, final int defaultValue,
+			final SortDirection sortDir) throws IOException {
+		final Collection<Row> rows = orderByIndex(table, sortColumn, TablesSecondaryIndex.Type.NUMBER,
+				Long.valueOf(defaultValue), sortDir);
+		return rows == null ? orderByInt(iterator(table), sortColumn, defaultValue, sortDir) : rows;
+	}
+
+	/**
+	 * @param table
+	 *            the table name
+	 * @param sortColumn
+	 *            the name of the column to use for sorting.
+	 * @param defaultValue
+	 *            the default value to use when the column value is null.
+	 * @param sortDir
+	 *            the sorting direction. When null, {@link SortDirection#ASC} is applied.
+	 * @return all the rows of the table sorted on the given column name, using a
+	 *         secondary index of type NUMBER if the column has one
+	 * @throws IOException
+	 */
+	public Collection<Row> orderByLong(final String table, final String sortColumn, final long defaultValue,
+			final SortDirection sortDir) throws IOException {
+		final Collection<Row> rows = orderByIndex(table, sortColumn, TablesSecondaryIndex.Type.NUMBER,
+				Long.valueOf(defaultValue), sortDir);
+		return rows == null ? orderByLong(iterator(table), sortColumn, defaultValue, sortDir) : rows;
+	}
+
+	/**
+	 * @param table
+	 *            the table name
+	 * @param sortColumn
+	 *            the name of the column to use for sorting.
+	 * @param defaultValue
+	 *            the default value to use when the column value is null.
+	 * @param sortDir
+	 *            the sorting direction. When null, {@link SortDirection#ASC} is applied.
+	 * @return all the rows of the table sorted on the given column name, using a
+	 *         secondary index of type STRING if the column has one
+	 * @throws IOException
+	 */
+	public Collection<Row> orderByString(final String table, final String sortColumn, final String defaultValue,
+			final SortDirection sortDir) throws IOException {
+		final Collection<Row> rows = orderByIndex(table, sortColumn, TablesSecondaryIndex.Type.STRING, defaultValue,
+				sortDir);
+		return rows == null ? orderByString(iterator(table), sortColumn, defaultValue, sortDir) : rows;
+	}
+
+	/**
+	 * @param table
+	 *            the table name
+	 * @param sortColumn
+	 *            the name of the column to use for sorting.
+	 * @param defaultValue
+	 *            the default value to use when the column value is null.
+	 * @param sortDir
+	 *            the sorting direction. When null, {@link SortDirection#ASC} is applied.
+	 * @return all the rows of the table sorted on the given column name, using a
+	 *         secondary index of type DATE if the column has one
+	 * @throws IOException
+	 */
+	public Collection<Row> orderByDate(final String table, final String sortColumn, final Date defaultValue,
+			final SortDirection sortDir) throws IOException {
+		final Collection<Row> rows = orderByIndex(table, sortColumn, TablesSecondaryIndex.Type.DATE,
+				defaultValue == null ? null : Long.valueOf(defaultValue.getTime()), sortDir);
+		return rows == null ? orderByDate(iterator(table), sortColumn, defaultValue, sortDir) : rows;
+	}
+
+	/**
+	 * read the rows of a table in the order of a sorted secondary index
+	 * @return the rows or null if the column has no secondary index of the given type
+	 */
+	private Collection<Row> orderByIndex(final String table, final String sortColumn,
+			final TablesSecondaryIndex.Type type, final Comparable<?> defaultKey, final SortDirection sortDir)
+			throws IOException {
+		final TablesSecondaryIndex index = secondaryIndex(table);
+		if (index == null || index.type(sortColumn) != type) return null;
+		final List<byte[]> pks = index.ordered(sortColumn, defaultKey, sortDir != SortDirection.DESC);
+		if (pks == null) return null;
+		final List<Row> rows = new ArrayList<Row>(pks.size());
+		final Iterator<Row> i = new IndexRowIterator(table, pks, null, null);
+		while (i.hasNext()) rows.add(i.next());
+		return rows;
+	}
+
     public ArrayList<String> columns(final String table) throws IOException {
         final BEncodedHeap heap = getHeap(table);
         return heap.columns();
@@ -724,6 +980,49 @@ public class Tables implements Iterable<String> {
         }
     }
 
+    /**
+     * iterator of the rows of a table with the primary keys from a secondary index
+     */
+    private class IndexRowIterator extends LookAheadIterator<Row> implements Iterator<Row> {
+
+        private final String whereColumn;
+        private final byte[] whereValue;
+        private final Iterator<byte[]> i;
+        private final BEncodedHeap heap;
+
+        /**
+         * @param table
+         * @param pks the primary keys in the order of the iteration
+         * @param whereColumn if not null, the column which is tested again with the value of the row because
+         * a write which bypasses the Tables object can make the index outdated
+         * @param whereValue
+         * @throws IOException
+         */
+        private IndexRowIterator(final String table, final List<byte[]> pks, final String whereColumn, final byte[] whereValue) throws IOException {
+            this.whereColumn = whereColumn;
+            this.whereValue = whereValue;
+            this.heap = getHeap(table);
+            this.i = pks.iterator();
+        }
+
+        @Override
+        protected Row next0() {
+            while (this.i.hasNext()) {
+                final byte[] pk = this.i.next();
+                try {
+                    final Map<String, byte[]> map = this.heap.get(pk);
+                    if (map == null) continue;
+                    final Row r = new Row(pk, map);
+                    if (this.whereColumn != null && !Arrays.equals(r.get(this.whereColumn), this.whereValue)) continue;
+                    return r;
+                } catch (IOException | SpaceExceededException e) {
+                    continue;
+                }
+            }
+            return null;
+        }
+    }
+
     public class OrderedRowIterator extends LookAheadIterator<Row> implements Iterator<Row> {
 
         private final String whereColumn;
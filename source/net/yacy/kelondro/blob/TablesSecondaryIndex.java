@@ -0,0 +1,313 @@
+/**
+ *  TablesSecondaryIndex
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.blob;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.util.ByteArray;
+
+/**
+ * The secondary indexes of the columns of one table in {@link Tables}.
+ * Each index maps the values of a column to the primary keys of the rows which have that value;
+ * the sorted index types also keep the values in the order of the column type, so that ranges and
+ * an ordering of the rows can be computed without reading and sorting all rows of the table.
+ * The declaration of the indexes is stored by the Tables object, the content is computed with one
+ * scan of the table when the table is opened and then maintained with each insert, update and delete
+ * done with the Tables object.
+ */
+public class TablesSecondaryIndex {
+
+    /** the kind of an index of a column */
+    public enum Type {
+        /** lookup of rows with a given column value */
+        EQUALITY,
+        /** lookup and ordering of string values */
+        STRING,
+        /** lookup and ordering of decimal numbers */
+        NUMBER,
+        /** lookup and ordering of dates as written by Tables.Data.put(String, Date) */
+        DATE;
+
+        public boolean isSorted() {
+            return this != EQUALITY;
+        }
+
+        /**
+         * compute the key of a value in the index order
+         * @param value the column value
+         * @return a String, a Long or null if the value is null or cannot be parsed in this type
+         */
+        Comparable<?> key(final byte[] value) {
+            if (value == null) return null;
+            switch (this) {
+                case NUMBER:
+                    try {
+                        return ByteArray.parseDecimal(value);
+                    } catch (final NumberFormatException e) {
+                        return null;
+                    }
+                case DATE:
+                    try {
+                        return Tables.my_SHORT_MILSEC_FORMATTER.parse(UTF8.String(value), 0).getTime().getTime();
+                    } catch (final ParseException e) {
+                        return null;
+                    }
+                default:
+                    return UTF8.String(value);
+            }
+        }
+    }
+
+    private final int keylength;
+    private final Map<String, Column> columns;
+
+    /**
+     * @param keylength the length of the primary keys of the table, keys are normalized to that length as in the table heap
+     */
+    public TablesSecondaryIndex(final int keylength) {
+        this.keylength = keylength;
+        this.columns = new ConcurrentHashMap<String, Column>();
+    }
+
+    public void addColumn(final String columnName, final Type type) {
+        this.columns.put(columnName, new Column(type));
+    }
+
+    public boolean isEmpty() {
+        return this.columns.isEmpty();
+    }
+
+    public Map<String, Type> columns() {
+        final Map<String, Type> c = new HashMap<String, Type>();
+        for (final Map.Entry<String, Column> entry: this.columns.entrySet()) c.put(entry.getKey(), entry.getValue().type);
+        return c;
+    }
+
+    /**
+     * @param columnName
+     * @return the type of the index for the column or null if the column has no index
+     */
+    public Type type(final String columnName) {
+        final Column column = this.columns.get(columnName);
+        return column == null ? null : column.type;
+    }
+
+    private byte[] normalize(final byte[] pk) {
+        return HeapReader.normalizeKey(pk, this.keylength);
+    }
+
+    /**
+     * index a row which replaces any existing row with the same primary key
+     * @param pk the primary key
+     * @param row all columns of the row
+     */
+    public void insert(final byte[] pk, final Map<String, byte[]> row) {
+        final byte[] key = normalize(pk);
+        for (final Map.Entry<String, Column> entry: this.columns.entrySet()) {
+            entry.getValue().put(key, row.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * index the changed columns of a row; columns which are not in the map keep their value
+     * @param pk the primary key
+     * @param changes the changed columns of the row
+     */
+    public void update(final byte[] pk, final Map<String, byte[]> changes) {
+        final byte[] key = normalize(pk);
+        for (final Map.Entry<String, Column> entry: this.columns.entrySet()) {
+            if (changes.containsKey(entry.getKey())) {
+                entry.getValue().put(key, changes.get(entry.getKey()));
+            } else {
+                entry.getValue().touch(key);
+            }
+        }
+    }
+
+    public void delete(final byte[] pk) {
+        final byte[] key = normalize(pk);
+        for (final Column column: this.columns.values()) column.remove(key);
+    }
+
+    /**
+     * the primary keys of the rows where the column is equal to the value
+     * @param columnName an indexed column
+     * @param value the value
+     * @return the primary keys in natural order or null if the column has no index
+     */
+    public List<byte[]> equal(final String columnName, final byte[] value) {
+        final Column column = this.columns.get(columnName);
+        if (column == null) return null;
+        return column.equal(UTF8.String(value));
+    }
+
+    /**
+     * the primary keys of the rows with a column value in a range
+     * @param columnName a column with a sorted index
+     * @param from the lowest value (inclusive) or null for no lower bound
+     * @param to the highest value (exclusive) or null for no upper bound
+     * @return the primary keys in the order of the values or null if the column has no sorted index
+     */
+    public List<byte[]> range(final String columnName, final byte[] from, final byte[] to) {
+        final Column column = this.columns.get(columnName);
+        if (column == null || !column.type.isSorted()) return null;
+        return column.range(from, to);
+    }
+
+    /**
+     * the primary keys of all rows in the order of a column
+     * @param columnName a column with a sorted index
+     * @param defaultKey the key used for rows without the column or null to place them first
+     * @param ascending the direction
+     * @return the primary keys, equal values are in natural order of the primary keys,
+     * or null if the column has no sorted index
+     */
+    public List<byte[]> ordered(final String columnName, final Comparable<?> defaultKey, final boolean ascending) {
+        final Column column = this.columns.get(columnName);
+        if (column == null || !column.type.isSorted()) return null;
+        final List<byte[]> pks = column.ordered(defaultKey);
+        if (!ascending) Collections.reverse(pks);
+        return pks;
+    }
+
+    public int size(final String columnName) {
+        final Column column = this.columns.get(columnName);
+        return column == null ? -1 : column.size();
+    }
+
+    private static final class Column {
+
+        private final Type type;
+        private final TreeMap<byte[], String> values;                  // pk -> value; null if the row has no such column
+        private final HashMap<String, TreeSet<byte[]>> equal;          // value -> pks
+        private final TreeMap<Comparable<Object>, TreeSet<byte[]>> sorted; // key -> pks for the sorted types
+        private final TreeSet<byte[]> unsorted;                        // pks without a key for the sorted types
+
+        private Column(final Type type) {
+            this.type = type;
+            this.values = new TreeMap<byte[], String>(TablesColumnIndex.NATURALORDER);
+            this.equal = new HashMap<String, TreeSet<byte[]>>();
+            this.sorted = type.isSorted() ? new TreeMap<Comparable<Object>, TreeSet<byte[]>>() : null;
+            this.unsorted = type.isSorted() ? new TreeSet<byte[]>(TablesColumnIndex.NATURALORDER) : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Comparable<Object> key(final Type type, final byte[] value) {
+            return (Comparable<Object>) type.key(value);
+        }
+
+        private synchronized void put(final byte[] pk, final byte[] value) {
+            remove(pk);
+            final String s = value == null ? null : UTF8.String(value);
+            this.values.put(pk, s);
+            if (s != null) this.equal.computeIfAbsent(s, k -> new TreeSet<byte[]>(TablesColumnIndex.NATURALORDER)).add(pk);
+            if (this.sorted == null) return;
+            final Comparable<Object> key = key(this.type, value);
+            if (key == null) {
+                this.unsorted.add(pk);
+            } else {
+                this.sorted.computeIfAbsent(key, k -> new TreeSet<byte[]>(TablesColumnIndex.NATURALORDER)).add(pk);
+            }
+        }
+
+        /**
+         * register a row without changing the value if the row is already known
+         */
+        private synchronized void touch(final byte[] pk) {
+            if (!this.values.containsKey(pk)) put(pk, null);
+        }
+
+        private synchronized void remove(final byte[] pk) {
+            if (!this.values.containsKey(pk)) return;
+            final String s = this.values.remove(pk);
+            if (s != null) {
+                final TreeSet<byte[]> pks = this.equal.get(s);
+                if (pks != null) {
+                    pks.remove(pk);
+                    if (pks.isEmpty()) this.equal.remove(s);
+                }
+            }
+            if (this.sorted == null) return;
+            final Comparable<Object> key = s == null ? null : key(this.type, UTF8.getBytes(s));
+            if (key == null) {
+                this.unsorted.remove(pk);
+            } else {
+                final TreeSet<byte[]> pks = this.sorted.get(key);
+                if (pks != null) {
+                    pks.remove(pk);
+                    if (pks.isEmpty()) this.sorted.remove(key);
+                }
+            }
+        }
+
+        private synchronized List<byte[]> equal(final String value) {
+            final TreeSet<byte[]> pks = this.equal.get(value);
+            return pks == null ? new ArrayList<byte[]>(0) : new ArrayList<byte[]>(pks);
+        }
+
+        private synchronized List<byte[]> range(final byte[] from, final byte[] to) {
+            final Comparable<Object> fromKey = key(this.type, from), toKey = key(this.type, to);
+            NavigableMap<Comparable<Object>, TreeSet<byte[]>> m = this.sorted;
+            if (fromKey != null) m = m.tailMap(fromKey, true);
+            if (toKey != null) m = m.headMap(toKey, false);
+            return collect(m.values(), new ArrayList<byte[]>());
+        }
+
+        private synchronized List<byte[]> ordered(final Comparable<?> defaultKey) {
+            final List<byte[]> pks = new ArrayList<byte[]>(this.values.size());
+            if (defaultKey == null || this.unsorted.isEmpty()) {
+                // rows without a value are ordered as null, which comes first
+                pks.addAll(this.unsorted);
+                return collect(this.sorted.values(), pks);
+            }
+            // rows without a value are ordered as if they had the default value
+            @SuppressWarnings("unchecked")
+            final Comparable<Object> dflt = (Comparable<Object>) defaultKey;
+            collect(this.sorted.headMap(dflt, false).values(), pks);
+            final TreeSet<byte[]> same = new TreeSet<byte[]>(TablesColumnIndex.NATURALORDER);
+            same.addAll(this.unsorted);
+            final TreeSet<byte[]> dfltpks = this.sorted.get(dflt);
+            if (dfltpks != null) same.addAll(dfltpks);
+            pks.addAll(same);
+            return collect(this.sorted.tailMap(dflt, false).values(), pks);
+        }
+
+        private static List<byte[]> collect(final Collection<TreeSet<byte[]>> sets, final List<byte[]> pks) {
+            for (final TreeSet<byte[]> set: sets) pks.addAll(set);
+            return pks;
+        }
+
+        private synchronized int size() {
+            return this.values.size();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ *  WordReferenceColumns
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.data.word;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.util.Bitfield;
+
+/**
+ * The rows of a reference container decoded column by column into primitive arrays.
+ * The ranking features of all references can then be computed in loops over int arrays
+ * without creating a WordReferenceRow or WordReferenceVars object for each reference;
+ * objects are only created with {@link #vars(int, boolean)} for the references which are actually used.
+ */
+public class WordReferenceColumns {
+
+    private static final Row row = WordReferenceRow.urlEntryRow;
+    private static final int objectsize = row.objectsize;
+    private static final int hashstart = row.colstart[WordReferenceRow.col_urlhash];
+
+    private final byte[] rows;
+    private final int size;
+
+    public final int[] virtualAge, wordsInTitle, wordsInText, phrasesInText, llocal, lother, urlLength, urlComps,
+                       hitcount, posInText, posInPhrase, posOfPhrase, distance;
+
+    /** the appearance flags; bit i is set if flags().get(i) is true */
+    public final int[] flags;
+
+    /** the language as computed by {@link #languageCode(byte[])} */
+    public final int[] language;
+
+    /** the host hash of the url hash as computed by {@link #hostKey(String)} */
+    public final long[] hostKey;
+
+    public final byte[] doctype;
+
+    /**
+     * decode all rows of a reference container
+     * @param container the container
+     */
+    public WordReferenceColumns(final ReferenceContainer<WordReference> container) {
+        this(container.rowBytes());
+        assert container.row().objectsize == objectsize;
+    }
+
+    /**
+     * decode rows of the WordReferenceRow.urlEntryRow definition
+     * @param rows the bytes of the rows, following each other without gaps
+     */
+    public WordReferenceColumns(final byte[] rows) {
+        this.rows = rows;
+        this.size = rows.length / objectsize;
+        this.virtualAge = decode(WordReferenceRow.col_lastModified);
+        this.wordsInTitle = decode(WordReferenceRow.col_wordsInTitle);
+        this.wordsInText = decode(WordReferenceRow.col_wordsInText);
+        this.phrasesInText = decode(WordReferenceRow.col_phrasesInText);
+        this.llocal = decode(WordReferenceRow.col_llocal);
+        this.lother = decode(WordReferenceRow.col_lother);
+        this.urlLength = decode(WordReferenceRow.col_urlLength);
+        this.urlComps = decode(WordReferenceRow.col_urlComps);
+        this.hitcount = decode(WordReferenceRow.col_hitcount);
+        this.posInText = decode(WordReferenceRow.col_posintext);
+        this.posInPhrase = decode(WordReferenceRow.col_posinphrase);
+        this.posOfPhrase = decode(WordReferenceRow.col_posofphrase);
+        this.distance = decode(WordReferenceRow.col_worddistance);
+
+        // the bitfield bytes in little-endian bit order, see Bitfield.get
+        this.flags = new int[this.size];
+        int p = row.colstart[WordReferenceRow.col_flags];
+        for (int i = 0; i < this.size; i++, p += objectsize) {
+            this.flags[i] = (rows[p] & 0xff) | (rows[p + 1] & 0xff) << 8 | (rows[p + 2] & 0xff) << 16 | (rows[p + 3] & 0xff) << 24;
+        }
+        this.language = new int[this.size];
+        p = row.colstart[WordReferenceRow.col_language];
+        for (int i = 0; i < this.size; i++, p += objectsize) {
+            this.language[i] = (rows[p] & 0xff) << 8 | (rows[p + 1] & 0xff);
+        }
+        this.doctype = new byte[this.size];
+        p = row.colstart[WordReferenceRow.col_doctype];
+        for (int i = 0; i < this.size; i++, p += objectsize) {
+            this.doctype[i] = rows[p];
+        }
+        this.hostKey = new long[this.size];
+        p = hashstart + 6;
+        for (int i = 0; i < this.size; i++, p += objectsize) {
+            long k = 0;
+            for (int j = 0; j < 6; j++) k = k << 8 | (rows[p + j] & 0xff);
+            this.hostKey[i] = k;
+        }
+    }
+
+    /**
+     * decode a b256 cardinal column of one or two bytes
+     */
+    private int[] decode(final int column) {
+        final int[] c = new int[this.size];
+        int p = row.colstart[column];
+        if (row.width(column) == 1) {
+            for (int i = 0; i < this.size; i++, p += objectsize) c[i] = this.rows[p] & 0xff;
+        } else {
+            assert row.width(column) == 2;
+            for (int i = 0; i < this.size; i++, p += objectsize) c[i] = (this.rows[p] & 0xff) << 8 | (this.rows[p + 1] & 0xff);
+        }
+        return c;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param i the position of the reference
+     * @return the url hash of the reference
+     */
+    public byte[] urlhash(final int i) {
+        final byte[] h = new byte[Word.commonHashLength];
+        this.urlhash(i, h);
+        return h;
+    }
+
+    /**
+     * copy the url hash of a reference into a buffer
+     * @param i the position of the reference
+     * @param dst the buffer with at least Word.commonHashLength bytes
+     */
+    public void urlhash(final int i, final byte[] dst) {
+        System.arraycopy(this.rows, i * objectsize + hashstart, dst, 0, Word.commonHashLength);
+    }
+
+    /**
+     * @param i the position of the reference
+     * @return the term frequency as computed by {@link WordReferenceRow#termFrequency()}
+     */
+    public double termFrequency(final int i) {
+        return ((double) this.hitcount[i]) / ((double) (this.wordsInText[i] + this.wordsInTitle[i] + 1));
+    }
+
+    /**
+     * create the reference object of a row
+     * @param i the position of the reference
+     * @param local true if the reference comes from the local index
+     * @return the reference
+     */
+    public WordReferenceVars vars(final int i, final boolean local) {
+        return new WordReferenceVars(new WordReferenceRow(row.newEntry(this.rows, i * objectsize, true)), local);
+    }
+
+    /**
+     * @param language a two-letter language code
+     * @return the code as stored in the language column or -1 if the language has not two letters
+     */
+    public static int languageCode(final String language) {
+        if (language == null || language.length() != 2) return -1;
+        return languageCode(ASCII.getBytes(language));
+    }
+
+    /**
+     * @param language the two bytes of a language code
+     * @return the code as stored in the language column or -1 if the language has not two bytes
+     */
+    public static int languageCode(final byte[] language) {
+        if (language == null || language.length != 2) return -1;
+        return (language[0] & 0xff) << 8 | (language[1] & 0xff);
+    }
+
+    /**
+     * @param flags a bitfield of appearance flags
+     * @return the flags as stored in the flags column
+     */
+    public static int flags(final Bitfield flags) {
+        int f = 0;
+        for (int i = 0; i < 32; i++) if (flags.get(i)) f |= 1 << i;
+        return f;
+    }
+
+    /**
+     * @param hosthash the six characters of a host hash
+     * @return the code as stored in the host key column or -1 if the host hash has not six characters
+     */
+    public static long hostKey(final String hosthash) {
+        if (hosthash == null || hosthash.length() != 6) return -1;
+        long k = 0;
+        for (int j = 0; j < 6; j++) k = k << 8 | (hosthash.charAt(j) & 0xff);
+        return k;
+    }
+
+    /**
+     * @param hostKey a value of the host key column
+     * @return the host hash
+     */
+    public static String hosthash(long hostKey) {
+        final byte[] h = new byte[6];
+        for (int j = 5; j >= 0; j--) {
+            h[j] = (byte) hostKey;
+            hostKey >>>= 8;
+        }
+        return ASCII.String(h);
+    }
+}
@@ -38,6 +38,7 @@ import net.yacy.cora.order.CloneableIterator;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.index.Row.Entry;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.MemoryGovernor;
 
 
 public final class Cache implements Index, Iterable<Row.Entry> {
@@ -55,6 +56,51 @@ public final class Cache implements Index, Iterable<Row.Entry> {
     private static final long memStopGrow    = 40 * 1024 * 1024; // a limit for the node cache to stop growing if less than this memory amount is available
     private static final long memStartShrink = 20 * 1024 * 1024; // a limit for the node cache to start with shrinking if less than this memory amount is available
 
+    // one consumer for all object caches which is registered at the memory governor
+    private static final MemoryGovernor.Consumer governorConsumer = new MemoryGovernor.Consumer() {
+        @Override
+        public String getName() {
+            return "object caches";
+        }
+
+        @Override
+        public int getPriority() {
+            return 20;
+        }
+
+        @Override
+        public long getUsedBytes() {
+            long mem = 0;
+            for (final Cache cache: caches()) mem += cache.cacheMem();
+            return mem;
+        }
+
+        @Override
+        public long shrink(final long bytes) {
+            // shrink the largest caches first
+            final List<Cache> caches = caches();
+            final Map<Cache, Long> mem = new HashMap<>();
+            for (final Cache cache: caches) mem.put(cache, cache.cacheMem());
+            caches.sort((a, b) -> Long.compare(mem.get(b), mem.get(a)));
+            long released = 0;
+            for (final Cache cache: caches) {
+                if (released >= bytes) break;
+                released += cache.shrinkCache(bytes - released);
+            }
+            return released;
+        }
+    };
+
+    static {
+        MemoryGovernor.register(governorConsumer, 0.1d);
+    }
+
+    private static List<Cache> caches() {
+        synchronized (objectTracker) {
+            return new ArrayList<>(objectTracker.values());
+        }
+    }
+
     // class objects
     private final Index index;         // the back-end of the cache
     private       RowSet      readHitCache;  // contains a complete copy of the cached objects
@@ -76,7 +122,9 @@ public final class Cache implements Index, Iterable<Row.Entry> {
         this.hitLimit = hitLimit;
         this.missLimit = missLimit;
         this.init();
-        objectTracker.put(backupIndex.filename(), this);
+        synchronized (objectTracker) {
+            objectTracker.put(backupIndex.filename(), this);
+        }
     }
 
     private void init() {
@@ -241,6 +289,35 @@ public final class Cache implements Index, Iterable<Row.Entry> {
         return (available - 2 * 1024 * 1024 > this.readHitCache.memoryNeededForGrow());
     }
 
+    private long cacheMem() {
+        final RowSet hit = this.readHitCache, miss = this.readMissCache;
+        return (hit == null ? 0 : hit.mem()) + (miss == null ? 0 : miss.mem());
+    }
+
+    /**
+     * release memory from the cache: entries are evicted from the miss cache first, then from the hit cache
+     * if that was not enough. Only as many entries are evicted as are needed for the requested amount,
+     * the caches fill up again with the following accesses.
+     * @param bytes the requested amount of memory
+     * @return the memory which had been released by the evicted entries
+     */
+    private synchronized long shrinkCache(final long bytes) {
+        long released = evict(this.readMissCache, bytes);
+        if (released < bytes) released += evict(this.readHitCache, bytes - released);
+        if (released > 0) this.cacheFlush++;
+        return released;
+    }
+
+    private static long evict(final RowSet cache, final long bytes) {
+        if (cache == null || cache.isEmpty() || bytes <= 0) return 0;
+        final long before = cache.mem();
+        final int objectsize = cache.row().objectsize;
+        long count = Math.min(cache.size(), (bytes + objectsize - 1) / objectsize);
+        while (count-- > 0 && cache.removeOne() != null) {}
+        cache.trim();
+        return Math.max(0, before - cache.mem());
+    }
+
     public final synchronized void clearCache() {
         if (this.readMissCache != null) this.readMissCache.clear();
         if (this.readHitCache != null) this.readHitCache.clear();
@@ -363,6 +363,18 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
         entry = this.rowdef.newEntry(this.chunkcache, addr, clone);
         return entry;
     }
+
+    /**
+     * copy the bytes of all rows into one array; the rows follow each other with the width of the row definition.
+     * This can be used to decode the columns of all rows without creating a Row.Entry object for each row.
+     * @return the bytes of all rows, size() * row().objectsize bytes
+     */
+    public synchronized final byte[] rowBytes() {
+        final int length = Math.min(this.chunkcount * this.rowdef.objectsize, this.chunkcache.length);
+        final byte[] b = new byte[length];
+        System.arraycopy(this.chunkcache, 0, b, 0, length);
+        return b;
+    }
     
     public synchronized final void set(final int index, final Row.Entry a) throws SpaceExceededException {
         assert (index >= 0) : "set: access with index " + index + " is below zero";
@@ -507,6 +519,31 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
         removeRow(p, true);
     }
 
+    /**
+     * remove a set of rows in one pass; the order of the remaining rows is kept
+     * @param remove a flag for each row, true if the row shall be removed
+     * @return the number of removed rows
+     */
+    protected synchronized final int removeRows(final boolean[] remove) {
+        final int os = this.rowdef.objectsize;
+        int w = 0, sb = 0;
+        for (int r = 0; r < this.chunkcount; r++) {
+            if (remove[r]) continue;
+            if (w != r) System.arraycopy(this.chunkcache, r * os, this.chunkcache, w * os, os);
+            if (r < this.sortBound) sb++;
+            w++;
+        }
+        final int removed = this.chunkcount - w;
+        if (removed == 0) return 0;
+        this.chunkcount = w;
+        this.sortBound = sb;
+        this.lastTimeWrote = System.currentTimeMillis();
+
+        // check if the chunkcache can shrink
+        checkShrink();
+        return removed;
+    }
+
     /**
      * removes the last entry from the collection
      * @return
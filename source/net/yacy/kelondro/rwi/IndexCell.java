@@ -46,6 +46,7 @@ import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.MemoryGovernor;
 import net.yacy.kelondro.util.MergeIterator;
 import net.yacy.search.EventTracker;
 import net.yacy.search.Switchboard;
@@ -71,6 +72,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     private final ReferenceContainerArray<ReferenceType> array;
     private       ReferenceContainerCache<ReferenceType> ram;
     private final ComparableARC<byte[], Integer>         countCache;
+    private final TermCountTable                         termCounts; // number of references per term in the array
     private       int                                    maxRamEntries;
     private       IODispatcher                           merger; // pointer to shared merger
     private       long                                   lastCleanup;
@@ -80,6 +82,8 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     private final Map<byte[], HandleSet>                 removeDelayedURLs; // mapping from word hashes to a list of url hashes
     private       boolean                                flushShallRun;
     private final Thread                                 flushThread;
+    private volatile boolean                             dumpRequested; // set by the memory governor to dump the RAM buffer early
+    private final MemoryGovernor.Consumer                governorConsumer;
 
     public IndexCell(
             final File cellPath,
@@ -99,6 +103,8 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         this.array = new ReferenceContainerArray<ReferenceType>(cellPath, prefix, factory, termOrder, termSize);
         this.ram = new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
         this.countCache = new ComparableARC<byte[], Integer>(1000, termOrder);
+        this.termCounts = new TermCountTable(new File(cellPath, prefix + ".counts"), termOrder, termSize);
+        this.array.setShrinkListener(this.termCounts);
         this.maxRamEntries = maxRamEntries;
         this.lastCleanup = System.currentTimeMillis();
         this.lastDump = System.currentTimeMillis();
@@ -107,8 +113,55 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         this.writeBufferSize = writeBufferSize;
         this.removeDelayedURLs = new TreeMap<byte[], HandleSet>(Word.commonHashOrder);
         this.flushShallRun = true;
+        this.dumpRequested = false;
+        this.governorConsumer = new MemoryGovernor.Consumer() {
+            @Override
+            public String getName() {
+                return "RWI buffer " + prefix;
+            }
+
+            @Override
+            public int getPriority() {
+                return 40; // dumping the buffer causes IO and merge work, shrink other consumers first
+            }
+
+            @Override
+            public long getUsedBytes() {
+                return IndexCell.this.ram.usedMemory();
+            }
+
+            @Override
+            public long shrink(final long bytes) {
+                // the buffer cannot be shrunk partially; the flush thread dumps it completely
+                if (IndexCell.this.ram.isEmpty()) return 0;
+                IndexCell.this.dumpRequested = true;
+                return IndexCell.this.ram.usedMemory();
+            }
+        };
+        MemoryGovernor.register(this.governorConsumer, 0.1d);
         this.flushThread = new FlushThread(cellPath.toString());
         this.flushThread.start();
+        if (!this.termCounts.isReady()) {
+            // the counts were not stored when the cell was closed; read them from the BLOB files
+            final Thread countThread = new Thread("IndexCell.TermCountTable(" + cellPath + ")") {
+                @Override
+                public void run() {
+                    IndexCell.this.termCounts.build(IndexCell.this.array, () -> IndexCell.this.flushShallRun);
+                }
+            };
+            countThread.setPriority(Thread.MIN_PRIORITY);
+            countThread.start();
+        }
+    }
+
+    /**
+     * check if the RAM buffer shall be dumped because of the memory situation.
+     * If the memory governor is active, the buffer is compared with its budget,
+     * otherwise the free memory is requested from the MemoryControl
+     */
+    private boolean ramExceedsMemory(final long request) {
+        if (MemoryGovernor.isActive()) return this.ram.usedMemory() > MemoryGovernor.budget(this.governorConsumer);
+        return !MemoryControl.request(request, false);
     }
 
     private class FlushThread extends Thread {
@@ -133,13 +186,16 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             // dump the cache if necessary
             final long t = System.currentTimeMillis();
             if ((IndexCell.this.ram.size() >= IndexCell.this.maxRamEntries ||
-                (IndexCell.this.ram.size() > 2000 && !MemoryControl.request(120L * 1024L * 1024L, false)) ||
+                (IndexCell.this.dumpRequested && !IndexCell.this.ram.isEmpty()) ||
+                (IndexCell.this.ram.size() > 2000 && ramExceedsMemory(120L * 1024L * 1024L)) ||
                 (!IndexCell.this.ram.isEmpty() && IndexCell.this.lastDump + dumpCycle < t))) {
                 synchronized (IndexCell.this.merger) {
                     if (IndexCell.this.ram.size() >= IndexCell.this.maxRamEntries ||
-                        (IndexCell.this.ram.size() > 3000 && !MemoryControl.request(80L * 1024L * 1024L, false)) ||
+                        (IndexCell.this.dumpRequested && !IndexCell.this.ram.isEmpty()) ||
+                        (IndexCell.this.ram.size() > 3000 && ramExceedsMemory(80L * 1024L * 1024L)) ||
                         (!IndexCell.this.ram.isEmpty() && IndexCell.this.lastDump + dumpCycle < t)) try {
                             IndexCell.this.lastDump = System.currentTimeMillis();
+                            IndexCell.this.dumpRequested = false;
                         // removed delayed
                         try {removeDelayed();} catch (final IOException e) {}
                         // dump the ram
@@ -154,6 +210,8 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
                             // get a fresh ram cache
                             IndexCell.this.ram = new ReferenceContainerCache<ReferenceType>(IndexCell.this.factory, termOrder, termSize);
                         }
+                        // the references of the dump are counted for the array already now
+                        for (final ReferenceContainer<ReferenceType> container: ramdump) IndexCell.this.termCounts.add(container.getTermHash(), container.size());
                         // WARNING : if this cell is queried before this dump termination, terms are no longer in the cache and would therefore not be found
                         // dump the buffer
                         IndexCell.this.merger.dump(ramdump, dumpFile, IndexCell.this.array);
@@ -310,10 +368,22 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
     /**
      * count number of references for a given term
+     * the number of references in the BLOB files is taken from the term count table; until the table is ready,
      * this method may cause strong IO load if called too frequently.
      */
     @Override
     public int count(final byte[] termHash) {
+        final int countTable = this.termCounts.get(termHash);
+        if (countTable >= 0) {
+            int c = countTable + this.ram.count(termHash);
+            // exclude entries from delayed remove
+            synchronized (this.removeDelayedURLs) {
+                final HandleSet s = this.removeDelayedURLs.get(termHash);
+                if (s != null) c -= s.size();
+            }
+            return Math.max(0, c);
+        }
+
         final Integer cachedCount = this.countCache.get(termHash);
         if (cachedCount != null) return cachedCount.intValue();
 
@@ -401,6 +471,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         }
         if (c1 != null) {
             this.array.delete(termHash);
+            this.termCounts.delete(termHash);
         }
         final ReferenceContainer<ReferenceType> c0 = this.ram.remove(termHash);
         if (c1 == null) return c0;
@@ -429,6 +500,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         }
         if (c1 != null) {
             this.array.delete(termHash);
+            this.termCounts.delete(termHash);
         }
         this.ram.delete(termHash);
         return;
@@ -490,6 +562,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             ConcurrentLog.warn("KELONDRO", "IndexCell: not possible to remove urlHashes from a RWI because of too low memory. Remove was not applied. Please increase RAM assignment");
         }
         //assert this.array.mem() <= am : "am = " + am + ", array.mem() = " + this.array.mem();
+        this.termCounts.add(termHash, -(reduced / this.array.rowdef().objectsize));
         return removed + (reduced / this.array.rowdef().objectsize);
     }
 
@@ -506,6 +579,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             ConcurrentLog.warn("KELONDRO", "IndexCell: not possible to remove urlHashes from a RWI because of too low memory. Remove was not applied. Please increase RAM assignment");
         }
         //assert this.array.mem() <= am : "am = " + am + ", array.mem() = " + this.array.mem();
+        this.termCounts.add(termHash, -(reduced / this.array.rowdef().objectsize));
         return removed || (reduced > 0);
     }
 
@@ -580,11 +654,19 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         this.removeDelayedURLs.clear();
         this.ram.clear();
         this.array.clear();
+        this.termCounts.clear();
         if (Switchboard.getSwitchboard() != null &&
                 Switchboard.getSwitchboard().peers != null &&
                 Switchboard.getSwitchboard().peers.mySeed() != null) Switchboard.getSwitchboard().peers.mySeed().resetCounters();
     }
     
+    /**
+     * @return the table of the number of references per term in the BLOB files
+     */
+    TermCountTable termCounts() {
+        return this.termCounts;
+    }
+
     public synchronized void clearCache() {
         this.countCache.clear();
     }
@@ -596,14 +678,17 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
      */
     @Override
     public synchronized void close() {
+        MemoryGovernor.unregister(this.governorConsumer);
         this.countCache.clear();
         try {removeDelayed();} catch (final IOException e) {}
+        for (final ReferenceContainer<ReferenceType> container: this.ram) this.termCounts.add(container.getTermHash(), container.size());
         if (!this.ram.isEmpty()) this.ram.dump(this.array.newContainerBLOBFile(), (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
         // close all
         this.flushShallRun = false;
         if (this.flushThread != null) try { this.flushThread.join(); } catch (final InterruptedException e) {}
         this.ram.close();
         this.array.close();
+        this.termCounts.close();
     }
 
     public boolean isEmpty() {
@@ -402,6 +402,12 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         if ((i1 == null) || (i2 == null)) return null;
         if (i1.isEmpty() || i2.isEmpty()) return null;
 
+        // galloping over the sorted url hashes if both containers have the same ordering
+        if (i1.rowdef.equals(i2.rowdef) && i1.rowdef.getOrdering().signature().equals(i2.rowdef.getOrdering().signature())) {
+            if (i1.size() < i2.size()) return joinConstructiveByGalloping(factory, i1, i2, maxDistance);
+            return joinConstructiveByGalloping(factory, i2, i1, maxDistance);
+        }
+
         // decide which method to use
         final int high = ((i1.size() > i2.size()) ? i1.size() : i2.size());
         final int low  = ((i1.size() > i2.size()) ? i2.size() : i1.size());
@@ -416,7 +422,70 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return joinConstructiveByEnumeration(factory, i1, i2, maxDistance);
     }
 
-    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByTest(
+    /**
+     * find the first row which has a key that is not smaller than the given key.
+     * The search starts at a given row and doubles the step width until a row with a larger key is found,
+     * then it continues with a binary search in the last step. The cost is logarithmic in the distance to
+     * the start row, so walking through a large container with the keys of a small container in ascending
+     * order costs only O(small * log(large / small)) comparisons.
+     * @param rows the sorted rows of the searched container
+     * @param from the first row to be considered
+     * @param to the number of rows
+     * @param key the array containing the key
+     * @param keyOffset the position of the key in the array
+     * @param objectsize the row width
+     * @param keylength the key width
+     * @param ordering the ordering of the rows
+     * @return the position of the row, which is 'to' if all considered rows are smaller than the key
+     */
+    private static int gallop(final byte[] rows, final int from, final int to, final byte[] key, final int keyOffset,
+            final int objectsize, final int keylength, final ByteOrder ordering) {
+        if (from >= to || ordering.compare(rows, from * objectsize, key, keyOffset, keylength) >= 0) return from;
+        int lo = from; // the row at lo is always smaller than the key
+        int step = 1;
+        int hi = from + 1;
+        while (hi < to && ordering.compare(rows, hi * objectsize, key, keyOffset, keylength) < 0) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        if (hi > to) hi = to;
+        while (hi - lo > 1) {
+            final int mid = (lo + hi) >>> 1;
+            if (ordering.compare(rows, mid * objectsize, key, keyOffset, keylength) < 0) lo = mid; else hi = mid;
+        }
+        return hi;
+    }
+
+    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByGalloping(
+            final ReferenceFactory<ReferenceType> factory,
+            final ReferenceContainer<ReferenceType> small,
+            final ReferenceContainer<ReferenceType> large,
+            final int maxDistance) throws SpaceExceededException {
+        assert small.rowdef.equals(large.rowdef) : "small = " + small.rowdef.toString() + "; large = " + large.rowdef.toString();
+        final ReferenceContainer<ReferenceType> conj = new ReferenceContainer<ReferenceType>(factory, null, 0); // start with empty search result
+        small.sort();
+        large.sort();
+        final ByteOrder ordering = small.rowdef.getOrdering();
+        final int objectsize = small.rowdef.objectsize;
+        final int keylength = small.rowdef.primaryKeyLength;
+        final byte[] srows = small.chunkcache, lrows = large.chunkcache;
+        final int ssize = small.chunkcount, lsize = large.chunkcount;
+        int p = 0;
+        for (int s = 0; s < ssize && p < lsize; s++) {
+            p = gallop(lrows, p, lsize, srows, s * objectsize, objectsize, keylength, ordering);
+            if (p < lsize && ordering.compare(srows, s * objectsize, lrows, p * objectsize, keylength) == 0) {
+                // we have found the same urls in different searches!
+                final ReferenceType ie1 = factory.produceFast(factory.produceSlow(small.get(s, false)), true);
+                ie1.join(factory.produceSlow(large.get(p, false)));
+                if (ie1.distance() <= maxDistance) conj.add(ie1);
+                p++;
+            }
+        }
+        return conj;
+    }
+
+    static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByTest(
             final ReferenceFactory<ReferenceType> factory,
             final ReferenceContainer<ReferenceType> small,
             final ReferenceContainer<ReferenceType> large,
@@ -445,7 +514,7 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return conj;
     }
 
-    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByEnumeration(
+    static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByEnumeration(
             final ReferenceFactory<ReferenceType> factory,
             final ReferenceContainer<ReferenceType> i1,
             final ReferenceContainer<ReferenceType> i2,
@@ -497,6 +566,11 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         if (pivot.isEmpty()) return null;
         if (excl.isEmpty()) return pivot;
 
+        // galloping over the sorted url hashes if both containers have the same ordering
+        if (pivot.rowdef.equals(excl.rowdef) && pivot.rowdef.getOrdering().signature().equals(excl.rowdef.getOrdering().signature())) {
+            return excludeDestructiveByGalloping(pivot, excl);
+        }
+
         // decide which method to use
         final int high = ((pivot.size() > excl.size()) ? pivot.size() : excl.size());
         final int low  = ((pivot.size() > excl.size()) ? excl.size() : pivot.size());
@@ -510,6 +584,46 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return excludeDestructiveByEnumeration(factory, pivot, excl);
     }
 
+    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> excludeDestructiveByGalloping(
+            final ReferenceContainer<ReferenceType> pivot,
+            final ReferenceContainer<ReferenceType> excl) {
+        assert pivot.rowdef.equals(excl.rowdef) : "pivot = " + pivot.rowdef.toString() + "; excl = " + excl.rowdef.toString();
+        pivot.sort();
+        excl.sort();
+        final ByteOrder ordering = pivot.rowdef.getOrdering();
+        final int objectsize = pivot.rowdef.objectsize;
+        final int keylength = pivot.rowdef.primaryKeyLength;
+        final byte[] prows = pivot.chunkcache, erows = excl.chunkcache;
+        final int psize = pivot.chunkcount, esize = excl.chunkcount;
+        final boolean[] remove = new boolean[psize];
+        int found = 0;
+        if (psize <= esize) {
+            // search the pivot keys in the exclusion container
+            int p = 0;
+            for (int s = 0; s < psize && p < esize; s++) {
+                p = gallop(erows, p, esize, prows, s * objectsize, objectsize, keylength, ordering);
+                if (p < esize && ordering.compare(prows, s * objectsize, erows, p * objectsize, keylength) == 0) {
+                    remove[s] = true;
+                    found++;
+                    p++;
+                }
+            }
+        } else {
+            // search the exclusion keys in the pivot container
+            int p = 0;
+            for (int s = 0; s < esize && p < psize; s++) {
+                p = gallop(prows, p, psize, erows, s * objectsize, objectsize, keylength, ordering);
+                if (p < psize && ordering.compare(erows, s * objectsize, prows, p * objectsize, keylength) == 0) {
+                    remove[p] = true;
+                    found++;
+                    p++;
+                }
+            }
+        }
+        if (found > 0) pivot.removeRows(remove);
+        return pivot;
+    }
+
     private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> excludeDestructiveByTest(
             final ReferenceContainer<ReferenceType> pivot,
             final ReferenceContainer<ReferenceType> excl) {
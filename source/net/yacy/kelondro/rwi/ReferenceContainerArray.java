@@ -103,6 +103,13 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
         return this.factory.getRow();
     }
 
+    /**
+     * @param listener the listener which is informed about references removed when BLOB files are merged, or null
+     */
+    public void setShrinkListener(final ArrayStack.ShrinkListener listener) {
+        this.array.setShrinkListener(listener);
+    }
+
     /**
      * return an iterator object that creates top-level-clones of the indexContainers
      * in the cache, so that manipulations of the iterated objects do not change
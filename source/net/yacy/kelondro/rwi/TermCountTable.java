@@ -0,0 +1,226 @@
+/**
+ *  TermCountTable
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.rwi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.BooleanSupplier;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.blob.ArrayStack;
+import net.yacy.kelondro.index.RowHandleMap;
+import net.yacy.kelondro.index.RowHandleSet;
+
+/**
+ * A compact table of the number of references per term in the BLOB files of an {@link IndexCell}.
+ * The table is updated when the RAM buffer is dumped, when BLOB files are merged and when references are deleted,
+ * so the number of references of a term is available without reading the BLOB files.
+ * Like the counts from the BLOB files, the numbers are estimations: references which exist in several BLOB files
+ * are counted several times until the files are merged.
+ * The table is written to a file when the cell is closed. If the file does not exist when the cell is opened,
+ * i.e. after a crash, the table is built again in the background; until then {@link #isReady()} is false.
+ */
+public class TermCountTable implements ArrayStack.ShrinkListener {
+
+    private final static ConcurrentLog log = new ConcurrentLog("TermCountTable");
+
+    private final File file;
+    private final int termSize;
+    private final ByteOrder termOrder;
+    private volatile RowHandleMap counts;
+    private volatile boolean ready;
+    /** terms which were changed while the table was built, null if the table is not built */
+    private HandleSet changed;
+
+    /**
+     * open the table
+     * @param file the dump of the table; the file is deleted after it was read, so that a crash forces a new built of the table
+     * @param termOrder the order of the terms
+     * @param termSize the length of the terms
+     */
+    public TermCountTable(final File file, final ByteOrder termOrder, final int termSize) {
+        this.file = file;
+        this.termOrder = termOrder;
+        this.termSize = termSize;
+        this.ready = false;
+        this.changed = null;
+        if (file != null && file.exists()) {
+            try {
+                this.counts = new RowHandleMap(termSize, termOrder, 4, file);
+                this.ready = true;
+                log.info("loaded " + this.counts.size() + " term counts from " + file);
+            } catch (final IOException | SpaceExceededException e) {
+                log.warn("cannot read " + file + ": " + e.getMessage());
+            }
+            file.delete();
+        }
+        if (this.counts == null) this.counts = new RowHandleMap(termSize, termOrder, 4, 1000, "TermCountTable");
+    }
+
+    /**
+     * @return true if the table holds the counts of all terms
+     */
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * @param termHash a term
+     * @return the number of references of the term in the BLOB files, 0 if there are none; -1 if the table is not ready
+     */
+    public int get(final byte[] termHash) {
+        if (!this.ready) return -1;
+        final long c = this.counts.get(termHash);
+        return c < 0 ? 0 : (int) c;
+    }
+
+    /**
+     * change the number of references of a term
+     * @param termHash the term
+     * @param delta the number of added references, negative for removed references
+     */
+    public synchronized void add(final byte[] termHash, final int delta) {
+        if (delta == 0) return;
+        this.markChanged(termHash);
+        final long c = Math.max(0, this.counts.get(termHash)) + delta;
+        try {
+            if (c <= 0) this.counts.remove(termHash); else this.counts.put(termHash, c);
+        } catch (final SpaceExceededException e) {
+            this.dropTable();
+        }
+    }
+
+    /**
+     * the term was deleted in all BLOB files
+     * @param termHash the term
+     */
+    public synchronized void delete(final byte[] termHash) {
+        this.markChanged(termHash);
+        this.counts.remove(termHash);
+    }
+
+    public synchronized void clear() {
+        this.counts.clear();
+        if (this.changed != null) this.changed.clear();
+    }
+
+    @Override
+    public void shrunk(final byte[] termHash, final int removed) {
+        this.add(termHash, -removed);
+    }
+
+    private void markChanged(final byte[] termHash) {
+        if (this.changed == null) return;
+        try {
+            this.changed.put(termHash);
+        } catch (final SpaceExceededException e) {
+            this.dropTable();
+        }
+    }
+
+    private void dropTable() {
+        // without memory the table cannot be maintained; count from the BLOB files instead
+        log.warn("not enough memory for term count table");
+        this.ready = false;
+        this.counts.clear();
+        this.changed = null;
+    }
+
+    /**
+     * build the table from the BLOB files. This reads the length of each term in each BLOB file and may take a long time.
+     * The counts are collected in a new table which replaces the current one when it is complete. Terms which are changed
+     * during the built are counted again; the last recount and the replacement are done while changes are blocked,
+     * so no change is lost between them.
+     * @param array the BLOB files
+     * @param shallRun checked during the built; the built is aborted if it returns false
+     */
+    public void build(final ReferenceContainerArray<? extends Reference> array, final BooleanSupplier shallRun) {
+        if (this.ready) return;
+        synchronized (this) {
+            this.changed = new RowHandleSet(this.termSize, this.termOrder, 0);
+        }
+        final long start = System.currentTimeMillis();
+        final RowHandleMap built = new RowHandleMap(this.termSize, this.termOrder, 4, 1000, "TermCountTable");
+        try {
+            final Iterator<byte[]> keys = array.keys(true, false);
+            int n = 0;
+            while (keys.hasNext() && shallRun.getAsBoolean()) {
+                recount(array, keys.next(), built);
+                n++;
+            }
+            if (!shallRun.getAsBoolean()) {
+                synchronized (this) {
+                    this.changed = null;
+                }
+                return;
+            }
+            // count the terms again which were changed meanwhile
+            HandleSet changed;
+            synchronized (this) {
+                if (this.changed == null) return; // out of memory
+                changed = this.changed;
+                this.changed = new RowHandleSet(this.termSize, this.termOrder, 0);
+            }
+            for (final byte[] termHash: changed) recount(array, termHash, built);
+            synchronized (this) {
+                if (this.changed == null) return;
+                for (final byte[] termHash: this.changed) recount(array, termHash, built);
+                this.changed = null;
+                this.counts = built;
+                this.ready = true;
+            }
+            log.info("built table of " + n + " term counts in " + (System.currentTimeMillis() - start) + " milliseconds");
+        } catch (final IOException e) {
+            log.warn("cannot build term count table: " + e.getMessage());
+            synchronized (this) {
+                this.changed = null;
+            }
+        } catch (final SpaceExceededException e) {
+            synchronized (this) {
+                this.dropTable();
+            }
+        } finally {
+            if (built != this.counts) built.close();
+        }
+    }
+
+    private static void recount(final ReferenceContainerArray<? extends Reference> array, final byte[] termHash, final RowHandleMap built) throws IOException, SpaceExceededException {
+        final int c = array.count(termHash);
+        if (c <= 0) built.remove(termHash); else built.put(termHash, c);
+    }
+
+    /**
+     * write the table to its file if it is ready
+     */
+    public synchronized void close() {
+        if (this.ready && this.file != null) try {
+            this.counts.dump(this.file);
+        } catch (final IOException e) {
+            log.warn("cannot write " + this.file + ": " + e.getMessage());
+        }
+        this.ready = false;
+        this.counts.clear();
+    }
+}
@@ -30,6 +30,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
@@ -55,6 +56,7 @@ import net.yacy.kelondro.io.BufferedRecords;
 import net.yacy.kelondro.io.Records;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.MemoryGovernor;
 import net.yacy.kelondro.util.kelondroException;
 
 
@@ -77,6 +79,62 @@ public class Table implements Index, Iterable<Row.Entry> {
     private final static Map<String, Table> tableTracker = new ConcurrentSkipListMap<>();
     private final static long maxarraylength = 134217727L; // (2^27-1) that may be the maximum size of array length in some JVMs
 
+    /** one consumer for the RAM copies of all tables which is registered at the memory governor */
+    private final static MemoryGovernor.Consumer governorConsumer = new MemoryGovernor.Consumer() {
+        @Override
+        public String getName() {
+            return "table RAM copies";
+        }
+
+        @Override
+        public int getPriority() {
+            return 30; // re-creating an abandoned table copy needs a full read of the table file
+        }
+
+        @Override
+        public long getUsedBytes() {
+            long mem = 0;
+            for (final Table t: tableTracker.values()) mem += t.tableMem();
+            return mem;
+        }
+
+        @Override
+        public long shrink(final long bytes) {
+            // abandon the largest RAM copies which fit into the requested amount;
+            // if no copy is small enough, only the smallest one is abandoned
+            final List<Table> tables = new ArrayList<>(tableTracker.values());
+            final Map<Table, Long> mem = new HashMap<>();
+            for (final Table t: tables) mem.put(t, t.tableMem());
+            tables.removeIf(t -> mem.get(t) == 0);
+            tables.sort((a, b) -> Long.compare(mem.get(b), mem.get(a)));
+            long released = 0;
+            for (final Table t: tables) {
+                if (released >= bytes) break;
+                if (mem.get(t) <= bytes - released) released += t.releaseTableCopy();
+            }
+            if (released == 0 && !tables.isEmpty()) released = tables.get(tables.size() - 1).releaseTableCopy();
+            return released;
+        }
+
+        @Override
+        public void restore() {
+            // re-create the abandoned copies of the smallest tables first, as long as they fit into the budget
+            final List<Table> tables = new ArrayList<>(tableTracker.values());
+            tables.removeIf(t -> !t.copyReleased);
+            tables.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            final long budget = MemoryGovernor.budget(this);
+            long used = this.getUsedBytes();
+            for (final Table t: tables) {
+                if (used >= budget) break;
+                used += t.restoreTableCopy(budget - used);
+            }
+        }
+    };
+
+    static {
+        MemoryGovernor.register(governorConsumer, 0.2d);
+    }
+
     private final long minmemremaining; // if less than this memory is remaininig, the memory copy of a table is abandoned
     private final int buffersize;
     private final Row rowdef;
@@ -84,6 +142,7 @@ public class Table implements Index, Iterable<Row.Entry> {
     private       HandleMap index;
     private       BufferedRecords file;
     private       RowSet table;
+    private volatile boolean copyReleased; // true if the RAM copy had been abandoned by the memory governor
 
     public Table(
             final File tablefile,
@@ -319,12 +378,13 @@ public class Table implements Index, Iterable<Row.Entry> {
     @Override
     public void optimize() {
         this.index.optimize();
-        if (this.table != null) this.table.optimize();
+        final RowSet copy = this.table; // the copy may be abandoned concurrently
+        if (copy != null) copy.optimize();
     }
 
     @Override
     public long mem() {
-        return this.index.mem() + ((this.table == null) ? 0 : this.table.mem());
+        return this.index.mem() + this.tableMem();
     }
 
     private boolean abandonTable() {
@@ -452,16 +512,63 @@ public class Table implements Index, Iterable<Row.Entry> {
             stats.keyChunkSize = (((RowHandleMap) this.index).row().objectsize);
             stats.keyMem = (long)((RowHandleMap) this.index).row().objectsize * (long)this.index.size();
         }
-        if(this.table != null) {
-            stats.valueChunkSize = this.table.row().objectsize;
-            stats.valueMem = (long)this.table.row().objectsize * (long)this.table.size();
+        final RowSet copy = this.table; // the copy may be abandoned concurrently
+        if(copy != null) {
+            stats.valueChunkSize = copy.row().objectsize;
+            stats.valueMem = (long)copy.row().objectsize * (long)copy.size();
         }
 
         return stats;
     }
 
+    private long tableMem() {
+        final RowSet copy = this.table;
+        return copy == null ? 0 : copy.mem();
+    }
+
+    /**
+     * abandon the RAM copy of the table; rows are then read from the file
+     * @return the memory which had been bound in the table copy
+     */
+    private synchronized long releaseTableCopy() {
+        final RowSet copy = this.table;
+        if (copy == null) return 0;
+        this.table = null;
+        this.copyReleased = true;
+        log.info("abandoned RAM copy of table " + this.filename() + " to release memory");
+        return copy.mem();
+    }
+
+    /**
+     * re-create a RAM copy which had been abandoned by the memory governor; the rows are read from the file
+     * @param budget the memory which may be bound in the new copy
+     * @return the memory which is bound in the new copy, 0 if the copy was not re-created
+     */
+    private synchronized long restoreTableCopy(final long budget) {
+        if (!this.copyReleased || this.table != null || this.file == null) return 0;
+        final int records = this.index.size();
+        final long needed = (long) records * this.taildef.objectsize * RowCollection.growfactorLarge100 / 100L;
+        if (needed > budget || this.abandonTable() || !MemoryControl.request(needed, false)) return 0;
+        final RowSet copy;
+        try {
+            copy = new RowSet(this.taildef, records);
+            final byte[] b = new byte[this.rowdef.objectsize];
+            for (int i = 0; i < records; i++) {
+                this.file.get(i, b, 0);
+                copy.addUnique(this.taildef.newEntry(b, this.rowdef.primaryKeyLength, true));
+            }
+        } catch (final IOException | SpaceExceededException e) {
+            return 0;
+        }
+        this.table = copy;
+        this.copyReleased = false;
+        log.info("re-created RAM copy of table " + this.filename());
+        return copy.mem();
+    }
+
     public boolean usesFullCopy() {
-        return this.table != null;
+        final RowSet copy = this.table;
+        return copy != null;
     }
 
     public static long staticRAMIndexNeed(final File f, final Row rowdef) {
@@ -618,7 +725,8 @@ public class Table implements Index, Iterable<Row.Entry> {
         if (i == -1) return null;
         final byte[] b = new byte[this.rowdef.objectsize];
         final Row.Entry cacherow;
-        if (this.table == null || (cacherow = this.table.get(i, false)) == null) {
+        final RowSet copy = this.table; // the copy may be abandoned concurrently
+        if (copy == null || (cacherow = copy.get(i, false)) == null) {
             // read row from the file
             try {
                 this.file.get(i, b, 0);
@@ -854,7 +962,8 @@ public class Table implements Index, Iterable<Row.Entry> {
         int ix;
         assert i < this.index.size();
         final Row.Entry cacherow;
-        if (this.table == null || (cacherow = this.table.get(i, false)) == null) {
+        final RowSet copy = this.table; // the copy may be abandoned concurrently
+        if (copy == null || (cacherow = copy.get(i, false)) == null) {
             if (i == this.index.size() - 1) {
                 // element is at last entry position
                 ix = (int) this.index.remove(key);
@@ -1126,7 +1235,8 @@ public class Table implements Index, Iterable<Row.Entry> {
             if (this.c < 0) throw new ConcurrentModificationException(); // this should only happen if the table was modified during the iteration
             final byte[] b = new byte[Table.this.rowdef.objectsize];
             final Row.Entry cacherow;
-            if (Table.this.table == null || (cacherow = Table.this.table.get(this.c, false)) == null) {
+            final RowSet copy = Table.this.table; // the copy may be abandoned concurrently
+            if (copy == null || (cacherow = copy.get(this.c, false)) == null) {
                 // read from file
                 try {
                     Table.this.file.get(this.c, b, 0);
@@ -0,0 +1,342 @@
+// MemoryGovernor.java
+// -------------------------------------------
+// (C) 2026 by Michael Peter Christen; mc@yacy.net, Frankfurt a. M., Germany
+// first published 19.10.2026 on http://yacy.net
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import net.yacy.cora.util.ConcurrentLog;
+
+/**
+ * The memory governor observes the heap with usage threshold notifications of the JVM memory pools
+ * instead of polling the free memory. Memory consumers (buffers and caches) register themselves with
+ * a share of the heap and a priority. They can ask for their budget, which shrinks when the memory pressure rises.
+ * When a memory pool exceeds its collection usage threshold, the registered consumers are asked to release memory
+ * gradually in the order of their priority, until the heap usage is below the target again.
+ * When the pressure is NORMAL again, the consumers are asked to restore what they had released.
+ * No explicit garbage collection is triggered by the governor.
+ */
+public class MemoryGovernor {
+
+    private final static ConcurrentLog log = new ConcurrentLog("MEMORY");
+
+    /** pool usage after a collection above this ratio of the pool maximum raises the pressure to ELEVATED */
+    private final static double ELEVATED_RATIO = 0.75d;
+    /** pool usage after a collection above this ratio of the pool maximum raises the pressure to CRITICAL */
+    private final static double CRITICAL_RATIO = 0.90d;
+    /** the relief process shrinks the consumers until the pool usage is below this ratio */
+    private final static double TARGET_RATIO = 0.65d;
+    /** time between two relief rounds as long as the pressure is not NORMAL */
+    private final static long RECHECK_MILLIS = 10000L;
+
+    public enum Pressure {
+        NORMAL(1.0d, 0.0d),
+        ELEVATED(0.5d, 0.25d),
+        CRITICAL(0.25d, 0.5d);
+
+        /** factor applied to the budget of all consumers */
+        public final double budgetFactor;
+        /** maximum fraction of its used memory a single consumer is asked to release in one relief round */
+        public final double shrinkFraction;
+
+        private Pressure(final double budgetFactor, final double shrinkFraction) {
+            this.budgetFactor = budgetFactor;
+            this.shrinkFraction = shrinkFraction;
+        }
+    }
+
+    /**
+     * A memory consumer which can be shrunk by the governor.
+     */
+    public interface Consumer {
+
+        /**
+         * @return a name for logging and statistics
+         */
+        public String getName();
+
+        /**
+         * @return the priority of this consumer; consumers with a lower priority are shrunk first
+         */
+        public int getPriority();
+
+        /**
+         * @return an estimation of the memory currently bound by this consumer in bytes
+         */
+        public long getUsedBytes();
+
+        /**
+         * release memory
+         * @param bytes the amount of memory which shall be released
+         * @return an estimation of the bytes which had been released
+         */
+        public long shrink(long bytes);
+
+        /**
+         * called when the memory pressure returned to NORMAL after a relief;
+         * the consumer may re-create structures which it had given up in {@link #shrink(long)}
+         * as far as its {@link MemoryGovernor#budget(Consumer)} allows
+         */
+        public default void restore() {
+        }
+    }
+
+    private static class Registration {
+        private final Consumer consumer;
+        private final double share;
+        private Registration(final Consumer consumer, final double share) {
+            this.consumer = consumer;
+            this.share = share;
+        }
+    }
+
+    private static final CopyOnWriteArrayList<Registration> consumers = new CopyOnWriteArrayList<>();
+    private static final List<MemoryPoolMXBean> observedPools = new CopyOnWriteArrayList<>();
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final AtomicBoolean reliefScheduled = new AtomicBoolean(false);
+    private static volatile Pressure pressure = Pressure.NORMAL;
+    private static final LongAdder releasedBytes = new LongAdder(), reliefRounds = new LongAdder();
+    private static ScheduledExecutorService reliever = null;
+
+    /**
+     * start observing the memory pools. This installs collection usage thresholds on all heap pools
+     * which support them and listens to the threshold notifications of the memory MXBean.
+     * Calling this more than once has no effect.
+     */
+    public static void start() {
+        if (!started.compareAndSet(false, true)) return;
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread t = new Thread(r, "MemoryGovernor.relief");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        reliever = executor;
+        for (final MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) continue;
+            final long max = pool.getUsage().getMax();
+            if (max <= 0) continue;
+            try {
+                pool.setCollectionUsageThreshold((long) (max * ELEVATED_RATIO));
+                observedPools.add(pool);
+            } catch (final IllegalArgumentException | UnsupportedOperationException | SecurityException e) {
+                log.warn("MemoryGovernor: cannot set threshold on pool " + pool.getName() + ": " + e.getMessage());
+            }
+        }
+        if (observedPools.isEmpty()) {
+            log.warn("MemoryGovernor: no memory pool supports collection usage thresholds; governor is inactive");
+            return;
+        }
+        final NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        emitter.addNotificationListener(new NotificationListener() {
+            @Override
+            public void handleNotification(final Notification notification, final Object handback) {
+                if (!MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) return;
+                final MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+                updatePressure(ratio(info.getUsage()));
+                scheduleRelief(0L);
+            }
+        }, null, null);
+        log.info("MemoryGovernor: observing " + observedPools.size() + " memory pool(s)");
+    }
+
+    /**
+     * stop the relief thread; consumers remain registered
+     */
+    public static void stop() {
+        final ScheduledExecutorService executor = reliever;
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * @return true if the governor observes memory pools
+     */
+    public static boolean isActive() {
+        return !observedPools.isEmpty();
+    }
+
+    /**
+     * register a consumer
+     * @param consumer the consumer
+     * @param share the share of the maximum heap which the consumer may use when there is no memory pressure, between 0 and 1
+     */
+    public static void register(final Consumer consumer, final double share) {
+        if (consumer == null) return;
+        unregister(consumer);
+        consumers.add(new Registration(consumer, Math.max(0.0d, Math.min(1.0d, share))));
+    }
+
+    /**
+     * remove a consumer, i.e. when the object it represents is closed
+     * @param consumer
+     */
+    public static void unregister(final Consumer consumer) {
+        for (final Registration r: consumers) {
+            if (r.consumer == consumer) consumers.remove(r);
+        }
+    }
+
+    /**
+     * get the memory budget of a consumer. The budget is the share of the maximum heap
+     * given at registration time, reduced according to the current memory pressure.
+     * @param consumer a registered consumer
+     * @return the budget in bytes or Long.MAX_VALUE if the consumer is not registered
+     */
+    public static long budget(final Consumer consumer) {
+        for (final Registration r: consumers) {
+            if (r.consumer == consumer) return (long) (Runtime.getRuntime().maxMemory() * r.share * pressure.budgetFactor);
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the current memory pressure
+     */
+    public static Pressure pressure() {
+        return pressure;
+    }
+
+    /**
+     * @return the number of bytes which the consumers reported as released since start
+     */
+    public static long releasedBytes() {
+        return releasedBytes.sum();
+    }
+
+    /**
+     * @return the number of relief rounds since start
+     */
+    public static long reliefRounds() {
+        return reliefRounds.sum();
+    }
+
+    private static double ratio(final MemoryUsage usage) {
+        final long max = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+        return max <= 0 ? 0.0d : ((double) usage.getUsed()) / ((double) max);
+    }
+
+    private static void updatePressure(final double ratio) {
+        final Pressure p = ratio >= CRITICAL_RATIO ? Pressure.CRITICAL : ratio >= ELEVATED_RATIO ? Pressure.ELEVATED : Pressure.NORMAL;
+        if (p != pressure) log.info("MemoryGovernor: memory pressure changed from " + pressure + " to " + p + " (" + ((int) (ratio * 100.0d)) + "% used after gc)");
+        pressure = p;
+    }
+
+    private static void scheduleRelief(final long delay) {
+        final ScheduledExecutorService executor = reliever;
+        if (executor == null || executor.isShutdown()) return;
+        if (!reliefScheduled.compareAndSet(false, true)) return;
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                reliefScheduled.set(false);
+                relief();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * one relief round: compute the pressure from the usage after the last collection of the observed pools
+     * and ask the consumers to release the difference to the target usage
+     */
+    private static void relief() {
+        long needed = 0;
+        double maxRatio = 0.0d;
+        for (final MemoryPoolMXBean pool: observedPools) {
+            final MemoryUsage usage = pool.getCollectionUsage();
+            if (usage == null || usage.getMax() <= 0) continue;
+            maxRatio = Math.max(maxRatio, ratio(usage));
+            needed = Math.max(needed, usage.getUsed() - (long) (usage.getMax() * TARGET_RATIO));
+        }
+        final Pressure before = pressure;
+        updatePressure(maxRatio);
+        if (pressure == Pressure.NORMAL) {
+            if (before != Pressure.NORMAL) restore();
+            return;
+        }
+        if (needed > 0) release(needed);
+        scheduleRelief(RECHECK_MILLIS);
+    }
+
+    /**
+     * ask the registered consumers to release memory in the order of their priority.
+     * Each consumer is asked to release at most a fraction of its used memory, which depends on the pressure,
+     * so that the load is shared and no cache is cleared completely at once.
+     * @param bytes the amount of memory which shall be released
+     * @return the amount of memory which had been released according to the consumers
+     */
+    public static long release(final long bytes) {
+        final List<Registration> ordered = new ArrayList<>(consumers);
+        ordered.sort(Comparator.comparingInt(r -> r.consumer.getPriority()));
+        final double fraction = Math.max(Pressure.ELEVATED.shrinkFraction, pressure.shrinkFraction);
+        long released = 0;
+        for (final Registration r: ordered) {
+            if (released >= bytes) break;
+            final long used = r.consumer.getUsedBytes();
+            if (used <= 0) continue;
+            final long request = Math.min(bytes - released, Math.max(1L, (long) (used * fraction)));
+            try {
+                final long freed = r.consumer.shrink(request);
+                released += freed;
+                if (freed > 0 && log.isFine()) log.fine("MemoryGovernor: " + r.consumer.getName() + " released " + (freed / 1024L) + " KB");
+            } catch (final Throwable e) {
+                log.warn("MemoryGovernor: shrinking " + r.consumer.getName() + " failed: " + e.getMessage(), e);
+            }
+        }
+        releasedBytes.add(released);
+        reliefRounds.increment();
+        if (released > 0) log.info("MemoryGovernor: released " + (released / 1024L / 1024L) + " MB of requested " + (bytes / 1024L / 1024L) + " MB at pressure " + pressure);
+        return released;
+    }
+
+    /**
+     * ask the registered consumers to restore what they had released, in the reverse order of their priority
+     */
+    public static void restore() {
+        final List<Registration> ordered = new ArrayList<>(consumers);
+        ordered.sort(Comparator.comparingInt((Registration r) -> r.consumer.getPriority()).reversed());
+        for (final Registration r: ordered) {
+            try {
+                r.consumer.restore();
+            } catch (final Throwable e) {
+                log.warn("MemoryGovernor: restoring " + r.consumer.getName() + " failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+}
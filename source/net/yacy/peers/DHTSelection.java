@@ -27,6 +27,7 @@ package net.yacy.peers;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -152,6 +153,35 @@ public class DHTSelection {
         return seeds;
     }
 
+    /**
+     * select the candidate peers for a remote RWI search grouped by DHT partitions: for each word and each vertical
+     * partition the redundant peers which store the references of the word in that partition. Within a partition
+     * the peers are ordered by their observed latency and success rate, fastest first; peers with a similar latency
+     * are ordered randomly to distribute the load on the whole YaCy network.
+     * @param seedDB the seeds database.
+     * @param wordhashes hashes of the words we are searching for
+     * @param minage the minimum age of each seed in days
+     * @param minWordCount the minimum RWI words count of each seed
+     * @param maxredundancy the maximum number of candidate peers for each partition
+     * @param random a random generator instance
+     * @return a list of partitions, each partition is a non-empty list of candidate seeds
+     */
+    public static List<List<Seed>> selectDHTSearchPartitions(final SeedDB seedDB, final HandleSet wordhashes, final int minage, final int minWordCount, final int maxredundancy, final Random random) {
+        final List<List<Seed>> partitions = new ArrayList<>();
+        if (seedDB == null) return partitions;
+        final Iterator<byte[]> iter = wordhashes.iterator();
+        while (iter.hasNext()) {
+            final byte[] wordhash = iter.next();
+            for (int verticalPosition = 0; verticalPosition < seedDB.scheme.verticalPartitions(); verticalPosition++) {
+                final ArrayList<Seed> seeds = selectVerticalDHTPositions(seedDB, wordhash, minage, minWordCount, maxredundancy, verticalPosition);
+                if (seeds.isEmpty()) continue;
+                Collections.shuffle(seeds, random);
+                partitions.add(seedDB.latencyStats.fastestFirst(seeds));
+            }
+        }
+        return partitions;
+    }
+
     private static ArrayList<Seed> collectHorizontalDHTPositions(final SeedDB seedDB, final byte[] wordhash, final int minage, final int minWordCount, final int redundancy, final int maxredundancy, final Random random) {
         // this method is called from the search target computation
         ArrayList<Seed> collectedSeeds = new ArrayList<>(redundancy * seedDB.scheme.verticalPartitions());
@@ -245,121 +275,16 @@ public class DHTSelection {
 
     /**
      * returns an enumeration of yacySeed-Objects that have the AcceptRemoteIndex-Flag set
-     * the seeds are enumerated in the right order according to the DHT
+     * the seeds are enumerated in the right order according to the DHT, starting at the starthash and rotating at the end of the ring.
+     * The seeds are taken from the ring snapshot of the seed database, the start position is found with a binary search.
      * @param seedDB
      * @param starthash
      * @param max
-     * @param alsoMyOwn
+     * @param alsoMyOwn if true, the own seed is enumerated at its DHT position regardless of its AcceptRemoteIndex-Flag
      * @return
      */
     public static Iterator<Seed> getAcceptRemoteIndexSeeds(final SeedDB seedDB, final byte[] starthash, final int max, final boolean alsoMyOwn) {
-        return new acceptRemoteIndexSeedEnum(seedDB, starthash, Math.min(max, seedDB.sizeConnected()), alsoMyOwn);
-    }
-
-    private static class acceptRemoteIndexSeedEnum extends LookAheadIterator<Seed> implements Iterator<Seed>, Iterable<Seed> {
-
-        private final Iterator<Seed> se;
-        private final SeedDB seedDB;
-        private int remaining;
-        private final boolean alsoMyOwn;
-
-        private acceptRemoteIndexSeedEnum(SeedDB seedDB, final byte[] starthash, int max, boolean alsoMyOwn) {
-            this.seedDB = seedDB;
-            this.se = new seedDHTEnum(seedDB, starthash, alsoMyOwn);
-            this.remaining = max;
-            this.alsoMyOwn = alsoMyOwn;
-        }
-
-        @Override
-        protected Seed next0() {
-            if (this.remaining <= 0) return null;
-            Seed s = null;
-            try {
-                while (this.se.hasNext()) {
-                    s = this.se.next();
-                    if (s == null) return null;
-                    if (s.getFlagAcceptRemoteIndex() ||
-                        (this.alsoMyOwn && s.hash.equals(this.seedDB.mySeed().hash)) // Accept own peer regardless of FlagAcceptRemoteIndex
-                       ) {
-                        this.remaining--;
-                        break;
-                    }
-                }
-                return s;
-            } catch (final kelondroException e) {
-                System.out.println("DEBUG acceptRemoteIndexSeedEnum:" + e.getMessage());
-                Network.log.severe("database inconsistency (" + e.getMessage() + "), re-set of db.");
-                this.seedDB.resetActiveTable();
-                return null;
-            }
-        }
-
-    }
-    
-    private static class seedDHTEnum implements Iterator<Seed> {
-
-        private Iterator<Seed> e;
-        private int steps;
-        private final SeedDB seedDB;
-        private boolean alsoMyOwn;
-        private int pass, insertOwnInPass;
-        private Seed nextSeed;
-
-        private seedDHTEnum(final SeedDB seedDB, final byte[] firstHash, final boolean alsoMyOwn) {
-            this.seedDB = seedDB;
-            this.steps = seedDB.sizeConnected() + ((alsoMyOwn) ? 1 : 0);
-            this.e = seedDB.seedsConnected(true, false, firstHash, yacyVersion.YACY_HANDLES_COLLECTION_INDEX);
-            this.pass = 1;
-            this.alsoMyOwn = alsoMyOwn;
-            if (alsoMyOwn) {
-                this.insertOwnInPass = (Base64Order.enhancedCoder.compare(ASCII.getBytes(seedDB.mySeed().hash), firstHash) > 0) ? 1 : 2;
-            } else {
-                this.insertOwnInPass = 0;
-            }
-            this.nextSeed = nextInternal();
-        }
-
-        @Override
-        public boolean hasNext() {
-            return (this.nextSeed != null) || this.alsoMyOwn;
-        }
-
-        public Seed nextInternal() {
-            if (this.steps == 0) return null;
-            this.steps--;
-
-            if (!this.e.hasNext() && this.pass == 1) {
-                // rotate from the beginning; this closes the ordering of the DHT at the ends
-                this.e = this.seedDB.seedsConnected(true, false, null, yacyVersion.YACY_HANDLES_COLLECTION_INDEX);
-                this.pass = 2;
-            }
-            if (this.e.hasNext()) {
-                return this.e.next();
-            }
-            this.steps = 0;
-            return null;
-        }
-
-        @Override
-        public Seed next() {
-            if (this.alsoMyOwn &&
-                ((this.pass > this.insertOwnInPass) ||
-                 (this.pass == this.insertOwnInPass && this.nextSeed == null) || // Own hash is last in line
-                 (this.pass == this.insertOwnInPass && this.nextSeed != null && (Base64Order.enhancedCoder.compare(ASCII.getBytes(this.seedDB.mySeed().hash), ASCII.getBytes(this.nextSeed.hash)) < 0)))
-               ) {
-                // take my own seed hash instead the enumeration result
-                this.alsoMyOwn = false;
-                return this.seedDB.mySeed();
-            }
-            final Seed next = this.nextSeed;
-            this.nextSeed = nextInternal();
-            return next;
-        }
-
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
-        }
+        return seedDB.dhtRing().iterator(Distribution.horizontalDHTPosition(starthash), max, alsoMyOwn ? seedDB.mySeed() : null);
     }
 
     /**
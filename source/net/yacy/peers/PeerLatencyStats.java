@@ -0,0 +1,190 @@
+/**
+ *  PeerLatencyStats
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Observed response behaviour of remote peers: for each peer the latency of remote search requests
+ * and the rate of successful requests are tracked as exponentially weighted moving averages (EWMA).
+ * The statistics are used to ask the fastest of the redundant peers of a DHT partition first.
+ * Peers without observations get the average latency of all observed peers, so that new peers are
+ * neither preferred nor avoided.
+ */
+public class PeerLatencyStats {
+
+    /** the weight of a new observation in the moving averages */
+    public static final double DEFAULT_ALPHA = 0.2d;
+
+    /** the assumed latency if no peer has been observed yet */
+    public static final double DEFAULT_LATENCY = 1000.0d;
+
+    /** the success rate is bounded below by this value to keep the expected latency finite */
+    private static final double MIN_SUCCESS = 0.05d;
+
+    /** peers with expected latencies which differ less than this factor are treated as equally fast */
+    public static final double LATENCY_BUCKET_FACTOR = 1.5d;
+    private static final double LOG_LATENCY_BUCKET_FACTOR = Math.log(LATENCY_BUCKET_FACTOR);
+
+    /** the number of peers with statistics is limited to this size; if it is exceeded, the statistics are cleared */
+    private static final int MAX_PEERS = 100000;
+
+    private static class Entry {
+        private double latency, success;
+        private int samples;
+    }
+
+    private final Map<String, Entry> stats;
+    private final double alpha;
+
+    public PeerLatencyStats() {
+        this(DEFAULT_ALPHA);
+    }
+
+    /**
+     * @param alpha the weight of a new observation in the moving averages, 0 < alpha <= 1
+     */
+    public PeerLatencyStats(final double alpha) {
+        if (alpha <= 0.0d || alpha > 1.0d) throw new IllegalArgumentException("alpha = " + alpha);
+        this.stats = new ConcurrentHashMap<>();
+        this.alpha = alpha;
+    }
+
+    /**
+     * record the outcome of a request to a peer
+     * @param peerhash the hash of the peer
+     * @param latency the time in milliseconds from sending the request until the response or the failure
+     * @param success true if the peer sent a valid response
+     */
+    public void record(final String peerhash, final long latency, final boolean success) {
+        if (peerhash == null) return;
+        if (this.stats.size() > MAX_PEERS) this.stats.clear();
+        final Entry e = this.stats.computeIfAbsent(peerhash, k -> new Entry());
+        synchronized (e) {
+            if (e.samples == 0) {
+                e.latency = latency;
+                e.success = success ? 1.0d : 0.0d;
+            } else {
+                e.latency += this.alpha * (latency - e.latency);
+                e.success += this.alpha * ((success ? 1.0d : 0.0d) - e.success);
+            }
+            e.samples++;
+        }
+    }
+
+    /**
+     * @param peerhash the hash of the peer
+     * @return the moving average of the latency in milliseconds or -1 if the peer was never observed
+     */
+    public double latency(final String peerhash) {
+        final Entry e = this.stats.get(peerhash);
+        if (e == null) return -1.0d;
+        synchronized (e) {
+            return e.latency;
+        }
+    }
+
+    /**
+     * @param peerhash the hash of the peer
+     * @return the moving average of the success rate between 0 and 1 or -1 if the peer was never observed
+     */
+    public double successRate(final String peerhash) {
+        final Entry e = this.stats.get(peerhash);
+        if (e == null) return -1.0d;
+        synchronized (e) {
+            return e.success;
+        }
+    }
+
+    /**
+     * @param peerhash the hash of the peer
+     * @return the number of recorded requests to the peer
+     */
+    public int samples(final String peerhash) {
+        final Entry e = this.stats.get(peerhash);
+        if (e == null) return 0;
+        synchronized (e) {
+            return e.samples;
+        }
+    }
+
+    /**
+     * @return the average latency of all observed peers or DEFAULT_LATENCY if no peer was observed
+     */
+    public double averageLatency() {
+        double sum = 0.0d;
+        int count = 0;
+        for (final Entry e: this.stats.values()) {
+            synchronized (e) {
+                sum += e.latency;
+            }
+            count++;
+        }
+        return count == 0 ? DEFAULT_LATENCY : sum / count;
+    }
+
+    /**
+     * the expected time until a peer delivers a successful response, which is the latency divided by the success rate
+     * @param peerhash the hash of the peer
+     * @param unknownLatency the latency which is assumed for peers which were never observed
+     * @return the expected latency in milliseconds
+     */
+    public double expectedLatency(final String peerhash, final double unknownLatency) {
+        final Entry e = this.stats.get(peerhash);
+        if (e == null) return unknownLatency;
+        synchronized (e) {
+            return e.latency / Math.max(MIN_SUCCESS, e.success);
+        }
+    }
+
+    /**
+     * order peers by their expected latency, fastest first. The expected latencies are grouped in buckets
+     * which grow by the factor LATENCY_BUCKET_FACTOR; the given order of peers within the same bucket is kept,
+     * so that a random order of the input distributes the load among peers with a similar latency.
+     * @param seeds the peers
+     * @return a new list with the ordered peers
+     */
+    public List<Seed> fastestFirst(final Collection<Seed> seeds) {
+        final double unknownLatency = this.averageLatency();
+        final Map<String, Long> bucket = new HashMap<>();
+        for (final Seed seed: seeds) {
+            final double expected = Math.max(1.0d, this.expectedLatency(seed.hash, unknownLatency));
+            bucket.put(seed.hash, Math.round(Math.log(expected) / LOG_LATENCY_BUCKET_FACTOR));
+        }
+        final List<Seed> ordered = new ArrayList<>(seeds);
+        ordered.sort(Comparator.comparingLong(seed -> bucket.get(seed.hash).longValue()));
+        return ordered;
+    }
+
+    public int size() {
+        return this.stats.size();
+    }
+
+    public void clear() {
+        this.stats.clear();
+    }
+}
@@ -53,6 +53,7 @@ import java.time.DateTimeException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -63,6 +64,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -487,7 +492,17 @@ public final class Protocol {
         return feed;
     }
 
-    protected static int primarySearch(
+    /**
+     * send a search request to a peer without blocking the calling thread: the request is sent with the non-blocking
+     * http client and the response is processed in the given executor, where the results are added to the search event
+     * and the index abstracts are handed over to the secondary search superviser.
+     * The addresses of the peer are asked one after another until one of them answers.
+     * When the returned future is cancelled before the response arrived, the response is not processed.
+     * @param processor the executor which processes the response
+     * @return a future of the number of results which the peer announced; it completes with -1 if the peer did not answer
+     *         and exceptionally with an InterruptedException if the processing was interrupted
+     */
+    protected static CompletableFuture<Integer> primarySearchAsync(
         final SearchEvent event,
         final String wordhashes,
         final String excludehashes,
@@ -500,106 +515,138 @@ public final class Protocol {
         final int partitions,
         final Seed target,
         final SecondarySearchSuperviser secondarySearchSuperviser,
-        final Blacklist blacklist) throws InterruptedException {
-        // send a search request to peer with remote Hash
-
-        // INPUT:
-        // iam        : complete seed of the requesting peer
-        // youare     : seed hash of the target peer, used for testing network stability
-        // key        : transmission key for response
-        // search     : a list of search words
-        // hsearch    : a string of word hashes
-        // fwdep      : forward depth. if "0" then peer may NOT ask another peer for more results
-        // fwden      : forward deny, a list of seed hashes. They may NOT be target of forward hopping
-        // count      : maximum number of wanted results
-        // global     : if "true", then result may consist of answers from other peers
-        // partitions : number of remote peers that are asked (for evaluation of QPM)
-        // duetime    : maximum time that a peer should spent to create a result
+        final Blacklist blacklist,
+        final Executor processor) {
+        // send a search request to peer with remote Hash, see SearchResult for the request parameters
 
         final long timestamp = System.currentTimeMillis();
+        final Set<String> targetIPs = target.getIPs(); // a new set, so failing addresses may be removed from the seed meanwhile
+        if (targetIPs.isEmpty()) return CompletableFuture.completedFuture(-1);
+        // a peer with our own address is asked only once on localhost
+        final boolean local = target.clash(event.peers.mySeed().getIPs());
+        final Iterator<String> ips = local ? Collections.singleton(targetIPs.iterator().next()).iterator() : targetIPs.iterator();
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final Callable<Map<String, ContentBody>> requestParts = () -> {
+            final Map<String, ContentBody> parts = basicRequestParts(Switchboard.getSwitchboard(), target.hash, crypt.randomSalt());
+            SearchResult.requestParts(event, parts, wordhashes, excludehashes, "", language, contentdom, strictContentDom, count, time, maxDistance, partitions, secondarySearchSuperviser);
+            return parts;
+        };
+        final CompletableFuture<byte[]> response = primarySearchRequest(event, target, ips, local, requestParts, cancelled);
         event.addExpectedRemoteReferences(count);
-        SearchResult result = null;
-        for (String ip: target.getIPs()) {
-            //if (ip.indexOf(':') >= 0) System.out.println("Search target: IPv6: " + ip);
-            final String targetBaseURL;
-            if (target.clash(event.peers.mySeed().getIPs())) {
-                targetBaseURL = "http://localhost:" + event.peers.mySeed().getPort();
-            } else {
-                targetBaseURL = target.getPublicURL(ip,
-                        Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.REMOTESEARCH_HTTPS_PREFERRED,
-                                SwitchboardConstants.REMOTESEARCH_HTTPS_PREFERRED_DEFAULT));
-            }
+        // the statistics are recorded when the last address answered or failed, also if the request was cancelled meanwhile
+        response.whenComplete((a, e) -> event.peers.latencyStats.record(target.hash, System.currentTimeMillis() - timestamp, e == null && a != null));
+
+        final CompletableFuture<Integer> processed = response.handleAsync((a, e) -> {
+            final SearchResult result;
             try {
-                result =
-                    new SearchResult(
-                        event,
-                        basicRequestParts(Switchboard.getSwitchboard(), target.hash, crypt.randomSalt()),
-                        wordhashes,
-                        excludehashes,
-                        "",
-                        language,
-                        contentdom,
-                        strictContentDom,
-                        count,
-                        time,
-                        maxDistance,
-                        partitions,
-                        target.getHexHash() + ".yacyh",
-                        targetBaseURL,
-                        secondarySearchSuperviser
-                        );
-                break;
-            } catch (final IOException e ) {
-                Network.log.info("SEARCH failed, Peer: " + target.hash + ":" + target.getName() + " (" + e.getMessage() + ")");
-                if(targetBaseURL.startsWith("https")) {
-                    /* First mark https unavailable on this peer before removing any interface */
-                    target.setFlagSSLAvailable(false);
-                    event.peers.updateConnected(target);
-                } else {
-                    event.peers.peerActions.interfaceDeparture(target, ip);
-                }
+                if (e != null) throw e instanceof CompletionException && e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getMessage(), e);
+                if (a == null) throw new IOException("no address of the peer answered");
+                result = new SearchResult(a);
+            } catch (final IOException ee) {
+                Network.log.info("SEARCH failed, Peer: " + target.hash + ":" + target.getName() + " (" + ee.getMessage() + ")");
+                event.addExpectedRemoteReferences(-count);
                 return -1;
             }
-        }
-        if (result == null) return -1;
 
-        // computation time
-        final long totalrequesttime = System.currentTimeMillis() - timestamp;
+            // computation time
+            final long totalrequesttime = System.currentTimeMillis() - timestamp;
 
-        try {
-            remoteSearchProcess(event, count, totalrequesttime, wordhashes, target, blacklist, result);
-        } catch (final SpaceExceededException e) {
-            ConcurrentLog.logException(e);
-            return -1;
-        }
+            try {
+                remoteSearchProcess(event, count, totalrequesttime, wordhashes, target, blacklist, result);
+            } catch (final SpaceExceededException ee) {
+                ConcurrentLog.logException(ee);
+                return -1;
+            } catch (final InterruptedException ee) {
+                throw new CompletionException(ee);
+            }
 
-        // read index abstract
-        if ( secondarySearchSuperviser != null ) {
-            String wordhash;
-            String whacc = "";
-            ByteBuffer ci;
-            int ac = 0;
-            for ( final Map.Entry<byte[], String> abstractEntry : result.indexabstract.entrySet() ) {
-                try {
-                    ci = new ByteBuffer(abstractEntry.getValue());
-                    wordhash = ASCII.String(abstractEntry.getKey());
-                } catch (final OutOfMemoryError e ) {
-                    ConcurrentLog.logException(e);
-                    continue;
-                }
-                whacc += wordhash;
-                secondarySearchSuperviser.addAbstract(
-                    wordhash,
-                    WordReferenceFactory.decompressIndex(ci, target.hash));
-                ac++;
+            // read index abstract
+            if ( secondarySearchSuperviser != null ) {
+                String wordhash;
+                String whacc = "";
+                ByteBuffer ci;
+                int ac = 0;
+                for ( final Map.Entry<byte[], String> abstractEntry : result.indexabstract.entrySet() ) {
+                    try {
+                        ci = new ByteBuffer(abstractEntry.getValue());
+                        wordhash = ASCII.String(abstractEntry.getKey());
+                    } catch (final OutOfMemoryError ee ) {
+                        ConcurrentLog.logException(ee);
+                        continue;
+                    }
+                    whacc += wordhash;
+                    secondarySearchSuperviser.addAbstract(
+                        wordhash,
+                        WordReferenceFactory.decompressIndex(ci, target.hash));
+                    ac++;
 
+                }
+                if ( ac > 0 ) {
+                    secondarySearchSuperviser.commitAbstract();
+                    Network.log.info("remote search: peer " + target.getName() + " sent " + ac + " index abstracts for words " + whacc);
+                }
             }
-            if ( ac > 0 ) {
-                secondarySearchSuperviser.commitAbstract();
-                Network.log.info("remote search: peer " + target.getName() + " sent " + ac + " index abstracts for words " + whacc);
-            }
+            return result.availableCount;
+        }, processor);
+        // no further address is asked after a cancellation
+        processed.whenComplete((a, e) -> {
+            if (processed.isCancelled()) cancelled.set(true);
+        });
+        return processed;
+    }
+
+    /**
+     * send the search request to the addresses of a peer one after another: the next address is asked
+     * when the request to the previous one failed or returned no content
+     * @param ips the addresses which had not been asked yet
+     * @param local true if the peer has our own address and is asked on localhost
+     * @param requestParts a producer of the parts of the search request, called for each address
+     * @param cancelled true if the search was cancelled; then no further address is asked
+     * @return a future of the response of the first address which answered; it completes with null if no address answered
+     */
+    private static CompletableFuture<byte[]> primarySearchRequest(
+        final SearchEvent event,
+        final Seed target,
+        final Iterator<String> ips,
+        final boolean local,
+        final Callable<Map<String, ContentBody>> requestParts,
+        final AtomicBoolean cancelled) {
+        if (!ips.hasNext() || cancelled.get()) return CompletableFuture.completedFuture(null);
+        final String ip = ips.next();
+        final String targetBaseURL;
+        if (local) {
+            targetBaseURL = "http://localhost:" + event.peers.mySeed().getPort();
+        } else {
+            targetBaseURL = target.getPublicURL(ip,
+                    Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.REMOTESEARCH_HTTPS_PREFERRED,
+                            SwitchboardConstants.REMOTESEARCH_HTTPS_PREFERRED_DEFAULT));
         }
-        return result.availableCount;
+        final Map<String, ContentBody> parts;
+        try {
+            parts = requestParts.call();
+        } catch (final Exception e) {
+            // the request could not be composed; this is not a failure of the address
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<byte[]> response;
+        try (final HTTPClient httpClient = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, 8000)) {
+            response = httpClient.POSTbytesAsync(new MultiProtocolURL(targetBaseURL + "/yacy/search.html"), target.getHexHash() + ".yacyh", parts, false);
+        } catch (final IOException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        return response.handle((a, e) -> {
+            if (e == null && a != null) return CompletableFuture.completedFuture(a);
+            final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            Network.log.info("SEARCH failed, Peer: " + target.hash + ":" + target.getName() + " at " + targetBaseURL + " (" + (cause == null ? "no content" : cause.getMessage()) + ")");
+            if(targetBaseURL.startsWith("https")) {
+                /* First mark https unavailable on this peer before removing any interface */
+                target.setFlagSSLAvailable(false);
+                event.peers.updateConnected(target);
+            } else {
+                event.peers.peerActions.interfaceDeparture(target, ip);
+            }
+            return primarySearchRequest(event, target, ips, local, requestParts, cancelled);
+        }).thenCompose(f -> f);
     }
 
     protected static int secondarySearch(
@@ -651,6 +698,7 @@ public final class Protocol {
                 } else {
                     event.peers.peerActions.interfaceDeparture(target, ip);
                 }
+                event.peers.latencyStats.record(target.hash, System.currentTimeMillis() - timestamp, false);
                 return -1;
             }
         }
@@ -658,6 +706,7 @@ public final class Protocol {
 
         // computation time
         final long totalrequesttime = System.currentTimeMillis() - timestamp;
+        event.peers.latencyStats.record(target.hash, totalrequesttime, true);
 
         try {
             remoteSearchProcess(event, count, totalrequesttime, wordhashes, target, blacklist, result);
@@ -896,6 +945,10 @@ public final class Protocol {
         public List<URIMetadataNode> links; // LURLs of search
         public Map<byte[], String> indexabstract; // index abstracts, a collection of url-hashes per word
 
+        /**
+         * send a search request to a peer and parse the response
+         * @throws IOException when the request failed or the response is not valid
+         */
         public SearchResult(
             final SearchEvent event,
             final Map<String, ContentBody> parts,
@@ -913,6 +966,39 @@ public final class Protocol {
             final String targetBaseURL,
             final SecondarySearchSuperviser secondarySearchSuperviser
             ) throws IOException {
+            requestParts(event, parts, wordhashes, excludehashes, urlhashes, language, contentdom, strictContentDom, count, time, maxDistance, partitions, secondarySearchSuperviser);
+            try (final HTTPClient httpClient = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, 8000)) {
+                this.parse(httpClient.POSTbytes(new MultiProtocolURL(targetBaseURL + "/yacy/search.html"), hostname, parts, false, true));
+            }
+        }
+
+        /**
+         * parse the response of a search request
+         * @param response the response bytes
+         * @throws IOException when the response is not valid
+         */
+        public SearchResult(final byte[] response) throws IOException {
+            this.parse(response);
+        }
+
+        /**
+         * add the search parameters to the request parts of a search request
+         */
+        public static void requestParts(
+            final SearchEvent event,
+            final Map<String, ContentBody> parts,
+            final String wordhashes,
+            final String excludehashes,
+            final String urlhashes,
+            final String language,
+            final ContentDomain contentdom,
+            final boolean strictContentDom,
+            final int count,
+            final long time,
+            final int maxDistance,
+            final int partitions,
+            final SecondarySearchSuperviser secondarySearchSuperviser
+            ) throws IOException {
             // send a search request to peer with remote Hash
 
             //if (hostaddress.equals(mySeed.getClusterAddress())) hostaddress = "127.0.0.1:" + mySeed.getPort(); // for debugging
@@ -930,8 +1016,6 @@ public final class Protocol {
             // partitions : number of remote peers that are asked (for evaluation of QPM)
             // duetime    : maximum time that a peer should spent to create a result
 
-            // send request
-            Map<String, String> resultMap = null;
             String key = "";
             final ContentBody keyBody = parts.get("key");
             if (keyBody != null) {
@@ -968,15 +1052,14 @@ public final class Protocol {
                 // resultMap = FileUtils.table(HTTPConnector.getConnector(MultiProtocolURI.yacybotUserAgent).post(new MultiProtocolURI("http://" + hostaddress + "/yacy/search.html"), 60000, hostname, parts));
                 //resultMap = FileUtils.table(HTTPConnector.getConnector(MultiProtocolURI.crawlerUserAgent).post(new MultiProtocolURI("http://" + target.getClusterAddress() + "/yacy/search.html"), 60000, target.getHexHash() + ".yacyh", parts));
             }
+        }
 
-            try (final HTTPClient httpClient = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, 8000)) {
-                byte[] a = httpClient.POSTbytes(new MultiProtocolURL(targetBaseURL + "/yacy/search.html"), hostname, parts, false, true);
-                if (a != null && a.length > 200000) {
-                    // there is something wrong. This is too large, maybe a hack on the other side?
-                    a = null;
-                }
-                resultMap = FileUtils.table(a);
+        private void parse(byte[] a) throws IOException {
+            if (a != null && a.length > 200000) {
+                // there is something wrong. This is too large, maybe a hack on the other side?
+                a = null;
             }
+            final Map<String, String> resultMap = FileUtils.table(a);
 
             // evaluate request result
             if ( resultMap == null || resultMap.isEmpty() ) {
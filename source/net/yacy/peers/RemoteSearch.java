@@ -26,11 +26,16 @@ package net.yacy.peers;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.solr.client.solrj.SolrQuery;
 
@@ -53,9 +58,8 @@ import net.yacy.search.query.SecondarySearchSuperviser;
 /**
  * Handle remote YaCy peers selection and search requests on them, targeting either their Solr index or RWI (Reverse Word Index)
  */
-public class RemoteSearch extends Thread {
+public class RemoteSearch {
 
-    private static final ThreadGroup ysThreadGroup = new ThreadGroup("yacySearchThreadGroup");
     public static final ConcurrentLog log = new ConcurrentLog("DHT");
     
     final private SearchEvent event;
@@ -66,9 +70,10 @@ public class RemoteSearch extends Thread {
     final private SecondarySearchSuperviser secondarySearchSuperviser;
     final private Blacklist blacklist;
     
-    /** The target peer of this search Thread */
+    /** The target peer of this search request */
     final private Seed targetPeer;
     private int urls;
+    private volatile CompletableFuture<Integer> future;
     private final int count, maxDistance;
     private final long time;
     final private String language;
@@ -87,7 +92,6 @@ public class RemoteSearch extends Thread {
               final Seed targetPeer,
               final SecondarySearchSuperviser secondarySearchSuperviser,
               final Blacklist blacklist) {
-        super(ysThreadGroup, "yacySearch_" + targetPeer.getName());
         this.event = event;
         this.wordhashes = wordhashes;
         this.excludehashes = excludehashes;
@@ -102,43 +106,70 @@ public class RemoteSearch extends Thread {
         this.count = count;
         this.time = time;
         this.maxDistance = maxDistance;
+        this.future = null;
     }
 
     /**
      * Run a search request on a YaCy peer RWI (Reverse Word Index).
+     * The request is sent without blocking and the response is processed in the pool of the RemoteSearchFanout.
+     * @return a future of the number of results of the peer, which is negative if the peer did not answer
      */
-    @Override
-    public void run() {
+    public CompletableFuture<Integer> start() {
         this.event.oneFeederStarted();
-        try {
-            this.urls = Protocol.primarySearch(
-                        this.event,
-                        this.wordhashes,
-                        this.excludehashes,
-                        this.language,
-                        this.contentdom,
-                        this.strictContentDom,
-                        this.count,
-                        this.time,
-                        this.maxDistance,
-                        this.partitions,
-                        this.targetPeer,
-                        this.secondarySearchSuperviser,
-                        this.blacklist);
-            if (this.urls >= 0) {
-                // urls is an array of url hashes. this is only used for log output
-                this.event.peers.mySeed().incRI(this.urls);
-                this.event.peers.mySeed().incRU(this.urls);
-            } else {
-                Network.log.info("REMOTE SEARCH - no answer from remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
+        this.future = Protocol.primarySearchAsync(
+                    this.event,
+                    this.wordhashes,
+                    this.excludehashes,
+                    this.language,
+                    this.contentdom,
+                    this.strictContentDom,
+                    this.count,
+                    this.time,
+                    this.maxDistance,
+                    this.partitions,
+                    this.targetPeer,
+                    this.secondarySearchSuperviser,
+                    this.blacklist,
+                    RemoteSearchFanout.processor);
+        this.future.whenComplete((urls, e) -> {
+            try {
+                if (e == null) {
+                    this.urls = urls.intValue();
+                    if (this.urls >= 0) {
+                        // urls is an array of url hashes. this is only used for log output
+                        this.event.peers.mySeed().incRI(this.urls);
+                        this.event.peers.mySeed().incRU(this.urls);
+                    } else {
+                        Network.log.info("REMOTE SEARCH - no answer from remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
+                    }
+                } else if (e instanceof CancellationException) {
+                    Network.log.info("REMOTE SEARCH - cancelled search to remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
+                } else if (e instanceof CompletionException && e.getCause() instanceof InterruptedException) {
+                    Network.log.info("REMOTE SEARCH - interrupted search to remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
+                } else {
+                    ConcurrentLog.logException(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                }
+            } finally {
+                this.event.oneFeederTerminated();
             }
-        } catch(InterruptedException e) {
-        	Network.log.info("REMOTE SEARCH - interrupted search to remote peer " + this.targetPeer.hash + ":" + this.targetPeer.getName());
-        } catch (final Exception e) {
-            ConcurrentLog.logException(e);
-        } finally {
-            this.event.oneFeederTerminated();
-        }
+        });
+        return this.future;
+    }
+
+    /**
+     * @return true if the request was started and is not finished
+     */
+    public boolean isAlive() {
+        final CompletableFuture<Integer> f = this.future;
+        return f != null && !f.isDone();
+    }
+
+    /**
+     * cancel the request; if the response is already processed, the processing is not stopped
+     */
+    public void interrupt() {
+        final CompletableFuture<Integer> f = this.future;
+        if (f != null) f.cancel(true);
     }
 
     /**
@@ -154,7 +185,7 @@ public class RemoteSearch extends Thread {
     }
 
     /**
-     * @return the target peer of this search Thread
+     * @return the target peer of this search request
      */
     public Seed target() {
         return this.targetPeer;
@@ -199,58 +230,55 @@ public class RemoteSearch extends Thread {
         if (shortmem) {redundancy = 1; robinsoncount = Math.max(1, robinsoncount / 2); healthMessage.append(", shortmem");}
         
         
-        // prepare seed targets and threads
+        // prepare seed targets: the candidate peers for each DHT partition, fastest first
         Random random = new Random(System.currentTimeMillis());
-        Collection<Seed> dhtPeers = null;
+        List<List<Seed>> dhtPartitions = null;
+        int maxRequests = Integer.MAX_VALUE;
         if (clusterselection != null) {
-            dhtPeers = DHTSelection.selectClusterPeers(event.peers, clusterselection);
+            dhtPartitions = singlePeerPartitions(DHTSelection.selectClusterPeers(event.peers, clusterselection));
         } else {
             if (event.query.getQueryGoal().isCatchall() || event.query.getQueryGoal().getIncludeHashes().has(Segment.catchallHash)) {
                 if (event.query.modifier.sitehost != null && event.query.modifier.sitehost.length() > 0) {
                     // select peers according to host name, not the query goal
                     String newGoal = Domains.getSmartSLD(event.query.modifier.sitehost);
-                    dhtPeers = DHTSelection.selectDHTSearchTargets(
+                    dhtPartitions = DHTSelection.selectDHTSearchPartitions(
                             event.peers,
                             QueryParams.hashes2Set(ASCII.String(Word.word2hash(newGoal))),
                             minage,
                             minRWIWordCount,
-                            redundancy, event.peers.redundancy(),
+                            event.peers.redundancy(),
                             random);
                 } else {
                     // select just random peers
-                    dhtPeers = DHTSelection.seedsByAge(event.peers, false, event.peers.redundancy(), minRWIWordCount).values();
+                    dhtPartitions = singlePeerPartitions(DHTSelection.seedsByAge(event.peers, false, event.peers.redundancy(), minRWIWordCount).values());
                 }
             } else {
-                dhtPeers = DHTSelection.selectDHTSearchTargets(
+                dhtPartitions = DHTSelection.selectDHTSearchPartitions(
                                 event.peers,
                                 event.query.getQueryGoal().getIncludeHashes(),
                                 minage,
                                 minRWIWordCount,
-                                redundancy, event.peers.redundancy(),
+                                event.peers.redundancy(),
                                 random);
-                // this set of peers may be too large and consume too many threads if more than one word is searched.
-                // to prevent overloading, we do a subset collection based on random to prevent the death of the own peer
-                // and to do a distributed load-balancing on the target peers
-                long targetSize = 1 + redundancy * event.peers.scheme.verticalPartitions(); // this is the maximum for one word plus one
-                if (dhtPeers.size() > targetSize) {
-                    ArrayList<Seed> pa = new ArrayList<Seed>(dhtPeers.size());
-                    pa.addAll(dhtPeers);
-                    dhtPeers.clear();
-                    for (int i = 0; i < targetSize; i++) dhtPeers.add(pa.remove(random.nextInt(pa.size())));
-                }
+                // the number of partitions may be too large if more than one word is searched.
+                // to prevent overloading, we limit the number of requests and ask the partitions in random order
+                // to do a distributed load-balancing on the target peers
+                maxRequests = 1 + redundancy * event.peers.scheme.verticalPartitions(); // this is the maximum for one word plus one
+                Collections.shuffle(dhtPartitions, random);
             }
         }
-        if (dhtPeers == null) dhtPeers = new HashSet<Seed>();
+        if (dhtPartitions == null) dhtPartitions = new ArrayList<>();
+        if (event.peers != null && sb.getConfigBool(SwitchboardConstants.DEBUG_SEARCH_REMOTE_DHT_TESTLOCAL, false)) {
+            dhtPartitions = singlePeerPartitions(Collections.singletonList(event.peers.mySeed()));
+            maxRequests = Integer.MAX_VALUE;
+        }
+        final Set<Seed> dhtPeers = new LinkedHashSet<>();
+        for (final List<Seed> partition: dhtPartitions) dhtPeers.addAll(partition);
 
         // select node targets
         final Collection<Seed> robinsonPeers = DHTSelection.selectExtraTargets(event.peers, event.query.getQueryGoal().getIncludeHashes(), minage, dhtPeers, robinsoncount, random);
         
         if (event.peers != null) {
-            if (sb.getConfigBool(SwitchboardConstants.DEBUG_SEARCH_REMOTE_DHT_TESTLOCAL, false)) {
-                dhtPeers.clear();
-                dhtPeers.add(event.peers.mySeed());
-            }
-            
             if (sb.getConfigBool(SwitchboardConstants.DEBUG_SEARCH_REMOTE_SOLR_TESTLOCAL, false)) {
                 robinsonPeers.clear();
                 robinsonPeers.add(event.peers.mySeed());
@@ -258,7 +286,7 @@ public class RemoteSearch extends Thread {
         }
         
         log.info("preparing remote search: shortmem=" + (shortmem ? "true" : "false") + ", indexingQueueSize=" + indexingQueueSize +
-                ", redundancy=" + redundancy + ", minage=" + minage + ", dhtPeers=" + dhtPeers.size() + ", robinsonpeers=" + robinsonPeers.size() + ", health: " + (healthMessage.length() > 0 ? healthMessage.substring(2) : "perfect"));
+                ", redundancy=" + redundancy + ", minage=" + minage + ", dhtPeers=" + dhtPeers.size() + ", dhtPartitions=" + dhtPartitions.size() + ", robinsonpeers=" + robinsonPeers.size() + ", health: " + (healthMessage.length() > 0 ? healthMessage.substring(2) : "perfect"));
 
         /* Computing Solr facets is not relevant for remote Solr results and adds unnecessary CPU load on remote peers :
          * facets count the total number of matching results per facet field, but we only fetch here at most 'count' results. The remaining part
@@ -269,7 +297,7 @@ public class RemoteSearch extends Thread {
         final boolean useFacets = false;
         
         // start solr searches
-        final int targets = dhtPeers.size() + robinsonPeers.size();
+        final int targets = Math.min(maxRequests, dhtPeers.size()) + robinsonPeers.size();
         if (!sb.getConfigBool(SwitchboardConstants.DEBUG_SEARCH_REMOTE_SOLR_OFF, false)) {
 			final SolrQuery solrQuery = event.query.solrQuery(event.getQuery().contentdom,
 					event.query.isStrictContentDom(), useFacets, event.excludeintext_image);
@@ -286,36 +314,55 @@ public class RemoteSearch extends Thread {
         
         // start search to YaCy DHT peers
         if (!sb.getConfigBool(SwitchboardConstants.DEBUG_SEARCH_REMOTE_DHT_OFF, false)) {
-            for (Seed dhtPeer: dhtPeers) {
-                if (dhtPeer == null || dhtPeer.hash == null) continue;
-				if (MemoryControl.shortStatus()
-						|| Memory.getSystemLoadAverage() > sb.getConfigFloat(SwitchboardConstants.REMOTESEARCH_MAXLOAD_RWI,
-								SwitchboardConstants.REMOTESEARCH_MAXLOAD_RWI_DEFAULT)) {
-					continue;
-				}
-                try {
-                    RemoteSearch rs = new RemoteSearch(
-                        event,
-                        QueryParams.hashSet2hashString(event.query.getQueryGoal().getIncludeHashes()),
-                        QueryParams.hashSet2hashString(event.query.getQueryGoal().getExcludeHashes()),
-                        event.query.targetlang == null ? "" : event.query.targetlang,
-                        event.query.contentdom == null ? ContentDomain.ALL : event.query.contentdom,
-                        event.query.isStrictContentDom(),
-                        count,
-                        time,
-                        event.query.maxDistance,
-                        targets,
-                        dhtPeer,
-                        event.secondarySearchSuperviser,
-                        blacklist);
-                    rs.start();
-                    event.primarySearchThreadsL.add(rs);
-                } catch (final OutOfMemoryError e) {
-                    ConcurrentLog.logException(e);
-                    break;
-                }
-            }
+            final String wordhashes = QueryParams.hashSet2hashString(event.query.getQueryGoal().getIncludeHashes());
+            final String excludehashes = QueryParams.hashSet2hashString(event.query.getQueryGoal().getExcludeHashes());
+            final String language = event.query.targetlang == null ? "" : event.query.targetlang;
+            final ContentDomain contentdom = event.query.contentdom == null ? ContentDomain.ALL : event.query.contentdom;
+            // when half of the partitions returned a full page of results, the remaining requests are not waited for
+            final int enoughResults = Math.max(count, event.query.neededResults()) * Math.max(1, event.peers.scheme.verticalPartitions() / 2);
+            final RemoteSearchFanout fanout = new RemoteSearchFanout(dhtPartitions, redundancy, maxRequests, enoughResults,
+                    RemoteSearchFanout.getHedgeDelay(), event.peers.latencyStats, dhtPeer -> {
+                        if (dhtPeer == null || dhtPeer.hash == null) return null;
+                        if (MemoryControl.shortStatus()
+                                || Memory.getSystemLoadAverage() > sb.getConfigFloat(SwitchboardConstants.REMOTESEARCH_MAXLOAD_RWI,
+                                        SwitchboardConstants.REMOTESEARCH_MAXLOAD_RWI_DEFAULT)) {
+                            return null;
+                        }
+                        final RemoteSearch rs = new RemoteSearch(
+                            event,
+                            wordhashes,
+                            excludehashes,
+                            language,
+                            contentdom,
+                            event.query.isStrictContentDom(),
+                            count,
+                            time,
+                            event.query.maxDistance,
+                            targets,
+                            dhtPeer,
+                            event.secondarySearchSuperviser,
+                            blacklist);
+                        event.primarySearchThreadsL.add(rs);
+                        return rs.start();
+                    });
+            // the fan-out is a feeder until the last hedged request is finished
+            event.oneFeederStarted();
+            fanout.finished().whenComplete((v, e) -> event.oneFeederTerminated());
+            fanout.start();
+        }
+    }
+
+    /**
+     * @param seeds peers which are not grouped by DHT partitions
+     * @return a list of partitions with one peer each
+     */
+    private static List<List<Seed>> singlePeerPartitions(final Collection<Seed> seeds) {
+        final List<List<Seed>> partitions = new ArrayList<>(seeds.size());
+        for (final Seed seed: seeds) {
+            if (seed == null || seed.hash == null) continue;
+            partitions.add(Collections.singletonList(seed));
         }
+        return partitions;
     }
 
     public static Thread secondaryRemoteSearch(
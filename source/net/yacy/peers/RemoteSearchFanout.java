@@ -0,0 +1,330 @@
+/**
+ *  RemoteSearchFanout
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import net.yacy.cora.util.Memory;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * The fan-out of the remote RWI search requests of one search event to the DHT partitions.
+ * For each partition the redundant peers are given in the order in which they shall be asked, usually fastest first.
+ * At start only the first peer of each partition is asked. If a peer fails, the next peer of the partition is asked
+ * immediately; if a peer does not answer within the hedge delay, which is derived from the observed latency of the peer,
+ * a hedged request is sent to the next peer of the partition, up to the redundancy of the search.
+ * As soon as one peer of a partition answered, the requests which are still running for that partition are stragglers
+ * and are cancelled, unless they are needed for another partition. When the peers returned enough results,
+ * all running requests are cancelled.
+ * The requests are non-blocking: no thread waits for a remote peer, the responses are processed in a shared bounded pool.
+ */
+public class RemoteSearchFanout {
+
+    /** the minimum time in milliseconds until a hedged request is sent to the next peer of a partition */
+    public static final long DEFAULT_HEDGE_DELAY = 1000;
+
+    private static volatile long hedgeDelay = DEFAULT_HEDGE_DELAY;
+
+    /** threads which process the responses of the remote peers */
+    public static final ThreadPoolExecutor processor = initProcessor();
+
+    /** the timer for the hedged requests */
+    private static final ScheduledThreadPoolExecutor timer = initTimer();
+
+    private static ThreadPoolExecutor initProcessor() {
+        final int threads = Math.max(2, (int) Memory.cores());
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory(RemoteSearch.class.getSimpleName()));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ScheduledThreadPoolExecutor initTimer() {
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread t = new Thread(r, "RemoteSearchFanout.hedge");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * set the minimum time until a hedged request is sent
+     * @param delay the delay in milliseconds
+     */
+    public static void setHedgeDelay(final long delay) {
+        hedgeDelay = Math.max(0, delay);
+    }
+
+    public static long getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    private final List<List<Seed>> partitions;
+    private final int redundancy, maxRequests, enoughResults;
+    private final long minHedgeDelay;
+    private final PeerLatencyStats stats;
+    private final Function<Seed, CompletableFuture<Integer>> starter;
+
+    private final int[] next, asked;
+    private final boolean[] answered;
+    private final ScheduledFuture<?>[] hedges;
+    /** the partitions of each peer */
+    private final Map<String, List<Integer>> peerPartitions;
+    /** the requests which were started, by peer hash */
+    private final Map<String, CompletableFuture<Integer>> requests;
+    /** the requests which were cancelled by this fan-out, by peer hash */
+    private final Set<String> cancelled;
+    private final CompletableFuture<Void> finished;
+    private int results, running;
+
+    /**
+     * @param partitions the candidate peers of each partition in the order in which they shall be asked
+     * @param redundancy the maximum number of peers which are asked in each partition
+     * @param maxRequests the maximum number of requests in total
+     * @param enoughResults the number of results after which all running requests are cancelled
+     * @param minHedgeDelay the minimum time in milliseconds until a hedged request is sent
+     * @param stats the latency statistics of the peers, used to compute the hedge delay
+     * @param starter starts the request to a peer; returns a future of the number of results of the peer,
+     *        which is negative if the peer failed, or null if the request could not be started
+     */
+    public RemoteSearchFanout(
+            final List<List<Seed>> partitions,
+            final int redundancy,
+            final int maxRequests,
+            final int enoughResults,
+            final long minHedgeDelay,
+            final PeerLatencyStats stats,
+            final Function<Seed, CompletableFuture<Integer>> starter) {
+        this.partitions = partitions;
+        this.redundancy = Math.max(1, redundancy);
+        this.maxRequests = maxRequests;
+        this.enoughResults = enoughResults;
+        this.minHedgeDelay = minHedgeDelay;
+        this.stats = stats;
+        this.starter = starter;
+        this.next = new int[partitions.size()];
+        this.asked = new int[partitions.size()];
+        this.answered = new boolean[partitions.size()];
+        this.hedges = new ScheduledFuture<?>[partitions.size()];
+        this.peerPartitions = new HashMap<>();
+        for (int p = 0; p < partitions.size(); p++) {
+            for (final Seed seed: partitions.get(p)) {
+                this.peerPartitions.computeIfAbsent(seed.hash, k -> new ArrayList<>(1)).add(p);
+            }
+        }
+        this.requests = new HashMap<>();
+        this.cancelled = new HashSet<>();
+        this.finished = new CompletableFuture<>();
+        this.results = 0;
+        this.running = 0;
+    }
+
+    /**
+     * ask the first peer of each partition
+     * @return this
+     */
+    public synchronized RemoteSearchFanout start() {
+        for (int p = 0; p < this.partitions.size(); p++) this.askNext(p);
+        this.checkFinished();
+        return this;
+    }
+
+    /**
+     * ask the next peer of a partition and schedule a hedged request to the following peer
+     * @param p the partition
+     */
+    private void askNext(final int p) {
+        final List<Seed> candidates = this.partitions.get(p);
+        while (!this.finished.isDone() && !this.answered[p] && this.next[p] < candidates.size() && this.asked[p] < this.redundancy) {
+            final Seed seed = candidates.get(this.next[p]++);
+            final CompletableFuture<Integer> existing = this.requests.get(seed.hash);
+            if (existing != null) {
+                // the peer was already asked for another partition; its answer counts for this partition as well
+                this.asked[p]++;
+                if (!existing.isDone()) {
+                    this.scheduleHedge(p, seed);
+                    return;
+                }
+                continue;
+            }
+            if (this.requests.size() >= this.maxRequests) return;
+            final CompletableFuture<Integer> request = this.starter.apply(seed);
+            if (request == null) continue;
+            this.requests.put(seed.hash, request);
+            this.asked[p]++;
+            this.running++;
+            request.whenComplete((urls, e) -> this.completed(seed, urls, e));
+            if (!request.isDone()) this.scheduleHedge(p, seed);
+            return;
+        }
+    }
+
+    private void scheduleHedge(final int p, final Seed seed) {
+        if (this.hedges[p] != null) this.hedges[p].cancel(false);
+        if (this.asked[p] >= this.redundancy || this.next[p] >= this.partitions.get(p).size()) {
+            this.hedges[p] = null;
+            return;
+        }
+        final double latency = this.stats.latency(seed.hash);
+        final long delay = Math.max(this.minHedgeDelay, (long) (PeerLatencyStats.LATENCY_BUCKET_FACTOR * (latency < 0 ? this.stats.averageLatency() : latency)));
+        this.hedges[p] = timer.schedule(() -> this.hedge(p), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void hedge(final int p) {
+        this.hedges[p] = null;
+        if (this.finished.isDone() || this.answered[p]) return;
+        this.askNext(p);
+        this.checkFinished();
+    }
+
+    private synchronized void completed(final Seed seed, final Integer urls, final Throwable e) {
+        this.running--;
+        if (e != null) {
+            final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CancellationException && !this.cancelled.contains(seed.hash)) {
+                // cancelled from outside, i.e. the search event was closed
+                this.cancel();
+                return;
+            }
+        }
+        final boolean success = e == null && urls != null && urls.intValue() >= 0;
+        if (success) this.results += urls.intValue();
+        final List<Integer> ps = this.peerPartitions.get(seed.hash);
+        if (ps != null) for (final Integer p: ps) {
+            if (success) {
+                this.answered[p] = true;
+                if (this.hedges[p] != null) {
+                    this.hedges[p].cancel(false);
+                    this.hedges[p] = null;
+                }
+            } else if (!this.answered[p]) {
+                // fail over to the next peer of the partition without waiting for the hedge delay
+                this.askNext(p);
+            }
+        }
+        if (this.results >= this.enoughResults) {
+            this.cancel();
+            return;
+        }
+        if (success) this.cancelStragglers();
+        this.checkFinished();
+    }
+
+    /**
+     * cancel the running requests of which all partitions are answered
+     */
+    private void cancelStragglers() {
+        for (final Map.Entry<String, CompletableFuture<Integer>> request: new ArrayList<>(this.requests.entrySet())) {
+            if (request.getValue().isDone()) continue;
+            boolean straggler = true;
+            for (final Integer p: this.peerPartitions.get(request.getKey())) {
+                if (!this.answered[p]) {
+                    straggler = false;
+                    break;
+                }
+            }
+            if (straggler) {
+                this.cancelled.add(request.getKey());
+                request.getValue().cancel(true);
+            }
+        }
+    }
+
+    private void checkFinished() {
+        if (this.finished.isDone() || this.running > 0) return;
+        for (int p = 0; p < this.partitions.size(); p++) {
+            if (this.hedges[p] != null) return;
+        }
+        this.finished.complete(null);
+    }
+
+    /**
+     * cancel all running requests and hedges
+     */
+    public synchronized void cancel() {
+        if (this.finished.isDone()) return;
+        this.finished.complete(null);
+        for (int p = 0; p < this.hedges.length; p++) {
+            if (this.hedges[p] != null) {
+                this.hedges[p].cancel(false);
+                this.hedges[p] = null;
+            }
+        }
+        for (final Map.Entry<String, CompletableFuture<Integer>> request: new ArrayList<>(this.requests.entrySet())) {
+            if (request.getValue().isDone()) continue;
+            this.cancelled.add(request.getKey());
+            request.getValue().cancel(true);
+        }
+    }
+
+    /**
+     * @return a future which completes when all partitions are answered or no peer is left to ask, or when the fan-out was cancelled
+     */
+    public CompletableFuture<Void> finished() {
+        return this.finished;
+    }
+
+    /**
+     * @return the number of started requests
+     */
+    public synchronized int requests() {
+        return this.requests.size();
+    }
+
+    /**
+     * @return the number of results which the peers returned
+     */
+    public synchronized int results() {
+        return this.results;
+    }
+
+    /**
+     * @param p a partition
+     * @return true if a peer of the partition answered
+     */
+    public synchronized boolean answered(final int p) {
+        return this.answered[p];
+    }
+
+    /**
+     * @param seed a peer
+     * @return true if the request to the peer was cancelled as a straggler or because enough results were found
+     */
+    public synchronized boolean isCancelled(final Seed seed) {
+        return this.cancelled.contains(seed.hash);
+    }
+}
@@ -60,6 +60,7 @@ import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.kelondroException;
 import net.yacy.peers.operation.yacySeedUploader;
+import net.yacy.peers.operation.yacyVersion;
 import net.yacy.search.Switchboard;
 import net.yacy.server.serverCore;
 import net.yacy.server.serverSwitch;
@@ -96,6 +97,12 @@ public final class SeedDB implements AlternativeDomainNames {
     private int netRedundancy;
     public  Distribution scheme;
 
+    /** observed latency and success rate of remote search requests to other peers */
+    public final PeerLatencyStats latencyStats = new PeerLatencyStats();
+
+    /** snapshot of the connected seeds on the DHT ring; null if it must be built from the seed table */
+    private volatile SeedRing dhtRing = null;
+
     private Seed mySeed; // my own seed
 
     public SeedDB(
@@ -160,6 +167,7 @@ public final class SeedDB implements AlternativeDomainNames {
 
         this.netRedundancy = redundancy;
         this.scheme = new Distribution(partitionExponent);
+        this.dhtRing = null;
 
         // set up seed database
         this.seedActiveDB = openSeedTable(this.seedActiveDBFile);
@@ -275,6 +283,7 @@ public final class SeedDB implements AlternativeDomainNames {
             this.seedActiveDB.delete(mySeedHash);
             this.seedPassiveDB.delete(mySeedHash);
             this.seedPotentialDB.delete(mySeedHash);
+            if (this.dhtRing != null) this.dhtRing = this.dhtRing.remove(this.mySeed.hash);
         } catch (final IOException e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
     }
 
@@ -314,6 +323,7 @@ public final class SeedDB implements AlternativeDomainNames {
         // this is an emergency function that should only be used if any problem with the
         // seed.db is detected
         Network.log.warn("seed-db " + seedDBFile.toString() + " reset (on-the-fly)");
+        if (seedDB == this.seedActiveDB) this.dhtRing = null;
         seedDB.close();
         FileUtils.deletedelete(seedDBFile);
         if (seedDBFile.exists())
@@ -400,6 +410,25 @@ public final class SeedDB implements AlternativeDomainNames {
         return new seedEnum(up, rot, (firstHash == null) ? null : firstHash, null, this.seedActiveDB, minVersion);
     }
 
+    /**
+     * get the snapshot of the connected seeds which take part in the DHT, sorted on the DHT ring.
+     * The snapshot is built from the seed table at the first call and then maintained with each change of the connected seeds.
+     * @return the ring
+     */
+    public SeedRing dhtRing() {
+        final SeedRing ring = this.dhtRing;
+        if (ring != null) return ring;
+        synchronized (this) {
+            if (this.dhtRing == null) {
+                final List<Seed> seeds = new ArrayList<>(this.sizeConnected());
+                final Iterator<Seed> i = this.seedsConnected(true, false, null, yacyVersion.YACY_HANDLES_COLLECTION_INDEX);
+                while (i.hasNext()) seeds.add(i.next());
+                this.dhtRing = new SeedRing(seeds, this.scheme.verticalPartitions());
+            }
+            return this.dhtRing;
+        }
+    }
+
     public Iterator<Seed> seedsDisconnected(final boolean up, final boolean rot, final byte[] firstHash, final double minVersion) {
         // enumerates seed-type objects: all seeds sequentially without order
         return new seedEnum(up, rot, (firstHash == null) ? null : firstHash, null, this.seedPassiveDB, minVersion);
@@ -486,6 +515,7 @@ public final class SeedDB implements AlternativeDomainNames {
                 this.seedActiveDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
                 this.seedPassiveDB.delete(ASCII.getBytes(seed.hash));
                 this.seedPotentialDB.delete(ASCII.getBytes(seed.hash));
+                if (this.dhtRing != null) this.dhtRing = this.dhtRing.put(new Seed(seed.hash, new ConcurrentHashMap<>(seedPropMap)));
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 this.resetActiveTable();
@@ -499,6 +529,7 @@ public final class SeedDB implements AlternativeDomainNames {
             try {
                 this.seedActiveDB.delete(ASCII.getBytes(seed.hash));
                 this.seedPotentialDB.delete(ASCII.getBytes(seed.hash));
+                if (this.dhtRing != null) this.dhtRing = this.dhtRing.remove(seed.hash);
             } catch (final Exception e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
             //seed.put(yacySeed.LASTSEEN, yacyCore.shortFormatter.format(new Date(yacyCore.universalTime())));
             try {
@@ -518,6 +549,7 @@ public final class SeedDB implements AlternativeDomainNames {
             try {
                 this.seedActiveDB.delete(ASCII.getBytes(seed.hash));
                 this.seedPassiveDB.delete(ASCII.getBytes(seed.hash));
+                if (this.dhtRing != null) this.dhtRing = this.dhtRing.remove(seed.hash);
             } catch (final Exception e) { ConcurrentLog.warn("yacySeedDB", "could not remove hash ("+ e.getClass() +"): "+ e.getMessage()); }
             //seed.put(yacySeed.LASTSEEN, yacyCore.shortFormatter.format(new Date(yacyCore.universalTime())));
             try {
@@ -636,6 +668,7 @@ public final class SeedDB implements AlternativeDomainNames {
         synchronized (this) {
             if (this.seedActiveDB.containsKey(ASCII.getBytes(seed.hash))) try {
                 this.seedActiveDB.insert(ASCII.getBytes(seed.hash), seedPropMap);
+                if (this.dhtRing != null) this.dhtRing = this.dhtRing.put(new Seed(seed.hash, new ConcurrentHashMap<>(seedPropMap)));
             } catch (final Exception e) {
                 Network.log.severe("ERROR add: seed.db corrupt (" + e.getMessage() + "); resetting seed.db", e);
                 this.resetActiveTable();
@@ -1105,6 +1138,7 @@ public final class SeedDB implements AlternativeDomainNames {
             	// emergency reset
             	Network.log.severe("seed-db emergency reset", e);
             	this.database.clear();
+            	if (this.database == SeedDB.this.seedActiveDB) SeedDB.this.dhtRing = null;
 				this.nextSeed = null;
 				return null;
             }
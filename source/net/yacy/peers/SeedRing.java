@@ -0,0 +1,280 @@
+/**
+ *  SeedRing
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.federate.yacy.Distribution;
+import net.yacy.peers.operation.yacyVersion;
+
+/**
+ * An immutable snapshot of the connected seeds which take part in the DHT, sorted by their position on the DHT ring.
+ * The start of each vertical partition in the ring is precomputed, so that the peers responsible for a DHT position
+ * are found with a binary search inside one partition, without an enumeration of the seed tables.
+ * Changes create a new snapshot which is derived from the old one at the position of the changed seed, without a new
+ * sort; the arrays of a snapshot are never modified, so readers always see a consistent ring.
+ * <p>
+ * The seeds are not copied: a snapshot hands out the same mutable {@link Seed} instances to all readers, and a new
+ * snapshot keeps the instances of the seeds which did not change. Readers must treat them as read-only. A change of a
+ * seed which is made anyway, like a flag which is set after a failed request, is seen by all readers of all snapshots
+ * which contain the instance. It does not break the order of the ring, because the position depends only on the final
+ * hash. {@link SeedDB} puts a copy of the seed into the ring, so that the ring does not share instances with the seed tables.
+ * </p>
+ */
+public final class SeedRing implements Iterable<Seed> {
+
+    private static final Comparator<Seed> ringOrder = (a, b) -> {
+        final int c = Long.compare(position(a), position(b));
+        return c != 0 ? c : a.hash.compareTo(b.hash);
+    };
+
+    private final Seed[] seeds;
+    private final long[] positions;
+    private final int partitions, shift;
+    /** the index of the first seed of each vertical partition; partitionStart[partitions] == size */
+    private final int[] partitionStart;
+
+    /**
+     * create a ring of seeds
+     * @param seeds the seeds; seeds which do not take part in the DHT are ignored
+     * @param partitions the number of vertical partitions of the DHT, a power of two
+     */
+    public SeedRing(final Collection<Seed> seeds, final int partitions) {
+        this(sorted(seeds), partitions);
+    }
+
+    private SeedRing(final Seed[] sorted, final int partitions) {
+        assert Integer.bitCount(partitions) == 1 : "partitions = " + partitions;
+        this.seeds = sorted;
+        this.positions = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) this.positions[i] = position(sorted[i]);
+        this.partitions = partitions;
+        this.shift = Long.SIZE - 1 - Integer.numberOfTrailingZeros(partitions);
+        this.partitionStart = new int[partitions + 1];
+        for (int v = 0; v < partitions; v++) {
+            this.partitionStart[v] = lowerBound(this.positions, 0, sorted.length, ((long) v) << this.shift);
+        }
+        this.partitionStart[partitions] = sorted.length;
+    }
+
+    private SeedRing(final Seed[] seeds, final long[] positions, final int partitions, final int[] partitionStart) {
+        this.seeds = seeds;
+        this.positions = positions;
+        this.partitions = partitions;
+        this.shift = Long.SIZE - 1 - Integer.numberOfTrailingZeros(partitions);
+        this.partitionStart = partitionStart;
+    }
+
+    private static Seed[] sorted(final Collection<Seed> seeds) {
+        final List<Seed> l = new ArrayList<>(seeds.size());
+        for (final Seed seed: seeds) if (accepts(seed)) l.add(seed);
+        final Seed[] a = l.toArray(new Seed[l.size()]);
+        Arrays.sort(a, ringOrder);
+        // remove double entries of the same peer
+        int n = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (n > 0 && a[n - 1].hash.equals(a[i].hash)) {
+                a[n - 1] = a[i];
+            } else {
+                a[n++] = a[i];
+            }
+        }
+        return n == a.length ? a : Arrays.copyOf(a, n);
+    }
+
+    /**
+     * @param seed a seed
+     * @return true if the seed takes part in the DHT: it accepts remote indexes and has a version which handles collection indexes
+     */
+    public static boolean accepts(final Seed seed) {
+        if (seed == null || seed.hash == null || seed.hash.length() != 12 || !seed.getFlagAcceptRemoteIndex()) return false;
+        final double version = seed.getVersion();
+        return version >= yacyVersion.YACY_HANDLES_COLLECTION_INDEX || version == 0.0; // include 0.0 to access always developer peers
+    }
+
+    private static long position(final Seed seed) {
+        return Distribution.horizontalDHTPosition(ASCII.getBytes(seed.hash));
+    }
+
+    private static int lowerBound(final long[] a, int from, int to, final long key) {
+        while (from < to) {
+            final int mid = (from + to) >>> 1;
+            if (a[mid] < key) from = mid + 1; else to = mid;
+        }
+        return from;
+    }
+
+    public int size() {
+        return this.seeds.length;
+    }
+
+    /**
+     * @param i a ring index, 0 <= i < size()
+     * @return the seed at the index; the instance is shared with all readers of the ring and must not be modified
+     */
+    public Seed get(final int i) {
+        return this.seeds[i];
+    }
+
+    /**
+     * @param i a ring index, 0 <= i < size()
+     * @return the DHT position of the seed at the index
+     */
+    public long position(final int i) {
+        return this.positions[i];
+    }
+
+    /**
+     * @param v a vertical partition
+     * @return the ring index of the first seed of the partition
+     */
+    public int partitionStart(final int v) {
+        return this.partitionStart[v];
+    }
+
+    /**
+     * find the first seed at or after a DHT position; the search is limited to the vertical partition of the position
+     * @param position a DHT position
+     * @return the ring index of the seed, which is 0 if the position is after the last seed (the ring is closed), or -1 if the ring is empty
+     */
+    public int ceiling(final long position) {
+        if (this.seeds.length == 0) return -1;
+        final int v = (int) (position >>> this.shift);
+        final int i = lowerBound(this.positions, this.partitionStart[v], this.partitionStart[v + 1], position);
+        return i == this.seeds.length ? 0 : i;
+    }
+
+    /**
+     * @param hash a peer hash
+     * @return the ring index of the peer or -1 if the peer is not in the ring
+     */
+    public int indexOf(final String hash) {
+        if (hash == null || hash.length() != 12 || this.seeds.length == 0) return -1;
+        final long position = Distribution.horizontalDHTPosition(ASCII.getBytes(hash));
+        final int v = (int) (position >>> this.shift);
+        for (int i = lowerBound(this.positions, this.partitionStart[v], this.partitionStart[v + 1], position); i < this.seeds.length && this.positions[i] == position; i++) {
+            if (this.seeds[i].hash.equals(hash)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * create a new ring where a seed is added or replaced. If the seed does not take part in the DHT, it is removed.
+     * The new seed is inserted at its position; the positions and partition starts of the other seeds are not computed again.
+     * @param seed the seed
+     * @return the new ring
+     */
+    public SeedRing put(final Seed seed) {
+        final int i = this.indexOf(seed.hash);
+        if (!accepts(seed)) return i < 0 ? this : this.remove(i);
+        if (i >= 0) {
+            // the position does not change, the snapshots share the positions and the partition starts
+            final Seed[] a = this.seeds.clone();
+            a[i] = seed;
+            return new SeedRing(a, this.positions, this.partitions, this.partitionStart);
+        }
+        final long position = position(seed);
+        final int v = (int) (position >>> this.shift);
+        int p = lowerBound(this.positions, this.partitionStart[v], this.partitionStart[v + 1], position);
+        while (p < this.seeds.length && this.positions[p] == position && this.seeds[p].hash.compareTo(seed.hash) < 0) p++;
+        final Seed[] a = new Seed[this.seeds.length + 1];
+        System.arraycopy(this.seeds, 0, a, 0, p);
+        a[p] = seed;
+        System.arraycopy(this.seeds, p, a, p + 1, this.seeds.length - p);
+        final long[] pos = new long[a.length];
+        System.arraycopy(this.positions, 0, pos, 0, p);
+        pos[p] = position;
+        System.arraycopy(this.positions, p, pos, p + 1, this.positions.length - p);
+        final int[] start = this.partitionStart.clone();
+        for (int w = v + 1; w <= this.partitions; w++) start[w]++;
+        return new SeedRing(a, pos, this.partitions, start);
+    }
+
+    /**
+     * create a new ring without a seed
+     * @param hash the hash of the seed
+     * @return the new ring
+     */
+    public SeedRing remove(final String hash) {
+        final int i = this.indexOf(hash);
+        return i < 0 ? this : this.remove(i);
+    }
+
+    private SeedRing remove(final int i) {
+        final Seed[] a = new Seed[this.seeds.length - 1];
+        System.arraycopy(this.seeds, 0, a, 0, i);
+        System.arraycopy(this.seeds, i + 1, a, i, a.length - i);
+        final long[] pos = new long[a.length];
+        System.arraycopy(this.positions, 0, pos, 0, i);
+        System.arraycopy(this.positions, i + 1, pos, i, pos.length - i);
+        final int[] start = this.partitionStart.clone();
+        for (int w = (int) (this.positions[i] >>> this.shift) + 1; w <= this.partitions; w++) start[w]--;
+        return new SeedRing(a, pos, this.partitions, start);
+    }
+
+    @Override
+    public Iterator<Seed> iterator() {
+        return Arrays.asList(this.seeds).iterator();
+    }
+
+    /**
+     * enumerate the seeds in DHT order, starting at a position and rotating at the end of the ring;
+     * the seeds are the shared instances of the ring, see {@link #get(int)}
+     * @param position the start position
+     * @param max the maximum number of seeds
+     * @param own a seed which is enumerated at its DHT position additionally to the seeds of the ring, or null
+     * @return the seeds
+     */
+    public Iterator<Seed> iterator(final long position, final int max, final Seed own) {
+        final int start = this.ceiling(position);
+        final boolean withOwn = own != null && own.hash != null && this.indexOf(own.hash) < 0;
+        final long ownDistance = withOwn ? Distribution.horizontalDHTDistance(position, position(own)) : -1;
+        final int count = Math.min(max, this.seeds.length + (withOwn ? 1 : 0));
+        return new Iterator<Seed>() {
+            private int emitted = 0, steps = 0;
+            private boolean ownPending = withOwn;
+
+            @Override
+            public boolean hasNext() {
+                return this.emitted < count;
+            }
+
+            @Override
+            public Seed next() {
+                if (!this.hasNext()) throw new NoSuchElementException();
+                this.emitted++;
+                if (this.ownPending && (this.steps >= SeedRing.this.seeds.length ||
+                        Distribution.horizontalDHTDistance(position, SeedRing.this.positions[(start + this.steps) % SeedRing.this.seeds.length]) > ownDistance)) {
+                    this.ownPending = false;
+                    return own;
+                }
+                return SeedRing.this.seeds[(start + this.steps++) % SeedRing.this.seeds.length];
+            }
+        };
+    }
+}
@@ -0,0 +1,536 @@
+/**
+ *  HostGraph
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.peers.graphics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.yacy.cora.document.encoding.ASCII;
+
+/**
+ * A weighted directed graph of hosts. Each host is interned to an int id; the references between hosts are stored
+ * in compressed sparse row (CSR) arrays in both directions, so that the degree of a host is available in constant time
+ * and the neighbors of a host are iterated without any parsing or object creation.
+ * Changed references of a host are kept in a delta buffer which overrides the CSR row of the host until the next
+ * {@link #compact(int)}, which merges the delta into new CSR arrays. The compaction is done automatically when the
+ * delta grows too large.
+ * All methods are synchronized.
+ */
+public class HostGraph {
+
+    /** the persistent format: magic "YWSG" and version */
+    private static final int MAGIC = 0x59575347, VERSION = 1;
+
+    /** the delta is merged into the CSR arrays if it holds more edges than this and a quarter of the CSR edges */
+    private static final int DELTA_COMPACT_MIN = 4096;
+
+    /**
+     * Visitor of the edges of a host
+     */
+    public interface EdgeVisitor {
+        /**
+         * @param host the id of the other host of the edge
+         * @param count the number of references
+         */
+        void edge(int host, int count);
+    }
+
+    // the interned hosts
+    private final Map<String, Integer> ids;
+    private final Map<String, int[]> nameIndex;
+    private String[] hashes, names;
+    private int[] dates, inDegree;
+    private int size;
+
+    // the CSR arrays of the hosts 0 .. csrSize - 1
+    private int csrSize;
+    private int[] outStart, outTarget, outCount;
+    private int[] inStart, inSource, inCount;
+
+    // the delta: rows which override the CSR rows, packed as target, count pairs, and the reverse index of the rows
+    private final Map<Integer, int[]> deltaOut;
+    private final Map<Integer, Set<Integer>> deltaIn;
+    private int deltaEdges;
+
+    /** the hosts which were changed since the last call of {@link #clearLatest()} */
+    private BitSet latest;
+
+    public HostGraph() {
+        this.ids = new HashMap<>();
+        this.nameIndex = new HashMap<>();
+        this.deltaOut = new HashMap<>();
+        this.deltaIn = new HashMap<>();
+        this.clear();
+    }
+
+    /**
+     * remove all hosts
+     */
+    public synchronized void clear() {
+        this.ids.clear();
+        this.nameIndex.clear();
+        this.hashes = new String[16];
+        this.names = new String[16];
+        this.dates = new int[16];
+        this.inDegree = new int[16];
+        this.size = 0;
+        this.setCSR(0, new int[]{0}, new int[0], new int[0]);
+        this.deltaOut.clear();
+        this.deltaIn.clear();
+        this.deltaEdges = 0;
+        this.latest = new BitSet();
+    }
+
+    /**
+     * @return the number of hosts
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public synchronized int edges() {
+        int edges = this.outTarget.length + this.deltaEdges;
+        for (final Integer source: this.deltaOut.keySet()) {
+            if (source.intValue() < this.csrSize) edges -= this.outStart[source.intValue() + 1] - this.outStart[source.intValue()];
+        }
+        return edges;
+    }
+
+    /**
+     * get the id of a host and add the host if it is not known
+     * @param hosthash the host hash
+     * @param hostname the host name; replaces an empty host name of a known host
+     * @param date the date of the host as yyyymmdd, used for a new host
+     * @return the id of the host
+     */
+    public synchronized int intern(final String hosthash, final String hostname, final int date) {
+        final Integer id = this.ids.get(hosthash);
+        final String name = hostname == null ? "" : hostname;
+        if (id != null) {
+            if (this.names[id.intValue()].isEmpty() && !name.isEmpty()) {
+                this.names[id.intValue()] = name;
+                this.index(name, id.intValue());
+            }
+            return id.intValue();
+        }
+        if (this.size == this.hashes.length) {
+            final int capacity = this.size * 2;
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+            this.names = Arrays.copyOf(this.names, capacity);
+            this.dates = Arrays.copyOf(this.dates, capacity);
+            this.inDegree = Arrays.copyOf(this.inDegree, capacity);
+        }
+        final int i = this.size++;
+        this.hashes[i] = hosthash;
+        this.names[i] = name;
+        this.dates[i] = date;
+        this.inDegree[i] = 0;
+        this.ids.put(hosthash, i);
+        if (!name.isEmpty()) this.index(name, i);
+        this.latest.set(i);
+        return i;
+    }
+
+    private void index(final String name, final int id) {
+        final String key = name.toLowerCase(Locale.ROOT);
+        final int[] a = this.nameIndex.get(key);
+        if (a == null) {
+            this.nameIndex.put(key, new int[]{id});
+        } else {
+            final int[] b = Arrays.copyOf(a, a.length + 1);
+            b[a.length] = id;
+            this.nameIndex.put(key, b);
+        }
+    }
+
+    /**
+     * @param hosthash a host hash
+     * @return the id of the host or -1 if the host is not known
+     */
+    public synchronized int id(final String hosthash) {
+        final Integer id = this.ids.get(hosthash);
+        return id == null ? -1 : id.intValue();
+    }
+
+    /**
+     * @param hostname a host name, case is ignored
+     * @return the ids of the hosts with this name; there may be several because the host hash depends on protocol and port
+     */
+    public synchronized int[] ids(final String hostname) {
+        final int[] a = this.nameIndex.get(hostname.toLowerCase(Locale.ROOT));
+        return a == null ? new int[0] : a.clone();
+    }
+
+    public synchronized String hash(final int id) {
+        return this.hashes[id];
+    }
+
+    public synchronized String name(final int id) {
+        return this.names[id];
+    }
+
+    /**
+     * @param id a host id
+     * @return the date of the latest change of the host as yyyymmdd
+     */
+    public synchronized int date(final int id) {
+        return this.dates[id];
+    }
+
+    /**
+     * @param id a host id
+     * @return true if the host was changed since the last call of {@link #clearLatest()}
+     */
+    public synchronized boolean isLatest(final int id) {
+        return this.latest.get(id);
+    }
+
+    /**
+     * forget which hosts were changed recently
+     */
+    public synchronized void clearLatest() {
+        this.latest.clear();
+    }
+
+    /**
+     * @param id a host id
+     * @return the number of hosts which are referenced by the host
+     */
+    public synchronized int outDegree(final int id) {
+        final int[] row = this.deltaOut.get(id);
+        if (row != null) return row.length / 2;
+        return id < this.csrSize ? this.outStart[id + 1] - this.outStart[id] : 0;
+    }
+
+    /**
+     * @param id a host id
+     * @return the number of hosts which reference the host
+     */
+    public synchronized int inDegree(final int id) {
+        return this.inDegree[id];
+    }
+
+    /**
+     * visit the hosts which are referenced by a host
+     * @param id a host id
+     * @param visitor the visitor, which gets the target hosts and the reference counts
+     */
+    public synchronized void forEachOut(final int id, final EdgeVisitor visitor) {
+        final int[] row = this.deltaOut.get(id);
+        if (row != null) {
+            for (int i = 0; i < row.length; i += 2) visitor.edge(row[i], row[i + 1]);
+        } else if (id < this.csrSize) {
+            for (int i = this.outStart[id]; i < this.outStart[id + 1]; i++) visitor.edge(this.outTarget[i], this.outCount[i]);
+        }
+    }
+
+    /**
+     * visit the hosts which reference a host
+     * @param id a host id
+     * @param visitor the visitor, which gets the source hosts and the reference counts
+     */
+    public synchronized void forEachIn(final int id, final EdgeVisitor visitor) {
+        if (id < this.csrSize) {
+            for (int i = this.inStart[id]; i < this.inStart[id + 1]; i++) {
+                // rows in the delta override the CSR rows
+                if (!this.deltaOut.containsKey(this.inSource[i])) visitor.edge(this.inSource[i], this.inCount[i]);
+            }
+        }
+        final Set<Integer> sources = this.deltaIn.get(id);
+        if (sources == null) return;
+        for (final Integer source: sources) {
+            final int[] row = this.deltaOut.get(source);
+            for (int i = 0; i < row.length; i += 2) {
+                if (row[i] == id) {
+                    visitor.edge(source.intValue(), row[i + 1]);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * add references from a host to other hosts
+     * @param source the id of the referencing host
+     * @param targets the ids of the referenced hosts; each occurrence counts as one reference
+     * @param date the date of the change as yyyymmdd
+     * @param maxref if the host references more hosts than this, the references with the smallest counts are removed until 90% of maxref are left
+     */
+    public synchronized void addReferences(final int source, final int[] targets, final int date, final int maxref) {
+        // the current row
+        final Map<Integer, Integer> pos = new HashMap<>();
+        final List<int[]> row = new ArrayList<>();
+        this.forEachOut(source, (host, count) -> {
+            pos.put(host, row.size());
+            row.add(new int[]{host, count});
+        });
+        for (final int target: targets) {
+            final Integer p = pos.get(target);
+            if (p == null) {
+                pos.put(target, row.size());
+                row.add(new int[]{target, 1});
+            } else {
+                row.get(p.intValue())[1]++;
+            }
+        }
+        if (row.size() > maxref) {
+            // the stable sort keeps the elder references if the counts are equal
+            row.sort((a, b) -> Integer.compare(b[1], a[1]));
+            row.subList(maxref * 9 / 10, row.size()).clear();
+        }
+        final int[] t = new int[row.size()], c = new int[row.size()];
+        for (int i = 0; i < row.size(); i++) {
+            t[i] = row.get(i)[0];
+            c[i] = row.get(i)[1];
+        }
+        this.setReferences(source, t, c, date);
+    }
+
+    /**
+     * replace the references of a host
+     * @param source the id of the referencing host
+     * @param targets the ids of the referenced hosts, without double entries
+     * @param counts the number of references to each target
+     * @param date the date of the change as yyyymmdd
+     */
+    public synchronized void setReferences(final int source, final int[] targets, final int[] counts, final int date) {
+        assert targets.length == counts.length;
+        final int[] packed = new int[targets.length * 2];
+        for (int i = 0; i < targets.length; i++) {
+            packed[2 * i] = targets[i];
+            packed[2 * i + 1] = counts[i];
+        }
+        this.setRow(source, packed);
+        this.dates[source] = date;
+        this.latest.set(source);
+        if (this.deltaEdges > DELTA_COMPACT_MIN && this.deltaEdges > this.outTarget.length / 4) this.compact(Integer.MAX_VALUE);
+    }
+
+    private void setRow(final int source, final int[] packed) {
+        // remove the current row from the in-degrees and the reverse index of the delta
+        final int[] old = this.deltaOut.get(source);
+        if (old != null) {
+            for (int i = 0; i < old.length; i += 2) {
+                this.inDegree[old[i]]--;
+                final Set<Integer> sources = this.deltaIn.get(old[i]);
+                sources.remove(source);
+                if (sources.isEmpty()) this.deltaIn.remove(old[i]);
+            }
+            this.deltaEdges -= old.length / 2;
+        } else if (source < this.csrSize) {
+            for (int i = this.outStart[source]; i < this.outStart[source + 1]; i++) this.inDegree[this.outTarget[i]]--;
+        }
+        this.deltaOut.put(source, packed);
+        this.deltaEdges += packed.length / 2;
+        for (int i = 0; i < packed.length; i += 2) {
+            this.inDegree[packed[i]]++;
+            Set<Integer> sources = this.deltaIn.get(packed[i]);
+            if (sources == null) {
+                sources = new HashSet<>();
+                this.deltaIn.put(packed[i], sources);
+            }
+            sources.add(source);
+        }
+    }
+
+    /**
+     * merge the delta into the CSR arrays. If there are more than maxhosts hosts, the hosts with the oldest dates
+     * are removed together with their references until 90% of maxhosts are left. Removing hosts changes the ids.
+     * @param maxhosts the maximum number of hosts
+     */
+    public synchronized void compact(final int maxhosts) {
+        // select the hosts which are kept
+        final int[] remap = new int[this.size];
+        int n = this.size;
+        if (this.size > maxhosts) {
+            final Integer[] byDate = new Integer[this.size];
+            for (int i = 0; i < this.size; i++) byDate[i] = i;
+            Arrays.sort(byDate, (a, b) -> Integer.compare(this.dates[a.intValue()], this.dates[b.intValue()]));
+            final int delcount = this.size - (maxhosts * 9 / 10);
+            for (int i = 0; i < delcount; i++) remap[byDate[i].intValue()] = -1;
+            n = this.size - delcount;
+        }
+        int next = 0;
+        for (int i = 0; i < this.size; i++) if (remap[i] >= 0) remap[i] = next++;
+
+        // collect the out rows of the kept hosts
+        final int[] start = new int[n + 1];
+        final int[] target = new int[this.edges()];
+        final int[] count = new int[target.length];
+        final int[] e = new int[1];
+        for (int i = 0; i < this.size; i++) {
+            if (remap[i] < 0) continue;
+            start[remap[i]] = e[0];
+            this.forEachOut(i, (host, c) -> {
+                if (remap[host] < 0) return;
+                target[e[0]] = remap[host];
+                count[e[0]] = c;
+                e[0]++;
+            });
+        }
+        start[n] = e[0];
+
+        // move the hosts
+        final String[] hashes0 = this.hashes, names0 = this.names;
+        final int[] dates0 = this.dates;
+        final BitSet latest0 = this.latest;
+        final int capacity = Math.max(16, n + n / 4);
+        this.hashes = new String[capacity];
+        this.names = new String[capacity];
+        this.dates = new int[capacity];
+        this.inDegree = new int[capacity];
+        this.latest = new BitSet();
+        this.ids.clear();
+        this.nameIndex.clear();
+        for (int i = 0; i < this.size; i++) {
+            final int j = remap[i];
+            if (j < 0) continue;
+            this.hashes[j] = hashes0[i];
+            this.names[j] = names0[i];
+            this.dates[j] = dates0[i];
+            if (latest0.get(i)) this.latest.set(j);
+            this.ids.put(hashes0[i], j);
+            if (!names0[i].isEmpty()) this.index(names0[i], j);
+        }
+        this.size = n;
+        this.deltaOut.clear();
+        this.deltaIn.clear();
+        this.deltaEdges = 0;
+        this.setCSR(n, start, Arrays.copyOf(target, e[0]), Arrays.copyOf(count, e[0]));
+    }
+
+    /**
+     * set the out CSR arrays and compute the in CSR arrays and the in-degrees
+     */
+    private void setCSR(final int n, final int[] start, final int[] target, final int[] count) {
+        this.csrSize = n;
+        this.outStart = start;
+        this.outTarget = target;
+        this.outCount = count;
+        this.inStart = new int[n + 1];
+        this.inSource = new int[target.length];
+        this.inCount = new int[target.length];
+        for (final int t: target) this.inStart[t + 1]++;
+        for (int i = 0; i < n; i++) {
+            this.inDegree[i] = this.inStart[i + 1];
+            this.inStart[i + 1] += this.inStart[i];
+        }
+        final int[] fill = Arrays.copyOf(this.inStart, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = start[s]; i < start[s + 1]; i++) {
+                final int p = fill[target[i]]++;
+                this.inSource[p] = s;
+                this.inCount[p] = count[i];
+            }
+        }
+    }
+
+    /**
+     * compact the graph and write it to a file. The format is a gzipped stream of
+     * the magic, version, number of hosts n, n * (host hash, host name, date), number of edges m,
+     * the n + 1 row starts, m targets and m counts of the out CSR arrays.
+     * @param file the file
+     * @param maxhosts the maximum number of hosts, see {@link #compact(int)}
+     * @throws IOException
+     */
+    public synchronized void save(final File file, final int maxhosts) throws IOException {
+        this.compact(maxhosts);
+        final File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp), 65536)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.size);
+            for (int i = 0; i < this.size; i++) {
+                out.write(ASCII.getBytes(this.hashes[i]));
+                out.writeUTF(this.names[i]);
+                out.writeInt(this.dates[i]);
+            }
+            out.writeInt(this.outTarget.length);
+            for (int i = 0; i <= this.size; i++) out.writeInt(this.outStart[i]);
+            for (final int t: this.outTarget) out.writeInt(t);
+            for (final int c: this.outCount) out.writeInt(c);
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) throw new IOException("cannot rename " + tmp + " to " + file);
+        }
+    }
+
+    /**
+     * read a graph which was written with {@link #save(File, int)}
+     * @param file the file
+     * @return the graph
+     * @throws IOException if the file cannot be read or has the wrong format
+     */
+    public static HostGraph load(final File file) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 65536)))) {
+            if (in.readInt() != MAGIC) throw new IOException("not a host graph: " + file);
+            final int version = in.readInt();
+            if (version != VERSION) throw new IOException("unknown host graph version " + version + ": " + file);
+            final HostGraph graph = new HostGraph();
+            final int n = in.readInt();
+            final byte[] hash = new byte[6];
+            for (int i = 0; i < n; i++) {
+                in.readFully(hash);
+                final String name = in.readUTF();
+                graph.intern(ASCII.String(hash), name, in.readInt());
+            }
+            if (graph.size != n) throw new IOException("double hosts in host graph: " + file);
+            final int m = in.readInt();
+            final int[] start = new int[n + 1];
+            final int[] target = new int[m];
+            final int[] count = new int[m];
+            for (int i = 0; i <= n; i++) start[i] = in.readInt();
+            for (int i = 0; i < m; i++) {
+                target[i] = in.readInt();
+                if (target[i] < 0 || target[i] >= n) throw new IOException("bad host graph edge: " + file);
+            }
+            for (int i = 0; i < m; i++) count[i] = in.readInt();
+            if (start[0] != 0 || start[n] != m) throw new IOException("bad host graph rows: " + file);
+            for (int i = 0; i < n; i++) if (start[i] > start[i + 1]) throw new IOException("bad host graph rows: " + file);
+            synchronized (graph) {
+                graph.setCSR(n, start, target, count);
+                graph.latest.clear();
+            }
+            return graph;
+        }
+    }
+}
@@ -28,17 +28,18 @@
 package net.yacy.peers.graphics;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -67,6 +68,7 @@ import net.yacy.search.Switchboard;
 
 /**
  * Holds lists of links per host names to allow reconstructing a web graph structure of links.
+ * The links are stored in a {@link HostGraph} with interned host ids and primitive adjacency arrays.
  */
 public class WebStructureGraph {
 
@@ -79,24 +81,19 @@ public class WebStructureGraph {
     /** Maximum number of parsed anchors when computing the structure of a newly added document */
     public static final int MAX_PARSED_ANCHORS = 1000;
 
+    /** Name of the structure file of earlier versions, which is migrated to the binary format */
+    public static final String LEGACY_FILE_NAME = "webStructure.map";
+
     private final static ConcurrentLog log = new ConcurrentLog("WebStructureGraph");
 
     /** Eventual backup file */
     private final File structureFile;
     
     /** 
-     * <p>Older structure entries (notably loaded from the backup file).</p>
-     * <p>Maps from two parts concatenated string keys to byte array encoded references lists : 
-     * "'b64hash(6)','hostname" to 'date-yyyymmdd(8)'{'target-b64hash(6)''target-count-hex(4)'}*</p> 
+     * <p>The structure entries: the hosts and the numbers of references between them.</p>
+     * <p>Hosts which were changed since the last {@link #joinOldNew()} are the latest entries, all other hosts are the elder entries.</p>
      * */
-    private final TreeMap<String, byte[]> structure_old;
-    
-    /** 
-     * <p>Recently computed structure entries</p>
-     * <p>Maps from two parts concatenated string keys to byte array encoded references lists : 
-     * "'b64hash(6)','hostname" to 'date-yyyymmdd(8)'{'target-b64hash(6)''target-count-hex(4)'}*</p> 
-     *  */
-    private final TreeMap<String, byte[]> structure_new;
+    private final HostGraph graph;
     
     /** Queue used to receive new entries to store */
     private final BlockingQueue<LearnObject> publicRefDNSResolvingQueue;
@@ -125,56 +122,103 @@ public class WebStructureGraph {
 
 	/**
 	 * Constructs an instance, eventually loads entries from the supplied backup
-	 * structureFile when it exists and starts the worker thread.
+	 * structureFile when it exists and starts the worker thread. When the backup
+	 * file does not exist, a structure file of earlier versions in the same
+	 * directory is migrated.
 	 * 
 	 * @param structureFile
 	 *            backup file
 	 */
     public WebStructureGraph(final File structureFile) {
-        this.structure_old = new TreeMap<String, byte[]>();
-        this.structure_new = new TreeMap<String, byte[]>();
         this.structureFile = structureFile;
         this.publicRefDNSResolvingQueue = new LinkedBlockingQueue<LearnObject>();
 
         // load web structure from file if exists
-        Map<String, byte[]> loadedStructureB;
+        HostGraph loaded = null;
         try {
         	if(this.structureFile != null && this.structureFile.exists()) {
-        		loadedStructureB = FileUtils.loadMapB(this.structureFile);
-                log.info("loaded dump of " + loadedStructureB.size() + " entries from " + this.structureFile.toString());
-        	} else {
-        		loadedStructureB = new TreeMap<String, byte[]>();
+        		loaded = HostGraph.load(this.structureFile);
+                log.info("loaded dump of " + loaded.size() + " hosts, " + loaded.edges() + " references from " + this.structureFile.toString());
+        	} else if (this.structureFile != null) {
+        		final File legacyFile = new File(this.structureFile.getParentFile(), LEGACY_FILE_NAME);
+        		if (!legacyFile.equals(this.structureFile) && legacyFile.exists()) {
+        			loaded = migrate(legacyFile);
+        			log.info("migrated dump of " + loaded.size() + " hosts from " + legacyFile.toString());
+        		}
         	}
+        } catch (final IOException e) {
+        	log.warn("cannot load web structure from " + this.structureFile + ": " + e.getMessage());
+        	loaded = null;
         } catch (final OutOfMemoryError e ) {
-            loadedStructureB = new TreeMap<String, byte[]>();
+        	loaded = null;
         }
-        this.structure_old.putAll(loadedStructureB);
+        this.graph = loaded == null ? new HostGraph() : loaded;
         
         // delete out-dated entries in case the structure is too big
-        if ( this.structure_old.size() > maxhosts ) {
-            // fill a set with last-modified - dates of the structure
-            final TreeSet<String> delset = new TreeSet<String>();
-            String key;
-            byte[] value;
-            for ( final Map.Entry<String, byte[]> entry : this.structure_old.entrySet() ) {
-                key = entry.getKey();
-                value = entry.getValue();
-                if ( value != null && value.length >= 8 ) {
-                    delset.add(UTF8.String(value).substring(0, 8) + key);
-                }
-            }
-            int delcount = this.structure_old.size() - (maxhosts * 9 / 10);
-            final Iterator<String> j = delset.iterator();
-            while ( (delcount > 0) && (j.hasNext()) ) {
-                this.structure_old.remove(j.next().substring(8));
-                delcount--;
-            }
-        }
+        if (this.graph.size() > maxhosts) this.graph.compact(maxhosts);
 
         this.publicRefDNSResolvingWorker = new PublicRefDNSResolvingProcess();
         this.publicRefDNSResolvingWorker.start();
     }
 
+    /**
+     * Read a structure file of earlier versions
+     * @param legacyFile a map from "'b64hash(6)','hostname" to 'date-yyyymmdd(8)'{'target-b64hash(6)''target-count-hex(4)'}*
+     * @return the structure
+     */
+    private static HostGraph migrate(final File legacyFile) {
+        final HostGraph graph = new HostGraph();
+        final Map<String, byte[]> loadedStructureB = FileUtils.loadMapB(legacyFile);
+        if (loadedStructureB == null) return graph;
+        for (final Map.Entry<String, byte[]> entry: loadedStructureB.entrySet()) {
+            final String key = entry.getKey();
+            final String refs = UTF8.String(entry.getValue());
+            if (key.length() < 8 || refs.length() < 8 || (refs.length() - 8) % 10 != 0) continue;
+            final int date = day(refs.substring(0, 8));
+            final int source = graph.intern(key.substring(0, 6), key.substring(7), date);
+            final Map<String, Integer> map = refstr2map(refs);
+            final int[] targets = new int[map.size()], counts = new int[map.size()];
+            int i = 0;
+            for (final Map.Entry<String, Integer> ref: map.entrySet()) {
+                // the host name of a target is only known if the target has an own entry
+                targets[i] = graph.intern(ref.getKey(), "", date);
+                counts[i++] = ref.getValue().intValue();
+            }
+            graph.setReferences(source, targets, counts, date);
+        }
+        graph.compact(Integer.MAX_VALUE);
+        graph.clearLatest();
+        return graph;
+    }
+
+    /**
+     * @param date a date as yyyymmdd
+     * @return the date as int, 0 if it cannot be parsed
+     */
+    private static int day(final String date) {
+        try {
+            return Integer.parseInt(date);
+        } catch (final NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the current date as int yyyymmdd
+     */
+    private static int today() {
+        return day(GenericFormatter.SHORT_DAY_FORMATTER.format());
+    }
+
+    /**
+     * @param day a date as int yyyymmdd
+     * @return the date as string yyyymmdd
+     */
+    private static String day(final int day) {
+        final String s = Integer.toString(day);
+        return s.length() >= 8 ? s : "00000000".substring(s.length()) + s;
+    }
+
     /**
      * Task consuming the queue of new entries to compute and add to the structure
      */
@@ -199,8 +243,7 @@ public class WebStructureGraph {
      * Clear the complete web structure.
      */
     public void clear() {
-        this.structure_old.clear();
-        this.structure_new.clear();
+        this.graph.clear();
     }
     
     public void generateCitationReference(final DigestURL url, final Document document) {
@@ -285,69 +328,25 @@ public class WebStructureGraph {
         return map;
     }
 
-    /**
-     * @return an empty references map serialized to a string
-     */
-    private static String none2refstr() {
-        return GenericFormatter.SHORT_DAY_FORMATTER.format();
-    }
-    
-    /**
-     * @param map references mapping from host hashes to counts
-     * @return the map serialized as a string
-     */
-    private static String map2refstr(final Map<String, Integer> map) {
-        final StringBuilder s = new StringBuilder(GenericFormatter.PATTERN_SHORT_DAY.length() + map.size() * 10);
-        s.append(GenericFormatter.SHORT_DAY_FORMATTER.format());
-        String h;
-        for ( final Map.Entry<String, Integer> entry : map.entrySet() ) {
-            s.append(entry.getKey());
-            h = Integer.toHexString(entry.getValue().intValue());
-            final int hl = h.length();
-            if ( hl == 0 ) {
-                s.append("0000");
-            } else if ( hl == 1 ) {
-                s.append("000").append(h);
-            } else if ( hl == 2 ) {
-                s.append("00").append(h);
-            } else if ( hl == 3 ) {
-                s.append('0').append(h);
-            } else if ( hl == 4 ) {
-                s.append(h);
-            } else {
-                s.append("FFFF");
-            }
-        }
-        return s.toString();
-    }
-
     /**
      * @param hosthash host hash
      * @return true when this host hash is present in this web structure (either in latest or elder known entries)
      */
     public boolean exists(final String hosthash) {
-        // returns a map with a hosthash(String):refcount(Integer) relation
         assert hosthash.length() == 6;
-        SortedMap<String, byte[]> tailMap;
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return true;
-                }
-            }
-        }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return true;
-                }
-            }
+        return this.graph.id(hosthash) >= 0;
+    }
+
+    /**
+     * @param id a host id
+     * @return the outgoing references of the host mapped from target host hashes to counts
+     */
+    private Map<String, Integer> outgoingReferences(final int id) {
+        final Map<String, Integer> h = new HashMap<String, Integer>();
+        synchronized ( this.graph ) {
+            this.graph.forEachOut(id, (target, count) -> h.put(this.graph.hash(target), Integer.valueOf(count)));
         }
-        return false;
+        return h;
     }
     
     /**
@@ -358,43 +357,14 @@ public class WebStructureGraph {
     public StructureEntry outgoingReferences(final String hosthash) {
         // returns a map with a hosthash(String):refcount(Integer) relation
         assert hosthash.length() == 6;
-        SortedMap<String, byte[]> tailMap;
-        Map<String, Integer> h = new HashMap<String, Integer>();
-        String hostname = "";
-        String date = "";
-        String ref;
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    hostname = key.substring(7);
-                    ref = ASCII.String(tailMap.get(key));
-                    date = ref.substring(0, 8);
-                    h = refstr2map(ref);
-                }
-            }
+        synchronized ( this.graph ) {
+            final int id = this.graph.id(hosthash);
+            if (id < 0 || this.graph.outDegree(id) == 0) return null;
+            return new StructureEntry(hosthash, this.graph.name(id), day(this.graph.date(id)), outgoingReferences(id));
         }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    ref = ASCII.String(tailMap.get(key));
-                    if ( hostname.isEmpty() ) {
-                        hostname = key.substring(7);
-                    }
-                    if ( date.isEmpty() ) {
-                        date = ref.substring(0, 8);
-                    }
-                    h.putAll(refstr2map(ref));
-                }
-            }
-        }
-        if (h.isEmpty()) return null;
-        return new StructureEntry(hosthash, hostname, date, h);
     }
     
+    
     /**
      * Compute outgoing references from the source hostName on any source protocol or port.
      * @param srcHostName reference source host name
@@ -426,32 +396,23 @@ public class WebStructureGraph {
         return targetHashesToCount;
     }
     
+
     /**
      * Compute incoming references to the target host hash
      * @param hosthash reference target host hash
      * @return incoming structure with references mapped from source host hashes to counts or null when the target is not known
      */
     public StructureEntry incomingReferences(final String hosthash) {
-        final String hostname = hostHash2hostName(hosthash);
-        if ( hostname == null ) {
-            return null;
-        }
-        // collect the references
-        WebStructureGraph.StructureEntry sentry;
         final HashMap<String, Integer> hosthashes = new HashMap<String, Integer>();
-        Iterator<WebStructureGraph.StructureEntry> i = new StructureIterator(false);
-        while ( i.hasNext() ) {
-            sentry = i.next();
-            if ( sentry.references.containsKey(hosthash) ) {
-                hosthashes.put(sentry.hosthash, sentry.references.get(hosthash));
-            }
-        }
-        i = new StructureIterator(true);
-        while ( i.hasNext() ) {
-            sentry = i.next();
-            if ( sentry.references.containsKey(hosthash) ) {
-                hosthashes.put(sentry.hosthash, sentry.references.get(hosthash));
+        final String hostname;
+        synchronized ( this.graph ) {
+            final int id = this.graph.id(hosthash);
+            if ( id < 0 ) {
+                return null;
             }
+            hostname = this.graph.name(id);
+            // collect the references
+            this.graph.forEachIn(id, (source, count) -> hosthashes.put(this.graph.hash(source), Integer.valueOf(count)));
         }
         // construct a new structureEntry Object
         return new StructureEntry(
@@ -569,6 +530,7 @@ public class WebStructureGraph {
     private static long hostReferenceIndexCacheTime = 0;
     private static final long hostReferenceIndexCacheTTL = 1000 * 60 * 60 * 12; // 12 hours time to live for cache
 
+
     public synchronized ReferenceContainerCache<HostReference> incomingReferences() {
         // we return a cache if the cache is filled and not stale
         if ( hostReferenceIndexCache != null
@@ -580,61 +542,45 @@ public class WebStructureGraph {
         final ReferenceContainerCache<HostReference> idx =
             new ReferenceContainerCache<HostReference>(hostReferenceFactory, Base64Order.enhancedCoder, 6);
 
-        // we iterate over all structure entries.
-        // one structure entry has information that a specific host links to a list of other hosts
-        incomingReferencesEnrich(idx, new StructureIterator(false), 3000);
-        incomingReferencesEnrich(idx, new StructureIterator(true), 3000);
-
-        // fill the cache again and set fill time
-        hostReferenceIndexCache = idx;
-        hostReferenceIndexCacheTime = System.currentTimeMillis();
-        //incomingReferencesTest(hostReferenceIndexCache);
-        return hostReferenceIndexCache;
-    }
-
-    private void incomingReferencesEnrich(
-        final ReferenceContainerCache<HostReference> idx,
-        final Iterator<WebStructureGraph.StructureEntry> structureIterator,
-        final long time) {
-        // we iterate over all structure entries.
-        // one structure entry has information that a specific host links to a list of other hosts
-        final long timeout = time == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + time;
-        byte[] term;
-        HostReference hr;
-        WebStructureGraph.StructureEntry sentry;
-        structureLoop: while ( structureIterator.hasNext() ) {
-            sentry = structureIterator.next();
-            // then we loop over all the hosts that are linked from sentry.hosthash
-            refloop: for ( final Map.Entry<String, Integer> refhosthashandcounter : sentry.references
-                .entrySet() ) {
-                term = UTF8.getBytes(refhosthashandcounter.getKey());
-                try {
-                    hr =
-                        new HostReference(
-                            ASCII.getBytes(sentry.hosthash),
-                            GenericFormatter.SHORT_DAY_FORMATTER.parse(sentry.date, 0).getTime().getTime(),
-                            refhosthashandcounter.getValue().intValue());
-                } catch (final ParseException e ) {
-                    continue refloop;
+        // we iterate over all hosts which are referenced.
+        // the incoming edges of a host are the index entries of that host
+        final long timeout = System.currentTimeMillis() + 6000;
+        final int size = this.graph.size();
+        hostLoop: for (int id = 0; id < size; id++) {
+            final ReferenceContainer<HostReference> container;
+            synchronized ( this.graph ) {
+                // a compaction may have removed hosts
+                if ( id >= this.graph.size() ) {
+                    break hostLoop;
                 }
-                // each term refers to an index entry. look if we already have such an entry
-                ReferenceContainer<HostReference> r = idx.get(term, null);
-                try {
-                    if ( r == null ) {
-                        r = new ReferenceContainer<HostReference>(hostReferenceFactory, term);
-                        r.add(hr);
-                        idx.add(r);
-                    } else {
-                        r.put(hr);
-                    }
-                } catch (final SpaceExceededException e ) {
-                    continue refloop;
+                if ( this.graph.inDegree(id) == 0 ) {
+                    continue hostLoop;
                 }
+                container = new ReferenceContainer<HostReference>(hostReferenceFactory, ASCII.getBytes(this.graph.hash(id)));
+                this.graph.forEachIn(id, (source, count) -> {
+                    try {
+                        container.add(new HostReference(
+                                ASCII.getBytes(this.graph.hash(source)),
+                                GenericFormatter.SHORT_DAY_FORMATTER.parse(day(this.graph.date(source)), 0).getTime().getTime(),
+                                count));
+                    } catch (final ParseException | SpaceExceededException e ) {
+                    }
+                });
+            }
+            try {
+                idx.add(container);
+            } catch (final SpaceExceededException e ) {
+                break hostLoop;
             }
             if ( System.currentTimeMillis() > timeout ) {
-                break structureLoop;
+                break hostLoop;
             }
         }
+
+        // fill the cache again and set fill time
+        hostReferenceIndexCache = idx;
+        hostReferenceIndexCacheTime = System.currentTimeMillis();
+        return hostReferenceIndexCache;
     }
 
     /**
@@ -645,31 +591,10 @@ public class WebStructureGraph {
     public int referencesCount(final String hosthash) {
         assert hosthash.length() == 6 : "hosthash = " + hosthash;
         if (hosthash == null || hosthash.length() != 6) return 0;
-        SortedMap<String, byte[]> tailMap;
-        int c = 0;
-        try {
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    c = refstr2count(UTF8.String(tailMap.get(key)));
-                }
-            }
-        }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    c += refstr2count(UTF8.String(tailMap.get(key)));
-                }
-            }
-        }
-        } catch (final Throwable t) {
-            this.clear();
+        synchronized ( this.graph ) {
+            final int id = this.graph.id(hosthash);
+            return id < 0 ? 0 : this.graph.outDegree(id);
         }
-        return c;
     }
 
     /**
@@ -679,26 +604,10 @@ public class WebStructureGraph {
     public String hostHash2hostName(final String hosthash) {
         // returns the host as string, null if unknown
         assert hosthash.length() == 6;
-        SortedMap<String, byte[]> tailMap;
-        synchronized ( this.structure_old ) {
-            tailMap = this.structure_old.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return key.substring(7);
-                }
-            }
+        synchronized ( this.graph ) {
+            final int id = this.graph.id(hosthash);
+            return id < 0 ? null : this.graph.name(id);
         }
-        synchronized ( this.structure_new ) {
-            tailMap = this.structure_new.tailMap(hosthash);
-            if ( !tailMap.isEmpty() ) {
-                final String key = tailMap.firstKey();
-                if ( key.startsWith(hosthash) ) {
-                    return key.substring(7);
-                }
-            }
-        }
-        return null;
     }
     
 	/**
@@ -714,24 +623,9 @@ public class WebStructureGraph {
 	 */
 	public Set<String> hostName2HostHashes(final String hostName) {
 		Set<String> hashes = new HashSet<>();
-		synchronized (this.structure_old) {
-			String keyHostName, hash;
-			for (String key : structure_old.keySet()) {
-				hash = key.substring(0, 6);
-				keyHostName = key.substring(7);
-				if (keyHostName.equalsIgnoreCase(hostName)) {
-					hashes.add(hash);
-				}
-			}
-		}
-		synchronized (this.structure_new) {
-			String keyHostName, hash;
-			for (String key : structure_new.keySet()) {
-				hash = key.substring(0, 6);
-				keyHostName = key.substring(7);
-				if (keyHostName.equalsIgnoreCase(hostName)) {
-					hashes.add(hash);
-				}
+		synchronized (this.graph) {
+			for (final int id : this.graph.ids(hostName)) {
+				hashes.add(this.graph.hash(id));
 			}
 		}
 		return hashes;
@@ -741,85 +635,31 @@ public class WebStructureGraph {
     protected void learnrefs(final LearnObject lro) {
         final DigestURL url = lro.url;
         final String sourceHosthash = url.hosthash();
+        final int today = today();
 
-        // parse the new reference string and join it with the stored references
-        final StructureEntry structure = outgoingReferences(sourceHosthash);
-        final Map<String, Integer> refs = (structure == null) ? new HashMap<String, Integer>() : structure.references;
-        int c;
+        // intern the referenced hosts; new hosts are recorded as hosts with no references
+        final int[] targets = new int[lro.globalRefURLs.size()];
+        int c = 0;
         for (final DigestURL u : lro.globalRefURLs) {
-        	String domain = u.hosthash();
         	if (Switchboard.getSwitchboard() != null && Switchboard.getSwitchboard().shallTerminate()) break;
-            if (!exists(domain)) {
-                // this must be recorded as an host with no references
-                synchronized ( this.structure_new ) {
-                    this.structure_new.put(domain + "," + u.getHost(), UTF8.getBytes(none2refstr()));
-                }
-            }
-            c = 0;
-            Integer existingCount = refs.get(domain);
-            if ( existingCount != null) {
-                c = existingCount.intValue();
-            }
-            refs.put(domain, Integer.valueOf(++c));
+            targets[c++] = this.graph.intern(u.hosthash(), u.getHost(), today);
         }
 
-        // check if the maxref is exceeded
-        if ( refs.size() > maxref ) {
-            int shrink = refs.size() - (maxref * 9 / 10);
-            delloop: while ( shrink > 0 ) {
-                // shrink the references: the entry with the smallest number of references is removed
-                int minrefcount = Integer.MAX_VALUE;
-                String minrefkey = null;
-                findloop: for ( final Map.Entry<String, Integer> entry : refs.entrySet() ) {
-                    if ( entry.getValue().intValue() < minrefcount ) {
-                        minrefcount = entry.getValue().intValue();
-                        minrefkey = entry.getKey();
-                    }
-                    if ( minrefcount == 1 ) {
-                        break findloop;
-                    }
-                }
-                // remove the smallest
-                if ( minrefkey == null ) {
-                    break delloop;
-                }
-                refs.remove(minrefkey);
-                shrink--;
-            }
-        }
-
-        // store the map back to the structure
-        synchronized ( this.structure_new ) {
-            this.structure_new.put(sourceHosthash + "," + url.getHost(), UTF8.getBytes(map2refstr(refs)));
-        }
-    }
-
-    private static void joinStructure(final TreeMap<String, byte[]> into, final TreeMap<String, byte[]> from) {
-        for ( final Map.Entry<String, byte[]> e : from.entrySet() ) {
-            if ( into.containsKey(e.getKey()) ) {
-                final Map<String, Integer> s0 = refstr2map(UTF8.String(into.get(e.getKey())));
-                final Map<String, Integer> s1 = refstr2map(UTF8.String(e.getValue()));
-                for ( final Map.Entry<String, Integer> r : s1.entrySet() ) {
-                    if ( s0.containsKey(r.getKey()) ) {
-                        s0.put(r.getKey(), s0.get(r.getKey()).intValue() + r.getValue().intValue());
-                    } else {
-                        s0.put(r.getKey(), r.getValue().intValue());
-                    }
-                }
-                into.put(e.getKey(), UTF8.getBytes(map2refstr(s0)));
-            } else {
-                into.put(e.getKey(), e.getValue());
-            }
+        // join the new references with the stored references; the maxref limit is applied by the graph
+        synchronized ( this.graph ) {
+            final int source = this.graph.intern(sourceHosthash, url.getHost(), today);
+            this.graph.addReferences(source, c == targets.length ? targets : Arrays.copyOf(targets, c), today, maxref);
         }
     }
 
     /**
-     * Feed the elder entries structure map with latest computed entries map and then clear this last one.
+     * Mark the latest computed entries as elder entries and merge the changes into the compact
+     * graph arrays. Hosts with the oldest changes are removed if there are more than {@link #maxhosts}.
      */
     public void joinOldNew() {
-        synchronized ( this.structure_new ) {
-            joinStructure(this.structure_old, this.structure_new);
-            this.structure_new.clear();
+        synchronized ( this.graph ) {
+            this.graph.compact(maxhosts);
+            this.graph.clearLatest();
         }
     }
 
@@ -828,37 +668,15 @@ public class WebStructureGraph {
      */
     public String hostWithMaxReferences() {
         // find host with most references
-        Map<String, Integer> hostNamesToRefsNb = new TreeMap<>();
-        int refsize, maxref = 0;
+        final Map<String, Integer> hostNamesToRefsNb = new HashMap<>();
+        int maxref = 0;
         String hostName, maxHostName = null;
         Integer refsNb;
-        synchronized ( this.structure_old ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_old.entrySet() ) {
-                refsize = entry.getValue().length;
-                hostName = entry.getKey().substring(7);
+        synchronized ( this.graph ) {
+            for ( int id = 0; id < this.graph.size(); id++ ) {
+                hostName = this.graph.name(id);
                 refsNb = hostNamesToRefsNb.get(hostName);
-                if(refsNb == null) {
-                	refsNb = refsize;
-                } else {
-                	refsNb += refsize;
-                }
-                if ( refsNb > maxref ) {
-                    maxref = refsNb;
-                    maxHostName = hostName;
-                }
-                hostNamesToRefsNb.put(hostName, refsNb);
-            }
-        }
-        synchronized ( this.structure_new ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_new.entrySet() ) {
-                refsize = entry.getValue().length;
-                hostName = entry.getKey().substring(7);
-                refsNb = hostNamesToRefsNb.get(hostName);
-                if(refsNb == null) {
-                	refsNb = refsize;
-                } else {
-                	refsNb += refsize;
-                }
+                refsNb = (refsNb == null ? 0 : refsNb.intValue()) + this.graph.outDegree(id);
                 if ( refsNb > maxref ) {
                     maxref = refsNb;
                     maxHostName = hostName;
@@ -871,14 +689,9 @@ public class WebStructureGraph {
     
     public ReversibleScoreMap<String> hostReferenceScore() {
         ReversibleScoreMap<String> result = new ClusteredScoreMap<String>(ASCII.identityASCIIComparator);
-        synchronized ( this.structure_old ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_old.entrySet() ) {
-                result.set(entry.getKey().substring(7), (entry.getValue().length - 8) / 10);
-            }
-        }
-        synchronized ( this.structure_new ) {
-            for ( final Map.Entry<String, byte[]> entry : this.structure_new.entrySet() ) {
-                result.set(entry.getKey().substring(7), (entry.getValue().length - 8) / 10);
+        synchronized ( this.graph ) {
+            for ( int id = 0; id < this.graph.size(); id++ ) {
+                result.set(this.graph.name(id), this.graph.outDegree(id));
             }
         }
         return result;
@@ -900,8 +713,8 @@ public class WebStructureGraph {
      */
     private class StructureIterator extends LookAheadIterator<StructureEntry> implements Iterator<StructureEntry> {
 
-    	/** Internal iterator instance */
-        private final Iterator<Map.Entry<String, byte[]>> i;
+    	/** The host hashes of the iterated entries, taken when the iterator is created */
+        private final Iterator<String> i;
 
         /**
          * @param latest <ul>
@@ -910,40 +723,36 @@ public class WebStructureGraph {
          * </ul>
          */
         private StructureIterator(final boolean latest) {
-            this.i = ((latest) ? WebStructureGraph.this.structure_new : WebStructureGraph.this.structure_old).entrySet().iterator();
+            final HostGraph g = WebStructureGraph.this.graph;
+            final List<String> hosthashes = new ArrayList<>();
+            synchronized ( g ) {
+                for ( int id = 0; id < g.size(); id++ ) {
+                    if ( g.isLatest(id) == latest ) {
+                        hosthashes.add(g.hash(id));
+                    }
+                }
+            }
+            this.i = hosthashes.iterator();
         }
 
         /**
-         * Iterate to the next structure entry, decoding on the fly the references information from the byte array
+         * Iterate to the next structure entry, decoding on the fly the references information from the graph
          */
         @Override
         public StructureEntry next0() {
-            Map.Entry<String, byte[]> entry = null;
-            String dom = null;
-            byte[] ref = null;
-            String refs;
+            final HostGraph g = WebStructureGraph.this.graph;
             while ( this.i.hasNext() ) {
-                entry = this.i.next();
-                ref = entry.getValue();
-                if ( (ref.length - 8) % 10 != 0 ) {
-                    continue;
-                }
-                dom = entry.getKey();
-                if ( dom.length() >= 8 ) {
-                    break;
+                final String hosthash = this.i.next();
+                synchronized ( g ) {
+                    // the host may have been removed by a compaction
+                    final int id = g.id(hosthash);
+                    if ( id < 0 ) {
+                        continue;
+                    }
+                    return new StructureEntry(hosthash, g.name(id), day(g.date(id)), outgoingReferences(id));
                 }
-                dom = null;
-            }
-            if ( entry == null || dom == null ) {
-                return null;
             }
-            assert (ref.length - 8) % 10 == 0 : "refs = " + ref + ", length = " + ref.length;
-            refs = UTF8.String(ref);
-            return new StructureEntry(
-                dom.substring(0, 6),
-                dom.substring(7),
-                refs.substring(0, 8),
-                refstr2map(refs));
+            return null;
         }
     }
 
@@ -1010,34 +819,25 @@ public class WebStructureGraph {
 
         // save to web structure file
         if(this.structureFile != null) {
-        	log.info("Saving Web Structure File: new = "
-        			+ this.structure_new.size()
-        			+ " entries, old = "
-        			+ this.structure_old.size()
-        			+ " entries");
         	final long time = System.currentTimeMillis();
-        	joinOldNew();
-        	log.info("dumping " + structure_old.size() + " entries to " + structureFile.toString());
-        	if ( !this.structure_old.isEmpty() ) {
-        		synchronized ( this.structure_old ) {
-        			if ( !this.structure_old.isEmpty() ) {
-        				FileUtils
-                        	.saveMapB(
-                        			this.structureFile,
-                        			this.structure_old,
-                        			"Web Structure Syntax: <b64hash(6)>','<host> to <date-yyyymmdd(8)>{<target-b64hash(6)><target-count-hex(4)>}*");
-        				final long t = Math.max(1, System.currentTimeMillis() - time);
-        				log.info("Saved Web Structure File: "
-        						+ this.structure_old.size()
-        						+ " entries in "
-        						+ t
-        						+ " milliseconds, "
-        						+ (this.structure_old.size() * 1000 / t)
-        						+ " entries/second");
-        			}
-        			this.structure_old.clear();
-        		}
+        	log.info("dumping " + this.graph.size() + " hosts to " + this.structureFile.toString());
+        	try {
+        		this.graph.save(this.structureFile, maxhosts);
+        		final long t = Math.max(1, System.currentTimeMillis() - time);
+        		log.info("Saved Web Structure File: "
+        				+ this.graph.size()
+        				+ " hosts, "
+        				+ this.graph.edges()
+        				+ " references in "
+        				+ t
+        				+ " milliseconds");
+        		// the structure file of earlier versions is not needed any more
+        		final File legacyFile = new File(this.structureFile.getParentFile(), LEGACY_FILE_NAME);
+        		if (!legacyFile.equals(this.structureFile) && legacyFile.exists()) FileUtils.deletedelete(legacyFile);
+        	} catch (final IOException e) {
+        		log.warn("cannot save Web Structure File " + this.structureFile + ": " + e.getMessage());
         	}
+        	this.graph.clear();
         }
     }
 }
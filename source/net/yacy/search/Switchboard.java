@@ -178,6 +178,7 @@ import net.yacy.document.importer.JsonListImporter;
 import net.yacy.document.importer.OAIListFriendsLoader;
 import net.yacy.document.importer.WarcImporter;
 import net.yacy.document.importer.ZimImporter;
+import net.yacy.document.parser.ArchiveEntryParser;
 import net.yacy.document.parser.audioTagParser;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.document.parser.html.Evaluation;
@@ -208,6 +209,7 @@ import net.yacy.peers.EventChannel;
 import net.yacy.peers.Network;
 import net.yacy.peers.NewsPool;
 import net.yacy.peers.Protocol;
+import net.yacy.peers.RemoteSearchFanout;
 import net.yacy.peers.Seed;
 import net.yacy.peers.SeedDB;
 import net.yacy.peers.graphics.NetworkGraph;
@@ -417,6 +419,9 @@ public final class Switchboard extends serverSwitch {
 
         CollectionConfiguration.UNIQUE_HEURISTIC_PREFER_HTTPS = this.getConfigBool("search.ranking.uniqueheuristic.preferhttps", false);
         CollectionConfiguration.UNIQUE_HEURISTIC_PREFER_WWWPREFIX = this.getConfigBool("search.ranking.uniqueheuristic.preferwwwprefix", true);
+        CollectionConfiguration.CITATION_DAMPING = this.getConfigFloat("postprocessing.citation.damping", 0.85f);
+        CollectionConfiguration.CITATION_CONVERGENCE_DIGITS = this.getConfigInt("postprocessing.citation.convergenceDigits", 6);
+        CollectionConfiguration.CITATION_MAX_STEPS = this.getConfigInt("postprocessing.citation.maxSteps", 30);
 
         // init libraries
         this.log.config("initializing libraries");
@@ -692,7 +697,7 @@ public final class Switchboard extends serverSwitch {
         this.remoteSearchLastAccess = System.currentTimeMillis() - 10000;
         this.adminAuthenticationLastAccess = 0; // timestamp last admin authentication (as not autenticated here, stamp with 0)
         this.optimizeLastRun = System.currentTimeMillis();
-        this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.map"));
+        this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.graph"));
 
         // configuring list path
         if ( !(this.listsPath.exists()) ) {
@@ -920,6 +925,12 @@ public final class Switchboard extends serverSwitch {
 
         TextParser.setDenyMime(this.getConfig(SwitchboardConstants.PARSER_MIME_DENY, ""));
         TextParser.setDenyExtension(this.getConfig(SwitchboardConstants.PARSER_EXTENSIONS_DENY, ""));
+        ArchiveEntryParser.setLimits(
+                this.getConfigInt("parser.archive.maxEntries", 10000),
+                this.getConfigLong("parser.archive.maxBytes", 1024L * 1024L * 1024L),
+                this.getConfigLong("parser.archive.maxTime", 5L * 60L * 1000L));
+        SearchEventCache.localResults.setMaxBytes(this.getConfigLong(SwitchboardConstants.SEARCH_LOCALCACHE_MAXBYTES, 16L * 1024L * 1024L));
+        RemoteSearchFanout.setHedgeDelay(this.getConfigLong(SwitchboardConstants.REMOTESEARCH_HEDGE_DELAY, RemoteSearchFanout.DEFAULT_HEDGE_DELAY));
 
         // start a loader
         this.log.config("Starting Crawl Loader");
@@ -1546,7 +1557,7 @@ public final class Switchboard extends serverSwitch {
                     this.dhtDispatcher = (this.peers.sizeConnected() == 0) ? null : new Dispatcher(this, true, 10000);
 
                     // create new web structure
-                    this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.map"));
+                    this.webStructure = new WebStructureGraph(new File(this.queuesRoot, "webStructure.graph"));
 
                     // load domainList
                     try {
@@ -2472,8 +2483,7 @@ public final class Switchboard extends serverSwitch {
         final Collection<String> pks = new LinkedHashSet<>();
         final Date now = new Date();
         try {
-            final Iterator<Tables.Row> plainIterator = this.tables.iterator(WorkTables.TABLE_API_NAME);
-            final Iterator<Tables.Row> mapIterator = Tables.orderByDate(plainIterator, WorkTables.TABLE_API_COL_DATE_LAST_EXEC, null, SortDirection.ASC).iterator();
+            final Iterator<Tables.Row> mapIterator = this.tables.orderByDate(WorkTables.TABLE_API_NAME, WorkTables.TABLE_API_COL_DATE_LAST_EXEC, null, SortDirection.ASC).iterator();
             while (mapIterator.hasNext()) {
                 row = mapIterator.next();
                 if (row == null) continue;
@@ -3129,6 +3139,7 @@ public final class Switchboard extends serverSwitch {
 
                 // insert those hyperlinks to the crawler
                 MultiProtocolURL nextUrl;
+                final List<Request> links = new ArrayList<>(hl.size());
                 for ( final Map.Entry<AnchorURL, String> nextEntry : hl.entrySet() ) {
                     // check for interruption
                     this.checkInterruption();
@@ -3155,7 +3166,7 @@ public final class Switchboard extends serverSwitch {
                     // enqueue the hyperlink into the pre-notice-url db
                     final int nextdepth = nextEntry.getValue() != null && nextEntry.getValue().equals(Document.CANONICAL_MARKER) ? response.depth() : response.depth() + 1; // canonical documents are on the same depth
                     try {
-                        this.crawlStacker.enqueueEntry(new Request(
+                        links.add(new Request(
                                 response.initiator(),
                                 new DigestURL(u),
                                 response.url().hash(),
@@ -3168,6 +3179,7 @@ public final class Switchboard extends serverSwitch {
                         ConcurrentLog.logException(e);
                     }
                 }
+                this.crawlStacker.enqueueLinks(links);
                 final long stackEndTime = System.currentTimeMillis();
                 if ( this.log.isInfo() ) {
                     this.log.info("CRAWL: ADDED "
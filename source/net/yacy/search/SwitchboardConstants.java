@@ -302,6 +302,9 @@ public final class SwitchboardConstants {
     /** Default setting value controlling whether https should be preferred for remote searches, when available on the target peer */
     public static final boolean REMOTESEARCH_HTTPS_PREFERRED_DEFAULT = false;
 
+    /** Setting key to configure the minimum time in milliseconds until a hedged remote RWI search request is sent to the next redundant peer of a DHT partition */
+    public static final String REMOTESEARCH_HEDGE_DELAY = "remotesearch.hedge.delay";
+
 	/**
 	 * Setting key to configure whether responses from remote Solr instances
 	 * should be binary encoded :
@@ -509,6 +512,24 @@ public final class SwitchboardConstants {
     /** Default setting value controlling whether HTTP responses should be compressed */
     public static final boolean SERVER_RESPONSE_COMPRESS_GZIP_DEFAULT = true;
 
+    /** Key of the setting controlling whether the adaptive admission control limits the concurrent requests per endpoint class */
+    public static final String SERVER_ADMISSION = "server.admission";
+
+    /** Key prefix of the settings with the maximum concurrency limit of an endpoint class, followed by the lower case class name and ".maxLimit" */
+    public static final String SERVER_ADMISSION_PREFIX = "server.admission.";
+
+    /** Key of the setting with the maximum number of requests of an endpoint class which wait for a free slot */
+    public static final String SERVER_ADMISSION_QUEUE = "server.admission.queue";
+
+    /** Key of the setting with the maximum time in milliseconds a request waits for a free slot before it is rejected with 503 */
+    public static final String SERVER_ADMISSION_MAXWAIT = "server.admission.maxWait";
+
+    /** Key of the setting with the maximum number of server threads the limited requests may occupy together, processing or waiting; 0 derives it from the thread pool size */
+    public static final String SERVER_ADMISSION_MAXTHREADS = "server.admission.maxThreads";
+
+    /** Key of the setting controlling whether requests from localhost are admitted even if the limit of their endpoint class is reached */
+    public static final String SERVER_ADMISSION_EXEMPT_LOCALHOST = "server.admission.exemptLocalhost";
+
 
     /** Key of the setting controlling the maximum number of simultaneously open outgoing HTTP connections in the general pool (net.yacy.cora.protocol.http.HTTPClient) */
     public static final String HTTP_OUTGOING_POOL_GENERAL_MAX_TOTAL = "http.outgoing.pool.general.maxTotal";
@@ -636,6 +657,9 @@ public final class SwitchboardConstants {
     public static final String SEARCH_VERIFY  = "search.verify";
     public static final String SEARCH_VERIFY_DELETE = "search.verify.delete";
 
+    /** Key of the setting for the memory budget in bytes of the result cache for local queries; 0 disables the cache */
+    public static final String SEARCH_LOCALCACHE_MAXBYTES = "search.localcache.maxBytes";
+
 	/**
 	 * Key of the setting controlling whether content domain filtering is strict :
 	 * when false, results can be extended to documents including links to documents
@@ -120,6 +120,7 @@ public class ErrorCache {
                         ((Integer) olddoc.getFieldValue(CollectionSchema.httpstatus_i.getSolrFieldName())) == 200) {
                         SolrInputDocument errorDoc = failDoc.toSolr(this.sb.index.fulltext().getDefaultConfiguration());
                         this.sb.index.fulltext().getDefaultConnector().add(errorDoc);
+                        if (olddoc != null) this.sb.index.fulltext().indexChanged(); // a document in the index was replaced
                     }
                 } catch (final IOException e) {
                     ConcurrentLog.warn("SOLR", "failed to send error " + url.toNormalform(true) + " to solr: " + e.getMessage());
@@ -23,16 +23,22 @@
 package net.yacy.search.index;
 
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.reflect.Array;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -40,6 +46,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
@@ -68,6 +79,7 @@ import net.yacy.cora.federate.solr.instance.RemoteInstance;
 import net.yacy.cora.federate.solr.instance.ShardInstance;
 import net.yacy.cora.federate.solr.responsewriter.EnhancedXMLResponseWriter;
 import net.yacy.cora.federate.solr.responsewriter.FlatJSONResponseWriter;
+import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.sorting.ReversibleScoreMap;
 import net.yacy.cora.sorting.WeakPriorityBlockingQueue;
@@ -79,6 +91,7 @@ import net.yacy.document.parser.html.CharacterCoding;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.WordReferenceVars;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
 import net.yacy.search.Switchboard;
 import net.yacy.search.SwitchboardConstants;
 import net.yacy.search.schema.CollectionConfiguration;
@@ -113,6 +126,12 @@ public final class Fulltext {
     private final WebgraphConfiguration   webgraphConfiguration;
     private       boolean                 writeWebgraph;
 
+    /** counts the changes of the index which are visible to searches; results computed on an older generation may be outdated */
+    private final IndexGeneration         indexGeneration;
+
+    /** the hosts and documents which were changed since the last postprocessing */
+    private final IndexChangeLog          changeLog;
+
     protected Fulltext(final File segmentPath, final File archivePath,
             final CollectionConfiguration collectionConfiguration, final WebgraphConfiguration webgraphConfiguration) {
         this.segmentPath = segmentPath;
@@ -123,6 +142,33 @@ public final class Fulltext {
         this.collectionConfiguration = collectionConfiguration;
         this.webgraphConfiguration = webgraphConfiguration;
         this.writeWebgraph = false;
+        this.indexGeneration = new IndexGeneration();
+        this.changeLog = new IndexChangeLog(new File(segmentPath, IndexChangeLog.FILE_NAME));
+    }
+
+    /**
+     * @return the current index generation; it is increased when written or deleted documents become visible to searches.
+     * If a remote Solr is connected, -1 is returned because the time when changes become visible there is not known.
+     */
+    public long indexGeneration() {
+        if (this.solrInstances.isConnectedRemote()) return -1;
+        return this.indexGeneration.get(this.solrInstances.isConnectedEmbedded() ? this.getDefaultEmbeddedConnector() : null);
+    }
+
+    /**
+     * signal that the index content was changed. This is done automatically by all write and delete methods
+     * of this class after the change and must be called by all methods which change the index with direct connector calls.
+     * Changes of the Solr index which become visible later with a commit are detected by {@link #indexGeneration()}.
+     */
+    public void indexChanged() {
+        this.indexGeneration.changed();
+    }
+
+    /**
+     * @return the log of the hosts and documents which were changed since the last postprocessing
+     */
+    public IndexChangeLog changeLog() {
+        return this.changeLog;
     }
 
     public void setUseWebgraph(final boolean check) {
@@ -146,6 +192,15 @@ public final class Fulltext {
     }
 
     public void connectLocalSolr() throws IOException {
+        this.connectLocalSolr(new File(new File(Switchboard.getSwitchboard().appPath, "defaults"), "solr"));
+    }
+
+    /**
+     * connect the embedded Solr index in the segment path
+     * @param solrConfigPath the directory of the Solr configuration, the defaults/solr directory of the application
+     * @throws IOException
+     */
+    public void connectLocalSolr(final File solrConfigPath) throws IOException {
         final File solrLocation = new File(this.segmentPath, SOLR_PATH);
 
         // migrate old solr to new
@@ -159,7 +214,7 @@ public final class Fulltext {
             }
         }
 
-        final EmbeddedInstance localCollectionInstance = new EmbeddedInstance(new File(new File(Switchboard.getSwitchboard().appPath, "defaults"), "solr"), solrLocation, CollectionSchema.CORE_NAME, new String[]{CollectionSchema.CORE_NAME, WebgraphSchema.CORE_NAME});
+        final EmbeddedInstance localCollectionInstance = new EmbeddedInstance(solrConfigPath, solrLocation, CollectionSchema.CORE_NAME, new String[]{CollectionSchema.CORE_NAME, WebgraphSchema.CORE_NAME});
         final SolrConfig config = localCollectionInstance.getDefaultCore().getSolrConfig();
         final String lvn = config.luceneMatchVersion.major + "_" + config.luceneMatchVersion.minor + "_" + config.luceneMatchVersion.bugfix;
         //assert SOLR_PATH.endsWith(lvn) : "luceneVersion = " + lvn + ", solrPath = " + SOLR_PATH + ", check defaults/solr/solrconfig.xml";
@@ -167,10 +222,12 @@ public final class Fulltext {
         ConcurrentLog.info("Fulltext", "using lucene version " + lvn);
         ConcurrentLog.info("Fulltext", "connected solr in " + solrLocation.toString() + ", lucene version " + lvn);
         this.solrInstances.connectEmbedded(localCollectionInstance);
+        this.indexChanged();
     }
 
     public void disconnectLocalSolr() {
         this.solrInstances.disconnectEmbedded();
+        this.indexChanged();
     }
 
     public boolean connectedRemoteSolr() {
@@ -179,10 +236,12 @@ public final class Fulltext {
 
     public void connectRemoteSolr(final ArrayList<RemoteInstance> instances, final ShardSelection.Method shardMethod, final boolean writeEnabled) {
         this.solrInstances.connectRemote(new ShardInstance(instances, shardMethod, writeEnabled));
+        this.indexChanged();
     }
 
     public void disconnectRemoteSolr() {
         this.solrInstances.disconnectRemote();
+        this.indexChanged();
     }
 
     public EmbeddedSolrConnector getDefaultEmbeddedConnector() {
@@ -266,9 +325,11 @@ public final class Fulltext {
                     this.solrInstances.getEmbeddedConnector(name).clear();
                 }
                 this.commit(false);
+                this.changeLog.clear();
             }
             this.solrInstances.clearCaches();
         } finally {
+            this.indexChanged();
             this.solrInstancesLock.unlock();
         }
     }
@@ -284,6 +345,7 @@ public final class Fulltext {
             }
             this.solrInstances.clearCaches();
         } finally {
+            this.indexChanged();
             this.solrInstancesLock.unlock();
         }
     }
@@ -318,6 +380,7 @@ public final class Fulltext {
         } catch (final Throwable e) {
             ConcurrentLog.logException(e);
         }
+        this.changeLog.close();
     }
 
     private long lastCommit = 0;
@@ -370,6 +433,34 @@ public final class Fulltext {
         return null;
     }
 
+    /**
+     * Loads the documents of many urls with one lookup. If only the embedded Solr index is connected, the
+     * documents are read directly from the lucene index instead of a Solr request for each url.
+     * @param urlHashes the url hashes; the caller must bound the number because all documents are returned at once
+     * @return a map from the url hash to the document for all urls which are in the index
+     */
+    public Map<String, SolrDocument> getDocuments(final Collection<String> urlHashes) {
+        final EmbeddedSolrConnector esc = this.solrInstances.isConnectedRemote() ? null : this.getDefaultEmbeddedConnector();
+        if (esc != null) {
+            try {
+                return esc.getDocumentsByIds(urlHashes);
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+        final Map<String, SolrDocument> docs = new HashMap<>();
+        final SolrConnector connector = this.getDefaultConnector();
+        for (final String u: urlHashes) {
+            try {
+                final SolrDocument doc = connector.getDocumentById(u);
+                if (doc != null) docs.put(u, doc);
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+        return docs;
+    }
+
     public void putDocument(final SolrInputDocument doc) throws IOException {
         final SolrConnector connector = this.getDefaultConnector();
         if (connector == null || connector.isClosed()) return;
@@ -377,11 +468,13 @@ public final class Fulltext {
         final String url = (String) doc.getFieldValue(CollectionSchema.sku.getSolrFieldName());
         assert url != null && url.length() < 30000;
         ConcurrentLog.info("Fulltext", "indexing: " + id + " " + url);
+        this.changeLog.touch(id);
         try {
             connector.add(doc);
         } catch (final SolrException e) {
             throw new IOException(e.getMessage(), e);
         }
+        this.indexChanged();
         if (MemoryControl.shortStatus()) this.clearCaches();
     }
 
@@ -431,6 +524,7 @@ public final class Fulltext {
      */
     public void deleteStaleDomainHashes(final Set<String> hosthashes, final Date freshdate) {
         // delete in solr
+        if (hosthashes != null) for (final String hosthash: hosthashes) this.changeLog.touch(hosthash);
         final Date now = new Date();
         deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_id_s.getSolrFieldName(), hosthashes,
                 (freshdate == null || freshdate.after(now)) ? null :
@@ -438,10 +532,11 @@ public final class Fulltext {
         if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), WebgraphSchema.source_host_id_s.getSolrFieldName(), hosthashes,
                 (freshdate == null || freshdate.after(now)) ? null :
                     (WebgraphSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
+        this.indexChanged();
     }
 
     public void deleteStaleDomainNames(final Set<String> hostnames, final Date freshdate) {
-
+        this.changeLog.touchAll(); // the host ids of the names are not known
         final Date now = new Date();
         deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_s.getSolrFieldName(), hostnames,
                 (freshdate == null || freshdate.after(now)) ? null :
@@ -449,6 +544,7 @@ public final class Fulltext {
         if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), WebgraphSchema.source_host_s.getSolrFieldName(), hostnames,
                 (freshdate == null || freshdate.after(now)) ? null :
                     (WebgraphSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
+        this.indexChanged();
     }
 
     /**
@@ -456,7 +552,9 @@ public final class Fulltext {
      * @param hosthashes
      */
     public void deleteDomainErrors(final Set<String> hosthashes) {
+        if (hosthashes != null) for (final String hosthash: hosthashes) this.changeLog.touch(hosthash);
         deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_id_s.getSolrFieldName(), hosthashes, CollectionSchema.failreason_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM);
+        this.indexChanged();
     }
 
     private static void deleteDomainWithConstraint(final SolrConnector connector, final String fieldname, final Set<String> hosthashes, final String constraintQuery) {
@@ -486,11 +584,13 @@ public final class Fulltext {
         final Date deleteageDate = new Date(System.currentTimeMillis() - deltaToNow);
         final String collection1Query = (loaddate ? CollectionSchema.load_date_dt : CollectionSchema.last_modified).getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(deleteageDate) + "]";
         final String webgraphQuery = (loaddate ? WebgraphSchema.load_date_dt : WebgraphSchema.last_modified).getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(deleteageDate) + "]";
+        this.changeLog.touchAll(); // the deleted documents are not known
         try {
             this.getDefaultConnector().deleteByQuery(collection1Query);
             if (this.getWebgraphConnector() != null) this.getWebgraphConnector().deleteByQuery(webgraphQuery);
         } catch (final IOException e) {
         }
+        this.indexChanged();
     }
 
     /**
@@ -528,6 +628,7 @@ public final class Fulltext {
      */
     public void remove(final Collection<String> deleteIDs) {
         if (deleteIDs == null || deleteIDs.size() == 0) return;
+        for (final String id: deleteIDs) this.changeLog.touch(id);
         try {
             this.getDefaultConnector().deleteByIds(deleteIDs);
             if (this.writeWebgraph) { // Webgraph.id is combination of sourceHash+targetHash+hexCounter, to be successful use source_id_s and/or target_id_s
@@ -539,6 +640,7 @@ public final class Fulltext {
         } catch (final Throwable e) {
             ConcurrentLog.logException(e);
         }
+        this.indexChanged();
     }
 
     /**
@@ -549,6 +651,7 @@ public final class Fulltext {
      */
     public boolean remove(final byte[] urlHash) {
         if (urlHash == null) return false;
+        this.changeLog.touch(urlHash);
         try {
             final String id = ASCII.String(urlHash);
             this.getDefaultConnector().deleteById(id);
@@ -559,6 +662,7 @@ public final class Fulltext {
         } catch (final Throwable e) {
             ConcurrentLog.logException(e);
         }
+        this.indexChanged();
         return false;
     }
 
@@ -637,6 +741,7 @@ public final class Fulltext {
      * @throws SolrException when no embedded Solr is available
      */
     public void restoreEmbeddedSolr(final File solrDumpZipFile) {
+        this.changeLog.touchAll();
         final EmbeddedInstance esc = this.solrInstances.getEmbedded();
         if(esc == null) {
             throw new SolrException(ErrorCode.SERVICE_UNAVAILABLE, "No embedded Solr available.");
@@ -706,11 +811,27 @@ public final class Fulltext {
             final String fileext, final String filter, final String query,
             final ExportFormat format, final boolean dom, final boolean text,
             final long maxChunkSize, final boolean minified) {
+        return this.export(path, filename, fileext, filter, query, format, dom, text, maxChunkSize, minified, 1, false);
+    }
+
+    /**
+     * start an export of the index
+     * @param threads if greater than 1, the id space is partitioned and the partitions are exported in parallel by this number of workers,
+     *        each partition into its own gzipped chunk files
+     * @param resume in a parallel export, skip the partitions which were completed by a former export to the same path and filename
+     * @return the export thread
+     */
+    public Export export(
+            final File path, final String filename,
+            final String fileext, final String filter, final String query,
+            final ExportFormat format, final boolean dom, final boolean text,
+            final long maxChunkSize, final boolean minified,
+            final int threads, final boolean resume) {
         if ((this.exportthread != null) && (this.exportthread.isAlive())) {
             ConcurrentLog.warn("LURL-EXPORT", "cannot start another export thread, already one running");
             return this.exportthread;
         }
-        this.exportthread = new Export(path, filename, fileext, filter, query, format, dom, text, maxChunkSize, minified);
+        this.exportthread = new Export(path, filename, fileext, filter, query, format, dom, text, maxChunkSize, minified, threads, resume);
         this.exportthread.start();
         return this.exportthread;
     }
@@ -737,39 +858,102 @@ public final class Fulltext {
         minified_keys.add(CollectionSchema.collection_sxt.getSolrFieldName()); // needed to support the pack concept
     }
 
+    /** the number of partitions of a parallel export: the document ids are partitioned by their first base64 character */
+    public static final int EXPORT_PARTITIONS = 64;
+
+    /** the extension of the file in which a parallel export records its completed partitions */
+    public static final String EXPORT_PROGRESS_EXT = "partitions";
+
+    /**
+     * find a parallel export in a path which was not completed and can be resumed
+     * @param path the export path
+     * @param filter the url filter of the export
+     * @param query the query of the export
+     * @param format the format of the export
+     * @param dom true if the export is a domain list
+     * @param text true if the text of the documents is exported
+     * @param maxChunkSize the maximum number of documents per chunk
+     * @param minified true if only the minified fields are exported
+     * @return the file name of the latest unfinished export with the same parameters, or null if there is none
+     */
+    public static String resumableExport(final File path, final String filter, final String query, final ExportFormat format,
+            final boolean dom, final boolean text, final long maxChunkSize, final boolean minified) {
+        final String[] names = path == null ? null : path.list((dir, name) -> name.endsWith("." + EXPORT_PROGRESS_EXT));
+        if (names == null) return null;
+        final String head = exportProgressHead(format, filter, query == null ? AbstractSolrConnector.CATCHALL_QUERY : query, dom, text, maxChunkSize, minified);
+        String resumable = null;
+        long latest = Long.MIN_VALUE;
+        for (final String name: names) {
+            final File f = new File(path, name);
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+                if (!head.equals(reader.readLine()) || f.lastModified() <= latest) continue;
+                latest = f.lastModified();
+                resumable = name.substring(0, name.length() - EXPORT_PROGRESS_EXT.length() - 1);
+            } catch (final IOException e) {
+                ConcurrentLog.warn("LURL-EXPORT", "cannot read export progress " + f + ": " + e.getMessage());
+            }
+        }
+        return resumable;
+    }
+
+    /**
+     * the first line of the progress file of a parallel export. It contains all parameters which change the content
+     * of the chunks, so that only an export with the same parameters continues to write into them.
+     * The filter is written with its length, so that it cannot be confused with the query which follows.
+     */
+    private static String exportProgressHead(final ExportFormat format, final String filter, final String query,
+            final boolean dom, final boolean text, final long maxChunkSize, final boolean minified) {
+        final String f = filter == null ? "" : filter;
+        return format.name() + " dom=" + dom + " text=" + text + " minified=" + minified + " maxChunkSize=" + maxChunkSize +
+               " filter=" + f.length() + ":" + f + " query=" + query;
+    }
+
     public class Export extends Thread {
         private final File path;
         private final String filename, fileext;
+        private final String filter;
         private final Pattern pattern;
         private String failure;
         private final String query;
         private final ExportFormat format;
         private final boolean dom, text;
-        private int docCount, chunkSize, chunkCount;
+        private final AtomicInteger docCount, chunkCount;
+        private int chunkSize;
         private final long maxChunkSize;
         private final boolean minified;
+        private final int threads;
+        private final boolean resume;
+        private final AtomicInteger partitionsDone;
+        private volatile long startTime, endTime;
 
         private Export(
                 final File path, final String filename,
                 final String fileext, final String filter, final String query,
                 final ExportFormat format, final boolean dom, final boolean text,
-                final long maxChunkSize, final boolean minified) {
+                final long maxChunkSize, final boolean minified,
+                final int threads, final boolean resume) {
             super("Fulltext.Export");
             // format: 0=text, 1=html, 2=rss/xml
             this.path = path;
             this.filename = filename;
             this.fileext = fileext;
+            this.filter = filter;
             this.pattern = filter == null ? null : Pattern.compile(filter);
             this.query = query == null? AbstractSolrConnector.CATCHALL_QUERY : query;
             this.failure = null;
             this.format = format;
             this.dom = dom;
             this.text = text;
-            this.docCount = 0; // number of all documents exported so far
+            this.docCount = new AtomicInteger(0); // number of all documents exported so far
             this.chunkSize = 0; // number of documents in the current chunk
-            this.chunkCount = 0; // number of chunks opened so far
+            this.chunkCount = new AtomicInteger(0); // number of chunks opened so far
             this.maxChunkSize = maxChunkSize; // number of maximum document count per chunk
             this.minified = minified;
+            this.threads = dom ? 1 : Math.max(1, threads); // the domain list is a single facet and cannot be partitioned
+            this.resume = resume;
+            this.partitionsDone = new AtomicInteger(0);
+            this.startTime = 0;
+            this.endTime = 0;
             //if ((dom) && (format == 2)) dom = false;
         }
 
@@ -815,147 +999,291 @@ public final class Fulltext {
 
         @Override
         public void run() {
+            this.startTime = System.currentTimeMillis();
             try {
                 if (this.path != null) this.path.mkdirs();
             } catch(final Exception e) {
                 ConcurrentLog.logException(e);
                 this.failure = e.getMessage();
+                this.endTime = System.currentTimeMillis();
                 return;
             }
 
             try {
-                this.docCount = 0;
-                this.chunkSize = 0;
-                this.chunkCount = 0;
-                PrintWriter pw = this.getWriter();
-                this.printHead(pw);
-                if (this.dom) {
-                    final Map<String, ReversibleScoreMap<String>> scores = Fulltext.this.getDefaultConnector().getFacets(this.query + " AND " + CollectionSchema.httpstatus_i.getSolrFieldName() + ":200", 100000000, CollectionSchema.host_s.getSolrFieldName());
-                    final ReversibleScoreMap<String> stats = scores.get(CollectionSchema.host_s.getSolrFieldName());
-                    for (final String host: stats) {
-                        if (this.pattern != null && !this.pattern.matcher(host).matches()) continue;
-                        if (this.format == ExportFormat.text) pw.println(host);
-                        if (this.format == ExportFormat.html) pw.println("<a href=\"http://" + host + "\">" + host + "</a><br>");
-                        this.docCount++; this.chunkSize++;
-                    }
+                if (this.threads > 1) {
+                    this.runParallel();
                 } else {
-                    if (this.format == ExportFormat.solr || this.format == ExportFormat.elasticsearch || (this.text && this.format == ExportFormat.text)) {
-                        final BlockingQueue<SolrDocument> docs = Fulltext.this.getDefaultConnector().concurrentDocumentsByQuery(this.query + " AND " + CollectionSchema.httpstatus_i.getSolrFieldName() + ":200", null, 0, 100000000, Long.MAX_VALUE, 100, 1, true);
-                        SolrDocument doc;
-                        while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
-                            final String url = this.getStringFrom(doc.getFieldValue(CollectionSchema.sku.getSolrFieldName()));
-                            if (this.pattern != null && !this.pattern.matcher(url).matches()) continue;
-
-                            // exclude non-minified keys if minified export is requested
-                            if (this.minified) {
-                                final Iterator<Entry<String, Object>> i = doc.iterator();
-                                while (i.hasNext()) {
-                                    if (!minified_keys.contains(i.next().getKey())) i.remove();
-                                }
-                            }
-
-                            // rename sku to url_s
-                            final Iterator<Entry<String, Object>> i = doc.iterator();
-                            while (i.hasNext()) {
-                                Entry<String, Object> entry = i.next();
-                                if (entry.getKey().equals(CollectionSchema.sku.getSolrFieldName())) {
-                                    String sku = (String) entry.getValue();
-                                    i.remove();
-                                    doc.setField("url_s", sku);
-                                    break;
-                                }
-                            }
-
-                            // write the document in requested format
-                            final CRIgnoreWriter sw = new CRIgnoreWriter();
-                            if (this.text) sw.write((String) doc.getFieldValue(CollectionSchema.text_t.getSolrFieldName()));
-                            if (this.format == ExportFormat.solr) EnhancedXMLResponseWriter.writeDoc(sw, doc);
-                            if (this.format == ExportFormat.elasticsearch) FlatJSONResponseWriter.writeDoc(sw, doc);
-                            sw.close();
-                            if (this.format == ExportFormat.elasticsearch) pw.println("{\"index\":{}}");
-                            final String d = sw.toString();
-                            pw.println(d);
-                            this.docCount++; this.chunkSize++;
-                            if (this.maxChunkSize > 0 && this.chunkSize >= this.maxChunkSize) {
-                                this.printTail(pw);
-                                pw.close();
-                                this.chunkCount++;
-                                pw = this.getWriter();
-                                this.printHead(pw);
-                                this.chunkSize = 0;
-                            }
-                        }
-                    } else {
-                        final BlockingQueue<SolrDocument> docs = Fulltext.this.getDefaultConnector().concurrentDocumentsByQuery(this.query + " AND " + CollectionSchema.httpstatus_i.getSolrFieldName() + ":200", null, 0, 100000000, Long.MAX_VALUE, 100, 1, true,
-                                CollectionSchema.id.getSolrFieldName(), CollectionSchema.sku.getSolrFieldName(), CollectionSchema.title.getSolrFieldName(),
-                                CollectionSchema.author.getSolrFieldName(), CollectionSchema.description_txt.getSolrFieldName(), CollectionSchema.size_i.getSolrFieldName(), CollectionSchema.last_modified.getSolrFieldName());
-                        SolrDocument doc;
-                        String url, hash, title, author, description;
-                        Integer size;
-                        Date date;
-                        while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
-                            hash = this.getStringFrom(doc.getFieldValue(CollectionSchema.id.getSolrFieldName()));
-                            url = this.getStringFrom(doc.getFieldValue(CollectionSchema.sku.getSolrFieldName()));
-                            title = this.getStringFrom(doc.getFieldValue(CollectionSchema.title.getSolrFieldName()));
-                            author = this.getStringFrom(doc.getFieldValue(CollectionSchema.author.getSolrFieldName()));
-                            description = this.getStringFrom(doc.getFieldValue(CollectionSchema.description_txt.getSolrFieldName()));
-                            size = (Integer) doc.getFieldValue(CollectionSchema.size_i.getSolrFieldName());
-                            date = (Date) doc.getFieldValue(CollectionSchema.last_modified.getSolrFieldName());
-                            if (this.pattern != null && !this.pattern.matcher(url).matches()) continue;
-                            if (this.format == ExportFormat.text) {
-                                pw.println(url);
-                            }
-                            if (this.format == ExportFormat.html) {
-                                if (title != null) pw.println("<a href=\"" + MultiProtocolURL.escape(url) + "\">" + CharacterCoding.unicode2xml(title, true) + "</a>");
-                            }
-                            if (this.format == ExportFormat.rss) {
-                                pw.println("<item>");
-                                if (title != null) pw.println("<title>" + CharacterCoding.unicode2xml(title, true) + "</title>");
-                                pw.println("<link>" + MultiProtocolURL.escape(url) + "</link>");
-                                if (author != null && !author.isEmpty()) pw.println("<author>" + CharacterCoding.unicode2xml(author, true) + "</author>");
-                                if (description != null && !description.isEmpty()) pw.println("<description>" + CharacterCoding.unicode2xml(description, true) + "</description>");
-                                if (date != null) pw.println("<pubDate>" + HeaderFramework.formatRFC1123(date) + "</pubDate>");
-                                if (size != null) pw.println("<yacy:size>" + size.intValue() + "</yacy:size>");
-                                pw.println("<guid isPermaLink=\"false\">" + hash + "</guid>");
-                                pw.println("</item>");
-                            }
-                            this.docCount++; this.chunkSize++;
-                            if (this.maxChunkSize > 0 && this.chunkSize >= this.maxChunkSize) {
-                                this.printTail(pw);
-                                pw.close();
-                                this.chunkCount++;
-                                pw = this.getWriter();
-                                this.printHead(pw);
-                                this.chunkSize = 0;
-                            }
-                        }
-                    }
+                    this.runSequential();
                 }
-                this.printTail(pw);
-                pw.close();
             } catch (final Exception e) {
                 /* Catch but log any IO exception that can occur on copy, automatic closing or streams creation */
                 ConcurrentLog.logException(e);
-                this.failure = e.getMessage();
+                this.failure = e.getMessage() == null ? e.toString() : e.getMessage(); // an interrupted export has no message
             }
+            this.endTime = System.currentTimeMillis();
             // terminate process
         }
 
+        private void runSequential() throws IOException, InterruptedException {
+            this.docCount.set(0);
+            this.chunkSize = 0;
+            this.chunkCount.set(0);
+            PrintWriter pw = this.getWriter();
+            this.printHead(pw);
+            if (this.dom) {
+                final Map<String, ReversibleScoreMap<String>> scores = Fulltext.this.getDefaultConnector().getFacets(this.exportQuery(), 100000000, CollectionSchema.host_s.getSolrFieldName());
+                final ReversibleScoreMap<String> stats = scores.get(CollectionSchema.host_s.getSolrFieldName());
+                for (final String host: stats) {
+                    if (this.pattern != null && !this.pattern.matcher(host).matches()) continue;
+                    if (this.format == ExportFormat.text) pw.println(host);
+                    if (this.format == ExportFormat.html) pw.println("<a href=\"http://" + host + "\">" + host + "</a><br>");
+                    this.docCount.incrementAndGet(); this.chunkSize++;
+                }
+            } else {
+                final BlockingQueue<SolrDocument> docs = this.documents(this.exportQuery());
+                final CRIgnoreWriter sw = new CRIgnoreWriter();
+                SolrDocument doc;
+                while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                    if (!this.printDocument(pw, doc, sw)) continue;
+                    this.docCount.incrementAndGet(); this.chunkSize++;
+                    if (this.maxChunkSize > 0 && this.chunkSize >= this.maxChunkSize) {
+                        this.printTail(pw);
+                        pw.close();
+                        this.chunkCount.incrementAndGet();
+                        pw = this.getWriter();
+                        this.printHead(pw);
+                        this.chunkSize = 0;
+                    }
+                }
+            }
+            this.printTail(pw);
+            pw.close();
+        }
+
+        /**
+         * export the partitions of the id space with a pool of workers. Each worker streams its partition into own gzipped chunk files;
+         * completed partitions are recorded in a progress file, so that an interrupted export can be resumed.
+         */
+        private void runParallel() throws IOException, InterruptedException {
+            final File progress = new File(this.path, this.filename + "." + EXPORT_PROGRESS_EXT);
+            final Set<Integer> completed = this.resume ? this.readProgress(progress) : new HashSet<>();
+            // write the progress file again, so that new partitions are not appended to an incomplete last line
+            try (final PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(progress), StandardCharsets.UTF_8))) {
+                pw.println(this.progressHead());
+                for (final Integer p: completed) pw.println(p);
+            }
+            this.partitionsDone.set(completed.size());
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(this.threads, this.threads, 1L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory("Fulltext.Export"));
+            try {
+                final List<Future<?>> workers = new ArrayList<>(EXPORT_PARTITIONS);
+                for (int p = 0; p < EXPORT_PARTITIONS; p++) {
+                    if (completed.contains(p)) continue;
+                    final int partition = p;
+                    workers.add(pool.submit(() -> {
+                        this.exportPartition(partition, progress);
+                        return null;
+                    }));
+                }
+                for (final Future<?> worker: workers) {
+                    try {
+                        worker.get();
+                    } catch (final ExecutionException e) {
+                        // the other partitions are exported anyway; the failed partition is exported again on resume
+                        ConcurrentLog.logException(e.getCause());
+                        this.failure = e.getCause().getMessage();
+                    }
+                }
+            } finally {
+                pool.shutdownNow();
+                // wait for interrupted workers, so that a resumed export does not find chunks which are still written
+                try {
+                    pool.awaitTermination(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (this.failure == null) progress.delete(); // nothing left to resume
+        }
+
+        private void exportPartition(final int partition, final File progress) throws IOException, InterruptedException {
+            final String chunkPrefix = this.filename + "_p" + String.format("%02d", partition) + "_";
+            // remove the chunks of an interrupted former export of this partition
+            final File[] stale = this.path.listFiles((dir, name) -> name.startsWith(chunkPrefix));
+            if (stale != null) for (final File f: stale) f.delete();
+
+            final char prefix = Base64Order.enhancedCoder.encodeByte((byte) partition);
+            final String partitionQuery = this.exportQuery() + " AND " + CollectionSchema.id.getSolrFieldName() + ":" +
+                    (Character.isLetterOrDigit(prefix) ? "" : "\\") + prefix + "*";
+            final BlockingQueue<SolrDocument> docs = this.documents(partitionQuery);
+            final CRIgnoreWriter sw = new CRIgnoreWriter(); // the formatter buffer is reused for all documents of the partition
+            PrintWriter pw = null;
+            int chunk = 0, size = 0;
+            boolean error = false;
+            try {
+                SolrDocument doc;
+                while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                    if (pw == null) {
+                        pw = this.getWriter(new File(this.path, chunkPrefix + this.chunkcount(chunk++) + "." + this.fileext + ".gz"), Deflater.DEFAULT_COMPRESSION);
+                        this.printHead(pw);
+                    }
+                    if (!this.printDocument(pw, doc, sw)) continue;
+                    this.docCount.incrementAndGet();
+                    if (this.maxChunkSize > 0 && ++size >= this.maxChunkSize) {
+                        error |= this.closeChunk(pw);
+                        pw = null;
+                        size = 0;
+                    }
+                }
+            } finally {
+                if (pw != null) error |= this.closeChunk(pw);
+            }
+            if (error) throw new IOException("cannot write export partition " + partition);
+            synchronized (this) {
+                try (final PrintWriter pp = new PrintWriter(new OutputStreamWriter(new FileOutputStream(progress, true), StandardCharsets.UTF_8))) {
+                    pp.println(partition);
+                }
+            }
+            this.partitionsDone.incrementAndGet();
+        }
+
+        /**
+         * @return true if the chunk could not be written completely
+         */
+        private boolean closeChunk(final PrintWriter pw) {
+            this.printTail(pw);
+            pw.close();
+            this.chunkCount.incrementAndGet();
+            return pw.checkError();
+        }
+
+        private Set<Integer> readProgress(final File progress) throws IOException {
+            final Set<Integer> completed = new HashSet<>();
+            if (!progress.exists()) return completed;
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(progress), StandardCharsets.UTF_8))) {
+                if (!this.progressHead().equals(reader.readLine())) {
+                    throw new IOException("the export " + progress + " was made with other parameters");
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        completed.add(Integer.parseInt(line.trim()));
+                    } catch (final NumberFormatException e) {
+                        // the last line may be incomplete if the export was killed while writing it
+                    }
+                }
+            }
+            return completed;
+        }
+
+        private String progressHead() {
+            return exportProgressHead(this.format, this.filter, this.query, this.dom, this.text, this.maxChunkSize, this.minified);
+        }
+
+        private String exportQuery() {
+            return this.query + " AND " + CollectionSchema.httpstatus_i.getSolrFieldName() + ":200";
+        }
+
+        private BlockingQueue<SolrDocument> documents(final String query) {
+            if (this.format == ExportFormat.solr || this.format == ExportFormat.elasticsearch || (this.text && this.format == ExportFormat.text)) {
+                return Fulltext.this.getDefaultConnector().concurrentDocumentsByQuery(query, null, 0, 100000000, Long.MAX_VALUE, 100, 1, true);
+            }
+            return Fulltext.this.getDefaultConnector().concurrentDocumentsByQuery(query, null, 0, 100000000, Long.MAX_VALUE, 100, 1, true,
+                    CollectionSchema.id.getSolrFieldName(), CollectionSchema.sku.getSolrFieldName(), CollectionSchema.title.getSolrFieldName(),
+                    CollectionSchema.author.getSolrFieldName(), CollectionSchema.description_txt.getSolrFieldName(), CollectionSchema.size_i.getSolrFieldName(), CollectionSchema.last_modified.getSolrFieldName());
+        }
+
+        /**
+         * write a document in the export format
+         * @param pw the writer of the current chunk
+         * @param doc the document
+         * @param sw a formatter buffer which is reused for each document
+         * @return false if the document was filtered out
+         */
+        private boolean printDocument(final PrintWriter pw, final SolrDocument doc, final CRIgnoreWriter sw) throws IOException {
+            final String url = this.getStringFrom(doc.getFieldValue(CollectionSchema.sku.getSolrFieldName()));
+            if (this.pattern != null && !this.pattern.matcher(url).matches()) return false;
+
+            if (this.format == ExportFormat.solr || this.format == ExportFormat.elasticsearch || (this.text && this.format == ExportFormat.text)) {
+                // exclude non-minified keys if minified export is requested
+                if (this.minified) {
+                    final Iterator<Entry<String, Object>> i = doc.iterator();
+                    while (i.hasNext()) {
+                        if (!minified_keys.contains(i.next().getKey())) i.remove();
+                    }
+                }
+
+                // rename sku to url_s
+                final Iterator<Entry<String, Object>> i = doc.iterator();
+                while (i.hasNext()) {
+                    Entry<String, Object> entry = i.next();
+                    if (entry.getKey().equals(CollectionSchema.sku.getSolrFieldName())) {
+                        String sku = (String) entry.getValue();
+                        i.remove();
+                        doc.setField("url_s", sku);
+                        break;
+                    }
+                }
+
+                // write the document in requested format
+                sw.getBuffer().setLength(0);
+                if (this.text) sw.write((String) doc.getFieldValue(CollectionSchema.text_t.getSolrFieldName()));
+                if (this.format == ExportFormat.solr) EnhancedXMLResponseWriter.writeDoc(sw, doc);
+                if (this.format == ExportFormat.elasticsearch) FlatJSONResponseWriter.writeDoc(sw, doc);
+                if (this.format == ExportFormat.elasticsearch) pw.println("{\"index\":{}}");
+                pw.println(sw.toString());
+                return true;
+            }
+
+            final String hash = this.getStringFrom(doc.getFieldValue(CollectionSchema.id.getSolrFieldName()));
+            final String title = this.getStringFrom(doc.getFieldValue(CollectionSchema.title.getSolrFieldName()));
+            final String author = this.getStringFrom(doc.getFieldValue(CollectionSchema.author.getSolrFieldName()));
+            final String description = this.getStringFrom(doc.getFieldValue(CollectionSchema.description_txt.getSolrFieldName()));
+            final Integer size = (Integer) doc.getFieldValue(CollectionSchema.size_i.getSolrFieldName());
+            final Date date = (Date) doc.getFieldValue(CollectionSchema.last_modified.getSolrFieldName());
+            if (this.format == ExportFormat.text) {
+                pw.println(url);
+            }
+            if (this.format == ExportFormat.html) {
+                if (title != null) pw.println("<a href=\"" + MultiProtocolURL.escape(url) + "\">" + CharacterCoding.unicode2xml(title, true) + "</a>");
+            }
+            if (this.format == ExportFormat.rss) {
+                pw.println("<item>");
+                if (title != null) pw.println("<title>" + CharacterCoding.unicode2xml(title, true) + "</title>");
+                pw.println("<link>" + MultiProtocolURL.escape(url) + "</link>");
+                if (author != null && !author.isEmpty()) pw.println("<author>" + CharacterCoding.unicode2xml(author, true) + "</author>");
+                if (description != null && !description.isEmpty()) pw.println("<description>" + CharacterCoding.unicode2xml(description, true) + "</description>");
+                if (date != null) pw.println("<pubDate>" + HeaderFramework.formatRFC1123(date) + "</pubDate>");
+                if (size != null) pw.println("<yacy:size>" + size.intValue() + "</yacy:size>");
+                pw.println("<guid isPermaLink=\"false\">" + hash + "</guid>");
+                pw.println("</item>");
+            }
+            return true;
+        }
+
         public File file() {
+            if (this.threads > 1) {
+                // a parallel export writes one set of chunks for each partition
+                return new File(this.path, this.filename + "_p*." + this.fileext + ".gz");
+            }
             if (this.maxChunkSize <= 0 || this.maxChunkSize == Long.MAX_VALUE) {
                 // no chunking, just one file
                 final File f = new File(this.path, this.filename + "." + this.fileext);
                 return f;
             }
-            final File f = new File(this.path, this.filename + "_" + this.chunkcount(this.chunkCount) + "." + this.fileext);
+            final File f = new File(this.path, this.filename + "_" + this.chunkcount(this.chunkCount.get()) + "." + this.fileext);
             return f;
         }
 
         private PrintWriter getWriter() throws IOException {
             final File f = this.file();
-            final OutputStream os = new FileOutputStream(this.format == ExportFormat.solr ? new File(f.getAbsolutePath() + ".gz") : f);
-            final PrintWriter pw =  new PrintWriter(new BufferedOutputStream(((this.format == ExportFormat.solr)) ? new GZIPOutputStream(os, 65536){{this.def.setLevel(Deflater.BEST_COMPRESSION);}} : os));
-            return pw;
+            if (this.format == ExportFormat.solr) return this.getWriter(new File(f.getAbsolutePath() + ".gz"), Deflater.BEST_COMPRESSION);
+            return new PrintWriter(new BufferedOutputStream(new FileOutputStream(f)));
+        }
+
+        private PrintWriter getWriter(final File f, final int compressionLevel) throws IOException {
+            final OutputStream os = new FileOutputStream(f);
+            return new PrintWriter(new BufferedOutputStream(new GZIPOutputStream(os, 65536){{this.def.setLevel(compressionLevel);}}));
         }
 
         private String chunkcount(final int count) {
@@ -982,11 +1310,34 @@ public final class Fulltext {
         }
 
         public int docCount() {
-            return this.docCount;
+            return this.docCount.get();
         }
 
         public int chunkCount() {
-            return this.chunkCount;
+            return this.chunkCount.get();
+        }
+
+        /**
+         * @return the number of export workers; 1 for a sequential export
+         */
+        public int threads() {
+            return this.threads;
+        }
+
+        /**
+         * @return the number of completed partitions of a parallel export, including those of a resumed former export
+         */
+        public int partitionsDone() {
+            return this.partitionsDone.get();
+        }
+
+        /**
+         * @return the throughput of the export in documents per second
+         */
+        public double docsPerSecond() {
+            if (this.startTime == 0) return 0.0d;
+            final long end = this.endTime == 0 ? System.currentTimeMillis() : this.endTime;
+            return this.docCount.get() * 1000.0d / Math.max(1, end - this.startTime);
         }
 
         @SuppressWarnings("unchecked")
@@ -0,0 +1,347 @@
+/**
+ *  IndexChangeLog
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.index;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.util.ConcurrentLog;
+
+/**
+ * A persistent log of the hosts and documents which were changed in the index since the last postprocessing.
+ * Postprocessing only needs to recompute the hosts in this log instead of scanning the whole index.
+ * The log is an append-only file with one entry per line:
+ * <ul>
+ * <li>a url id (12 characters) or a host id (6 characters) which was changed</li>
+ * <li><code>*</code> if a change could not be attributed to hosts; the next postprocessing must scan the whole index</li>
+ * <li><code>-</code> followed by a host id, or <code>-*</code>, if the host or all entries were postprocessed</li>
+ * <li><code>.</code> when the log was closed cleanly</li>
+ * </ul>
+ * If the log was not closed cleanly, the latest entries may be lost and the whole index is scanned at the next postprocessing.
+ * The same happens if the log did not exist yet or if it grows beyond its limits.
+ */
+public class IndexChangeLog {
+
+    public static final String FILE_NAME = "postprocessing.changelog";
+
+    /** if more hosts or urls are changed, the log is dropped and a scan of the whole index is done instead */
+    public static final int MAX_HOSTS = 100000;
+    public static final int MAX_URLS = 1000000;
+
+    private static final String ALL = "*", DONE = "-", CLOSED = ".";
+    private static final long FLUSH_INTERVAL = 1000;
+
+    private static class Entry {
+        private long sequence;
+        private final Set<String> urls = new HashSet<>();
+    }
+
+    /**
+     * The hosts which are postprocessed in one run. After the run, the hosts are removed from the log
+     * with {@link IndexChangeLog#done(Batch)} unless they were changed again in the meantime.
+     */
+    public static class Batch {
+        /** true if the whole index must be scanned */
+        public final boolean all;
+        /** the host ids of the changed hosts, if not all */
+        public final Collection<String> hosts;
+        private final Map<String, Long> sequences;
+        private final long sequence;
+
+        private Batch(final boolean all, final Map<String, Long> sequences, final long sequence) {
+            this.all = all;
+            this.sequences = sequences;
+            this.hosts = Collections.unmodifiableCollection(sequences.keySet());
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return true if nothing was changed since the last postprocessing
+         */
+        public boolean isEmpty() {
+            return !this.all && this.hosts.isEmpty();
+        }
+    }
+
+    private final File file;
+    private PrintWriter out;
+    private final Map<String, Entry> hosts;
+    private long sequence, allSequence, lastFlush;
+    private int urls, lines;
+
+    /**
+     * open the change log
+     * @param file the log file; if it does not exist, the log starts with a full scan
+     */
+    public IndexChangeLog(final File file) {
+        this.file = file;
+        this.hosts = new HashMap<>();
+        this.sequence = 0;
+        this.allSequence = -1;
+        this.urls = 0;
+        this.lastFlush = System.currentTimeMillis();
+        boolean closed = false;
+        if (file.exists()) {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    closed = CLOSED.equals(line);
+                    this.apply(line);
+                }
+            } catch (final IOException e) {
+                ConcurrentLog.warn("IndexChangeLog", "cannot read " + file + ": " + e.getMessage());
+                closed = false;
+            }
+        }
+        if (!closed) this.touchAll();
+        this.compact();
+    }
+
+    private void apply(final String line) {
+        if (line.isEmpty() || CLOSED.equals(line)) return;
+        if (ALL.equals(line)) {
+            this.touchAll0();
+        } else if ((DONE + ALL).equals(line)) {
+            this.hosts.clear();
+            this.urls = 0;
+            this.allSequence = -1;
+        } else if (line.startsWith(DONE)) {
+            final Entry entry = this.hosts.remove(line.substring(DONE.length()));
+            if (entry != null) this.urls -= entry.urls.size();
+        } else {
+            this.touch0(line);
+        }
+    }
+
+    private boolean touch0(final String id) {
+        if (id.length() != 6 && id.length() != 12) return false;
+        final String hostid = id.length() == 12 ? id.substring(6) : id;
+        Entry entry = this.hosts.get(hostid);
+        if (entry == null) {
+            if (this.hosts.size() >= MAX_HOSTS) return this.touchAll0();
+            entry = new Entry();
+            this.hosts.put(hostid, entry);
+        }
+        entry.sequence = ++this.sequence;
+        if (id.length() == 12 && entry.urls.add(id) && ++this.urls > MAX_URLS) return this.touchAll0();
+        return true;
+    }
+
+    /**
+     * a full scan replaces all entries; only the sequence is needed to detect later changes
+     */
+    private boolean touchAll0() {
+        this.hosts.clear();
+        this.urls = 0;
+        this.allSequence = ++this.sequence;
+        return false;
+    }
+
+    private void write(final String line) {
+        if (this.out == null) return;
+        this.out.println(line);
+        this.lines++;
+        final long now = System.currentTimeMillis();
+        if (now - this.lastFlush > FLUSH_INTERVAL) {
+            this.out.flush();
+            this.lastFlush = now;
+        }
+    }
+
+    /**
+     * rewrite the log file with the current entries only
+     */
+    private void compact() {
+        if (this.out != null) this.out.close();
+        this.out = null;
+        this.lines = 0;
+        try {
+            final File parent = this.file.getParentFile();
+            if (parent != null) parent.mkdirs();
+            final File tmp = new File(this.file.getAbsolutePath() + ".tmp");
+            try (final PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                if (this.allSequence >= 0) pw.println(ALL);
+                for (final Map.Entry<String, Entry> entry: this.hosts.entrySet()) {
+                    if (entry.getValue().urls.isEmpty()) {
+                        pw.println(entry.getKey());
+                    } else {
+                        for (final String url: entry.getValue().urls) pw.println(url);
+                    }
+                }
+            }
+            if (!tmp.renameTo(this.file)) {
+                this.file.delete();
+                if (!tmp.renameTo(this.file)) throw new IOException("cannot rename " + tmp + " to " + this.file);
+            }
+            this.out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(this.file, true), StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            // without a file the log is not persistent; after a restart the whole index is scanned
+            ConcurrentLog.warn("IndexChangeLog", "cannot write " + this.file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * record a changed document
+     * @param urlhash the url hash of the document
+     */
+    public void touch(final byte[] urlhash) {
+        if (urlhash == null) return;
+        this.touch(ASCII.String(urlhash));
+    }
+
+    /**
+     * record a changed document or host
+     * @param id the url hash of the document (12 characters) or the host id (6 characters)
+     */
+    public synchronized void touch(final String id) {
+        if (id == null) return;
+        if (this.touch0(id)) this.write(id); else if (this.allSequence == this.sequence) this.write(ALL);
+    }
+
+    /**
+     * record a change which cannot be attributed to hosts; the next postprocessing scans the whole index
+     */
+    public synchronized void touchAll() {
+        this.touchAll0();
+        this.write(ALL);
+    }
+
+    /**
+     * forget all entries, i.e. after the index was cleared
+     */
+    public synchronized void clear() {
+        this.hosts.clear();
+        this.urls = 0;
+        this.allSequence = -1;
+        this.write(DONE + ALL);
+    }
+
+    /**
+     * get the hosts for a postprocessing run
+     * @param maxHosts the maximum number of hosts in the batch
+     * @return the batch
+     */
+    public synchronized Batch batch(final int maxHosts) {
+        if (this.out != null) this.out.flush();
+        if (this.allSequence >= 0) return new Batch(true, new HashMap<String, Long>(), this.sequence);
+        final Map<String, Long> sequences = new HashMap<>();
+        final Iterator<Map.Entry<String, Entry>> i = this.hosts.entrySet().iterator();
+        while (i.hasNext() && sequences.size() < maxHosts) {
+            final Map.Entry<String, Entry> entry = i.next();
+            sequences.put(entry.getKey(), entry.getValue().sequence);
+        }
+        return new Batch(false, sequences, this.sequence);
+    }
+
+    /**
+     * remove the entries of a batch after the postprocessing; entries which were changed during the postprocessing are kept
+     * @param batch the batch
+     */
+    public synchronized void done(final Batch batch) {
+        if (batch.all) {
+            if (this.allSequence > batch.sequence) return; // another change could not be attributed
+            final List<String> done = new ArrayList<>();
+            for (final Map.Entry<String, Entry> entry: this.hosts.entrySet()) {
+                if (entry.getValue().sequence <= batch.sequence) done.add(entry.getKey());
+            }
+            for (final String hostid: done) this.urls -= this.hosts.remove(hostid).urls.size();
+            this.allSequence = -1;
+            // the remaining entries are written again by the compaction
+            this.compact();
+            return;
+        }
+        for (final Map.Entry<String, Long> host: batch.sequences.entrySet()) {
+            final Entry entry = this.hosts.get(host.getKey());
+            if (entry == null || entry.sequence != host.getValue().longValue()) continue;
+            this.hosts.remove(host.getKey());
+            this.urls -= entry.urls.size();
+            this.write(DONE + host.getKey());
+        }
+        if (this.out != null) this.out.flush();
+        if (this.lines > 2 * (this.hosts.size() + this.urls) + 10000) this.compact();
+    }
+
+    /**
+     * remove the entries of a batch after a postprocessing which did not process all documents
+     * @param batch the batch
+     * @param unfinished the host ids of the hosts which still have documents to be postprocessed; these remain in the log
+     */
+    public synchronized void done(final Batch batch, final Collection<String> unfinished) {
+        if (unfinished.isEmpty()) {
+            this.done(batch);
+            return;
+        }
+        if (batch.all) {
+            // the full scan is done except for the unfinished hosts, which are processed in the next run
+            this.done(batch);
+            if (this.allSequence < 0) for (final String hostid: unfinished) this.touch(hostid);
+            return;
+        }
+        final Map<String, Long> sequences = new HashMap<>(batch.sequences);
+        sequences.keySet().removeAll(unfinished);
+        this.done(new Batch(false, sequences, batch.sequence));
+    }
+
+    /**
+     * @return true if the next postprocessing must scan the whole index
+     */
+    public synchronized boolean isAll() {
+        return this.allSequence >= 0;
+    }
+
+    /**
+     * @return the number of changed hosts which wait for postprocessing
+     */
+    public synchronized int hostBacklog() {
+        return this.hosts.size();
+    }
+
+    /**
+     * @return the number of changed documents which wait for postprocessing
+     */
+    public synchronized int urlBacklog() {
+        return this.urls;
+    }
+
+    public synchronized void close() {
+        if (this.out == null) return;
+        this.out.println(CLOSED);
+        this.out.close();
+        this.out = null;
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ *  IndexGeneration
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
+
+/**
+ * A counter for the changes of the index which are visible to searches. Results which were computed
+ * on an older generation may be outdated.
+ * Documents written to Solr are not visible before a commit registers a new searcher, which may happen
+ * several seconds after the write. Therefore the generation is not only increased by {@link #changed()}
+ * after a write but also whenever {@link #get(EmbeddedSolrConnector)} observes that a new searcher was registered.
+ * A search which starts before the new searcher is registered gets the old generation, even if the
+ * write itself was already signaled.
+ */
+public class IndexGeneration {
+
+    private final AtomicLong generation;
+    private long searcherVersion;
+
+    public IndexGeneration() {
+        this.generation = new AtomicLong(0);
+        this.searcherVersion = -1;
+    }
+
+    /**
+     * signal that the index was changed and that the change is visible (i.e. for indexes which are not searched with a Solr searcher)
+     */
+    public void changed() {
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * get the current generation
+     * @param connector the embedded connector which is searched or null
+     * @return the generation, it is increased if the searcher of the connector was changed since the last call
+     */
+    public long get(final EmbeddedSolrConnector connector) {
+        final long version = connector == null ? -1 : connector.getSearcherVersion();
+        synchronized (this) {
+            if (version != this.searcherVersion) {
+                this.searcherVersion = version;
+                this.generation.incrementAndGet();
+            }
+        }
+        return this.generation.get();
+    }
+}
@@ -45,11 +45,13 @@ import java.util.regex.Pattern;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
 
+import net.yacy.cora.document.SymmetricDeleteIndex;
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.federate.solr.connector.AbstractSolrConnector;
+import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
 import net.yacy.cora.federate.solr.connector.SolrConnector;
 import net.yacy.cora.federate.yacy.CacheStrategy;
 import net.yacy.cora.order.Base64Order;
@@ -113,6 +115,9 @@ public class Segment {
     public static final String citationIndexName  = "citation.index";
     public static final String firstseenIndexName = "firstseen.index";
     public static final String loadtimeIndexName  = "loadtime.index";
+    public static final int  spellingMaxTerms   = 100000;         // maximum number of index terms in the spelling index
+    public static final int  spellingMinDocFreq = 2;              // terms which occur in less documents are not suggested
+    public static final long spellingMaxAge     = 1000 * 60 * 60; // milliseconds; 1 hour
 
     // the reference factory
     public static final ReferenceFactory<WordReference> wordReferenceFactory = new WordReferenceFactory();
@@ -127,6 +132,11 @@ public class Segment {
     private         IndexTable                     firstSeenIndex;
     private         IndexTable                     loadTimeIndex;
     private         IODispatcher                   merger = null; // shared iodispatcher for kelondro indexes
+    private volatile SymmetricDeleteIndex          termSpelling; // the most frequent terms of the fulltext index for spelling suggestions
+    private final Object                           termSpellingLock = new Object();
+    private         long                           termSpellingTime = 0;
+    private         long                           termSpellingVersion = -1;
+    private         boolean                        termSpellingRunning = false;
 
     /**
      * create a new Segment
@@ -146,6 +156,7 @@ public class Segment {
         this.urlCitationIndex = null;
         this.firstSeenIndex = new IndexTable(new File(segmentPath, firstseenIndexName), 12, 8, false, false);
         this.loadTimeIndex = new IndexTable(new File(segmentPath, loadtimeIndexName), 12, 8, false, false);
+        this.termSpelling = new SymmetricDeleteIndex(2, 6);
     }
 
     public boolean connectedRWI() {
@@ -220,6 +231,13 @@ public class Segment {
         return this.fulltext;
     }
 
+    /**
+     * @return the generation of the index content; it changes whenever a document is stored or deleted
+     */
+    public long indexGeneration() {
+        return this.fulltext.indexGeneration();
+    }
+
     public IndexCell<WordReference> termIndex() {
         return this.termIndex;
     }
@@ -385,6 +403,47 @@ public class Segment {
         }
     }
 
+    /**
+     * get a spelling index of the most frequent terms of the text field of the fulltext index.
+     * The index is built in a background thread from the term dictionary of the embedded Solr index. It is built again
+     * when it is older than spellingMaxAge and the index was changed since the last build; until the first build is
+     * finished, the returned index is empty. A remote Solr index is not used because its term dictionary cannot be read.
+     * @return the spelling index, the counts of the terms are their document frequency
+     */
+    public SymmetricDeleteIndex termSpelling() {
+        final EmbeddedSolrConnector connector = this.fulltext.getDefaultEmbeddedConnector();
+        if (connector == null) return this.termSpelling;
+        synchronized (this.termSpellingLock) {
+            if (this.termSpellingRunning || System.currentTimeMillis() - this.termSpellingTime < spellingMaxAge) return this.termSpelling;
+            final long version = connector.getSearcherVersion();
+            if (version == this.termSpellingVersion) return this.termSpelling;
+            this.termSpellingRunning = true;
+            this.termSpellingTime = System.currentTimeMillis();
+            this.termSpellingVersion = version;
+        }
+        new Thread("Segment.termSpelling") {
+            @Override
+            public void run() {
+                try {
+                    final Map<String, Integer> terms = connector.getFrequentTerms(CollectionSchema.text_t.getSolrFieldName(),
+                            term -> term.length() >= 4 && term.length() <= 32 && term.codePoints().allMatch(Character::isLetter),
+                            spellingMinDocFreq, spellingMaxTerms);
+                    final SymmetricDeleteIndex spelling = new SymmetricDeleteIndex(2, 6);
+                    for (final Map.Entry<String, Integer> term: terms.entrySet()) spelling.add(term.getKey(), term.getValue());
+                    Segment.this.termSpelling = spelling;
+                    Segment.this.log.info("built spelling index with " + spelling.size() + " terms of the fulltext index");
+                } catch (final Throwable e) {
+                    Segment.this.log.warn("cannot build spelling index of the fulltext index", e);
+                } finally {
+                    synchronized (Segment.this.termSpellingLock) {
+                        Segment.this.termSpellingRunning = false;
+                    }
+                }
+            }
+        }.start();
+        return this.termSpelling;
+    }
+
     public void setFirstSeenTime(final byte[] urlhash, long time) {
         if (urlhash == null || time <= 0) return;
         try {
@@ -491,6 +550,8 @@ public class Segment {
             if (this.urlCitationIndex != null) this.urlCitationIndex.clear();
         } catch (final IOException e) {
             ConcurrentLog.logException(e);
+        } finally {
+            if (this.fulltext != null) this.fulltext.indexChanged();
         }
     }
 
@@ -797,6 +858,9 @@ public class Segment {
             if (this.termIndex != null) try {this.termIndex.add(catchallHash, ientry);} catch (final Throwable e) {ConcurrentLog.logException(e);}
         }
 
+        // the rwi entries are written after the solr document; invalidate results which were computed in between
+        this.fulltext.indexChanged();
+
         // finish index time
         final long indexingEndTime = System.currentTimeMillis();
 
@@ -850,6 +914,7 @@ public class Segment {
             // delete all word references
             int count = 0;
             if (words != null && termIndex() != null) count = termIndex().remove(Word.words2hashesHandles(words), urlhash);
+            if (count > 0) fulltext().indexChanged();
 
             // finally delete the url entry itself
             fulltext().remove(urlhash);
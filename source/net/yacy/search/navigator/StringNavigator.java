@@ -30,7 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import net.yacy.cora.sorting.ConcurrentScoreMap;
+import net.yacy.cora.sorting.PrimitiveScoreMap;
 import net.yacy.cora.sorting.ReversibleScoreMap;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.search.query.QueryModifier;
@@ -40,7 +40,7 @@ import net.yacy.search.schema.CollectionSchema;
  * Search navigator for simple string entries based on ScoreMap to count and
  * order the result list by counted occurence
  */
-public class StringNavigator extends ConcurrentScoreMap<String> implements Navigator {
+public class StringNavigator extends PrimitiveScoreMap<String> implements Navigator {
 
     public String title;
     protected final CollectionSchema field;
@@ -187,7 +187,7 @@ public class StringNavigator extends ConcurrentScoreMap<String> implements Navig
     @Override
     public Iterator<String> navigatorKeys() {
     	if(this.sort.getSortType() == NavigatorSortType.LABEL) {
-        	final ArrayList<String> keys = new ArrayList<>(this.map.keySet());
+        	final ArrayList<String> keys = new ArrayList<>(keySnapshot());
         	
         	Comparator<String> keyComparator = Comparator.comparing(this::getElementDisplayName);
         	if(this.sort.getSortDir() == NavigatorSortDirection.DESC) {
@@ -0,0 +1,299 @@
+/**
+ *  LocalResultCache
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.query;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.sorting.ClusteredScoreMap;
+import net.yacy.cora.sorting.ReversibleScoreMap;
+import net.yacy.kelondro.data.meta.URIMetadataNode;
+
+/**
+ * A cache for the results of the local Solr search of local queries. Local search events are not
+ * re-used by the {@link SearchEventCache} because every result page starts a new event, so a repeated
+ * query always hits the index again. This cache stores the ranked url hashes of one result page together
+ * with the scores, snippets and facet counts; a new search event for the same query replays the entry
+ * and only loads the documents by their hash.
+ * Each entry is tagged with the index generation at the time the search was started. An entry is only
+ * used as long as the index generation did not change, every write or delete in the index invalidates
+ * all entries. The cache size is limited by an estimated byte budget, the least recently used entries
+ * are removed first.
+ */
+public class LocalResultCache {
+
+    /**
+     * the cached result of one local Solr search
+     */
+    public static class Entry {
+
+        private final long generation;
+        private final byte[][] urlhashes;
+        private final float[] scores;
+        private final Map<String, LinkedHashSet<String>> snippets;
+        private final Map<String, Map<String, Integer>> facets;
+        private final int fullResource;
+        private final long bytes;
+
+        /**
+         * @param generation the index generation when the search was started
+         * @param nodes the ranked result list of the Solr search
+         * @param facets the facet counts of the search or null
+         * @param snippets the snippets of the search, from the url hash to the snippet lines, or null
+         * @param fullResource the total number of results found in the index
+         */
+        public Entry(final long generation, final List<URIMetadataNode> nodes, final Map<String, ReversibleScoreMap<String>> facets,
+                final Map<String, LinkedHashSet<String>> snippets, final int fullResource) {
+            this.generation = generation;
+            this.fullResource = fullResource;
+            this.urlhashes = new byte[nodes.size()][];
+            this.scores = new float[nodes.size()];
+            long b = 64;
+            for (int i = 0; i < this.urlhashes.length; i++) {
+                final URIMetadataNode node = nodes.get(i);
+                this.urlhashes[i] = node.hash();
+                final Object score = node.getFieldValue("score");
+                this.scores[i] = score instanceof Float ? ((Float) score).floatValue() : 0.0f;
+                b += 16 + this.urlhashes[i].length + 4;
+            }
+            this.facets = new HashMap<>();
+            if (facets != null) {
+                for (final Map.Entry<String, ReversibleScoreMap<String>> facet: facets.entrySet()) {
+                    final Map<String, Integer> counts = new HashMap<>();
+                    for (final String key: facet.getValue()) {
+                        counts.put(key, facet.getValue().get(key));
+                        b += 56 + 2 * key.length();
+                    }
+                    this.facets.put(facet.getKey(), counts);
+                    b += 48 + 2 * facet.getKey().length();
+                }
+            }
+            this.snippets = new HashMap<>();
+            if (snippets != null) {
+                for (final Map.Entry<String, LinkedHashSet<String>> snippet: snippets.entrySet()) {
+                    this.snippets.put(snippet.getKey(), new LinkedHashSet<>(snippet.getValue()));
+                    b += 80 + 2 * snippet.getKey().length();
+                    for (final String line: snippet.getValue()) b += 40 + 2 * line.length();
+                }
+            }
+            this.bytes = b;
+        }
+
+        public long generation() {
+            return this.generation;
+        }
+
+        /**
+         * @return the url hashes of the result in the order of the Solr result list
+         */
+        public byte[][] urlhashes() {
+            return this.urlhashes;
+        }
+
+        /**
+         * @param i the position in the result list
+         * @return the Solr score of the result at the given position
+         */
+        public float score(final int i) {
+            return this.scores[i];
+        }
+
+        /**
+         * @return a copy of the snippets which can be handed over to a search event
+         */
+        public Map<String, LinkedHashSet<String>> snippets() {
+            final Map<String, LinkedHashSet<String>> s = new HashMap<>();
+            for (final Map.Entry<String, LinkedHashSet<String>> snippet: this.snippets.entrySet()) {
+                s.put(snippet.getKey(), new LinkedHashSet<>(snippet.getValue()));
+            }
+            return s;
+        }
+
+        /**
+         * @return a copy of the facet counts which can be handed over to a search event
+         */
+        public Map<String, ReversibleScoreMap<String>> facets() {
+            final Map<String, ReversibleScoreMap<String>> f = new HashMap<>();
+            for (final Map.Entry<String, Map<String, Integer>> facet: this.facets.entrySet()) {
+                final ReversibleScoreMap<String> counts = new ClusteredScoreMap<>(UTF8.insensitiveUTF8Comparator);
+                for (final Map.Entry<String, Integer> count: facet.getValue().entrySet()) {
+                    counts.set(count.getKey(), count.getValue().intValue());
+                }
+                f.put(facet.getKey(), counts);
+            }
+            return f;
+        }
+
+        public int fullResource() {
+            return this.fullResource;
+        }
+
+        /**
+         * @return the estimated memory size of this entry
+         */
+        public long bytes() {
+            return this.bytes;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> cache;
+    private long maxBytes, usedBytes;
+    private long hits, misses, inserts, evictions, invalidations;
+
+    /**
+     * @param maxBytes the byte budget of the cache; zero or a negative value disables the cache
+     */
+    public LocalResultCache(final long maxBytes) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxBytes = maxBytes;
+        this.usedBytes = 0;
+        this.hits = 0;
+        this.misses = 0;
+        this.inserts = 0;
+        this.evictions = 0;
+        this.invalidations = 0;
+    }
+
+    /**
+     * compute the cache key of a query. It is the query id extended with the result page position,
+     * because each page of a local search is a separate Solr search.
+     * @param query the query
+     * @param excludeintext_image the configuration value that images are excluded from text search results
+     * @return the key of the query in this cache
+     */
+    public static String key(final QueryParams query, final boolean excludeintext_image) {
+        return query.id(false) + '*' + query.offset + '*' + query.itemsPerPage + '*' + excludeintext_image;
+    }
+
+    public boolean isEnabled() {
+        return this.maxBytes > 0;
+    }
+
+    /**
+     * change the byte budget; entries are removed if the cache is too large for the new budget
+     * @param maxBytes the new budget; zero or a negative value disables the cache
+     */
+    public synchronized void setMaxBytes(final long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.shrink();
+    }
+
+    /**
+     * get a cached result
+     * @param key the key of the query
+     * @param generation the current index generation
+     * @return the entry or null if no entry exists or if the entry was computed on an older index generation
+     */
+    public synchronized Entry get(final String key, final long generation) {
+        final Entry entry = this.cache.get(key);
+        if (entry == null) {
+            this.misses++;
+            return null;
+        }
+        if (entry.generation() != generation) {
+            this.cache.remove(key);
+            this.usedBytes -= entry.bytes();
+            this.invalidations++;
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return entry;
+    }
+
+    /**
+     * store a result. Entries which are larger than a quarter of the budget are not stored.
+     * @param key the key of the query
+     * @param entry the result
+     */
+    public synchronized void put(final String key, final Entry entry) {
+        if (this.maxBytes <= 0 || entry.bytes() > this.maxBytes / 4) return;
+        final Entry old = this.cache.put(key, entry);
+        if (old != null) this.usedBytes -= old.bytes();
+        this.usedBytes += entry.bytes();
+        this.inserts++;
+        this.shrink();
+    }
+
+    /**
+     * remove all entries which were computed on an index generation other than the given one
+     * @param generation the current index generation
+     */
+    public synchronized void invalidate(final long generation) {
+        final Iterator<Entry> i = this.cache.values().iterator();
+        while (i.hasNext()) {
+            final Entry entry = i.next();
+            if (entry.generation() != generation) {
+                i.remove();
+                this.usedBytes -= entry.bytes();
+                this.invalidations++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        this.cache.clear();
+        this.usedBytes = 0;
+    }
+
+    private void shrink() {
+        final Iterator<Entry> i = this.cache.values().iterator();
+        while (this.usedBytes > Math.max(0, this.maxBytes) && i.hasNext()) {
+            final Entry entry = i.next();
+            i.remove();
+            this.usedBytes -= entry.bytes();
+            this.evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        return this.cache.size();
+    }
+
+    public synchronized long usedBytes() {
+        return this.usedBytes;
+    }
+
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    public synchronized long inserts() {
+        return this.inserts;
+    }
+
+    public synchronized long evictions() {
+        return this.evictions;
+    }
+
+    public synchronized long invalidations() {
+        return this.invalidations;
+    }
+}
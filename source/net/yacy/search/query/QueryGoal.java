@@ -54,6 +54,20 @@ public class QueryGoal {
     private static char dq = '"';
     private static String seps = ":;#*`!$%()=?^<>/&_";
 
+    // the content domain filter queries are the same for all search events; the strings are built once
+    // and are parsed only once by the cached filter query parser of the embedded Solr
+    private static final String FQ_HTTPSTATUS_OK = CollectionSchema.httpstatus_i.getSolrFieldName() + ":" + HttpStatus.SC_OK;
+    private static final String FQ_NO_IMAGE_TYPE = "-" + CollectionSchema.content_type.getSolrFieldName() + ":(image/*)";
+    private static final String FQ_NO_IMAGE_EXT = "-" + CollectionSchema.url_file_ext_s.getSolrFieldName() + ":(jpg OR png OR gif)";
+    private static final String FQ_IMAGE_STRICT = CollectionSchema.content_type.getSolrFieldName() + ":(image/*)";
+    private static final String FQ_IMAGE = FQ_IMAGE_STRICT + " OR " + CollectionSchema.images_urlstub_sxt.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM;
+    private static final String FQ_AUDIO_STRICT = CollectionSchema.content_type.getSolrFieldName() + ":(audio/*)";
+    private static final String FQ_AUDIO = FQ_AUDIO_STRICT + " OR " + CollectionSchema.audiolinkscount_i.getSolrFieldName() + ":[1 TO *]";
+    private static final String FQ_VIDEO_STRICT = CollectionSchema.content_type.getSolrFieldName() + ":(video/*)";
+    private static final String FQ_VIDEO = FQ_VIDEO_STRICT + " OR " + CollectionSchema.videolinkscount_i.getSolrFieldName() + ":[1 TO *]";
+    private static final String FQ_APP_STRICT = CollectionSchema.content_type.getSolrFieldName() + ":(application/*)";
+    private static final String FQ_APP = FQ_APP_STRICT + " OR " + CollectionSchema.applinkscount_i.getSolrFieldName() + ":[1 TO *]";
+
     public String query_original;
     private HandleSet include_hashes, exclude_hashes;
     private final NormalizedWords include_words, exclude_words;
@@ -377,10 +391,10 @@ public class QueryGoal {
         final ArrayList<String> fqs = new ArrayList<>();
 
         // add filter to prevent that results come from failed urls
-        fqs.add(CollectionSchema.httpstatus_i.getSolrFieldName() + ":" + HttpStatus.SC_OK);
+        fqs.add(FQ_HTTPSTATUS_OK);
         if (noimages) {
-            fqs.add("-" + CollectionSchema.content_type.getSolrFieldName() + ":(image/*)");
-            fqs.add("-" + CollectionSchema.url_file_ext_s.getSolrFieldName() + ":(jpg OR png OR gif)");
+            fqs.add(FQ_NO_IMAGE_TYPE);
+            fqs.add(FQ_NO_IMAGE_EXT);
         }
 
         return fqs;
@@ -412,13 +426,8 @@ public class QueryGoal {
         final ArrayList<String> fqs = new ArrayList<>();
 
         // add filter to prevent that results come from failed urls
-        fqs.add(CollectionSchema.httpstatus_i.getSolrFieldName() + ":" + HttpStatus.SC_OK);
-        StringBuilder filter = new StringBuilder(CollectionSchema.content_type.getSolrFieldName()).append(":(image/*)");
-        if (!strict) {
-            filter.append(" OR ").append(CollectionSchema.images_urlstub_sxt.getSolrFieldName())
-                    .append(AbstractSolrConnector.CATCHALL_DTERM);
-        }
-        fqs.add(filter.toString());
+        fqs.add(FQ_HTTPSTATUS_OK);
+        fqs.add(strict ? FQ_IMAGE_STRICT : FQ_IMAGE);
         return fqs;
     }
 
@@ -435,12 +444,8 @@ public class QueryGoal {
         final ArrayList<String> fqs = new ArrayList<>();
 
         // add filter to prevent that results come from failed urls
-        fqs.add(CollectionSchema.httpstatus_i.getSolrFieldName() + ":" + HttpStatus.SC_OK);
-        StringBuilder filter = new StringBuilder(CollectionSchema.content_type.getSolrFieldName()).append(":(audio/*)");
-        if (!strict) {
-            filter.append(" OR ").append(CollectionSchema.audiolinkscount_i.getSolrFieldName()).append(":[1 TO *]");
-        }
-        fqs.add(filter.toString());
+        fqs.add(FQ_HTTPSTATUS_OK);
+        fqs.add(strict ? FQ_AUDIO_STRICT : FQ_AUDIO);
         return fqs;
     }
 
@@ -457,12 +462,8 @@ public class QueryGoal {
         final ArrayList<String> fqs = new ArrayList<>();
 
         // add filter to prevent that results come from failed urls
-        fqs.add(CollectionSchema.httpstatus_i.getSolrFieldName() + ":" + HttpStatus.SC_OK);
-        StringBuilder filter = new StringBuilder(CollectionSchema.content_type.getSolrFieldName()).append(":(video/*)");
-        if (!strict) {
-            filter.append(" OR ").append(CollectionSchema.videolinkscount_i.getSolrFieldName()).append(":[1 TO *]");
-        }
-        fqs.add(filter.toString());
+        fqs.add(FQ_HTTPSTATUS_OK);
+        fqs.add(strict ? FQ_VIDEO_STRICT : FQ_VIDEO);
         return fqs;
     }
 
@@ -479,13 +480,8 @@ public class QueryGoal {
         final ArrayList<String> fqs = new ArrayList<>();
 
         // add filter to prevent that results come from failed urls
-        fqs.add(CollectionSchema.httpstatus_i.getSolrFieldName() + ":" + HttpStatus.SC_OK);
-        StringBuilder filter = new StringBuilder(CollectionSchema.content_type.getSolrFieldName())
-                .append(":(application/*)");
-        if (!strict) {
-            filter.append(" OR ").append(CollectionSchema.applinkscount_i.getSolrFieldName()).append(":[1 TO *]");
-        }
-        fqs.add(filter.toString());
+        fqs.add(FQ_HTTPSTATUS_OK);
+        fqs.add(strict ? FQ_APP_STRICT : FQ_APP);
         return fqs;
     }
 
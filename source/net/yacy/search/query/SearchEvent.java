@@ -26,6 +26,7 @@
 
 package net.yacy.search.query;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -43,6 +44,7 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -63,7 +65,8 @@ import net.yacy.cora.federate.yacy.Distribution;
 import net.yacy.cora.lod.vocabulary.Tagging;
 import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.Domains;
-import net.yacy.cora.sorting.ConcurrentScoreMap;
+import net.yacy.cora.sorting.ConcurrentTopKQueue;
+import net.yacy.cora.sorting.PrimitiveScoreMap;
 import net.yacy.cora.sorting.ReversibleScoreMap;
 import net.yacy.cora.sorting.ScoreMap;
 import net.yacy.cora.sorting.ScoreMapUpdatesListener;
@@ -82,6 +85,7 @@ import net.yacy.document.Tokenizer;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceColumns;
 import net.yacy.kelondro.data.word.WordReferenceFactory;
 import net.yacy.kelondro.data.word.WordReferenceVars;
 import net.yacy.kelondro.index.RowHandleSet;
@@ -114,6 +118,8 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private static final String PROTOCOL_NAVIGATOR_SUPPORTED_VALUES = "http,https,smb,ftp,file";
 
     private static final int max_results_rwi = 3000;
+    private static final int max_prefetch_rwi = 32; // number of rwi entries which metadata is loaded with one lookup
+    private static final SolrDocument NOT_FOUND = new SolrDocument(); // marks a prefetched url which is not in the index
     private static final int max_results_node = 150;
 
     /*
@@ -153,6 +159,15 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
      * Example : last local request with offset=10 and itemsPerPage=20, sets this attribute to 30. */
     private int localsolroffset;
 
+    /** the key of this event in the local result cache or null if the local Solr result is not cached */
+    private final String localResultKey;
+
+    /** the index generation at the start of this event */
+    private final long localResultGeneration;
+
+    /** true when the local Solr result is already in the local result cache */
+    private boolean localResultCached;
+
     /** counter for referenced that had been sorted out for other reasons */
     private final AtomicInteger expectedRemoteReferences, maxExpectedRemoteReferences;
 
@@ -163,7 +178,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     public final ScoreMap<String> protocolNavigator;
 
     /** a counter for file types */
-    public final ConcurrentScoreMap<String> dateNavigator;
+    public final PrimitiveScoreMap<String> dateNavigator;
 
     /** counters for Vocabularies; key is metatag.getVocabularyName() */
     public final Map<String, ScoreMap<String>> vocabularyNavigator;
@@ -201,7 +216,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private final long maxtime;
 
     /** key = domhash (6 bytes); value = like stack */
-    private final ConcurrentHashMap<String, WeakPriorityBlockingQueue<WordReferenceVars>> doubleDomCache;
+    private final ConcurrentHashMap<String, ConcurrentTopKQueue<WordReferenceVars>> doubleDomCache;
 
     /** flag counter */
     private final int[] flagcount;
@@ -217,13 +232,16 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private final Map<String, String> taggingPredicates;
 
     /** thats the bag where the RWI search process writes to. Contains both references from both local and remote RWIs. */
-    private final WeakPriorityBlockingQueue<WordReferenceVars> rwiStack;
+    private final ConcurrentTopKQueue<WordReferenceVars> rwiStack;
+
+    /** metadata of the next best entries in the rwiStack, loaded in a batch together with the metadata of a polled entry */
+    private final Map<String, SolrDocument> rwiPrefetch;
 
     /** thats the bag where the solr results are written to */
-    private final WeakPriorityBlockingQueue<URIMetadataNode> nodeStack;
+    private final ConcurrentTopKQueue<URIMetadataNode> nodeStack;
 
     /** thats the result list where the actual search result is waiting to be displayed */
-    private final WeakPriorityBlockingQueue<URIMetadataNode>  resultList;
+    private final ConcurrentTopKQueue<URIMetadataNode>  resultList;
 
     /** if this is true, then every entry in result List is polled immediately to prevent a re-ranking in the resultList. This is usefull if there is only one index source. */
     private final boolean pollImmediately;
@@ -346,7 +364,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             this.imagePageCounter = query.offset;
         }
         this.loader = loader;
-        this.nodeStack = new WeakPriorityBlockingQueue<>(max_results_node, false);
+        this.nodeStack = new ConcurrentTopKQueue<>(max_results_node, false);
         this.maxExpectedRemoteReferences = new AtomicInteger(0);
         this.expectedRemoteReferences = new AtomicInteger(0);
         this.excludeintext_image = Switchboard.getSwitchboard().getConfigBool("search.excludeintext.image", true);
@@ -371,9 +389,9 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             }
         }
 
-        this.locationNavigator = locationNavEnabled ? new ConcurrentScoreMap<>(this) : null;
-        this.protocolNavigator = protocolNavEnabled ? new ConcurrentScoreMap<>(this) : null;
-        this.dateNavigator = dateNavEnabled ? new ConcurrentScoreMap<>(this) : null;
+        this.locationNavigator = locationNavEnabled ? new PrimitiveScoreMap<>(this) : null;
+        this.protocolNavigator = protocolNavEnabled ? new PrimitiveScoreMap<>(this) : null;
+        this.dateNavigator = dateNavEnabled ? new PrimitiveScoreMap<>(this) : null;
         this.topicNavigatorCount = topicsNavEnabled ? MAX_TOPWORDS : 0;
         this.vocabularyNavigator = new TreeMap<>();
         // prepare configured search navigation (plugins)
@@ -418,9 +436,10 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         // attention: if minEntries is too high, this method will not terminate within the maxTime
         // sortorder: 0 = hash, 1 = url, 2 = ranking
         this.localSearchInclusion = null;
-        this.ref = new ConcurrentScoreMap<>(this);
+        this.ref = new PrimitiveScoreMap<>(this);
         this.maxtime = query.maxtime;
-        this.rwiStack = new WeakPriorityBlockingQueue<>(max_results_rwi, false);
+        this.rwiStack = new ConcurrentTopKQueue<>(max_results_rwi, false);
+        this.rwiPrefetch = new ConcurrentHashMap<>();
         this.doubleDomCache = new ConcurrentHashMap<>();
         this.flagcount = new int[32];
         for ( int i = 0; i < 32; i++ ) {
@@ -438,12 +457,23 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             this.taggingPredicates.put(t.getName(), t.getPredicate());
         }
 
+        // a local query re-uses the result of the local solr search if the index did not change since it was cached
+        this.localResultGeneration = query.getSegment().indexGeneration();
+        this.localResultKey = query.isLocal() && SearchEventCache.localResults.isEnabled() && this.localResultGeneration >= 0 ? LocalResultCache.key(query, this.excludeintext_image) : null;
+        final LocalResultCache.Entry localResult = this.localResultKey == null ? null : SearchEventCache.localResults.get(this.localResultKey, this.localResultGeneration);
+        this.localResultCached = localResult != null;
+
         // start a local solr search
         if (!Switchboard.getSwitchboard().getConfigBool(SwitchboardConstants.DEBUG_SEARCH_LOCAL_SOLR_OFF, false)) {
-            final boolean useSolrFacets = true;
-            this.localsolrsearch = RemoteSearch.solrRemoteSearch(this,
-                    this.query.solrQuery(this.query.contentdom, this.query.isStrictContentDom(), useSolrFacets, this.excludeintext_image), this.query.offset,
-                    this.query.itemsPerPage, null /* this peer */, 0, Switchboard.urlBlacklist, useSolrFacets, true);
+            if (localResult != null) {
+                this.localsolrsearch = new LocalResultReplay(localResult);
+                this.localsolrsearch.start();
+            } else {
+                final boolean useSolrFacets = true;
+                this.localsolrsearch = RemoteSearch.solrRemoteSearch(this,
+                        this.query.solrQuery(this.query.contentdom, this.query.isStrictContentDom(), useSolrFacets, this.excludeintext_image), this.query.offset,
+                        this.query.itemsPerPage, null /* this peer */, 0, Switchboard.urlBlacklist, useSolrFacets, true);
+            }
         }
         this.localsolroffset = this.query.offset + this.query.itemsPerPage;
 
@@ -463,7 +493,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                 this.primarySearchThreadsL = null;
                 this.nodeSearchThreads = null;
             } else {
-                this.primarySearchThreadsL = new ArrayList<>();
+                this.primarySearchThreadsL = new CopyOnWriteArrayList<>(); // filled concurrently by the remote search fan-out
                 this.nodeSearchThreads = new ArrayList<>();
                 // start this concurrently because the remote search needs an enumeration
                 // of the remote peers which may block in some cases when i.e. DHT is active
@@ -545,7 +575,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.deleteIfSnippetFail = deleteIfSnippetFail;
         this.urlRetrievalAllTime = 0;
         this.snippetComputationAllTime = 0;
-        this.resultList = new WeakPriorityBlockingQueue<>(Math.max(max_results_node, 10 * query.itemsPerPage()), true); // this is the result, enriched with snippets, ranked and ordered by ranking
+        this.resultList = new ConcurrentTopKQueue<>(Math.max(max_results_node, 10 * query.itemsPerPage()), true); // this is the result, enriched with snippets, ranked and ordered by ranking
 
         // snippets do not need to match with the complete query hashes,
         // only with the query minus the stopwords which had not been used for the search
@@ -580,6 +610,50 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         SearchEventCache.put(this.query.id(false), this);
     }
 
+    /**
+     * A concurrent task to feed the search event with a cached result of the local Solr search.
+     * The documents are loaded by their url hash and added in the same way as a fresh Solr result.
+     */
+    private class LocalResultReplay extends Thread {
+
+        private final LocalResultCache.Entry entry;
+
+        public LocalResultReplay(final LocalResultCache.Entry entry) {
+            super("SearchEvent.LocalResultReplay(" + SearchEvent.this.query.getQueryGoal().getQueryString(false) + ")");
+            this.entry = entry;
+        }
+
+        @Override
+        public void run() {
+            SearchEvent.this.oneFeederStarted();
+            try {
+                final byte[][] urlhashes = this.entry.urlhashes();
+                final List<URIMetadataNode> nodes = new ArrayList<>(urlhashes.length);
+                final List<String> ids = new ArrayList<>(urlhashes.length);
+                for (final byte[] urlhash: urlhashes) ids.add(ASCII.String(urlhash));
+                final Map<String, SolrDocument> docs = SearchEvent.this.query.getSegment().fulltext().getDocuments(ids); // all documents in one index pass
+                for (int i = 0; i < urlhashes.length; i++) {
+                    final SolrDocument doc = docs.get(ids.get(i));
+                    if (doc == null) continue;
+                    doc.setField("score", Float.valueOf(this.entry.score(i))); // the ranking of the original search
+                    final URIMetadataNode node;
+                    try {
+                        node = new URIMetadataNode(doc);
+                    } catch (final MalformedURLException e) {
+                        continue;
+                    }
+                    if (Switchboard.urlBlacklist.isListed(BlacklistType.SEARCH, node.url())) continue;
+                    nodes.add(node);
+                }
+                SearchEvent.this.addNodes(nodes, this.entry.facets(), this.entry.snippets(), true, "localcache", this.entry.fullResource(), true);
+                SearchEvent.this.addFinalize();
+                log.info("local search (cache): " + nodes.size() + "/" + this.entry.fullResource() + " references");
+            } finally {
+                SearchEvent.this.oneFeederTerminated();
+            }
+        }
+    }
+
     /**
      * A concurrent task to perform the current search query on the local RWI.
      */
@@ -691,9 +765,11 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         }
         long timer = System.currentTimeMillis();
 
-        // normalize entries
-        final BlockingQueue<WordReferenceVars> decodedEntries = this.order.normalizeWith(index, maxtime, local);
-        final int is = index.size();
+        // decode and normalize entries
+        final WordReferenceColumns columns = new WordReferenceColumns(index);
+        this.order.normalizeWith(columns);
+        final long[] cardinal = this.order.cardinal(columns);
+        final int is = columns.size();
         EventTracker.update(EventTracker.EClass.SEARCH, new ProfilingGraph.EventSearch(
                 this.query.id(true),
                 SearchEventType.NORMALIZING,
@@ -708,118 +784,104 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         // apply all constraints
         final long timeout = maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + maxtime;
         int successcounter = 0;
+        final int[] accepted = new int[is];
         try {
-            WordReferenceVars iEntry;
-            long remaining;
-            String acceptableAlternativeSitehash = null;
+            final int constraint = this.query.constraint == null ? 0 : WordReferenceColumns.flags(this.query.constraint);
+            final boolean languageConstraint = this.query.modifier.language != null && !this.query.modifier.language.isEmpty();
+            final int language = languageConstraint ? WordReferenceColumns.languageCode(this.query.modifier.language) : -1;
+            final long sitekey = this.query.modifier.sitehash == null ? -1 : WordReferenceColumns.hostKey(this.query.modifier.sitehash);
+            long acceptableAlternativeSitekey = -1;
             if (this.query.modifier.sitehost != null && this.query.modifier.sitehost.length() > 0) try {
-                acceptableAlternativeSitehash = DigestURL.hosthash(this.query.modifier.sitehost.startsWith("www.") ? this.query.modifier.sitehost.substring(4) : "www." + this.query.modifier.sitehost, 80);
+                acceptableAlternativeSitekey = WordReferenceColumns.hostKey(DigestURL.hosthash(this.query.modifier.sitehost.startsWith("www.") ? this.query.modifier.sitehost.substring(4) : "www." + this.query.modifier.sitehost, 80));
             } catch (final MalformedURLException e1) {}
-            pollloop: while ( true ) {
-                remaining = timeout - System.currentTimeMillis();
-                if (remaining <= 0) {
-                    ConcurrentLog.warn("SearchEvent", "terminated 'add' loop before poll time-out = " + remaining + ", decodedEntries.size = " + decodedEntries.size());
+            final byte[] urlhash = new byte[index.row().primaryKeyLength];
+            checkloop: for (int i = 0; i < is; i++) {
+                if ((i & 0xff) == 0 && System.currentTimeMillis() > timeout) {
+                    ConcurrentLog.warn("SearchEvent", "terminated 'add' loop after time-out, checked " + i + " of " + is + " entries");
                     break;
                 }
-                iEntry = decodedEntries.poll(remaining, TimeUnit.MILLISECONDS);
-                if (iEntry == null) {
-                    ConcurrentLog.warn("SearchEvent", "terminated 'add' loop after poll time-out = " + remaining + ", decodedEntries.size = " + decodedEntries.size());
-                    break pollloop;
-                }
-                if (iEntry == WordReferenceVars.poison) {
-                    break pollloop;
-                }
-                assert (iEntry.urlhash().length == index.row().primaryKeyLength);
 
                 // doublecheck for urls
-                if (this.urlhashes.has(iEntry.urlhash())) {
+                columns.urlhash(i, urlhash);
+                if (this.urlhashes.has(urlhash)) {
                     if (log.isFine()) log.fine("dropped RWI: doublecheck");
-                    continue pollloop;
+                    continue checkloop;
                 }
 
                 // increase flag counts
-                final Bitfield flags = iEntry.flags();
+                final int flags = columns.flags[i];
                 for (int j = 0; j < 32; j++) {
-                    if (flags.get(j)) this.flagcount[j]++;
+                    this.flagcount[j] += (flags >>> j) & 1;
                 }
 
                 // check constraints
-                if (!this.testFlags(flags)) {
+                if (this.query.constraint != null && (this.query.allofconstraint ? (flags & constraint) != constraint : (flags & constraint) == 0)) {
                     if (log.isFine()) log.fine("dropped RWI: flag test failed");
-                    continue pollloop;
+                    continue checkloop;
                 }
 
                 // check document domain
                 if (this.query.contentdom.getCode() > 0) {
+                    final char type = (char) columns.doctype[i];
                     boolean domainMatch = true;
                     if(this.query.isStrictContentDom()) {
-                        if((this.query.contentdom == ContentDomain.AUDIO && iEntry.getType() != Response.DT_AUDIO) ||
-                                (this.query.contentdom == ContentDomain.VIDEO && iEntry.getType() != Response.DT_MOVIE) ||
-                                (this.query.contentdom == ContentDomain.IMAGE && iEntry.getType() != Response.DT_IMAGE) ||
-                                (this.query.contentdom == ContentDomain.APP && !(flags.get(Tokenizer.flag_cat_hasapp)))) {
+                        if((this.query.contentdom == ContentDomain.AUDIO && type != Response.DT_AUDIO) ||
+                                (this.query.contentdom == ContentDomain.VIDEO && type != Response.DT_MOVIE) ||
+                                (this.query.contentdom == ContentDomain.IMAGE && type != Response.DT_IMAGE) ||
+                                (this.query.contentdom == ContentDomain.APP && !hasFlag(flags, Tokenizer.flag_cat_hasapp))) {
                             domainMatch = false;
                         }
-                    } else if((this.query.contentdom == ContentDomain.AUDIO && !(flags.get(Tokenizer.flag_cat_hasaudio))) ||
-                            (this.query.contentdom == ContentDomain.VIDEO && !(flags.get(Tokenizer.flag_cat_hasvideo))) ||
-                            (this.query.contentdom == ContentDomain.IMAGE && !(flags.get(Tokenizer.flag_cat_hasimage))) ||
-                            (this.query.contentdom == ContentDomain.APP && !(flags.get(Tokenizer.flag_cat_hasapp)))) {
+                    } else if((this.query.contentdom == ContentDomain.AUDIO && !hasFlag(flags, Tokenizer.flag_cat_hasaudio)) ||
+                            (this.query.contentdom == ContentDomain.VIDEO && !hasFlag(flags, Tokenizer.flag_cat_hasvideo)) ||
+                            (this.query.contentdom == ContentDomain.IMAGE && !hasFlag(flags, Tokenizer.flag_cat_hasimage)) ||
+                            (this.query.contentdom == ContentDomain.APP && !hasFlag(flags, Tokenizer.flag_cat_hasapp))) {
                         domainMatch = false;
                     }
                     if(!domainMatch) {
                         if (log.isFine()) {
                             log.fine("dropped RWI: contentdom fail");
                         }
-                        continue pollloop;
+                        continue checkloop;
                     }
                 }
 
                 // check language
-                if (this.query.modifier.language != null && !this.query.modifier.language.isEmpty()
-                        && !this.query.modifier.language.equals(iEntry.getLanguageString())) {
+                if (languageConstraint && language != columns.language[i]) {
                     if (log.isFine()) {
                         log.fine("dropped RWI: language constraint = " + this.query.modifier.language);
                     }
-                    continue pollloop;
+                    continue checkloop;
                 }
 
-                // count domZones
-                //this.domZones[DigestURI.domDomain(iEntry.metadataHash())]++;
-
                 // check site constraints
-                final String hosthash = iEntry.hosthash();
+                final long hostkey = columns.hostKey[i];
                 if ( this.query.modifier.sitehash == null ) {
-                    if (this.query.siteexcludes != null && this.query.siteexcludes.contains(hosthash)) {
+                    if (this.query.siteexcludes != null && this.query.siteexcludes.contains(WordReferenceColumns.hosthash(hostkey))) {
                         if (log.isFine()) log.fine("dropped RWI: siteexcludes");
-                        continue pollloop;
+                        continue checkloop;
                     }
                 } else {
                     // filter out all domains that do not match with the site constraint
-                    if (!hosthash.equals(this.query.modifier.sitehash) && (acceptableAlternativeSitehash == null || !hosthash.equals(acceptableAlternativeSitehash))) {
+                    if (hostkey != sitekey && (acceptableAlternativeSitekey == -1 || hostkey != acceptableAlternativeSitekey)) {
                         if (log.isFine()) log.fine("dropped RWI: modifier.sitehash");
-                        continue pollloop;
+                        continue checkloop;
                     }
                 }
 
-                // finally extend the double-check and insert result to stack
-                this.urlhashes.putUnique(iEntry.urlhash());
-                rankingtryloop: while (true) {
-                    try {
-                        this.rwiStack.put(new ReverseElement<>(iEntry, this.order.cardinal(iEntry))); // inserts the element and removes the worst (which is smallest)
-                        break rankingtryloop;
-                    } catch (final ArithmeticException e ) {
-                        // this may happen if the concurrent normalizer changes values during cardinal computation
-                        if (log.isFine()) log.fine("dropped RWI: arithmetic exception");
-                        continue rankingtryloop;
-                    }
-                }
+                // finally extend the double-check and remember the entry as candidate for the stack
+                this.urlhashes.putUnique(columns.urlhash(i));
+                accepted[successcounter++] = i;
+
                 // increase counter for statistics
                 if (local) this.local_rwi_available.incrementAndGet(); else this.remote_rwi_available.incrementAndGet();
-
-                successcounter++;
             }
-            if (System.currentTimeMillis() >= timeout) ConcurrentLog.warn("SearchEvent", "rwi normalization ended with timeout = " + maxtime);
+        } catch (final SpaceExceededException e ) {
+        }
 
-        } catch (final InterruptedException | SpaceExceededException e ) {
+        // only the best entries can be placed on the stack, all others would be removed from it at once;
+        // reference objects are created for those entries only
+        for (final int i: ReferenceOrder.top(cardinal, accepted, successcounter, max_results_rwi)) {
+            this.rwiStack.put(new ReverseElement<>(columns.vars(i, local), cardinal[i])); // inserts the element and removes the worst (which is smallest)
         }
 
         //if ((query.neededResults() > 0) && (container.size() > query.neededResults())) remove(true, true);
@@ -874,6 +936,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         if (this.IAResults != null) this.IAResults.clear();
         if (this.heuristics != null) this.heuristics.clear();
         this.rwiStack.clear();
+        this.rwiPrefetch.clear();
         this.nodeStack.clear();
         this.resultList.clear();
     }
@@ -955,6 +1018,11 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             this.snippets.putAll(solrsnippets);
         }
         assert (nodeList != null);
+        if (local && this.localResultKey != null && !this.localResultCached) {
+            // the first local result is the solr search for the result page of this local query
+            this.localResultCached = true;
+            SearchEventCache.localResults.put(this.localResultKey, new LocalResultCache.Entry(this.localResultGeneration, nodeList, facets, solrsnippets, fullResource));
+        }
         if (nodeList.isEmpty()) return;
 
         if (local) {
@@ -1180,7 +1248,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                 if (fcts != null) {
                     ScoreMap<String> vocNav = this.vocabularyNavigator.get(vocName);
                     if (vocNav == null) {
-                        vocNav = new ConcurrentScoreMap<>();
+                        vocNav = new PrimitiveScoreMap<>();
                         this.vocabularyNavigator.put(vocName, vocNav);
                     }
                     vocNav.inc(fcts);
@@ -1258,7 +1326,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         if(docValue instanceof String) {
             ScoreMap<String> vocNav = this.vocabularyNavigator.get(vocName);
             if (vocNav == null) {
-                vocNav = new ConcurrentScoreMap<>();
+                vocNav = new PrimitiveScoreMap<>();
                 this.vocabularyNavigator.put(vocName, vocNav);
             }
             vocNav.inc((String)docValue);
@@ -1266,7 +1334,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             if (!((Collection<?>) docValue).isEmpty()) {
                 ScoreMap<String> vocNav = this.vocabularyNavigator.get(vocName);
                 if (vocNav == null) {
-                    vocNav = new ConcurrentScoreMap<>();
+                    vocNav = new PrimitiveScoreMap<>();
                     this.vocabularyNavigator.put(vocName, vocNav);
                 }
                 for (final Object singleDocValue : (Collection<?>) docValue) {
@@ -1285,6 +1353,43 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         this.expectedRemoteReferences.addAndGet(x);
     }
 
+    /**
+     * Load the metadata of a rwi entry. The metadata of the next best entries in the rwiStack is loaded with
+     * the same index lookup, so that the following calls can be answered without another lookup.
+     * @param rwi an entry which had been taken from the rwiStack
+     * @return the metadata node with the rwi and its weight or null if the url is not in the index
+     */
+    private URIMetadataNode getMetadata(final WeakPriorityBlockingQueue.Element<WordReferenceVars> rwi) {
+        if (rwi == null) return null;
+        final WordReferenceVars wre = rwi.getElement();
+        if (wre == null) return null;
+        final String id = ASCII.String(wre.urlhash());
+        SolrDocument doc = this.rwiPrefetch.remove(id);
+        if (doc == null) {
+            final List<String> ids = new ArrayList<>(max_prefetch_rwi);
+            ids.add(id);
+            for (final WeakPriorityBlockingQueue.Element<WordReferenceVars> next: this.rwiStack.head(max_prefetch_rwi - 1)) {
+                final String nextid = ASCII.String(next.getElement().urlhash());
+                if (!nextid.equals(id) && !this.rwiPrefetch.containsKey(nextid)) ids.add(nextid);
+            }
+            final Map<String, SolrDocument> docs = this.query.getSegment().fulltext().getDocuments(ids);
+            doc = docs.get(id);
+            // the prefetch is bounded: entries which were not taken so far are replaced by the new batch
+            if (this.rwiPrefetch.size() > max_prefetch_rwi) this.rwiPrefetch.clear();
+            for (int i = 1; i < ids.size(); i++) {
+                final SolrDocument d = docs.get(ids.get(i));
+                this.rwiPrefetch.put(ids.get(i), d == null ? NOT_FOUND : d);
+            }
+        }
+        if (doc == null || doc == NOT_FOUND) return null;
+        try {
+            return new URIMetadataNode(doc, wre, rwi.getWeight());
+        } catch (final MalformedURLException e) {
+            ConcurrentLog.logException(e);
+            return null;
+        }
+    }
+
     /**
      * Take one best entry from the rwiStack and create a node entry out of it.
      * There is no waiting or blocking; if no entry is available this just returns null
@@ -1296,7 +1401,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
     private URIMetadataNode pullOneRWI(final boolean skipDoubleDom) {
 
         // returns from the current RWI list the best entry and removes this entry from the list
-        WeakPriorityBlockingQueue<WordReferenceVars> m;
+        ConcurrentTopKQueue<WordReferenceVars> m;
         WeakPriorityBlockingQueue.Element<WordReferenceVars> rwi = null;
 
         mainloop: while (true) {
@@ -1305,7 +1410,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                 rwi = this.rwiStack.poll();
                 if (rwi == null) return null;
                 if (!skipDoubleDom) {
-                    final URIMetadataNode node = this.query.getSegment().fulltext().getMetadata(rwi);
+                    final URIMetadataNode node = this.getMetadata(rwi);
                     if (node == null) {
                         decrementCounts(rwi.getElement());
                         continue pollloop;
@@ -1321,9 +1426,9 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                         m = this.doubleDomCache.get(hosthash);
                         if (m == null) {
                             // first appearance of dom. we create an entry to signal that one of that domain was already returned
-                            m = new WeakPriorityBlockingQueue<>(max_results_rwi, false);
+                            m = new ConcurrentTopKQueue<>(max_results_rwi, false);
                             this.doubleDomCache.put(hosthash, m);
-                            final URIMetadataNode node = this.query.getSegment().fulltext().getMetadata(rwi);
+                            final URIMetadataNode node = this.getMetadata(rwi);
                             if (node == null) {
                                 decrementCounts(rwi.getElement());
                                 continue pollloop;
@@ -1347,7 +1452,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             // find best entry from all caches
             WeakPriorityBlockingQueue.Element<WordReferenceVars> bestEntry = null;
             WeakPriorityBlockingQueue.Element<WordReferenceVars> o;
-            final Iterator<WeakPriorityBlockingQueue<WordReferenceVars>> i = this.doubleDomCache.values().iterator();
+            final Iterator<ConcurrentTopKQueue<WordReferenceVars>> i = this.doubleDomCache.values().iterator();
             doubleloop: while (i.hasNext()) {
                 try {
                     m = i.next();
@@ -1388,7 +1493,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
             }
             URIMetadataNode node = null;
             try {
-                node = this.query.getSegment().fulltext().getMetadata(bestEntry);
+                node = this.getMetadata(bestEntry);
             } catch (final Throwable e) {
                 ConcurrentLog.logException(e);
             }
@@ -1804,7 +1909,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
                 if (this.ref.size() <= ic) { // size matches return map directly
                     result = this.getTopics(/*ic, 500*/);
                 } else { // collect top most count topics
-                    result = new ConcurrentScoreMap<>();
+                    result = new PrimitiveScoreMap<>();
                     final Iterator<String> it = this.getTopics(/*ic, 500*/).keys(false);
                     while (ic-- > 0 && it.hasNext()) {
                         final String word = it.next();
@@ -2447,7 +2552,7 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
         if ( !this.rwiStack.isEmpty() ) {
             return false;
         }
-        for ( final WeakPriorityBlockingQueue<WordReferenceVars> s : this.doubleDomCache.values() ) {
+        for ( final ConcurrentTopKQueue<WordReferenceVars> s : this.doubleDomCache.values() ) {
             if ( !s.isEmpty() ) {
                 return false;
             }
@@ -2457,12 +2562,16 @@ public final class SearchEvent implements ScoreMapUpdatesListener {
 
     protected int rwiQueueSize() {
         int c = this.rwiStack.sizeQueue();
-        for ( final WeakPriorityBlockingQueue<WordReferenceVars> s : this.doubleDomCache.values() ) {
+        for ( final ConcurrentTopKQueue<WordReferenceVars> s : this.doubleDomCache.values() ) {
             c += s.sizeQueue();
         }
         return c;
     }
 
+    private static boolean hasFlag(final int flags, final int bit) {
+        return ((flags >>> bit) & 1) != 0;
+    }
+
     protected boolean testFlags(final Bitfield flags) {
         if (this.query.constraint == null) return true;
         // test if ientry matches with filter
@@ -50,6 +50,9 @@ public class SearchEventCache {
     public volatile static String lastEventID = "";
     public static long cacheInsert = 0, cacheHit = 0, cacheMiss = 0, cacheDelete = 0;
 
+    /** a cache for the local solr results of local queries; these events are not re-used, but their results */
+    public static final LocalResultCache localResults = new LocalResultCache(16L * 1024L * 1024L);
+
     public static int size() {
         return lastEvents.size();
     }
@@ -75,6 +78,7 @@ public class SearchEventCache {
     public static void cleanupEvents(boolean all) {
         // remove old events in the event cache
         if (MemoryControl.shortStatus()) all = true;
+        if (all) localResults.clear();
         // the less memory is there, the less time is acceptable for elements in the cache
         final long memx = MemoryControl.available();
         final long acceptTime = memx > memlimitHigh ? eventLifetimeBigMem : memx > memlimitMedium ? eventLifetimeMediumMem : eventLifetimeShortMem;
@@ -145,6 +149,7 @@ public class SearchEventCache {
         final String id = query.id(false);
         SearchEvent event = getEvent(id);
         if (event != null && query.isLocal()) {
+            // local events start at the requested result page, a new event re-uses the cached result in localResults
             synchronized (lastEvents) {
                 lastEvents.remove(id);
             }
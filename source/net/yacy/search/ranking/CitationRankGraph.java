@@ -0,0 +1,261 @@
+/**
+ *  CitationRankGraph
+ *  Copyright 2026 by Michael Peter Christen, mc@yacy.net, Frankfurt a. M., Germany
+ *  First released 19.10.2026 at https://yacy.net
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.search.ranking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.yacy.cora.util.Memory;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+
+/**
+ * The link graph of the documents of one host, compiled into a compressed sparse row (CSR) structure,
+ * and the citation rank computation on that graph.
+ * Documents are addressed by int ids 0..size-1. For each document the ids of the documents linking
+ * to it are stored in one continuous array, so a convergence step is a loop over two int arrays
+ * without any lookup in maps or indexes. The convergence steps are computed concurrently on
+ * partitions of the document ids.
+ * The rank of a document d is computed as
+ * cr(d) = (1 - damping) / size + damping * sum(cr(r) / outdegree(r)) for all documents r linking to d
+ */
+public class CitationRankGraph {
+
+    private static final int poolSize = Math.max(1, (int) Memory.cores());
+
+    private static final ThreadPoolExecutor pool = initPool();
+
+    /** partitions smaller than this are not worth to be computed in a separate thread */
+    private static final int minPartitionSize = 4096;
+
+    private static ThreadPoolExecutor initPool() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamePrefixThreadFactory(CitationRankGraph.class.getSimpleName()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Collects the links of a host graph; the links can be added in any order.
+     */
+    public static class Builder {
+
+        private final int size;
+        private final int[] outdegree;
+        private int[] edgeSource, edgeTarget;
+        private int edges;
+
+        /**
+         * @param size the number of documents of the host
+         */
+        public Builder(final int size) {
+            this.size = size;
+            this.outdegree = new int[size];
+            Arrays.fill(this.outdegree, -1);
+            this.edgeSource = new int[Math.max(16, size)];
+            this.edgeTarget = new int[Math.max(16, size)];
+            this.edges = 0;
+        }
+
+        /**
+         * set the number of links from a document to other documents of the same host.
+         * If this is not set, the number of links added to this builder is used.
+         * @param id the document
+         * @param degree the number of host-internal links of the document
+         */
+        public void setOutDegree(final int id, final int degree) {
+            this.outdegree[id] = degree;
+        }
+
+        /**
+         * add a link
+         * @param source the linking document
+         * @param target the linked document
+         */
+        public void addLink(final int source, final int target) {
+            if (source < 0 || source >= this.size || target < 0 || target >= this.size) throw new IndexOutOfBoundsException("link " + source + " -> " + target + ", size = " + this.size);
+            if (this.edges == this.edgeSource.length) {
+                final int newLength = this.edgeSource.length + (this.edgeSource.length >> 1);
+                this.edgeSource = Arrays.copyOf(this.edgeSource, newLength);
+                this.edgeTarget = Arrays.copyOf(this.edgeTarget, newLength);
+            }
+            this.edgeSource[this.edges] = source;
+            this.edgeTarget[this.edges] = target;
+            this.edges++;
+        }
+
+        /**
+         * compile the collected links; the builder must not be used afterwards
+         * @return the graph
+         */
+        public CitationRankGraph build() {
+            // count the incoming links of each target and the outgoing links of each source
+            final int[] offsets = new int[this.size + 1];
+            final int[] counted = new int[this.size];
+            for (int e = 0; e < this.edges; e++) {
+                offsets[this.edgeTarget[e] + 1]++;
+                counted[this.edgeSource[e]]++;
+            }
+            for (int i = 0; i < this.size; i++) offsets[i + 1] += offsets[i];
+            // place the sources into the rows of their targets
+            final int[] sources = new int[this.edges];
+            final int[] fill = Arrays.copyOf(offsets, this.size);
+            for (int e = 0; e < this.edges; e++) {
+                sources[fill[this.edgeTarget[e]]++] = this.edgeSource[e];
+            }
+            this.edgeSource = null;
+            this.edgeTarget = null;
+            for (int i = 0; i < this.size; i++) {
+                if (this.outdegree[i] < 0) this.outdegree[i] = counted[i];
+            }
+            return new CitationRankGraph(offsets, sources, this.outdegree);
+        }
+    }
+
+    private final int size;
+    private final int[] offsets, sources, outdegree;
+    private double[] rank, next;
+    private final double[] contribution;
+
+    private CitationRankGraph(final int[] offsets, final int[] sources, final int[] outdegree) {
+        this.size = outdegree.length;
+        this.offsets = offsets;
+        this.sources = sources;
+        this.outdegree = outdegree;
+        this.rank = new double[this.size];
+        this.next = new double[this.size];
+        this.contribution = new double[this.size];
+        Arrays.fill(this.rank, this.size == 0 ? 0.0d : 1.0d / this.size);
+    }
+
+    /**
+     * @return the number of documents
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the number of links
+     */
+    public int links() {
+        return this.sources.length;
+    }
+
+    /**
+     * @param id a document
+     * @return the current rank of the document
+     */
+    public double rank(final int id) {
+        return this.rank[id];
+    }
+
+    /**
+     * compute one step of the power iteration
+     * @param damping the damping factor, usually 0.85
+     * @param convergeDigits the number of digits which must be equal in two following steps for all documents to reach convergence
+     * @return true if the ranks converged
+     */
+    public boolean step(final double damping, final int convergeDigits) {
+        final double df = (1.0d - damping) / this.size;
+        final double eqf = Math.pow(10.0d, convergeDigits);
+        final int partitions = Math.max(1, Math.min(poolSize, this.size / minPartitionSize));
+        // the contribution of each document to all documents it links to
+        this.run(partitions, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                final int od = this.outdegree[i];
+                this.contribution[i] = od > 0 ? this.rank[i] / od : 0.0d;
+            }
+            return Boolean.TRUE;
+        });
+        // the new rank is the sum of the contributions of all linking documents
+        final boolean convergence = this.run(partitions, (from, to) -> {
+            boolean c = true;
+            for (int i = from; i < to; i++) {
+                double ncr = 0.0d;
+                for (int e = this.offsets[i]; e < this.offsets[i + 1]; e++) ncr += this.contribution[this.sources[e]];
+                ncr = df + damping * ncr;
+                if (c && ((int) (ncr * eqf)) != ((int) (this.rank[i] * eqf))) c = false;
+                this.next[i] = ncr;
+            }
+            return c;
+        });
+        final double[] t = this.rank;
+        this.rank = this.next;
+        this.next = t;
+        return convergence;
+    }
+
+    /**
+     * compute steps until the ranks converge
+     * @param damping the damping factor, usually 0.85
+     * @param convergeDigits the number of digits which must be equal in two following steps for all documents to reach convergence
+     * @param maxSteps the maximum number of steps
+     * @return the number of computed steps
+     */
+    public int converge(final double damping, final int convergeDigits, final int maxSteps) {
+        int steps = 0;
+        while (steps < maxSteps) {
+            steps++;
+            if (this.step(damping, convergeDigits)) break;
+        }
+        return steps;
+    }
+
+    private interface Partition {
+        boolean compute(int from, int to);
+    }
+
+    /**
+     * run a computation on all partitions of the document ids
+     * @return the conjunction of all partition results
+     */
+    private boolean run(final int partitions, final Partition partition) {
+        if (partitions <= 1) return partition.compute(0, this.size);
+        final int chunk = (this.size + partitions - 1) / partitions;
+        final List<Future<Boolean>> results = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            final int from = p * chunk;
+            final int to = Math.min(this.size, from + chunk);
+            final Callable<Boolean> task = () -> partition.compute(from, to);
+            results.add(pool.submit(task));
+        }
+        boolean r = true;
+        try {
+            for (final Future<Boolean> f: results) {
+                if (!f.get().booleanValue()) r = false;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (final Future<Boolean> f: results) f.cancel(true);
+            return true; // stop the iteration
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        return r;
+    }
+}
@@ -27,187 +27,211 @@
 package net.yacy.search.ranking;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.Semaphore;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
-import net.yacy.cora.sorting.ConcurrentScoreMap;
-import net.yacy.cora.util.ConcurrentLog;
-import net.yacy.document.LargeNumberCache;
+import net.yacy.cora.sorting.PrimitiveScoreMap;
 import net.yacy.document.Tokenizer;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceColumns;
 import net.yacy.kelondro.data.word.WordReferenceRow;
-import net.yacy.kelondro.data.word.WordReferenceVars;
-import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.util.Bitfield;
 
 
 public class ReferenceOrder {
 
-    private static int cores = Runtime.getRuntime().availableProcessors();
+    // the ranking features which are normalized with the minimum and maximum of all references;
+    // for the features before virtualAge a lower value is better, for the others a higher value
+    private static final int urlcomps = 0, urllength = 1, posintext = 2, posofphrase = 3, posinphrase = 4, distance = 5,
+                             virtualAge = 6, wordsintitle = 7, wordsintext = 8, phrasesintext = 9, llocal = 10, lother = 11, hitcount = 12;
+    private static final int features = 13;
+
+    // the appearance flags which are scored
+    private static final int[] flagBits = new int[]{
+        WordReferenceRow.flag_app_dc_identifier, WordReferenceRow.flag_app_dc_title, WordReferenceRow.flag_app_dc_creator,
+        WordReferenceRow.flag_app_dc_subject, WordReferenceRow.flag_app_dc_description, WordReferenceRow.flag_app_emphasized,
+        Tokenizer.flag_cat_indexof, Tokenizer.flag_cat_hasimage, Tokenizer.flag_cat_hasaudio, Tokenizer.flag_cat_hasvideo, Tokenizer.flag_cat_hasapp};
 
     private       int maxdomcount;
-    private       WordReferenceVars min, max;
-    private final ConcurrentScoreMap<String> doms; // collected for "authority" heuristic
+    private final int[] min, max;
+    private       double minTermFrequency, maxTermFrequency;
+    private       boolean normalized;
+    private final int[] coeff, flagCoeff;
+    private final PrimitiveScoreMap<String> doms; // collected for "authority" heuristic
     private final RankingProfile ranking;
     private final String language;
 
     public ReferenceOrder(final RankingProfile profile, final String language) {
-        this.min = null;
-        this.max = null;
+        this.min = new int[features];
+        this.max = new int[features];
+        this.minTermFrequency = 0.0d;
+        this.maxTermFrequency = 0.0d;
+        this.normalized = false;
         this.ranking = profile;
-        this.doms = new ConcurrentScoreMap<String>();
+        this.coeff = new int[features];
+        this.coeff[urlcomps] = profile.coeff_urlcomps;
+        this.coeff[urllength] = profile.coeff_urllength;
+        this.coeff[posintext] = profile.coeff_posintext;
+        this.coeff[posofphrase] = profile.coeff_posofphrase;
+        this.coeff[posinphrase] = profile.coeff_posinphrase;
+        this.coeff[distance] = profile.coeff_worddistance;
+        this.coeff[virtualAge] = profile.coeff_date;
+        this.coeff[wordsintitle] = profile.coeff_wordsintitle;
+        this.coeff[wordsintext] = profile.coeff_wordsintext;
+        this.coeff[phrasesintext] = profile.coeff_phrasesintext;
+        this.coeff[llocal] = profile.coeff_llocal;
+        this.coeff[lother] = profile.coeff_lother;
+        this.coeff[hitcount] = profile.coeff_hitcount;
+        this.flagCoeff = new int[]{
+            profile.coeff_appurl, profile.coeff_app_dc_title, profile.coeff_app_dc_creator,
+            profile.coeff_app_dc_subject, profile.coeff_app_dc_description, profile.coeff_appemph,
+            profile.coeff_catindexof, profile.coeff_cathasimage, profile.coeff_cathasaudio, profile.coeff_cathasvideo, profile.coeff_cathasapp};
+        this.doms = new PrimitiveScoreMap<String>();
         this.maxdomcount = 0;
         this.language = language;
     }
 
-    public BlockingQueue<WordReferenceVars> normalizeWith(final ReferenceContainer<WordReference> container, long maxtime, final boolean local) {
-        final LinkedBlockingQueue<WordReferenceVars> out = new LinkedBlockingQueue<WordReferenceVars>();
-        int threads = cores;
-        if (container.size() < 100) threads = 2;
-        final Thread distributor = new NormalizeDistributor(container, out, threads, maxtime, local);
-        distributor.start();
-
-        // return the resulting queue while the processing queues are still working
-        return out;
+    private static int[][] features(final WordReferenceColumns c) {
+        final int[][] f = new int[features][];
+        f[urlcomps] = c.urlComps;
+        f[urllength] = c.urlLength;
+        f[posintext] = c.posInText;
+        f[posofphrase] = c.posOfPhrase;
+        f[posinphrase] = c.posInPhrase;
+        f[distance] = c.distance;
+        f[virtualAge] = c.virtualAge;
+        f[wordsintitle] = c.wordsInTitle;
+        f[wordsintext] = c.wordsInText;
+        f[phrasesintext] = c.phrasesInText;
+        f[llocal] = c.llocal;
+        f[lother] = c.lother;
+        f[hitcount] = c.hitcount;
+        return f;
     }
 
-    private final class NormalizeDistributor extends Thread {
+    private static int[] features(final WordReference t) {
+        final int[] f = new int[features];
+        f[urlcomps] = t.urlcomps();
+        f[urllength] = t.urllength();
+        f[posintext] = t.posintext();
+        f[posofphrase] = t.posofphrase();
+        f[posinphrase] = t.posinphrase();
+        f[distance] = t.distance();
+        f[virtualAge] = t.virtualAge();
+        f[wordsintitle] = t.wordsintitle();
+        f[wordsintext] = t.wordsintext();
+        f[phrasesintext] = t.phrasesintext();
+        f[llocal] = t.llocal();
+        f[lother] = t.lother();
+        f[hitcount] = t.hitcount();
+        return f;
+    }
 
-        ReferenceContainer<WordReference> container;
-        LinkedBlockingQueue<WordReferenceVars> out;
-        private final int threads;
-        private final long maxtime;
-        private final boolean local;
-        
-        public NormalizeDistributor(final ReferenceContainer<WordReference> container, final LinkedBlockingQueue<WordReferenceVars> out, final int threads, final long maxtime, final boolean local) {
-        	super("ReferenceOrder.NormalizeDistributor");
-            this.container = container;
-            this.out = out;
-            this.threads = threads;
-            this.maxtime = maxtime;
-            this.local = local;
+    /**
+     * normalize ranking: extend the minimum and maximum of the ranking features with the references of a container
+     * and count the references of each host for the authority heuristic. The computation runs in the calling thread.
+     * @param columns the decoded references of a container
+     */
+    public void normalizeWith(final WordReferenceColumns columns) {
+        final int n = columns.size();
+        if (n == 0) return;
+        final int[][] f = features(columns);
+        final int[] cmin = new int[features], cmax = new int[features];
+        for (int k = 0; k < features; k++) {
+            final int[] c = f[k];
+            int lo = c[0], hi = c[0];
+            for (int i = 1; i < n; i++) {
+                lo = Math.min(lo, c[i]);
+                hi = Math.max(hi, c[i]);
+            }
+            cmin[k] = lo;
+            cmax[k] = hi;
         }
+        double tflo = columns.termFrequency(0), tfhi = tflo;
+        for (int i = 1; i < n; i++) {
+            final double tf = columns.termFrequency(i);
+            tflo = Math.min(tflo, tf);
+            tfhi = Math.max(tfhi, tf);
+        }
+        final long[] hosts = columns.hostKey.clone();
+        Arrays.sort(hosts);
 
-        @Override
-        public void run() {
-            // transform the reference container into a stream of parsed entries
-            final BlockingQueue<WordReferenceVars> vars = WordReferenceVars.transform(this.container, this.maxtime, this.local);
-
-            // start the transformation threads
-            final Semaphore termination = new Semaphore(this.threads);
-            final NormalizeWorker[] worker = new NormalizeWorker[this.threads];
-            for (int i = 0; i < this.threads; i++) {
-                worker[i] = new NormalizeWorker(this.out, termination, this.maxtime);
-                worker[i].start();
+        synchronized (this) {
+            if (this.normalized) {
+                for (int k = 0; k < features; k++) {
+                    this.min[k] = Math.min(this.min[k], cmin[k]);
+                    this.max[k] = Math.max(this.max[k], cmax[k]);
+                }
+                this.minTermFrequency = Math.min(this.minTermFrequency, tflo);
+                this.maxTermFrequency = Math.max(this.maxTermFrequency, tfhi);
+            } else {
+                System.arraycopy(cmin, 0, this.min, 0, features);
+                System.arraycopy(cmax, 0, this.max, 0, features);
+                this.minTermFrequency = tflo;
+                this.maxTermFrequency = tfhi;
+                this.normalized = true;
             }
 
-            // fill the queue
-            WordReferenceVars iEntry;
-            int p = 0;
-            long timeout = this.maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + this.maxtime;
-            try {
-                while ((iEntry = vars.take()) != WordReferenceVars.poison) {
-                    worker[p % this.threads].add(iEntry);
-                    p++;
-                    if (System.currentTimeMillis() > timeout) {
-                        ConcurrentLog.warn("NormalizeDistributor", "adding of decoded rows to workers ended with timeout = " + this.maxtime);
-                        break;
-                    }
+            // update domain score
+            int s = 0;
+            for (int i = 1; i <= n; i++) {
+                if (i == n || hosts[i] != hosts[s]) {
+                    this.doms.inc(WordReferenceColumns.hosthash(hosts[s]), i - s);
+                    s = i;
                 }
-            } catch (final InterruptedException e) {
             }
-
-            // insert poison to stop the queues
-            for (int i = 0; i < this.threads; i++) worker[i].add(WordReferenceVars.poison);
-
-            // wait for termination but not too long to make it possible that this
-            // is called from outside with a join to get some normalization results
-            // before going on
-            for (int i = 0; i < this.threads; i++) try {worker[i].join(100);} catch (final InterruptedException e) {}
+            if (!this.doms.isEmpty()) this.maxdomcount = this.doms.getMaxScore();
         }
     }
 
     /**
-     * normalize ranking: find minimum and maximum of separate ranking criteria
+     * select the best references
+     * @param score the ranking of all references
+     * @param candidates the positions of the references which shall be considered
+     * @param count the number of valid entries in candidates
+     * @param k the maximum number of references to be selected
+     * @return the positions of the at most k best references, ordered from the best to the worst
      */
-    private class NormalizeWorker extends Thread {
-
-        private final BlockingQueue<WordReferenceVars> out;
-        private final Semaphore termination;
-        private final BlockingQueue<WordReferenceVars> decodedEntries;
-        private final long maxtime;
-
-        public NormalizeWorker(final BlockingQueue<WordReferenceVars> out, final Semaphore termination, long maxtime) {
-        	super("ReferenceOrder.NormalizeWorker");
-            this.out = out;
-            this.termination = termination;
-            this.decodedEntries = new LinkedBlockingQueue<WordReferenceVars>();
-            this.maxtime = maxtime;
-        }
-
-        public void add(final WordReferenceVars entry) {
-            try {
-                this.decodedEntries.put(entry);
-            } catch (final InterruptedException e) {
+    public static int[] top(final long[] score, final int[] candidates, final int count, final int k) {
+        final int m = Math.max(0, Math.min(k, count));
+        final int[] heap = new int[m]; // a min-heap of positions: the worst selected reference is at heap[0]
+        if (m == 0) return heap;
+        int size = 0;
+        for (int c = 0; c < count; c++) {
+            final int i = candidates[c];
+            if (size < m) {
+                int p = size++;
+                while (p > 0 && score[heap[(p - 1) >> 1]] > score[i]) {
+                    heap[p] = heap[(p - 1) >> 1];
+                    p = (p - 1) >> 1;
+                }
+                heap[p] = i;
+            } else if (score[i] > score[heap[0]]) {
+                siftDown(heap, m, i, score);
             }
         }
+        // heap sort: move the worst to the end
+        for (int end = m - 1; end > 0; end--) {
+            final int worst = heap[0];
+            siftDown(heap, end, heap[end], score);
+            heap[end] = worst;
+        }
+        return heap;
+    }
 
-        @Override
-        public void run() {
-            try {
-                WordReferenceVars iEntry;
-                final Map<String, Integer> doms0 = new HashMap<String, Integer>();
-                String dom;
-                Integer count;
-                final Integer int1 = 1;
-                long timeout = this.maxtime == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + this.maxtime;
-                while ((iEntry = this.decodedEntries.take()) != WordReferenceVars.poison) {
-                    // find min/max
-                    if (ReferenceOrder.this.min == null) ReferenceOrder.this.min = iEntry.clone(); else ReferenceOrder.this.min.min(iEntry);
-                    if (ReferenceOrder.this.max == null) ReferenceOrder.this.max = iEntry.clone(); else ReferenceOrder.this.max.max(iEntry);
-                    this.out.put(iEntry); // must be after the min/max check to prevent that min/max is null in cardinal()
-                    // update domcount
-                    dom = iEntry.hosthash();
-                    count = doms0.get(dom);
-                    if (count == null) {
-                        doms0.put(dom, int1);
-                    } else {
-                        doms0.put(dom, LargeNumberCache.valueOf(count.intValue() + 1));
-                    }
-
-                    if (System.currentTimeMillis() > timeout) {
-                        ConcurrentLog.warn("NormalizeWorker", "normlization of decoded rows ended with timeout = " + this.maxtime);
-                        break;
-                    }
-                }
-
-                // update domain score
-                Map.Entry<String, Integer> entry;
-                final Iterator<Map.Entry<String, Integer>> di = doms0.entrySet().iterator();
-                while (di.hasNext()) {
-                    entry = di.next();
-                    ReferenceOrder.this.doms.inc(entry.getKey(), (entry.getValue()).intValue());
-                }
-                if (!ReferenceOrder.this.doms.isEmpty()) ReferenceOrder.this.maxdomcount = ReferenceOrder.this.doms.getMaxScore();
-            } catch (final InterruptedException e) {
-                ConcurrentLog.logException(e);
-            } catch (final Exception e) {
-                ConcurrentLog.logException(e);
-            } finally {
-                // insert poison to signal the termination to next queue
-                try {
-                    this.termination.acquire();
-                    if (this.termination.availablePermits() == 0) this.out.put(WordReferenceVars.poison);
-                } catch (final InterruptedException e) {}
-            }
+    private static void siftDown(final int[] heap, final int size, final int i, final long[] score) {
+        int p = 0;
+        while (true) {
+            int c = (p << 1) + 1;
+            if (c >= size) break;
+            if (c + 1 < size && score[heap[c + 1]] < score[heap[c]]) c++;
+            if (score[heap[c]] >= score[i]) break;
+            heap[p] = heap[c];
+            p = c;
         }
+        heap[p] = i;
     }
 
     public int authority(final String hostHash) {
@@ -221,49 +245,112 @@ public class ReferenceOrder {
      * @return a ranking: the higher the number, the better is the ranking
      */
     public long cardinal(final WordReference t) {
-        // the normalizedEntry must be a normalized indexEntry
-        assert this.min != null;
-        assert this.max != null;
         assert t != null;
         assert this.ranking != null;
+        final int[] lo, hi;
+        final double tflo, tfhi;
+        synchronized (this) {
+            lo = this.min.clone();
+            hi = this.max.clone();
+            tflo = this.minTermFrequency;
+            tfhi = this.maxTermFrequency;
+        }
+        final int[] f = features(t);
+        long r = (256 - DigestURL.domLengthNormalized(t.urlhash())) << this.ranking.coeff_domlength;
+        for (int k = 0; k < features; k++) {
+            if (hi[k] == lo[k]) continue;
+            final int v = ((f[k] - lo[k]) << 8) / (hi[k] - lo[k]);
+            r += (k < virtualAge ? 256 - v : v) << this.coeff[k];
+        }
+        if (tfhi != tflo) r += ((int) (((t.termFrequency() - tflo) * 256.0) / (tfhi - tflo))) << this.ranking.coeff_termfrequency;
+        if (this.ranking.coeff_authority > 12) r += authority(t.hosthash()) << this.ranking.coeff_authority;
         final Bitfield flags = t.flags();
-        final long tf = ((this.max.termFrequency() == this.min.termFrequency()) ? 0 : (((int)(((t.termFrequency()-this.min.termFrequency())*256.0)/(this.max.termFrequency() - this.min.termFrequency())))) << this.ranking.coeff_termfrequency);
-        //System.out.println("tf(" + t.urlHash + ") = " + Math.floor(1000 * t.termFrequency()) + ", min = " + Math.floor(1000 * min.termFrequency()) + ", max = " + Math.floor(1000 * max.termFrequency()) + ", tf-normed = " + tf);
-        final long r =
-             ((256 - DigestURL.domLengthNormalized(t.urlhash())) << this.ranking.coeff_domlength)
-           + ((this.max.urlcomps()      == this.min.urlcomps()   )   ? 0 : (256 - (((t.urlcomps()     - this.min.urlcomps()    ) << 8) / (this.max.urlcomps()    - this.min.urlcomps())    )) << this.ranking.coeff_urlcomps)
-           + ((this.max.urllength()     == this.min.urllength()  )   ? 0 : (256 - (((t.urllength()    - this.min.urllength()   ) << 8) / (this.max.urllength()   - this.min.urllength())   )) << this.ranking.coeff_urllength)
-           + ((this.max.posintext()     == this.min.posintext())     ? 0 : (256 - (((t.posintext()    - this.min.posintext()   ) << 8) / (this.max.posintext()   - this.min.posintext())   )) << this.ranking.coeff_posintext)
-           + ((this.max.posofphrase()   == this.min.posofphrase())   ? 0 : (256 - (((t.posofphrase()  - this.min.posofphrase() ) << 8) / (this.max.posofphrase() - this.min.posofphrase()) )) << this.ranking.coeff_posofphrase)
-           + ((this.max.posinphrase()   == this.min.posinphrase())   ? 0 : (256 - (((t.posinphrase()  - this.min.posinphrase() ) << 8) / (this.max.posinphrase() - this.min.posinphrase()) )) << this.ranking.coeff_posinphrase)
-           + ((this.max.distance()      == this.min.distance()   )   ? 0 : (256 - (((t.distance()     - this.min.distance()    ) << 8) / (this.max.distance()    - this.min.distance())    )) << this.ranking.coeff_worddistance)
-           + ((this.max.virtualAge()    == this.min.virtualAge())    ? 0 :        (((t.virtualAge()   - this.min.virtualAge()  ) << 8) / (this.max.virtualAge()  - this.min.virtualAge())   ) << this.ranking.coeff_date)
-           + ((this.max.wordsintitle()  == this.min.wordsintitle())  ? 0 : (((t.wordsintitle() - this.min.wordsintitle()  ) << 8) / (this.max.wordsintitle() - this.min.wordsintitle())  ) << this.ranking.coeff_wordsintitle)
-           + ((this.max.wordsintext()   == this.min.wordsintext())   ? 0 : (((t.wordsintext()  - this.min.wordsintext()   ) << 8) / (this.max.wordsintext()  - this.min.wordsintext())   ) << this.ranking.coeff_wordsintext)
-           + ((this.max.phrasesintext() == this.min.phrasesintext()) ? 0 : (((t.phrasesintext()- this.min.phrasesintext() ) << 8) / (this.max.phrasesintext()- this.min.phrasesintext()) ) << this.ranking.coeff_phrasesintext)
-           + ((this.max.llocal()        == this.min.llocal())        ? 0 : (((t.llocal()       - this.min.llocal()        ) << 8) / (this.max.llocal()       - this.min.llocal())        ) << this.ranking.coeff_llocal)
-           + ((this.max.lother()        == this.min.lother())        ? 0 : (((t.lother()       - this.min.lother()        ) << 8) / (this.max.lother()       - this.min.lother())        ) << this.ranking.coeff_lother)
-           + ((this.max.hitcount()      == this.min.hitcount())      ? 0 : (((t.hitcount()     - this.min.hitcount()      ) << 8) / (this.max.hitcount()     - this.min.hitcount())      ) << this.ranking.coeff_hitcount)
-           + tf
-           + ((this.ranking.coeff_authority > 12) ? (authority(t.hosthash()) << this.ranking.coeff_authority) : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_identifier))  ? 255 << this.ranking.coeff_appurl             : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_title))       ? 255 << this.ranking.coeff_app_dc_title       : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_creator))     ? 255 << this.ranking.coeff_app_dc_creator     : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_subject))     ? 255 << this.ranking.coeff_app_dc_subject     : 0)
-           + ((flags.get(WordReferenceRow.flag_app_dc_description)) ? 255 << this.ranking.coeff_app_dc_description : 0)
-           + ((flags.get(WordReferenceRow.flag_app_emphasized))     ? 255 << this.ranking.coeff_appemph            : 0)
-           + ((flags.get(Tokenizer.flag_cat_indexof))      ? 255 << this.ranking.coeff_catindexof         : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasimage))     ? 255 << this.ranking.coeff_cathasimage        : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasaudio))     ? 255 << this.ranking.coeff_cathasaudio        : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasvideo))     ? 255 << this.ranking.coeff_cathasvideo        : 0)
-           + ((flags.get(Tokenizer.flag_cat_hasapp))       ? 255 << this.ranking.coeff_cathasapp          : 0)
-           + ((Arrays.equals(t.getLanguage(), ASCII.getBytes(this.language))) ? 255 << this.ranking.coeff_language    : 0);
+        for (int j = 0; j < flagBits.length; j++) {
+            if (flags.get(flagBits[j])) r += 255 << this.flagCoeff[j];
+        }
+        if (Arrays.equals(t.getLanguage(), ASCII.getBytes(this.language))) r += 255 << this.ranking.coeff_language;
 
         //if (searchWords != null) r += (yacyURL.probablyWordURL(t.urlHash(), searchWords) != null) ? 256 << ranking.coeff_appurl : 0;
 
         return r; // the higher the number the better the ranking.
     }
-    
+
+    /**
+     * compute the ranking of all references of a container; this is the same as {@link #cardinal(WordReference)}
+     * for each reference, but computed feature by feature in loops over the columns.
+     * The references must have been normalized with {@link #normalizeWith(WordReferenceColumns)} before.
+     * @param columns the decoded references of a container
+     * @return the ranking of each reference: the higher the number, the better is the ranking
+     */
+    public long[] cardinal(final WordReferenceColumns columns) {
+        assert this.ranking != null;
+        final int n = columns.size();
+        final long[] r = new long[n];
+        final int[] lo, hi;
+        final double tflo, tfhi;
+        synchronized (this) {
+            lo = this.min.clone();
+            hi = this.max.clone();
+            tflo = this.minTermFrequency;
+            tfhi = this.maxTermFrequency;
+        }
+
+        final byte[] urlhash = new byte[Word.commonHashLength];
+        for (int i = 0; i < n; i++) {
+            columns.urlhash(i, urlhash);
+            r[i] = (256 - DigestURL.domLengthNormalized(urlhash)) << this.ranking.coeff_domlength;
+        }
+
+        final int[][] f = features(columns);
+        for (int k = 0; k < features; k++) {
+            if (hi[k] == lo[k]) continue;
+            final int[] c = f[k];
+            final int m = lo[k], range = hi[k] - lo[k], shift = this.coeff[k];
+            if (k < virtualAge) {
+                for (int i = 0; i < n; i++) r[i] += (256 - (((c[i] - m) << 8) / range)) << shift;
+            } else {
+                for (int i = 0; i < n; i++) r[i] += (((c[i] - m) << 8) / range) << shift;
+            }
+        }
+
+        if (tfhi != tflo) {
+            final int[] hits = columns.hitcount, words = columns.wordsInText, title = columns.wordsInTitle;
+            final double range = tfhi - tflo;
+            final int shift = this.ranking.coeff_termfrequency;
+            for (int i = 0; i < n; i++) {
+                final double tf = ((double) hits[i]) / ((double) (words[i] + title[i] + 1));
+                r[i] += ((int) (((tf - tflo) * 256.0) / range)) << shift;
+            }
+        }
+
+        if (this.ranking.coeff_authority > 12) {
+            // compute the authority once for each host
+            final long[] hosts = columns.hostKey.clone();
+            Arrays.sort(hosts);
+            int u = 0;
+            for (int i = 0; i < n; i++) if (i == 0 || hosts[i] != hosts[u - 1]) hosts[u++] = hosts[i];
+            final long[] authority = new long[u];
+            for (int h = 0; h < u; h++) authority[h] = authority(WordReferenceColumns.hosthash(hosts[h])) << this.ranking.coeff_authority;
+            final long[] key = columns.hostKey;
+            for (int i = 0; i < n; i++) r[i] += authority[Arrays.binarySearch(hosts, 0, u, key[i])];
+        }
+
+        final int[] flags = columns.flags;
+        for (int j = 0; j < flagBits.length; j++) {
+            final int bit = flagBits[j], v = 255 << this.flagCoeff[j];
+            for (int i = 0; i < n; i++) r[i] += ((flags[i] >>> bit) & 1) * v;
+        }
+
+        final int lang = WordReferenceColumns.languageCode(this.language);
+        if (lang >= 0) {
+            final int[] language = columns.language;
+            final int v = 255 << this.ranking.coeff_language;
+            for (int i = 0; i < n; i++) if (language[i] == lang) r[i] += v;
+        }
+
+        return r; // the higher the number the better the ranking.
+    }
+
     public long cardinal(final URIMetadataNode t) {
         // the normalizedEntry must be a normalized indexEntry
         assert t != null;
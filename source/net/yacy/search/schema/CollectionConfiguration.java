@@ -97,14 +97,15 @@ import net.yacy.document.parser.html.IconEntry;
 import net.yacy.document.parser.html.ImageEntry;
 import net.yacy.kelondro.data.citation.CitationReference;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
-import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.util.Bitfield;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.search.index.IndexChangeLog;
 import net.yacy.search.index.Segment;
 import net.yacy.search.index.Segment.ReferenceReport;
 import net.yacy.search.index.Segment.ReferenceReportCache;
 import net.yacy.search.query.QueryParams;
+import net.yacy.search.ranking.CitationRankGraph;
 
 
 public class CollectionConfiguration extends SchemaConfiguration implements Serializable {
@@ -114,6 +115,11 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
     public static boolean UNIQUE_HEURISTIC_PREFER_HTTPS = false;
     public static boolean UNIQUE_HEURISTIC_PREFER_WWWPREFIX = true;
 
+    // parameters of the citation rank computation during postprocessing
+    public static double CITATION_DAMPING = 0.85d;
+    public static int CITATION_CONVERGENCE_DIGITS = 6;
+    public static int CITATION_MAX_STEPS = 30;
+
     private final ArrayList<Ranking> rankings;
 
     /**
@@ -1218,6 +1224,11 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
     public static int   postprocessingCollection1Count = 0; // number of documents to be processed
     public static int   postprocessingWebgraphCount = 0; // number of documents to be processed
 
+    /** the maximum number of changed hosts in one postprocessing run; the host filter must stay below the maximum number of boolean clauses */
+    public static final int POSTPROCESSING_MAX_HOSTS = 500;
+    /** the number of documents which are written back to the index with one update */
+    public static final int POSTPROCESSING_UPDATE_BATCH = 100;
+
     public static final String collection1query(final Segment segment, final String harvestkey) {
         return (harvestkey == null || !segment.fulltext().getDefaultConfiguration().contains(CollectionSchema.harvestkey_s) ?
                        "" : CollectionSchema.harvestkey_s.getSolrFieldName() + ":\"" + harvestkey + "\" AND ") +
@@ -1230,7 +1241,24 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
     }
 
     /**
-     * Performs post-processing steps for all entries that have a process tag assigned
+     * @param field the field of the host ids
+     * @param hosts host ids
+     * @return a query which selects the documents of the hosts
+     */
+    private static String hostFilter(final String field, final Collection<String> hosts) {
+        final StringBuilder q = new StringBuilder(hosts.size() * (field.length() + 14) + 2);
+        q.append('(');
+        for (final String host: hosts) {
+            if (q.length() > 1) q.append(" OR ");
+            q.append(field).append(":\"").append(host).append('"');
+        }
+        return q.append(')').toString();
+    }
+
+    /**
+     * Performs post-processing steps for all entries that have a process tag assigned.
+     * Without a harvestkey, only the hosts which were changed according to the change log of the segment are processed,
+     * at most POSTPROCESSING_MAX_HOSTS in one run; the other hosts remain in the change log for the next run.
      * @param segment Solr segment. Must not be null.
      * @param rrCache reference report cache for the segment.
      * @param harvestkey key from a harvest process, used to mark documents needing post-processing
@@ -1246,9 +1274,18 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
         final CollectionConfiguration collection = segment.fulltext().getDefaultConfiguration();
         final WebgraphConfiguration webgraph = segment.fulltext().getWebgraphConfiguration();
 
+        // restrict the processing to the changed hosts
+        final IndexChangeLog changeLog = segment.fulltext().changeLog();
+        final IndexChangeLog.Batch batch = harvestkey == null ? changeLog.batch(POSTPROCESSING_MAX_HOSTS) : null;
+        if (batch != null && batch.isEmpty()) return 0; // nothing changed since the last run, no need to ask the index
+        String collection1query = collection1query(segment, harvestkey);
+        String webgraphquery = webgraphquery(segment, harvestkey);
+        if (batch != null && !batch.all) {
+            collection1query = hostFilter(CollectionSchema.host_id_s.getSolrFieldName(), batch.hosts) + " AND " + collection1query;
+            if (webgraph.contains(WebgraphSchema.source_host_id_s)) webgraphquery = hostFilter(WebgraphSchema.source_host_id_s.getSolrFieldName(), batch.hosts) + " AND " + webgraphquery;
+        }
+
         // calculate the number of documents to be processed
-        final String collection1query = collection1query(segment, harvestkey);
-        final String webgraphquery = webgraphquery(segment, harvestkey);
         postprocessingRunning = true;
         postprocessingStartTime = System.currentTimeMillis();
         postprocessingActivity = "collecting counts";
@@ -1300,6 +1337,19 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
 				collection1query, rankings, allcount);
 
 
+        if (batch != null) {
+            // the postprocessing may have stopped early (interrupt, time limit of the webgraph threads, exceptions):
+            // only the hosts without documents left to be postprocessed are removed from the change log
+            Set<String> unfinished = unfinishedHosts(collectionConnector, collection1query, CollectionSchema.host_id_s.getSolrFieldName());
+            if (unfinished != null && segment.fulltext().useWebgraph() && shallComputeCR) {
+                final SolrConnector webgraphConnector = segment.fulltext().getWebgraphConnector();
+                webgraphConnector.commit(true);
+                final Set<String> unfinishedWebgraph = unfinishedHosts(webgraphConnector, webgraphquery,
+                        webgraph.contains(WebgraphSchema.source_host_id_s) ? WebgraphSchema.source_host_id_s.getSolrFieldName() : null);
+                if (unfinishedWebgraph == null) unfinished = null; else unfinished.addAll(unfinishedWebgraph);
+            }
+            if (unfinished != null) changeLog.done(batch, unfinished);
+        }
         postprocessingCollection1Count = 0;
         postprocessingWebgraphCount = 0;
         postprocessingActivity = "postprocessing terminated";
@@ -1308,6 +1358,32 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
         return allcount.get();
     }
 
+    /**
+     * find the hosts which still have documents to be postprocessed
+     * @param connector the connector of the collection or the webgraph, with all postprocessing changes committed
+     * @param query the query for documents to be postprocessed
+     * @param hostIdField the field of the host id or null if the schema does not contain it
+     * @return the host ids, or null if the remaining documents cannot be attributed to hosts
+     */
+    private static Set<String> unfinishedHosts(final SolrConnector connector, final String query, final String hostIdField) {
+        final Set<String> hosts = new HashSet<>();
+        try {
+            final long count = connector.getCountByQuery("{!cache=false}" + query);
+            if (count == 0) return hosts;
+            if (hostIdField == null) return null;
+            final ReversibleScoreMap<String> hostfacet = connector.getFacets("{!cache=false}" + query, 10000000, hostIdField).get(hostIdField);
+            long attributed = 0;
+            if (hostfacet != null) for (final String host: hostfacet) {
+                hosts.add(host);
+                attributed += hostfacet.get(host);
+            }
+            return attributed < count ? null : hosts; // documents without host id
+        } catch (final IOException e) {
+            ConcurrentLog.warn("CollectionConfiguration", "cannot count the documents left for postprocessing: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Performs postprocessing steps on the main documents dollection.
      * @param segment Solr segment.
@@ -1397,6 +1473,7 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                         @Override
                         public void run() {
                             SolrDocument doc;
+                            final List<SolrInputDocument> updates = new ArrayList<>(POSTPROCESSING_UPDATE_BATCH);
                             try {
                                 while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
                                     // for each to-be-processed entry work on the process tag
@@ -1463,13 +1540,9 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                                         // id, http_unique_b, www_unique_b, references_i, references_internal_i, references_external_i, references_exthosts_i, host_extent_i
                                         // and the value for host_extent_i is by default 2147483647
 
-                                        // send back to index
-                                        //collectionConnector.deleteById(i);
-                                        if (byPartialUpdate) {
-                                            collectionConnector.update(sid);
-                                        } else {
-                                            collectionConnector.add(sid);
-                                        }
+                                        // send back to index in batches
+                                        updates.add(sid);
+                                        if (updates.size() >= POSTPROCESSING_UPDATE_BATCH) writeUpdates(collectionConnector, updates, byPartialUpdate, failids);
                                         final long thiscount = proccount.incrementAndGet(); allcount.incrementAndGet();
                                         if (thiscount % 100 == 0) {
                                             postprocessingActivity = "postprocessed " + thiscount + " from " + count + " collection documents; " +
@@ -1486,6 +1559,7 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                             } catch (final InterruptedException e) {
                                 ConcurrentLog.logException(e);
                             }
+                            writeUpdates(collectionConnector, updates, byPartialUpdate, failids);
                         }
                     };
                     rewriteThread[rewrite_start].start();
@@ -1511,6 +1585,30 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
         collectionConnector.commit(true); // make changes available directly to prevent that the process repeats again
 	}
 
+	/**
+	 * Write postprocessed documents back to the index with one request. If the request fails, the documents are
+	 * written one by one and those which still fail are collected.
+	 * @param connector the connector to the index
+	 * @param updates the documents; the list is cleared
+	 * @param byPartialUpdate when true, perform partial updates on documents
+	 * @param failids collects the ids of the documents which cannot be written
+	 */
+	private static void writeUpdates(final SolrConnector connector, final List<SolrInputDocument> updates,
+			final boolean byPartialUpdate, final Collection<String> failids) {
+		if (updates.isEmpty()) return;
+		try {
+			if (byPartialUpdate) connector.update(updates); else connector.add(updates);
+		} catch (final Throwable e) {
+			for (final SolrInputDocument sid: updates) try {
+				if (byPartialUpdate) connector.update(sid); else connector.add(sid);
+			} catch (final Throwable e1) {
+				ConcurrentLog.logException(e1);
+				failids.add((String) sid.getFieldValue(CollectionSchema.id.getSolrFieldName()));
+			}
+		}
+		updates.clear();
+	}
+
 	/**
 	 * Perform postprocessing steps on the webgraph core.
 	 * @param segment Solr segment.
@@ -1698,9 +1796,10 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 // do the citation rank computation
                 if (collection1hosts.get(host) <= 0) continue;
                 // select all documents for each host
-                final CRHost crh = new CRHost(segment, rrCache, host, 0.85d, 6);
+                final CRHost crh = new CRHost(segment, rrCache, host, CITATION_DAMPING, CITATION_CONVERGENCE_DIGITS);
+                ConcurrentLog.info("CollectionConfiguration", "compiled link graph for host " + host + ": " + collection1hosts.get(host) + " documents, " + crh.links() + " links");
                 int convergence_attempts = 0;
-                while (convergence_attempts++ < 30) {
+                while (convergence_attempts++ < CITATION_MAX_STEPS) {
                     ConcurrentLog.info("CollectionConfiguration", "convergence step " + convergence_attempts + " for host " + host + " ...");
                     if (crh.convergenceStep()) break;
                     if (MemoryControl.shortStatus()) {
@@ -1950,30 +2049,36 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
      * Objects of that class are needed as an environment for repeated convergenceStep() computations,
      * which are iterative citation rank computations that are repeated until the ranking values
      * converge to stable values.
+     * The host-internal link graph is compiled once into a {@link CitationRankGraph} where each document
+     * is addressed by its position in the ids array, so the convergence steps do not need any index access.
      * The class also contains normalization methods to compute simple integer ranking values out of the
      * double relevance values.
      */
     private static final class CRHost {
         private final Segment segment;
-        private final Map<String, double[]> crt;
+        private final String[] ids;
+        private final CitationRankGraph graph;
         private final int cr_host_count;
-        private final RowHandleMap internal_links_counter;
         private final double damping;
-        private final int converge_eq_factor;
-        private final ReferenceReportCache rrCache;
+        private final int converge_digits;
         public CRHost(final Segment segment, final ReferenceReportCache rrCache, final String host, final double damping, final int converge_digits) {
             this.segment = segment;
             this.damping = damping;
-            this.rrCache = rrCache;
-            this.converge_eq_factor = (int) Math.pow(10.0d, converge_digits);
+            this.converge_digits = converge_digits;
             final SolrConnector connector = segment.fulltext().getDefaultConnector();
-            this.crt = new ConcurrentHashMap<>();
+            // select all documents for each host together with the number of internal links, which is the dividend for the ranking of the linked documents
+            final Map<String, Integer> idx = new HashMap<>();
+            final List<Integer> internalLinks = new ArrayList<>();
             try {
-                // select all documents for each host
-                final BlockingQueue<String> ids = connector.concurrentIDsByQuery("{!cache=false raw f=" + CollectionSchema.host_s.getSolrFieldName() + "}" + host, CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, 86400000, 200, 1);
-                String id;
-                while ((id = ids.take()) != AbstractSolrConnector.POISON_ID) {
-                    this.crt.put(id, new double[]{0.0d,0.0d}); //{old value, new value}
+                final BlockingQueue<SolrDocument> docs = connector.concurrentDocumentsByQuery("{!cache=false raw f=" + CollectionSchema.host_s.getSolrFieldName() + "}" + host, CollectionSchema.url_chars_i.getSolrFieldName() + " asc", 0, 100000000, 86400000, 200, 1, false,
+                        CollectionSchema.id.getSolrFieldName(), CollectionSchema.inboundlinkscount_i.getSolrFieldName());
+                SolrDocument doc;
+                while ((doc = docs.take()) != AbstractSolrConnector.POISON_DOCUMENT) {
+                    final String id = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+                    if (id == null || idx.containsKey(id)) continue;
+                    final Object x = doc.getFieldValue(CollectionSchema.inboundlinkscount_i.getSolrFieldName());
+                    idx.put(id, idx.size());
+                    internalLinks.add((x instanceof Integer) ? (Integer) x : (x instanceof Long) ? Integer.valueOf(((Long) x).intValue()) : Integer.valueOf(0));
                     if (MemoryControl.shortStatus()) {
                         ConcurrentLog.warn("CollectionConfiguration", "terminated CRHost collection during postprocessing because of short memory");
                         break;
@@ -1981,22 +2086,41 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
                 }
             } catch (final InterruptedException e2) {
             }
-            this.cr_host_count = this.crt.size();
-            final double initval = 1.0d / this.cr_host_count;
-            for (final Map.Entry<String, double[]> entry: this.crt.entrySet()) entry.getValue()[0] = initval;
-            this.internal_links_counter = new RowHandleMap(12, Base64Order.enhancedCoder, 8, 100, "internal_links_counter");
+            this.cr_host_count = idx.size();
+            this.ids = new String[this.cr_host_count];
+            for (final Map.Entry<String, Integer> entry: idx.entrySet()) this.ids[entry.getValue().intValue()] = entry.getKey();
+
+            // compile the link graph from the reference reports
+            final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(this.cr_host_count);
+            for (int t = 0; t < this.cr_host_count; t++) {
+                builder.setOutDegree(t, internalLinks.get(t).intValue());
+                try {
+                    final ReferenceReport rr = rrCache.getReferenceReport(this.ids[t], false);
+                    for (final byte[] iid: rr.getInternallIDs()) {
+                        final Integer s = idx.get(ASCII.String(iid));
+                        if (s != null) builder.addLink(s.intValue(), t);
+                    }
+                } catch (final IOException e) {
+                    ConcurrentLog.logException(e);
+                }
+                if (MemoryControl.shortStatus()) {
+                    ConcurrentLog.warn("CollectionConfiguration", "terminated CRHost link collection during postprocessing because of short memory");
+                    break;
+                }
+            }
+            this.graph = builder.build();
         }
         /**
          * produce a map from IDs to CRV records, normalization entries containing the values that are stored to solr.
          * @return
          */
         public Map<String, CRV> normalize() {
-            final TreeMap<Double, List<byte[]>> reorder = new TreeMap<>();
-            for (final Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                final Double d = entry.getValue()[0];
-                List<byte[]> ds = reorder.get(d);
+            final TreeMap<Double, List<String>> reorder = new TreeMap<>();
+            for (int i = 0; i < this.cr_host_count; i++) {
+                final Double d = this.graph.rank(i);
+                List<String> ds = reorder.get(d);
                 if (ds == null) {ds = new ArrayList<>(); reorder.put(d, ds);}
-                ds.add(ASCII.getBytes(entry.getKey()));
+                ds.add(this.ids[i]);
             }
             int nextcount = (this.cr_host_count + 1) / 2;
             int nextcrn = 0;
@@ -2004,11 +2128,11 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
             while (reorder.size() > 0) {
                 int count = nextcount;
                 while (reorder.size() > 0 && count > 0) {
-                    final Map.Entry<Double, List<byte[]>> next = reorder.pollFirstEntry();
-                    final List<byte[]> ids = next.getValue();
+                    final Map.Entry<Double, List<String>> next = reorder.pollFirstEntry();
+                    final List<String> ids = next.getValue();
                     count -= ids.size();
                     final double cr = next.getKey();
-                    for (final byte[] id: ids) r.put(ASCII.String(id), new CRV(this.cr_host_count, cr, nextcrn));
+                    for (final String id: ids) r.put(id, new CRV(this.cr_host_count, cr, nextcrn));
                 }
                 nextcrn++;
                 nextcount = Math.max(1, (nextcount + count + 1) / 2);
@@ -2038,84 +2162,14 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
             }
         }
         /**
-         * Calculate the number of internal links from a specific document, denoted by the document ID.
-         * This is a very important attribute for the ranking computation because it is the dividend for the previous ranking attribute.
-         * The internalLinks value will be requested several times for the same id during the convergenceStep()-steps; therefore it should use a cache.
-         * This cache is part of the CRHost data structure.
-         * @param id
-         * @return the number of links from the document, denoted by the ID to documents within the same domain
-         */
-        public int getInternalLinks(final byte[] id) {
-            int il = (int) this.internal_links_counter.get(id);
-            if (il >= 0) return il;
-            final SolrConnector connector = this.segment.fulltext().getDefaultConnector();
-            if (connector == null) return 0;
-            try {
-                final SolrDocument doc = connector.getDocumentById(ASCII.String(id), CollectionSchema.inboundlinkscount_i.getSolrFieldName());
-                if (doc == null) {
-                    this.internal_links_counter.put(id, 0);
-                    return 0;
-                }
-                final Object x = doc.getFieldValue(CollectionSchema.inboundlinkscount_i.getSolrFieldName());
-                il = (x == null) ? 0 : (x instanceof Integer) ? ((Integer) x).intValue() : (x instanceof Long) ? ((Long) x).intValue() : 0;
-                this.internal_links_counter.put(id, il);
-                return il;
-            } catch (final IOException e) {
-                ConcurrentLog.logException(e);
-            } catch (final SpaceExceededException e) {
-                ConcurrentLog.logException(e);
-            }
-            try {this.internal_links_counter.put(id, 0);} catch (final SpaceExceededException e) {}
-            return 0;
-        }
-        /**
-         * Use the crt cache to compute the next generation of crt values.
-         * @return
+         * compute the next generation of cr values on the compiled link graph
+         * @return true if the values converged
          */
         public boolean convergenceStep() {
-            boolean convergence = true;
-            final double df = (1.0d - this.damping) / this.cr_host_count;
-            try {
-                for (final Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                    final String id = entry.getKey();
-                    final ReferenceReport rr = this.rrCache.getReferenceReport(id, false);
-                    // sum up the cr of the internal links
-                    final HandleSet iids = rr.getInternallIDs();
-                    double ncr = 0.0d;
-                    for (final byte[] iid: iids) {
-                        final int ilc = this.getInternalLinks(iid);
-                        if (ilc > 0) { // if (ilc == 0) then the reference report is wrong!
-                            final double[] d = this.crt.get(ASCII.String(iid));
-                            // d[] could be empty at some situations
-                            if (d != null && d.length > 0) {
-                                ncr += d[0] / ilc;
-                            } else {
-                                // Output a warning that d[] is empty
-                                ConcurrentLog.warn("COLLECTION", "d[] is empty, iid="  + ASCII.String(iid));
-                                break;
-                            }
-                        }
-                    }
-                    ncr = df + this.damping * ncr;
-                    if (convergence && !this.eqd(ncr, entry.getValue()[0])) convergence = false;
-                    entry.getValue()[1] = ncr;
-                }
-                // after the loop, replace the old value with the new value in crt
-                for (final Map.Entry<String, double[]> entry: this.crt.entrySet()) {
-                    entry.getValue()[0] = entry.getValue()[1];
-                }
-            } catch (final IOException e) {
-            }
-            return convergence;
+            return this.graph.step(this.damping, this.converge_digits);
         }
-        /**
-         * helper method to check if two doubles are equal using a specific number of digits
-         * @param a
-         * @param b
-         * @return
-         */
-        private boolean eqd(final double a, final double b) {
-            return ((int) (a * this.converge_eq_factor)) == ((int) (b * this.converge_eq_factor));
+        public int links() {
+            return this.graph.links();
         }
     }
 
@@ -30,6 +30,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -53,6 +54,7 @@ import net.yacy.document.WordTokenizer;
 import net.yacy.document.parser.html.CharacterCoding;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.util.MemoryGovernor;
 import net.yacy.peers.RemoteSearch;
 import net.yacy.repository.Blacklist.BlacklistType;
 import net.yacy.repository.LoaderDispatcher;
@@ -88,10 +90,34 @@ public class TextSnippet implements Comparable<TextSnippet>, Comparator<TextSnip
     private static final Pattern p4 =
             Pattern.compile("[^\\p{L}\\p{N}]");
 
-    public static class Cache {
+    public static class Cache implements MemoryGovernor.Consumer {
+        private static final int ESTIMATED_ENTRY_SIZE = 400; // key of two hashes and a snippet line, including object overhead
         private final ARC<String, String> cache;
         public Cache() {
             this.cache = new ConcurrentARC<String, String>(MAX_CACHE, Math.min(32, 2 * Runtime.getRuntime().availableProcessors()));
+            MemoryGovernor.register(this, 0.02d);
+        }
+
+        @Override
+        public String getName() {
+            return "snippet cache";
+        }
+
+        @Override
+        public int getPriority() {
+            return 10; // snippets can be re-computed cheaply from the solr index
+        }
+
+        @Override
+        public long getUsedBytes() {
+            return (long) this.cache.size() * ESTIMATED_ENTRY_SIZE;
+        }
+
+        @Override
+        public long shrink(final long bytes) {
+            // snippets which were requested only once are removed first
+            final int count = (int) Math.min(Integer.MAX_VALUE, bytes / ESTIMATED_ENTRY_SIZE + 1);
+            return (long) this.cache.evict(count) * ESTIMATED_ENTRY_SIZE;
         }
         public void put(final String wordhashes, final String urlhash, final String snippet) {
             // generate key
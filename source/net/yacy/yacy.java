@@ -52,6 +52,7 @@ import org.apache.http.entity.mime.content.ContentBody;
 
 import com.google.common.io.Files;
 
+import net.yacy.ai.llama3.Tensor.VectorKernels;
 import net.yacy.cora.date.GenericFormatter;
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.document.id.MultiProtocolURL;
@@ -70,6 +71,7 @@ import net.yacy.http.YaCyHttpServer;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.Formatter;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.MemoryGovernor;
 import net.yacy.kelondro.util.OS;
 import net.yacy.peers.Seed;
 import net.yacy.peers.operation.yacyBuildProperties;
@@ -189,6 +191,11 @@ public final class yacy {
             ConcurrentLog.config("STARTUP", "Data root-path: " + dataHome);
             ConcurrentLog.config("STARTUP", "Time zone: UTC" + GenericFormatter.UTCDiffString() + "; UTC+0000 is " + System.currentTimeMillis());
             ConcurrentLog.config("STARTUP", "Maximum file system path length: " + OS.maxPathLength);
+            if (VectorKernels.KERNEL == null) {
+                ConcurrentLog.info("STARTUP", "Vector API for the llama3 inference is off, the tensors use scalar dot products; start the jvm (Java 17 or later) with --add-modules jdk.incubator.vector to switch it on");
+            } else {
+                ConcurrentLog.config("STARTUP", "Vector API for the llama3 inference is on");
+            }
 
             f = new File(dataHome, "DATA/yacy.running");
             if (!f.createNewFile()) ConcurrentLog.severe("STARTUP", "WARNING: the file " + f + " can not be created!");
@@ -219,6 +226,9 @@ public final class yacy {
             // switch the memory strategy
             MemoryControl.setStandardStrategy(sb.getConfigBool("memory.standardStrategy", true));
 
+            // start the memory governor which shrinks caches and buffers on memory pressure
+            if (sb.getConfigBool("memory.governor", true)) MemoryGovernor.start();
+
             // save information about available memory at startup time
             sb.setConfig("memoryFreeAfterStartup", startupMemFree);
             sb.setConfig("memoryTotalAfterStartup", startupMemTotal);
@@ -21,6 +21,8 @@ if exist "%YACY_DATA_DIR%\SETTINGS\yacy.conf" GoTo :GETSTARTOPTS
 
 :STARTJAVA
 set javacmd=%javacmd% -Djava.awt.headless=true -Dsolr.directoryFactory=solr.MMapDirectoryFactory -Dfile.encoding=UTF-8
+Rem use the Vector API for the llama3 inference if the jvm provides the incubator module (Java 17 or later)
+java --list-modules 2>nul | findstr /b "jdk.incubator.vector" >nul && set javacmd=%javacmd% --add-modules jdk.incubator.vector
 
 Rem Starting YaCy
 Echo Generated classpath:%CLASSPATH%
@@ -190,6 +190,9 @@ fi
 #turn on MMap for Solr if OS is a 64bit OS
 if [ -n "`uname -m | grep 64`" ]; then JAVA_ARGS="$JAVA_ARGS -Dsolr.directoryFactory=solr.MMapDirectoryFactory"; fi
 
+#use the Vector API for the llama3 inference if the jvm provides the incubator module (Java 17 or later)
+if $JAVA --list-modules 2>/dev/null | grep -q "^jdk.incubator.vector"; then JAVA_ARGS="$JAVA_ARGS --add-modules jdk.incubator.vector"; fi
+
 if [ -f "$CONFIGFILE" ]
 then
     # startup memory
@@ -0,0 +1,157 @@
+package net.yacy.ai.llama3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.yacy.ai.llama3.Model.Arch;
+import net.yacy.ai.llama3.Model.Pair;
+import net.yacy.ai.llama3.Model.Tokenizer;
+import net.yacy.ai.llama3.Model.Vocabulary;
+import net.yacy.ai.llama3.Tensor.ArrayFloatTensor;
+import net.yacy.ai.llama3.Tensor.FloatTensor;
+
+public class BatchSchedulerTest {
+
+    private static final int CONTEXT_LENGTH = 96;
+
+    /**
+     * a tiny model with random weights
+     */
+    private static Llama model() {
+        final Random random = new Random(1);
+        final int dim = 16, hiddenDim = 32, layers = 2, heads = 4, kvHeads = 2, vocabularySize = 32;
+        final Llama.Configuration config = new Llama.Configuration(Arch.LLM_ARCH_LLAMA, dim, hiddenDim, layers, heads, kvHeads, vocabularySize, CONTEXT_LENGTH, false, 1e-5f, 10000f);
+        final int kvDim = dim * kvHeads / heads;
+        final FloatTensor[] wq = new FloatTensor[layers], wk = new FloatTensor[layers], wv = new FloatTensor[layers], wo = new FloatTensor[layers];
+        final FloatTensor[] w1 = new FloatTensor[layers], w2 = new FloatTensor[layers], w3 = new FloatTensor[layers];
+        final FloatBuffer[] rmsAtt = new FloatBuffer[layers], rmsFfn = new FloatBuffer[layers];
+        for (int l = 0; l < layers; l++) {
+            wq[l] = tensor(random, dim * dim);
+            wk[l] = tensor(random, kvDim * dim);
+            wv[l] = tensor(random, kvDim * dim);
+            wo[l] = tensor(random, dim * dim);
+            w1[l] = tensor(random, hiddenDim * dim);
+            w2[l] = tensor(random, dim * hiddenDim);
+            w3[l] = tensor(random, hiddenDim * dim);
+            rmsAtt[l] = ones(dim);
+            rmsFfn[l] = ones(dim);
+        }
+        final int half = config.headSize / 2;
+        final FloatBuffer real = FloatBuffer.allocate(CONTEXT_LENGTH * half), imag = FloatBuffer.allocate(CONTEXT_LENGTH * half);
+        for (int p = 0; p < CONTEXT_LENGTH; p++) {
+            for (int i = 0; i < half; i++) {
+                final double angle = p / Math.pow(config.ropeTheta, 2.0 * i / config.headSize);
+                real.put(p * half + i, (float) Math.cos(angle));
+                imag.put(p * half + i, (float) Math.sin(angle));
+            }
+        }
+        final Llama.Weights weights = new Llama.Weights(tensor(random, vocabularySize * dim), rmsAtt, wq, wk, wv, null, null, null, wo, rmsFfn,
+                w1, w2, w3, ones(dim), real, imag, tensor(random, vocabularySize * dim));
+        final String[] tokens = new String[vocabularySize];
+        for (int i = 0; i < vocabularySize; i++) tokens[i] = "t" + i;
+        final Tokenizer tokenizer = new Tokenizer(new Vocabulary(tokens, null), new ArrayList<Pair<Integer, Integer>>(), null, Map.of("<|begin_of_text|>", 0), null);
+        return new Llama(config, tokenizer, weights);
+    }
+
+    private static FloatTensor tensor(final Random random, final int size) {
+        final float[] values = new float[size];
+        for (int i = 0; i < size; i++) values[i] = (random.nextFloat() - 0.5f) * 0.8f;
+        return new ArrayFloatTensor(values);
+    }
+
+    private static FloatBuffer ones(final int size) {
+        final FloatBuffer buffer = FloatBuffer.allocate(size);
+        for (int i = 0; i < size; i++) buffer.put(i, 1f);
+        return buffer;
+    }
+
+    private static List<Integer> prompt(final Random random, final int length) {
+        final List<Integer> prompt = new ArrayList<>();
+        prompt.add(0);
+        for (int i = 1; i < length; i++) prompt.add(1 + random.nextInt(31));
+        return prompt;
+    }
+
+    /**
+     * the tokens which are generated for a prompt by one session without batching
+     */
+    private static List<Integer> generate(final Llama model, final List<Integer> prompt, final int maxTokens) {
+        return Llama.generateTokens(model, model.createNewState(4), 0, prompt, Set.of(), prompt.size() + maxTokens - 1, Sampler.ARGMAX, null);
+    }
+
+    /**
+     * Test that the sessions which are computed together generate the same tokens as sessions which are computed one by one.
+     */
+    @Test
+    public void testBatchedGeneration() throws Exception {
+        final Llama model = model();
+        final Random random = new Random(2);
+        final List<List<Integer>> prompts = List.of(prompt(random, 5), prompt(random, 21), prompt(random, 38));
+        final BatchScheduler scheduler = new BatchScheduler(model, 3, 4, null);
+        try {
+            final List<BatchScheduler.Session> sessions = new ArrayList<>();
+            for (final List<Integer> prompt: prompts) sessions.add(scheduler.submit(prompt, 0, Set.of(), 12, Sampler.ARGMAX, null));
+            for (int i = 0; i < prompts.size(); i++) {
+                final List<Integer> tokens = sessions.get(i).result().get(60, TimeUnit.SECONDS);
+                assertEquals(generate(model, prompts.get(i), 12), tokens);
+                assertTrue(sessions.get(i).timeToFirstToken() >= 0);
+            }
+            assertEquals(3, scheduler.metrics().sessions());
+            assertEquals(36, scheduler.metrics().generatedTokens());
+            assertEquals(5 + 21 + 38, scheduler.metrics().promptTokens());
+            assertTrue(scheduler.metrics().averageBatchSize() > 1.0d);
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Test that a prompt with a cached prefix generates the same tokens as without the cache.
+     */
+    @Test
+    public void testPrefixCache() throws Exception {
+        final Llama model = model();
+        final Random random = new Random(3);
+        final List<Integer> prefix = prompt(random, 14);
+        final List<Integer> first = new ArrayList<>(prefix), second = new ArrayList<>(prefix);
+        first.addAll(prompt(random, 6).subList(1, 6));
+        second.addAll(prompt(random, 9).subList(1, 9));
+        final PrefixCache cache = new PrefixCache(2);
+        final BatchScheduler scheduler = new BatchScheduler(model, 2, 4, cache);
+        try {
+            final BatchScheduler.Session s1 = scheduler.submit(first, prefix.size(), Set.of(), 8, Sampler.ARGMAX, null);
+            assertEquals(generate(model, first, 8), s1.result().get(60, TimeUnit.SECONDS));
+            assertEquals(0, s1.cachedTokens());
+            assertEquals(1, cache.size());
+
+            final List<Integer> generated = new ArrayList<>();
+            final BatchScheduler.Session s2 = scheduler.submit(second, prefix.size(), Set.of(), 8, Sampler.ARGMAX, generated::add);
+            final List<Integer> tokens = s2.result().get(60, TimeUnit.SECONDS);
+            assertEquals(prefix.size(), s2.cachedTokens());
+            assertEquals(generate(model, second, 8), tokens);
+            assertEquals(tokens, generated);
+            assertEquals(1, cache.size());
+            assertEquals(1, cache.hits());
+            assertEquals(prefix.size(), cache.reusedTokens());
+            assertEquals(first.size() + second.size() - prefix.size(), scheduler.metrics().promptTokens());
+        } finally {
+            scheduler.close();
+        }
+
+        // the prompt is the cached prefix: one token is left for the ingestion
+        final Llama.State state = model.createNewState(4);
+        assertEquals(prefix.size() - 1, cache.restore(model.configuration(), prefix, state));
+        assertEquals(generate(model, prefix, 5),
+                Llama.generateTokens(model, state, prefix.size() - 1, prefix.subList(prefix.size() - 1, prefix.size()), Set.of(), prefix.size() + 4, Sampler.ARGMAX, null));
+    }
+}
@@ -0,0 +1,47 @@
+package net.yacy.ai.llama3.Tensor;
+
+import java.util.Random;
+
+/**
+ * Testing the performance of the dot products of the tensor types with the scalar code and with the vector kernel,
+ * as they appear in the rows of a matmul. Start with --add-modules jdk.incubator.vector to compare both.
+ */
+public class VectorKernelPerfTest {
+
+    private static long time(final Runnable r, final int repeat) {
+        for (int i = 0; i < repeat; i++) r.run(); // warm-up for the jit compiler
+        final long t = System.nanoTime();
+        for (int i = 0; i < repeat; i++) r.run();
+        return (System.nanoTime() - t) / repeat / 1000;
+    }
+
+    /**
+     * Compute a single threaded matmul of each tensor type with the scalar dot product and with the vector kernel and print the times.
+     * @param args the number of rows and columns of the matrix (default 2048 2048)
+     */
+    public static void main(final String[] args) {
+        final int dim0 = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        final int dim1 = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        final int repeat = 50;
+        final VectorKernel kernel = VectorKernels.KERNEL;
+        System.out.println("vector kernel: " + (kernel == null ? "not available" : kernel.toString()));
+        final Random random = new Random(1);
+        final DirectBufferFloatTensor that = new DirectBufferFloatTensor(VectorKernelTest.random(random, dim1));
+        final float[] values = VectorKernels.toArray(that, dim1);
+        final float[] result = new float[1];
+        for (final AbstractFloatTensor tensor: VectorKernelTest.tensors(random, dim0 * dim1)) {
+            final long scalar = time(() -> {
+                for (int row = 0; row < dim0; row++) result[0] += tensor.dot(row * dim1, that, 0, dim1);
+            }, repeat);
+            if (kernel == null) {
+                System.out.println(String.format("%-5s scalar %7d us", tensor.type().name(), scalar));
+                continue;
+            }
+            final long vector = time(() -> {
+                for (int row = 0; row < dim0; row++) result[0] += tensor.vectorDot(kernel, row * dim1, values, 0, dim1);
+            }, repeat);
+            System.out.println(String.format("%-5s scalar %7d us, vector %7d us, speedup %.2f", tensor.type().name(), scalar, vector, ((double) scalar) / Math.max(1, vector)));
+        }
+        System.out.println("(checksum " + result[0] + ")");
+    }
+}
@@ -0,0 +1,103 @@
+package net.yacy.ai.llama3.Tensor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.yacy.ai.llama3.Model.GGMLType;
+
+public class VectorKernelTest {
+
+    static float[] random(final Random random, final int size) {
+        final float[] values = new float[size];
+        for (int i = 0; i < size; i++) values[i] = random.nextFloat() * 2f - 1f;
+        return values;
+    }
+
+    static Q8_0FloatTensor q8(final Random random, final int size) {
+        final int blocks = size / GGMLType.Q8_0.blockSize;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(blocks * GGMLType.Q8_0.typeSize).order(ByteOrder.nativeOrder());
+        for (int b = 0; b < blocks; b++) {
+            buffer.putShort(b * GGMLType.Q8_0.typeSize, AbstractFloatTensor.floatToFloat16(random.nextFloat() / 64f));
+            for (int i = 0; i < GGMLType.Q8_0.blockSize; i++) buffer.put(b * GGMLType.Q8_0.typeSize + GGMLType.FLOAT16_BYTES + i, (byte) (random.nextInt(256) - 128));
+        }
+        return new Q8_0FloatTensor(size, buffer);
+    }
+
+    static Q4_0FloatTensor q4(final Random random, final int size) {
+        final int blocks = size / GGMLType.Q4_0.blockSize;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(blocks * GGMLType.Q4_0.typeSize).order(ByteOrder.nativeOrder());
+        for (int b = 0; b < blocks; b++) {
+            buffer.putShort(b * GGMLType.Q4_0.typeSize, AbstractFloatTensor.floatToFloat16(random.nextFloat() / 8f));
+            for (int i = 0; i < GGMLType.Q4_0.blockSize / 2; i++) buffer.put(b * GGMLType.Q4_0.typeSize + GGMLType.FLOAT16_BYTES + i, (byte) random.nextInt(256));
+        }
+        return new Q4_0FloatTensor(size, buffer);
+    }
+
+    /**
+     * the tensors of all types with the same number of values
+     */
+    static AbstractFloatTensor[] tensors(final Random random, final int size) {
+        return new AbstractFloatTensor[] {
+            new ArrayFloatTensor(random(random, size)),
+            new DirectBufferFloatTensor(random(random, size)),
+            new F16FloatTensor(random(random, size)),
+            new BF16FloatTensor(random(random, size)),
+            q8(random, size),
+            q4(random, size)
+        };
+    }
+
+    /**
+     * Test that the vector kernel computes the same dot products and matmuls as the scalar code.
+     */
+    @Test
+    public void testVectorDot() {
+        final VectorKernel kernel = VectorKernels.KERNEL;
+        assumeNotNull(kernel); // needs --add-modules jdk.incubator.vector
+        final Random random = new Random(1);
+        final int dim0 = 7, dim1 = 320;
+        final ArrayFloatTensor that = new ArrayFloatTensor(random(random, dim1));
+        for (final AbstractFloatTensor tensor: tensors(random, dim0 * dim1)) {
+            for (int row = 0; row < dim0; row++) {
+                final float expected = tensor.dot(row * dim1, that, 0, dim1);
+                assertEquals(tensor.type().name(), expected, tensor.vectorDot(kernel, row * dim1, that.values, 0, dim1), 1e-3f * Math.max(1f, Math.abs(expected)));
+            }
+            final FloatTensor out = ArrayFloatTensor.allocate(dim0);
+            final FloatTensor[] outs = {ArrayFloatTensor.allocate(dim0), ArrayFloatTensor.allocate(dim0)};
+            tensor.matmul(new DirectBufferFloatTensor(that.values), out, dim0, dim1);
+            tensor.matmul(2, new FloatTensor[]{that, that}, outs, dim0, dim1);
+            for (int row = 0; row < dim0; row++) {
+                final float expected = tensor.dot(row * dim1, that, 0, dim1);
+                assertEquals(expected, out.getFloat(row), 1e-3f * Math.max(1f, Math.abs(expected)));
+                assertEquals(expected, outs[1].getFloat(row), 1e-3f * Math.max(1f, Math.abs(expected)));
+            }
+        }
+        // sizes which are not a multiple of the vector length
+        final float[] a = random(random, 45), b = random(random, 45);
+        final DirectBufferFloatTensor ta = new DirectBufferFloatTensor(a);
+        assertEquals(new ArrayFloatTensor(a).dot(2, new ArrayFloatTensor(b), 1, 43), kernel.dot(a, 2, b, 1, 43), 1e-4f);
+        assertEquals(ta.dot(3, new ArrayFloatTensor(b), 0, 41), ta.vectorDot(kernel, 3, b, 0, 41), 1e-4f);
+    }
+
+    /**
+     * Test the scalar dot product of direct buffers at offsets and sizes which are not a multiple of the loop unrolling.
+     */
+    @Test
+    public void testDirectBufferDot() {
+        final Random random = new Random(2);
+        final float[] a = random(random, 45), b = random(random, 45);
+        final DirectBufferFloatTensor ta = new DirectBufferFloatTensor(a), tb = new DirectBufferFloatTensor(b);
+        for (final int size: new int[]{1, 3, 5, 38, 41}) {
+            float expected = 0f;
+            for (int i = 0; i < size; i++) expected += a[3 + i] * b[1 + i];
+            assertEquals(expected, ta.dot(3, tb, 1, size), 1e-4f);
+            assertEquals(expected, ta.dot(3, new ArrayFloatTensor(b), 1, size), 1e-4f);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package net.yacy.cora.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SymmetricDeleteIndexTest {
+
+    /**
+     * Test the four kinds of mistakes and the order of the results.
+     */
+    @Test
+    public void testLookup() {
+        final SymmetricDeleteIndex index = new SymmetricDeleteIndex(2, 6);
+        for (final String w: new String[]{"boat", "bat", "cat", "frog", "fog", "two", "search", "Engine", "engines"}) index.add(w, 1);
+        index.add("cat", 5);
+        assertEquals(9, index.size());
+
+        assertEquals(Arrays.asList("bat", "cat", "boat"), index.lookup("bat", 1)); // the word itself, then by distance and count
+        assertEquals(Arrays.asList("fog", "frog"), index.lookup("fog", 1));
+        assertEquals(Arrays.asList("two"), index.lookup("tow", 1));
+        assertEquals(Arrays.asList("search"), index.lookup("saerch", 1));
+        assertEquals(Arrays.asList("Engine", "engines"), index.lookup("ENIGNE", 2));
+        assertEquals(Arrays.asList("engines"), index.lookup("enginees", 1));
+        assertTrue(index.lookup("xyz", 2).isEmpty());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.lookup("bat", 2).isEmpty());
+    }
+
+    /**
+     * Test that a lookup finds exactly the words within the distance, compared with a scan of all words,
+     * also after merges of the added words.
+     */
+    @Test
+    public void testCompareWithScan() {
+        final Random random = new Random(1);
+        final SymmetricDeleteIndex index = new SymmetricDeleteIndex(2, 6);
+        final List<String> words = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            final String w = randomWord(random);
+            words.add(w);
+            index.add(w, 0);
+        }
+        for (int q = 0; q < 200; q++) {
+            final String query = q % 2 == 0 ? randomWord(random) : mutate(random, words.get(random.nextInt(words.size())));
+            final Set<String> expected = new HashSet<>();
+            for (final String w: words) if (SymmetricDeleteIndex.distance(query, w, 2) <= 2) expected.add(w);
+            final Set<String> found = new HashSet<>(index.lookup(query, 2));
+            assertEquals(query, expected, found);
+        }
+        assertFalse(index.lookup(words.get(0), 0).isEmpty());
+    }
+
+    private static String randomWord(final Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int length = 3 + random.nextInt(10);
+        for (int i = 0; i < length; i++) sb.append((char) ('a' + random.nextInt(6)));
+        return sb.toString();
+    }
+
+    private static String mutate(final Random random, final String w) {
+        final StringBuilder sb = new StringBuilder(w);
+        final int p = random.nextInt(sb.length());
+        switch (random.nextInt(3)) {
+            case 0: sb.deleteCharAt(p); break;
+            case 1: sb.insert(p, 'c'); break;
+            default: sb.setCharAt(p, 'x');
+        }
+        return sb.toString();
+    }
+}
@@ -25,9 +25,14 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.MalformedURLException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.output.NullOutputStream;
@@ -38,30 +43,58 @@ import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.kelondro.util.FileUtils;
 
 /**
- * Testing DigestURL hash generation performances
+ * Testing DigestURL hash generation performances. The measurement follows the
+ * JMH conventions (warmup iterations, measurement iterations, throughput and
+ * allocation rate per operation) without depending on the JMH framework.
  */
 public class DigestURLHashPerfTest {
 
+	/** number of warmup iterations : results are not reported */
+	private static final int WARMUP_ITERATIONS = 5;
+
+	/** number of measured iterations */
+	private static final int MEASUREMENT_ITERATIONS = 10;
+
+	/** consumer of the benchmark results, preventing dead code elimination */
+	static volatile long sink;
+
+	/** URLs used when no URLs file is provided */
+	private static final String[] DEFAULT_URLS = {
+			"http://example.com",
+			"http://www.example.com/index.html",
+			"https://www.example.org/a/b/../c/./d.html?x=1&y=2",
+			"http://sub.deep.example.co.uk/path with space/\u00e4 \u00f6.html",
+			"http://www.example.net:8080/search?query=yacy&PHPSESSID=0123456789abcdef",
+			"https://de.wikipedia.org/wiki/Suchmaschine",
+			"http://forum.example.de/viewtopic.php?f=12&t=3456&start=75",
+			"ftp://ftp.example.com/pub/file.tar.gz",
+			"http://192.168.1.1/admin/",
+			"http://[2001:db8::1]:8090/Status.html",
+			"https://www.example.com/img/logo%20small.png",
+			"http://shop.example.com/catalog/product/view/id/123/s/blue-shirt/category/4/" };
+
 	/**
 	 * Run and measure the {@link DigestURL#hash()} method on a list of urls
-	 * provided in a given file (one URL per line). When an output file path is
-	 * provided, generated hashes are written to it.
+	 * provided in a given file (one URL per line), or on a built-in list when no
+	 * file is given. When an output file path is provided, generated hashes are
+	 * written to it.
 	 *
 	 * @param args
 	 *            parameters
 	 * @throws IOException
 	 */
 	public static void main(final String[] args) throws IOException {
+		final List<String> urls;
 		if (args.length < 1) {
-			System.out.println("Usage : java DigestURLHashPerfTest <urlsFilePath> [outputFilePath]");
-			return;
+			System.out.println("Usage : java DigestURLHashPerfTest [urlsFilePath] [outputFilePath]");
+			urls = Arrays.asList(DEFAULT_URLS);
+			System.out.println(urls.size() + " built-in URLs loaded");
+		} else {
+			final File inFile = new File(args[0]);
+			urls = FileUtils.getListArray(inFile);
+			System.out.println(urls.size() + " URLs loaded from " + inFile.getAbsolutePath());
 		}
 
-		final File inFile = new File(args[0]);
-		final List<String> urls = FileUtils.getListArray(inFile);
-
-		System.out.println(urls.size() + " URLs loaded from " + inFile.getAbsolutePath());
-
 		try (OutputStream outStream = args.length >= 2 ? new FileOutputStream(args[1]) : NullOutputStream.NULL_OUTPUT_STREAM;
 				OutputStreamWriter writer = new OutputStreamWriter(outStream, StandardCharsets.UTF_8.name());
 				BufferedWriter out = new BufferedWriter(writer);) {
@@ -101,6 +134,10 @@ public class DigestURLHashPerfTest {
 			System.out.println("Render mean time (ms) : " + TimeUnit.NANOSECONDS.toMillis(meanTime));
 			System.out.println("Render min time (ms) : " + TimeUnit.NANOSECONDS.toMillis(minTime));
 			System.out.println("Render max time (ms) : " + TimeUnit.NANOSECONDS.toMillis(maxTime));
+
+			/* the first pass resolved the hosts, now the repeated passes measure the steady state */
+			benchmark("hash", urls, false);
+			benchmark("parse+hash", urls, true);
 		} finally {
 			try {
 				Domains.close();
@@ -111,4 +148,60 @@ public class DigestURLHashPerfTest {
 
 	}
 
+	/**
+	 * Run warmup and measurement iterations of the hash generation and print
+	 * the throughput and the allocated bytes per URL.
+	 *
+	 * @param name
+	 *            the benchmark name
+	 * @param urls
+	 *            the URLs to hash
+	 * @param parse
+	 *            when true, the URL parsing is measured together with the
+	 *            hash generation
+	 */
+	private static void benchmark(final String name, final List<String> urls, final boolean parse) {
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		final boolean allocation = threadBean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+		final int repeat = Math.max(1, 100000 / Math.max(1, urls.size()));
+		long blackhole = 0;
+		double bestOpsPerSecond = 0, totalOpsPerSecond = 0;
+		long allocatedBytes = 0, ops = 0;
+		for (int iteration = 0; iteration < WARMUP_ITERATIONS + MEASUREMENT_ITERATIONS; iteration++) {
+			/* unique URLs as in crawled documents : repeated URLs would be served by digest caches */
+			final List<String> variants = new ArrayList<>(repeat * urls.size());
+			for (int r = 0; r < repeat; r++) {
+				for (final String urlStr : urls) {
+					variants.add(urlStr + (urlStr.indexOf('?') < 0 ? "?i=" : "&i=") + iteration + "_" + r);
+				}
+			}
+			final long allocatedBefore = allocation ? ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+			long iterationTime = 0, iterationOps = 0;
+			for (final String urlStr : variants) {
+				try {
+					final long beginTime = System.nanoTime();
+					final DigestURL url = new DigestURL(urlStr);
+					final long parsedTime = System.nanoTime();
+					blackhole += url.hash()[0];
+					iterationTime += System.nanoTime() - (parse ? beginTime : parsedTime);
+					iterationOps++;
+				} catch (final MalformedURLException e) {
+					continue;
+				}
+			}
+			final long allocatedAfter = allocation ? ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+			if (iteration < WARMUP_ITERATIONS || iterationTime == 0) continue;
+			final double opsPerSecond = iterationOps * 1e9d / iterationTime;
+			bestOpsPerSecond = Math.max(bestOpsPerSecond, opsPerSecond);
+			totalOpsPerSecond += opsPerSecond;
+			ops += iterationOps;
+			allocatedBytes += allocatedAfter - allocatedBefore;
+		}
+		System.out.println("Benchmark " + name + " : " + String.format(Locale.ROOT, "%.0f", totalOpsPerSecond / MEASUREMENT_ITERATIONS)
+				+ " ops/s (best " + String.format(Locale.ROOT, "%.0f", bestOpsPerSecond) + " ops/s)"
+				+ (allocation && ops > 0 ? ", " + (allocatedBytes / ops) + " bytes allocated/op (parse and hash)" : ""));
+		sink = blackhole;
+	}
+
 }
@@ -91,4 +91,23 @@ public class DigestURLTest extends TestCase {
 
     }
 
+    /**
+     * Test that hash() delivers the url hashes which are used as document ids in existing indexes
+     */
+    @Test
+    public void testHash_KnownValues() throws MalformedURLException {
+        final String[][] testStrings = new String[][]{
+            new String[]{"http://example.com", "pr8XV7QpK89Y"},
+            new String[]{"http://example.com/index.html", "N-xix7QpK89Y"},
+            new String[]{"http://example.com/path with space/\u00e4 \u00f6.html", "Y4BVGNQpK89Y"},
+            new String[]{"http://sub.deep.example.co.uk/path with space/\u00e4 \u00f6.html", "4rKcSeLRomAA"},
+            new String[]{"http://www.example.com/a/b/../c/./d.html", "Uyu_YcY1RgeY"},
+            new String[]{"http://www.example.com//double//slash", "FfjmxXY1RgeY"},
+            new String[]{"http://[::1]/", "k4V-b7QOIJ7c"}
+        };
+        for (final String[] testString : testStrings) {
+            assertEquals(testString[0], testString[1], ASCII.String(new DigestURL(testString[0]).hash()));
+        }
+    }
+
 }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
 import net.yacy.cora.federate.solr.instance.EmbeddedInstance;
 import net.yacy.search.schema.CollectionSchema;
 import net.yacy.search.schema.WebgraphSchema;
@@ -173,6 +174,32 @@ public class EmbeddedSolrConnectorTest {
         assertEquals(id, foundid);
     }
 
+    /**
+     * Test that the most frequent terms of a field are read from the term dictionary
+     */
+    @Test
+    public void testGetFrequentTerms() throws IOException {
+        solr.clear();
+        for (int i = 0; i < 4; i++) {
+            SolrInputDocument doc = new SolrInputDocument();
+            doc.addField(CollectionSchema.id.name(), "frequent" + i);
+            doc.addField(CollectionSchema.text_t.name(), "wikipedia encyclopedia" + (i < 2 ? " yacy" : "") + " x" + i);
+            solr.add(doc);
+        }
+        solr.commit(true);
+
+        Map<String, Integer> terms = solr.getFrequentTerms(CollectionSchema.text_t.name(), term -> term.length() > 2, 2, 10);
+        assertEquals(3, terms.size());
+        assertEquals(Integer.valueOf(4), terms.get("wikipedia"));
+        assertEquals(Integer.valueOf(4), terms.get("encyclopedia"));
+        assertEquals(Integer.valueOf(2), terms.get("yacy"));
+
+        // only the most frequent terms are returned
+        terms = solr.getFrequentTerms(CollectionSchema.text_t.name(), term -> term.length() > 2, 1, 2);
+        assertEquals(2, terms.size());
+        assertFalse(terms.containsKey("yacy"));
+    }
+
     /**
      * Test of close and reopen embedded Solr
      * test for issue http://mantis.tokeek.de/view.php?id=686
@@ -0,0 +1,115 @@
+package net.yacy.cora.federate.solr.embedded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentFilterCacheTest {
+
+    private Directory dir;
+    private IndexWriter writer;
+    private int id;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = new ByteBuffersDirectory();
+        this.writer = new IndexWriter(this.dir, new IndexWriterConfig());
+        this.id = 0;
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.writer.close();
+        this.dir.close();
+    }
+
+    private void add(final String language, final int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            final Document doc = new Document();
+            doc.add(new StringField("id", Integer.toString(this.id++), Field.Store.NO));
+            doc.add(new StringField("language_s", language, Field.Store.NO));
+            this.writer.addDocument(doc);
+        }
+        this.writer.commit(); // each call creates a new segment
+    }
+
+    /**
+     * Test that a cached filter matches the same documents as the original query and that
+     * only the new segments are computed after a commit.
+     */
+    @Test
+    public void testSegments() throws IOException {
+        final SegmentFilterCache cache = new SegmentFilterCache(16, 1024L * 1024L);
+        final Query en = new TermQuery(new Term("language_s", "en"));
+        assertNull(cache.get("language_s:en"));
+        final Query filter = cache.put("language_s:en", en);
+        assertNotNull(cache.get("language_s:en"));
+
+        add("en", 10);
+        add("de", 5);
+        DirectoryReader reader = DirectoryReader.open(this.dir);
+        assertEquals(10, new IndexSearcher(reader).count(filter));
+        assertEquals(2, cache.misses());
+        assertEquals(10, new IndexSearcher(reader).count(filter));
+        assertEquals(2, cache.hits());
+
+        // a new segment and a deletion: the old segments are reused, the deleted document is not counted
+        add("en", 3);
+        this.writer.deleteDocuments(new Term("id", "0"));
+        this.writer.commit();
+        final DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        reader.close();
+        reader = newReader;
+        final IndexSearcher searcher = new IndexSearcher(reader);
+        assertEquals(1, cache.warm(searcher));
+        assertEquals(3, cache.misses());
+        assertEquals(searcher.count(en), searcher.count(filter));
+        assertEquals(12, searcher.count(filter));
+        assertTrue(cache.ramBytesUsed() > 0);
+
+        // merged segments are removed from the cache when they are closed
+        this.writer.forceMerge(1);
+        this.writer.commit();
+        final DirectoryReader merged = DirectoryReader.openIfChanged(reader);
+        reader.close();
+        assertEquals(12, new IndexSearcher(merged).count(filter));
+        merged.close();
+        assertEquals(0, cache.ramBytesUsed());
+    }
+
+    /**
+     * Test the eviction of the least recently used filters.
+     */
+    @Test
+    public void testEviction() throws IOException {
+        final SegmentFilterCache cache = new SegmentFilterCache(2, 1024L * 1024L);
+        cache.put("language_s:en", new TermQuery(new Term("language_s", "en")));
+        cache.put("language_s:de", new TermQuery(new Term("language_s", "de")));
+        cache.get("language_s:en");
+        cache.put("language_s:fr", new TermQuery(new Term("language_s", "fr")));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("language_s:en"));
+        assertNull(cache.get("language_s:de"));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
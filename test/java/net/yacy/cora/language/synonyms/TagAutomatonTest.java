@@ -0,0 +1,98 @@
+package net.yacy.cora.language.synonyms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import net.yacy.cora.lod.vocabulary.Tagging;
+
+public class TagAutomatonTest {
+
+    private static Tagging vocabulary(final String name, final String... terms) throws IOException {
+        final Map<String, Tagging.SOTuple> table = new LinkedHashMap<>();
+        for (final String term: terms) table.put(term, new Tagging.SOTuple("", null));
+        return new Tagging(name, null, null, table);
+    }
+
+    /**
+     * read the words of a text with a matcher and return the tags as strings
+     */
+    private static Set<String> match(final TagAutomaton automaton, final Set<String> vocabularyNames, final String text) {
+        final Set<String> tags = new HashSet<>();
+        final TagAutomaton.Matcher matcher = automaton.matcher();
+        for (final String word: text.split(" ")) {
+            matcher.next(word, vocabularyNames, tag -> tags.add(tag.toString()));
+        }
+        return tags;
+    }
+
+    private static Set<String> set(final String... s) {
+        final Set<String> set = new HashSet<>();
+        for (final String e: s) set.add(e);
+        return set;
+    }
+
+    /**
+     * Test that overlapping synonyms of several words and of several vocabularies are found.
+     */
+    @Test
+    public void testMatch() throws IOException {
+        final Map<String, Tagging> vocabularies = new ConcurrentHashMap<>();
+        vocabularies.put("cities", vocabulary("cities", "New York", "York", "Frankfurt am Main", "Main", "München"));
+        vocabularies.put("animals", vocabulary("animals", "Cat", "Big Cat", "Big Cat Diary Show Episode"));
+        final TagAutomaton automaton = new TagAutomaton(vocabularies, 4);
+        assertEquals(7, automaton.size()); // without the synonym of 5 words
+
+        assertEquals(set("cities:New_York", "cities:York", "animals:Big_Cat", "animals:Cat", "cities:Frankfurt_am_Main", "cities:Main"),
+                match(automaton, set("cities", "animals"), "from new york to the big cat of frankfurt am main"));
+        // the synonym with more than 4 words is not matched, words with umlauts are normalized
+        assertEquals(set("animals:Big_Cat", "animals:Cat", "cities:München"),
+                match(automaton, set("cities", "animals"), "big cat diary show episode in münchen"));
+        // a failed partial match continues with the longest suffix
+        assertEquals(set("cities:Frankfurt_am_Main", "cities:Main"), match(automaton, set("cities"), "frankfurt frankfurt am main"));
+        // only the requested vocabularies are matched
+        assertEquals(set("animals:Cat"), match(automaton, set("animals"), "the cat from york"));
+    }
+
+    /**
+     * Test that vocabularies which are added or changed after the built of the automaton are still matched.
+     */
+    @Test
+    public void testChangedVocabularies() throws IOException {
+        final Map<String, Tagging> vocabularies = new ConcurrentHashMap<>();
+        vocabularies.put("cities", vocabulary("cities", "Paris"));
+        final TagAutomaton automaton = new TagAutomaton(vocabularies, 4);
+        assertTrue(automaton.isCurrent(vocabularies));
+
+        vocabularies.put("animals", vocabulary("animals", "Black Cat"));
+        assertFalse(automaton.isCurrent(vocabularies));
+        assertEquals(set("cities:Paris", "animals:Black_Cat"), match(automaton, set("cities", "animals"), "a black cat in paris"));
+
+        final File file = File.createTempFile("TagAutomatonTest", ".vocabulary");
+        try {
+            final Tagging cities = vocabulary("cities", "Paris");
+            final Tagging stored = new Tagging("cities", file, null, new LinkedHashMap<String, Tagging.SOTuple>());
+            vocabularies.put("cities", stored);
+            final TagAutomaton current = new TagAutomaton(vocabularies, 4);
+            assertTrue(current.isCurrent(vocabularies));
+            stored.put("Rome", "", null);
+            assertFalse(current.isCurrent(vocabularies));
+            assertEquals(set("cities:Rome"), match(current, set("cities"), "from paris to rome"));
+            vocabularies.put("cities", cities);
+            assertFalse(current.isCurrent(vocabularies));
+            assertEquals(set("cities:Paris"), match(current, set("cities"), "from paris to rome"));
+        } finally {
+            file.delete();
+        }
+    }
+}
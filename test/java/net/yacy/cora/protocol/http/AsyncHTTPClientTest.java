@@ -0,0 +1,139 @@
+package net.yacy.cora.protocol.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.apache.http.entity.mime.content.StringBody;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import net.yacy.cora.document.id.MultiProtocolURL;
+import net.yacy.cora.protocol.ClientIdentification;
+
+public class AsyncHTTPClientTest {
+
+    private static final byte[] CONTENT = "Hello asynchronous world".getBytes(StandardCharsets.UTF_8);
+
+    private static HttpServer server;
+    private static String base;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/plain", exchange -> respond(exchange, 200, CONTENT, false, true));
+        server.createContext("/chunked", exchange -> respond(exchange, 200, CONTENT, false, false));
+        server.createContext("/gzip", exchange -> respond(exchange, 200, CONTENT, true, true));
+        server.createContext("/missing", exchange -> respond(exchange, 404, CONTENT, false, true));
+        server.createContext("/echo", exchange -> {
+            byte[] body = readAll(exchange.getRequestBody());
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) body = readAll(new GZIPInputStream(new java.io.ByteArrayInputStream(body)));
+            respond(exchange, 200, body, false, true);
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop(0);
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] b = new byte[1024];
+        int l;
+        while ((l = in.read(b)) != -1) out.write(b, 0, l);
+        return out.toByteArray();
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final byte[] content, final boolean gzip, final boolean contentLength) throws IOException {
+        byte[] body = content;
+        if (gzip) {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (final GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+                gos.write(content);
+            }
+            body = bos.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, contentLength ? body.length : 0);
+        try (final OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static void assertTooLarge(final CompletableFuture<byte[]> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("content must exceed the limit");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getMessage().contains("maximum"));
+        }
+    }
+
+    /**
+     * Test GET requests with known and unknown content length, gzip content and an error status.
+     */
+    @Test
+    public void testGETbytes() throws Exception {
+        assertArrayEquals(CONTENT, AsyncHTTPClient.GETbytes(URI.create(base + "/plain"), null, "test", 5000, true, -1).get());
+        assertArrayEquals(CONTENT, AsyncHTTPClient.GETbytes(URI.create(base + "/chunked"), null, "test", 5000, true, -1).get());
+        assertArrayEquals(CONTENT, AsyncHTTPClient.GETbytes(URI.create(base + "/gzip"), null, "test", 5000, true, CONTENT.length).get());
+        assertNull(AsyncHTTPClient.GETbytes(URI.create(base + "/missing"), null, "test", 5000, true, -1).get());
+    }
+
+    /**
+     * Test that the size limit is applied to announced, streamed and uncompressed content.
+     */
+    @Test
+    public void testSizeLimit() throws Exception {
+        assertTooLarge(AsyncHTTPClient.GETbytes(URI.create(base + "/plain"), null, "test", 5000, true, CONTENT.length - 1));
+        assertTooLarge(AsyncHTTPClient.GETbytes(URI.create(base + "/chunked"), null, "test", 5000, true, CONTENT.length - 1));
+        assertTooLarge(AsyncHTTPClient.GETbytes(URI.create(base + "/gzip"), null, "test", 5000, true, CONTENT.length - 1));
+    }
+
+    /**
+     * Test multipart POST requests with and without gzip and many concurrent requests.
+     */
+    @Test
+    public void testPOSTbytes() throws Exception {
+        final HTTPClient client = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent, 5000);
+        final Map<String, ContentBody> parts = new HashMap<String, ContentBody>();
+        parts.put("query", new StringBody("yacy", ContentType.TEXT_PLAIN));
+        final List<CompletableFuture<byte[]>> futures = new ArrayList<CompletableFuture<byte[]>>();
+        for (int i = 0; i < 50; i++) futures.add(client.POSTbytesAsync(new MultiProtocolURL(base + "/echo"), null, parts, i % 2 == 0));
+        for (final CompletableFuture<byte[]> f: futures) {
+            final String echo = new String(f.get(), StandardCharsets.UTF_8);
+            assertTrue(echo.contains("name=\"query\""));
+            assertTrue(echo.contains("yacy"));
+        }
+        assertArrayEquals(CONTENT, client.GETbytesAsync(new MultiProtocolURL(base + "/gzip"), -1).get());
+        assertEquals(0, futures.stream().filter(CompletableFuture::isCompletedExceptionally).count());
+    }
+}
@@ -0,0 +1,122 @@
+package net.yacy.cora.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import net.yacy.cora.sorting.WeakPriorityBlockingQueue.Element;
+import net.yacy.cora.sorting.WeakPriorityBlockingQueue.ReverseElement;
+
+public class ConcurrentTopKQueueTest {
+
+    /**
+     * Test that only the best elements are kept when the queue overflows.
+     */
+    @Test
+    public void testBoundedOrder() {
+        final ConcurrentTopKQueue<String> q = new ConcurrentTopKQueue<String>(3, false);
+        for (int i = 0; i < 10; i++) q.put(new ReverseElement<String>("e" + i, i));
+        assertEquals(3, q.sizeQueue());
+        assertEquals(9, q.poll().getWeight());
+        assertEquals(8, q.poll().getWeight());
+        assertEquals(7, q.poll().getWeight());
+        assertNull(q.poll());
+    }
+
+    /**
+     * Test that drained elements are available by position and cannot be put again.
+     */
+    @Test
+    public void testDrainedPositions() throws InterruptedException {
+        final ConcurrentTopKQueue<String> q = new ConcurrentTopKQueue<String>(10, true);
+        final List<Element<String>> elements = new ArrayList<Element<String>>();
+        for (int i = 0; i < 5; i++) elements.add(new ReverseElement<String>("e" + i, i));
+        q.putAll(elements);
+        assertEquals("e4", q.element(0).getElement());
+        assertEquals("e2", q.element(2).getElement());
+        assertEquals(3, q.sizeDrained());
+        q.put(elements.get(4));
+        assertEquals(2, q.sizeQueue());
+        assertEquals(5, q.sizeAvailable());
+        assertNull(q.element(5, 10));
+        assertEquals(5, q.list(-1).size());
+    }
+
+    /**
+     * Test that the head of the queue is returned in the order of poll() without removing it.
+     */
+    @Test
+    public void testHead() {
+        final ConcurrentTopKQueue<String> q = new ConcurrentTopKQueue<String>(10, false);
+        for (int i = 0; i < 5; i++) q.put(new ReverseElement<String>("e" + i, i));
+        final List<Element<String>> head = q.head(3);
+        assertEquals(3, head.size());
+        assertEquals("e4", head.get(0).getElement());
+        assertEquals("e2", head.get(2).getElement());
+        assertEquals(5, q.sizeQueue());
+        assertEquals(5, q.head(10).size());
+        assertEquals("e4", q.poll().getElement());
+    }
+
+    /**
+     * Test that a positional read waits until a producer delivers the element.
+     */
+    @Test
+    public void testBlockingElement() throws InterruptedException {
+        final ConcurrentTopKQueue<String> q = new ConcurrentTopKQueue<String>(10, true);
+        final Thread producer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (final InterruptedException e) {}
+                q.put(new ReverseElement<String>("late", 1));
+            }
+        };
+        producer.start();
+        final Element<String> e = q.element(0, 5000);
+        assertEquals("late", e.getElement());
+        producer.join();
+    }
+
+    /**
+     * Test concurrent producers: the queue must contain exactly the best elements afterwards.
+     */
+    @Test
+    public void testConcurrentPut() throws InterruptedException {
+        final int producers = 8, perProducer = 5000, maxsize = 100;
+        final ConcurrentTopKQueue<String> q = new ConcurrentTopKQueue<String>(maxsize, true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            final int p = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {}
+                    for (int i = 0; i < perProducer; i++) {
+                        final int w = i * producers + p;
+                        q.put(new ReverseElement<String>("e" + w, w));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (final Thread t: threads) t.join();
+        assertEquals(maxsize, q.sizeQueue());
+        final List<Element<String>> list = q.list(maxsize);
+        assertEquals(maxsize, list.size());
+        long expected = producers * perProducer - 1;
+        for (final Element<String> e: list) assertEquals(expected--, e.getWeight());
+        assertTrue(q.sizeQueue() == 0);
+    }
+}
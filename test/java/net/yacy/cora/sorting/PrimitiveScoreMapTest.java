@@ -0,0 +1,122 @@
+package net.yacy.cora.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PrimitiveScoreMapTest {
+
+    /**
+     * Test of totalCount method, of class PrimitiveScoreMap.
+     */
+    @Test
+    public void testTotalCount() {
+        final PrimitiveScoreMap<String> psm = new PrimitiveScoreMap<String>();
+        psm.set("first", 10);
+        psm.set("second", 5);
+        psm.set("third", 13);
+        psm.set("first", 100);
+        psm.inc("second", 2);
+        psm.dec("third");
+
+        long sum = 0;
+        for (final String x: psm) sum += psm.get(x);
+        assertEquals(sum, psm.totalCount());
+        assertEquals(100 + 7 + 12, sum);
+        assertEquals(3, psm.size());
+    }
+
+    /**
+     * Test the sorted key views.
+     */
+    @Test
+    public void testKeysOrder() {
+        final PrimitiveScoreMap<String> psm = new PrimitiveScoreMap<String>();
+        for (int i = 0; i < 1000; i++) psm.set("k" + i, (i * 7919) % 1000);
+        Iterator<String> it = psm.keys(false);
+        int last = Integer.MAX_VALUE;
+        int count = 0;
+        while (it.hasNext()) {
+            final int score = psm.get(it.next());
+            assertTrue(score <= last);
+            last = score;
+            count++;
+        }
+        assertEquals(1000, count);
+        it = psm.keys(true);
+        assertEquals(0, psm.get(it.next()));
+        final List<String> top = psm.topKeys(3);
+        assertEquals(3, top.size());
+        assertEquals(999, psm.get(top.get(0)));
+        assertEquals(998, psm.get(top.get(1)));
+        assertEquals(997, psm.get(top.get(2)));
+        assertEquals(999, psm.getMaxScore());
+        assertEquals(0, psm.getMinScore());
+    }
+
+    /**
+     * Test delete and shrinking, including the removal of entries inside probe sequences.
+     */
+    @Test
+    public void testDeleteAndShrink() {
+        final PrimitiveScoreMap<Integer> psm = new PrimitiveScoreMap<Integer>();
+        for (int i = 0; i < 500; i++) psm.inc(i, i % 10);
+        for (int i = 0; i < 500; i += 3) assertEquals(i % 10, psm.delete(i));
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i % 3 != 0, psm.containsKey(i));
+            if (i % 3 != 0) assertEquals(i % 10, psm.get(i));
+        }
+        final int size = psm.size();
+        assertEquals(size - psm.shrinkToMinScore(5), psm.size());
+        assertTrue(psm.getMinScore() >= 5);
+        psm.shrinkToMaxSize(10);
+        assertTrue(psm.size() <= 10);
+        long sum = 0;
+        for (final Integer x: psm) sum += psm.get(x);
+        assertEquals(sum, psm.totalCount());
+    }
+
+    /**
+     * Test concurrent increments of a small set of keys, which promotes hot keys to striped counters.
+     */
+    @Test
+    public void testConcurrentInc() throws InterruptedException {
+        final PrimitiveScoreMap<String> psm = new PrimitiveScoreMap<String>();
+        final int threads = 8, incs = 20000;
+        final Thread[] t = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            t[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < incs; j++) psm.inc("k" + (j % 4));
+                }
+            };
+            t[i].start();
+        }
+        for (final Thread x: t) x.join();
+        for (int k = 0; k < 4; k++) assertEquals(threads * incs / 4, psm.get("k" + k));
+        assertEquals(threads * incs, psm.totalCount());
+        psm.set("k0", 1);
+        assertEquals(1, psm.get("k0"));
+        assertEquals(threads * incs * 3 / 4 + 1, psm.totalCount());
+    }
+
+    /**
+     * Test that toString lists all keys with their scores like ConcurrentScoreMap.
+     */
+    @Test
+    public void testToString() {
+        final PrimitiveScoreMap<String> psm = new PrimitiveScoreMap<String>();
+        assertEquals("{}", psm.toString());
+        psm.set("first", 10);
+        assertEquals("{first=10}", psm.toString());
+        psm.inc("second", 2);
+        final String s = psm.toString();
+        assertTrue(s.contains("first=10"));
+        assertTrue(s.contains("second=2"));
+    }
+}
@@ -0,0 +1,56 @@
+package net.yacy.cora.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ConcurrentARCTest {
+
+    /**
+     * Test that evict removes entries which were accessed only once before the entries which were accessed again.
+     */
+    @Test
+    public void testEvict() {
+        final ConcurrentARC<String, String> arc = new ConcurrentARC<String, String>(1000, 1);
+        for (int i = 0; i < 100; i++) arc.insert("key" + i, "value" + i);
+        // a second access moves the entries to level B
+        for (int i = 0; i < 10; i++) assertNotNull(arc.get("key" + i));
+        assertEquals(100, arc.size());
+
+        assertEquals(90, arc.evict(90));
+        assertEquals(10, arc.size());
+        for (int i = 0; i < 10; i++) assertEquals("value" + i, arc.get("key" + i));
+    }
+
+    /**
+     * Test that evict removes the requested number of entries from all partitions.
+     */
+    @Test
+    public void testEvictPartitions() {
+        final ConcurrentARC<String, String> arc = new ConcurrentARC<String, String>(1000, 4);
+        for (int i = 0; i < 100; i++) arc.insert("key" + i, "value" + i);
+        assertEquals(90, arc.evict(90));
+        assertEquals(10, arc.size());
+
+        // more entries than available are requested
+        assertEquals(10, arc.evict(20));
+        assertEquals(0, arc.size());
+        assertNull(arc.get("key0"));
+        assertEquals(0, arc.evict(5));
+    }
+
+    /**
+     * Test evict on an ARC with a comparator.
+     */
+    @Test
+    public void testEvictComparable() {
+        final ConcurrentARC<String, String> arc = new ConcurrentARC<String, String>(1000, 2, String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < 50; i++) arc.insert("key" + i, "value" + i);
+        assertEquals(20, arc.evict(20));
+        assertEquals(30, arc.size());
+        assertEquals(30, arc.evict(100));
+        assertEquals(0, arc.size());
+    }
+}
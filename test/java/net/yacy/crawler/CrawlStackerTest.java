@@ -0,0 +1,248 @@
+package net.yacy.crawler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.federate.yacy.CacheStrategy;
+import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.crawler.data.CrawlProfile;
+import net.yacy.crawler.retrieval.Request;
+import net.yacy.document.parser.html.TagValency;
+
+/**
+ * Test that the bulk pre-filter of {@link CrawlStacker#enqueueLinks(Collection)} has the same result
+ * as the per-url path of {@link CrawlStacker#process(Request)}.
+ */
+public class CrawlStackerTest {
+
+    /** the recrawl date of the test profile */
+    private static final long RECRAWL_IF_OLDER = 1000000L;
+
+    private static class TestBackend implements CrawlStacker.Backend {
+        private final Map<String, CrawlProfile> profiles = new HashMap<>();
+        private final Set<String> blacklistedHosts = new HashSet<>();
+        private final Map<String, HarvestProcess> existing = new HashMap<>();
+        private final Map<String, Long> loadTimes = new HashMap<>();
+        /** the rejected urls with the reject reason, in the order of the rejection */
+        private final Map<String, String> rejected = new LinkedHashMap<>();
+
+        @Override
+        public CrawlProfile getProfile(final String handle) {
+            return this.profiles.get(handle);
+        }
+
+        @Override
+        public boolean isSupportedProtocol(final String protocol) {
+            return "http".equals(protocol) || "https".equals(protocol);
+        }
+
+        @Override
+        public boolean isBlacklisted(final DigestURL url) {
+            return this.blacklistedHosts.contains(url.getHost());
+        }
+
+        @Override
+        public HarvestProcess exists(final byte[] urlhash) {
+            return this.existing.get(ASCII.String(urlhash));
+        }
+
+        @Override
+        public Map<String, HarvestProcess> exists(final Collection<String> urlhashes) {
+            final Map<String, HarvestProcess> found = new HashMap<>();
+            for (final String hash: urlhashes) {
+                if (this.existing.containsKey(hash)) found.put(hash, this.existing.get(hash));
+            }
+            return found;
+        }
+
+        @Override
+        public long getLoadTime(final byte[] urlhash) {
+            final Long time = this.loadTimes.get(ASCII.String(urlhash));
+            return time == null ? -1 : time.longValue();
+        }
+
+        @Override
+        public void reject(final Request entry, final CrawlProfile profile, final String reason) {
+            this.rejected.put(entry.url().toNormalform(true), reason);
+        }
+    }
+
+    private TestBackend backend;
+    private CrawlStacker stacker;
+
+    @Before
+    public void setUp() {
+        this.backend = new TestBackend();
+        this.stacker = new CrawlStacker(this.backend, true, true, null);
+    }
+
+    @After
+    public void tearDown() {
+        this.stacker.close();
+    }
+
+    private CrawlProfile profile(final String mustMatch, final String mustNotMatch) {
+        final CrawlProfile profile = new CrawlProfile(
+                "CrawlStackerTest", mustMatch, mustNotMatch,
+                CrawlProfile.MATCH_ALL_STRING, CrawlProfile.MATCH_NEVER_STRING, // crawlerIpMustMatch, crawlerIpMustNotMatch
+                "", CrawlProfile.MATCH_NEVER_STRING, // crawlerCountryMustMatch, crawlerNoDepthLimitMatch
+                CrawlProfile.MATCH_ALL_STRING, CrawlProfile.MATCH_NEVER_STRING, // indexUrlMustMatch, indexUrlMustNotMatch
+                CrawlProfile.MATCH_ALL_STRING, CrawlProfile.MATCH_NEVER_STRING, // indexContentMustMatch, indexContentMustNotMatch
+                false, 3, false, new Date(RECRAWL_IF_OLDER),
+                -1, true, true, true, false, // domMaxPages, crawlingQ, followFrames, obeyHtmlRobotsNoindex, obeyHtmlRobotsNofollow
+                true, true, true, false, -1, false, true, CrawlProfile.MATCH_NEVER_STRING, CacheStrategy.IFEXIST,
+                "test", ClientIdentification.yacyIntranetCrawlerAgentName, TagValency.EVAL, null, null, 0);
+        this.backend.profiles.put(profile.handle(), profile);
+        return profile;
+    }
+
+    private static Request link(final String url, final CrawlProfile profile, final int depth) throws MalformedURLException {
+        return new Request(null, new DigestURL(url), null, "", new Date(), profile.handle(), depth, 0);
+    }
+
+    private static String hash(final Request link) {
+        return ASCII.String(link.url().hash());
+    }
+
+    /**
+     * The per-url path: every link is checked by stackCrawl as in process(). A link which passes the checks
+     * is pushed to the noticed url stack, which takes an url only once.
+     * @return the urls which are stacked, in the order of the links
+     */
+    private List<String> perUrl(final Collection<Request> links) {
+        final List<String> stacked = new ArrayList<>();
+        for (final Request link: links) {
+            final CrawlProfile profile = this.backend.getProfile(link.profileHandle());
+            String reason = this.stacker.checkAcceptanceChangeable(link.url(), profile, link.depth());
+            if (reason == null) reason = this.stacker.checkAcceptanceInitially(link.url(), profile);
+            if (reason != null) {
+                if (!reason.startsWith(CrawlStacker.CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX)) this.backend.reject(link, profile, reason);
+                continue;
+            }
+            final String url = link.url().toNormalform(true);
+            if (!stacked.contains(url)) stacked.add(url);
+        }
+        return stacked;
+    }
+
+    /**
+     * The bulk path: the links are pre-filtered, the remaining links run through the stacker as in the per-url path.
+     * @return the urls which are stacked, in the order of the links
+     */
+    private List<String> bulk(final Collection<Request> links) {
+        return this.perUrl(this.stacker.preFilterLinks(links));
+    }
+
+    /**
+     * run both paths on the links and assert that they stack the same urls and reject the same urls with the same reasons
+     * @return the rejected urls with their reason
+     */
+    private Map<String, String> assertSameResult(final List<Request> links, final List<String> expectedStacked) {
+        final List<String> stackedPerUrl = this.perUrl(links);
+        final Map<String, String> rejectedPerUrl = new HashMap<>(this.backend.rejected);
+        this.backend.rejected.clear();
+
+        final List<String> stackedBulk = this.bulk(links);
+        assertEquals(expectedStacked, stackedPerUrl);
+        assertEquals(stackedPerUrl, stackedBulk);
+        assertEquals(rejectedPerUrl, this.backend.rejected);
+        return rejectedPerUrl;
+    }
+
+    /**
+     * Test that a link which appears more than once in a document is stacked once and is not stored as error.
+     */
+    @Test
+    public void testDuplicatesInBatch() throws MalformedURLException {
+        final CrawlProfile profile = this.profile(CrawlProfile.MATCH_ALL_STRING, CrawlProfile.MATCH_NEVER_STRING);
+        final List<Request> links = Arrays.asList(
+                link("http://example.org/a", profile, 1),
+                link("http://example.org/b", profile, 1),
+                link("http://example.org/a", profile, 2),
+                link("http://example.org/c", profile, 1),
+                link("http://example.org/b", profile, 1));
+        assertEquals(3, this.stacker.preFilterLinks(links).size());
+        final Map<String, String> rejected = this.assertSameResult(links,
+                Arrays.asList("http://example.org/a", "http://example.org/b", "http://example.org/c"));
+        assertTrue(rejected.isEmpty());
+    }
+
+    /**
+     * Test that links which are known to the crawler or are in the index and not due for a recrawl
+     * are dropped without an error record.
+     */
+    @Test
+    public void testDoubleRegistration() throws MalformedURLException {
+        final CrawlProfile profile = this.profile(CrawlProfile.MATCH_ALL_STRING, CrawlProfile.MATCH_NEVER_STRING);
+        final Request inWorker = link("http://example.org/worker", profile, 1);
+        final Request delegated = link("http://example.org/delegated", profile, 1);
+        final Request indexed = link("http://example.org/indexed", profile, 1);
+        final Request outdated = link("http://example.org/outdated", profile, 1);
+        final Request fresh = link("http://example.org/fresh", profile, 1);
+        this.backend.existing.put(hash(inWorker), HarvestProcess.WORKER);
+        this.backend.existing.put(hash(delegated), HarvestProcess.DELEGATED);
+        this.backend.loadTimes.put(hash(indexed), RECRAWL_IF_OLDER + 1);
+        this.backend.loadTimes.put(hash(outdated), RECRAWL_IF_OLDER - 1);
+
+        assertEquals(CrawlStacker.CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX + ": " + HarvestProcess.WORKER.name(), this.stacker.checkAcceptanceInitially(inWorker.url(), profile));
+        assertEquals(CrawlStacker.CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX + ": " + HarvestProcess.DELEGATED.name(), this.stacker.checkAcceptanceInitially(delegated.url(), profile));
+        assertTrue(this.stacker.checkAcceptanceInitially(indexed.url(), profile).startsWith(CrawlStacker.CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX + ": local index"));
+
+        final List<Request> links = Arrays.asList(inWorker, delegated, indexed, outdated, fresh, inWorker);
+        final List<Request> accepted = this.stacker.preFilterLinks(links);
+        assertEquals(Arrays.asList(outdated, fresh), accepted);
+        final Map<String, String> rejected = this.assertSameResult(links,
+                Arrays.asList("http://example.org/outdated", "http://example.org/fresh"));
+        assertTrue(rejected.isEmpty());
+    }
+
+    /**
+     * Test the reject reasons for blacklisted hosts and the url filters of the profile: when more than one test fails,
+     * the pre-filter stores the same reason as the stacker, which checks the blacklist before the url filters.
+     */
+    @Test
+    public void testBlacklistedHosts() throws MalformedURLException {
+        final CrawlProfile profile = this.profile("http://example\\.org/.*", ".*/private/.*");
+        this.backend.blacklistedHosts.add("spam.example.net");
+        final List<Request> links = Arrays.asList(
+                link("http://spam.example.net/a", profile, 1),      // blacklisted and not matching the must-match filter
+                link("http://example.org/private/b", profile, 1),   // matching the must-not-match filter
+                link("http://example.org/c", profile, 1),           // accepted
+                link("http://other.example.net/d", profile, 1),     // not matching the must-match filter
+                link("http://other.example.net/e", profile, 0),     // the url filters are not applied to the start url
+                link("http://spam.example.net/f", profile, 0));     // blacklisted start url
+
+        // the pre-filter stores its rejects in the order of the links
+        final List<Request> accepted = this.stacker.preFilterLinks(links);
+        assertEquals(3, accepted.size());
+        assertEquals(Arrays.asList("http://spam.example.net/a", "http://example.org/private/b", "http://other.example.net/d"),
+                new ArrayList<>(this.backend.rejected.keySet()));
+        this.backend.rejected.clear();
+
+        final Map<String, String> rejected = this.assertSameResult(links,
+                Arrays.asList("http://example.org/c", "http://other.example.net/e"));
+        assertEquals(4, rejected.size());
+        assertEquals("url in blacklist", rejected.get("http://spam.example.net/a"));
+        assertEquals(CrawlStacker.ERROR_MATCH_WITH_MUST_NOT_MATCH_FILTER + ".*/private/.*", rejected.get("http://example.org/private/b"));
+        assertEquals(CrawlStacker.ERROR_NO_MATCH_MUST_MATCH_FILTER + profile.formattedUrlMustMatchPattern(), rejected.get("http://other.example.net/d"));
+        assertEquals("url in blacklist", rejected.get("http://spam.example.net/f"));
+    }
+}
@@ -0,0 +1,91 @@
+package net.yacy.document.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.document.Document;
+import net.yacy.document.VocabularyScraper;
+import net.yacy.document.parser.html.TagValency;
+
+/**
+ * Unit tests for the {@link zipParser} class and the concurrent entry parsing of the {@link ArchiveEntryParser}
+ */
+public class zipParserTest {
+
+    private static final int ENTRIES = 40;
+
+    @After
+    public void resetLimits() {
+        ArchiveEntryParser.setLimits(10000, 1024L * 1024L * 1024L, 5L * 60L * 1000L);
+    }
+
+    private static byte[] createZip(final int entries) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final ZipOutputStream zos = new ZipOutputStream(bos)) {
+            for (int i = 0; i < entries; i++) {
+                // the zip parser skips entries without a size in the local header; stored entries have one
+                final byte[] content = ("zipentry" + i + "text").getBytes(StandardCharsets.UTF_8);
+                final ZipEntry entry = new ZipEntry("dir/entry" + i + ".txt");
+                final CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(content.length);
+                entry.setCrc(crc.getValue());
+                zos.putNextEntry(entry);
+                zos.write(content);
+                zos.closeEntry();
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static Document parse(final byte[] zip) throws Exception {
+        final Document[] docs = new zipParser().parse(new DigestURL("http://localhost/archive.zip"), "application/zip", null,
+                TagValency.EVAL, null, new VocabularyScraper(), 0, new ByteArrayInputStream(zip));
+        assertEquals(1, docs.length);
+        return docs[0];
+    }
+
+    /**
+     * Test that all entries are parsed and added in the order of the archive.
+     */
+    @Test
+    public void testParseOrder() throws Exception {
+        final Document doc = parse(createZip(ENTRIES));
+        final String text = doc.getTextString();
+        int last = -1;
+        for (int i = 0; i < ENTRIES; i++) {
+            final int pos = text.indexOf("zipentry" + i + "text");
+            assertTrue("entry " + i + " missing", pos >= 0);
+            assertTrue("entry " + i + " out of order", pos > last);
+            last = pos;
+        }
+        assertFalse(doc.isPartiallyParsed());
+    }
+
+    /**
+     * Test the limit of entries for one archive.
+     */
+    @Test
+    public void testEntryLimit() throws Exception {
+        ArchiveEntryParser.setLimits(5, Long.MAX_VALUE, 60000L);
+        final Document doc = parse(createZip(ENTRIES));
+        final String text = doc.getTextString();
+        assertTrue(text.contains("zipentry4text"));
+        assertFalse(text.contains("zipentry5text"));
+        assertTrue(doc.isPartiallyParsed());
+    }
+}
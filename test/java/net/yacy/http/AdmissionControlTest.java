@@ -0,0 +1,138 @@
+package net.yacy.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import net.yacy.http.AdmissionControl.EndpointClass;
+
+public class AdmissionControlTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testClassify() {
+        assertEquals(EndpointClass.PEER, AdmissionControl.classify("/yacy/transferRWI.html"));
+        assertEquals(EndpointClass.PEER, AdmissionControl.classify("/yacy/search.html"));
+        assertEquals(EndpointClass.SEARCH, AdmissionControl.classify("/yacysearch.json"));
+        assertEquals(EndpointClass.SEARCH, AdmissionControl.classify("/solr/select"));
+        assertEquals(EndpointClass.API, AdmissionControl.classify("/api/version.xml"));
+        assertEquals(EndpointClass.API, AdmissionControl.classify("/v1/chat/completions"));
+        assertEquals(EndpointClass.ADMIN, AdmissionControl.classify("/api/status_p.xml"));
+        assertEquals(EndpointClass.ADMIN, AdmissionControl.classify("/Crawler_p.html"));
+        assertNull(AdmissionControl.classify("/env/base.css"));
+        assertNull(AdmissionControl.classify("/index.html"));
+    }
+
+    /**
+     * Test that requests over the limit are rejected without a queue and that exempt requests are always admitted.
+     */
+    @Test
+    public void testReject() {
+        final AdmissionControl.Limit limit = new AdmissionControl.Limit(2, 4, 0, 0);
+        assertEquals(2, limit.limit());
+        assertTrue(limit.acquire(false));
+        assertTrue(limit.acquire(false));
+        assertFalse(limit.acquire(false));
+        assertTrue(limit.acquire(true));
+        assertEquals(3, limit.inflight());
+        assertEquals(1, limit.rejected());
+        assertTrue(limit.retryAfter() >= 1);
+    }
+
+    /**
+     * Test that a queued request gets the slot of a finished request.
+     */
+    @Test
+    public void testQueue() throws InterruptedException {
+        final AdmissionControl.Limit limit = new AdmissionControl.Limit(1, 1, 4, 5000);
+        assertTrue(limit.acquire(false));
+        final AtomicBoolean admitted = new AtomicBoolean(false);
+        final Thread waiting = new Thread("AdmissionControlTest.testQueue") {
+            @Override
+            public void run() {
+                admitted.set(limit.acquire(false));
+            }
+        };
+        waiting.start();
+        while (limit.queued() == 0) Thread.sleep(1);
+        limit.release(10 * MS, false);
+        waiting.join(5000);
+        assertTrue(admitted.get());
+        assertEquals(1, limit.inflight());
+        assertEquals(0, limit.queued());
+    }
+
+    /**
+     * Test that the classes share the thread budget: requests which would exceed it are rejected at once instead of
+     * waiting in the queue, and the threads are returned when the requests are finished or rejected after waiting.
+     */
+    @Test
+    public void testThreadBudget() throws InterruptedException {
+        final AdmissionControl.ThreadBudget budget = new AdmissionControl.ThreadBudget(3);
+        final AdmissionControl.Limit search = new AdmissionControl.Limit(2, 2, 8, 5000, budget);
+        final AdmissionControl.Limit api = new AdmissionControl.Limit(2, 2, 8, 5000, budget);
+        assertTrue(search.acquire(false));
+        assertTrue(search.acquire(false));
+        assertTrue(api.acquire(false));
+        assertEquals(3, budget.used());
+
+        // the budget is exhausted: no request waits, even if the queue of the class has space
+        final long start = System.currentTimeMillis();
+        assertFalse(api.acquire(false));
+        assertFalse(search.acquire(false));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(0, search.queued());
+        assertEquals(3, budget.used());
+
+        // exempt requests are admitted but count in the budget
+        assertTrue(search.acquire(true));
+        assertEquals(4, budget.used());
+        search.release(10 * MS, false);
+        api.release(10 * MS, false);
+        assertEquals(2, budget.used());
+
+        // a queued request holds a thread while it waits and returns it when it is rejected
+        final AdmissionControl.Limit queue = new AdmissionControl.Limit(1, 1, 1, 50, budget);
+        assertTrue(queue.acquire(false));
+        assertEquals(3, budget.used());
+        search.release(10 * MS, false);
+        assertFalse(queue.acquire(false));
+        assertEquals(2, budget.used());
+        queue.release(10 * MS, false);
+        search.release(10 * MS, false);
+        assertEquals(0, budget.used());
+    }
+
+    /**
+     * Test that the limit grows while the latency is stable and shrinks when the latency rises or requests fail.
+     */
+    @Test
+    public void testAdaptation() {
+        final AdmissionControl.Limit limit = new AdmissionControl.Limit(2, 64, 0, 0);
+        final int initial = limit.limit();
+        for (int i = 0; i < 200; i++) {
+            // run the class at its limit with a stable latency
+            while (limit.acquire(false)) {}
+            while (limit.inflight() > 0) limit.release(10 * MS, false);
+        }
+        final int grown = limit.limit();
+        assertTrue(grown > initial);
+        for (int i = 0; i < 10; i++) {
+            while (limit.acquire(false)) {}
+            while (limit.inflight() > 0) limit.release(100 * MS, false);
+        }
+        final int shrunk = limit.limit();
+        assertTrue(shrunk < grown);
+        assertTrue(limit.acquire(false));
+        limit.release(10 * MS, true);
+        assertTrue(limit.limit() < shrunk || limit.limit() == 2);
+        assertEquals(1, limit.failed());
+    }
+}
@@ -0,0 +1,109 @@
+package net.yacy.kelondro.blob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceContainerCache;
+import net.yacy.kelondro.util.Bitfield;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.search.index.Segment;
+
+public class ArrayStackTest {
+
+    private static final String PREFIX = "text.index";
+
+    private File dir;
+    private ArrayStack stack;
+    private int maxReferences;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("ArrayStackTest").toFile();
+        this.stack = new ArrayStack(this.dir, PREFIX, Segment.wordOrder, Word.commonHashLength, 0, true, true);
+        this.maxReferences = ReferenceContainer.maxReferences;
+    }
+
+    @After
+    public void tearDown() {
+        ReferenceContainer.maxReferences = this.maxReferences;
+        this.stack.close(false);
+        FileUtils.deletedelete(this.dir);
+    }
+
+    private static WordReferenceRow reference(final String url) throws MalformedURLException {
+        final DigestURL u = new DigestURL(url);
+        final WordReferenceRow row = new WordReferenceRow(u.hash(), url.length(), 3, 0, 1, 1,
+                System.currentTimeMillis(), System.currentTimeMillis(), UTF8.getBytes("en"), Response.DT_TEXT, 0, 0);
+        final Word word = new Word(1, 1, 1);
+        word.flags = new Bitfield(4);
+        row.setWord(word);
+        return row;
+    }
+
+    private File dump(final Date creation, final Map<byte[], Integer> terms, final String host) throws MalformedURLException, SpaceExceededException {
+        final ReferenceContainerCache<WordReference> cache = new ReferenceContainerCache<WordReference>(Segment.wordReferenceFactory, Segment.wordOrder, Word.commonHashLength);
+        for (final Map.Entry<byte[], Integer> term: terms.entrySet()) {
+            for (int i = 0; i < term.getValue(); i++) cache.add(term.getKey(), reference("http://" + host + i + ".org/"));
+        }
+        final File file = this.stack.newBLOB(creation);
+        cache.dump(file, 1024 * 1024, true);
+        return file;
+    }
+
+    /**
+     * Test that references which a merge removes because they exceed the maximum number of references are reported
+     * to the shrink listener, also for a container which exists only in the first file and has a smaller key than the
+     * current container of the second file.
+     */
+    @Test
+    public void testMergeReportsShrinkOfSmallerKey() throws IOException, SpaceExceededException {
+        byte[] small = Word.word2hash("alpha"), large = Word.word2hash("beta");
+        if (Segment.wordOrder.compare(small, large) > 0) {
+            final byte[] t = small;
+            small = large;
+            large = t;
+        }
+        final Map<byte[], Integer> terms1 = new HashMap<>();
+        terms1.put(small, 5);
+        terms1.put(large, 2);
+        final Map<byte[], Integer> terms2 = new HashMap<>();
+        terms2.put(large, 2);
+        final long now = System.currentTimeMillis();
+        final File f1 = dump(new Date(now - 2000), terms1, "one");
+        final File f2 = dump(new Date(now - 1000), terms2, "two");
+
+        final Map<String, Integer> shrunk = new HashMap<>();
+        this.stack.setShrinkListener((termHash, removed) -> shrunk.merge(ASCII.String(termHash), removed, Integer::sum));
+        ReferenceContainer.maxReferences = 3;
+        final File merged = this.stack.mergeMount(f1, f2, Segment.wordReferenceFactory, this.stack.newBLOB(new Date(now)), 1024 * 1024);
+        assertNotNull(merged);
+        assertTrue(merged.exists());
+
+        // the container of the smaller key is only in the first file: 5 - 3 references are removed
+        assertEquals(Integer.valueOf(2), shrunk.get(ASCII.String(small)));
+        // the merged container of the larger key has 2 + 2 references: 4 - 3 references are removed
+        assertEquals(Integer.valueOf(1), shrunk.get(ASCII.String(large)));
+    }
+}
@@ -0,0 +1,130 @@
+package net.yacy.kelondro.blob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.blob.Tables.SortDirection;
+import net.yacy.kelondro.util.FileUtils;
+
+public class TablesSecondaryIndexTest {
+
+    private static final String TABLE = "api";
+
+    private File dir;
+    private Tables tables;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("TablesSecondaryIndexTest").toFile();
+        this.tables = new Tables(this.dir, 12);
+    }
+
+    @After
+    public void tearDown() {
+        this.tables.close();
+        FileUtils.deletedelete(this.dir);
+    }
+
+    private byte[] insert(final String url, final int count, final Date date) throws IOException, SpaceExceededException {
+        final Tables.Data data = new Tables.Data();
+        data.put("url", url);
+        if (count >= 0) data.put("count", count);
+        if (date != null) data.put("date", date);
+        return this.tables.insert(TABLE, data);
+    }
+
+    private static List<String> pks(final Iterator<Tables.Row> i) {
+        final List<String> pks = new ArrayList<String>();
+        while (i.hasNext()) pks.add(UTF8.String(i.next().getPK()));
+        return pks;
+    }
+
+    private static List<String> pks(final Collection<Tables.Row> rows) {
+        return pks(rows.iterator());
+    }
+
+    private void fill() throws IOException, SpaceExceededException {
+        insert("/a", 5, new Date(3000));
+        insert("/b", 12, new Date(1000));
+        insert("/a", 7, null);
+        insert("/c", -1, new Date(2000));
+        insert("/b", 12, new Date(1000));
+    }
+
+    /**
+     * Test that indexed selects and orderings return the same rows as the table scans.
+     */
+    @Test
+    public void testIndexEqualsScan() throws IOException, SpaceExceededException {
+        fill();
+        final List<String> scanA = pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/a")));
+        final List<String> scanCount = pks(Tables.orderByInt(this.tables.iterator(TABLE), "count", 0, SortDirection.DESC));
+        final List<String> scanDate = pks(Tables.orderByDate(this.tables.iterator(TABLE), "date", new Date(2000), SortDirection.ASC));
+        final List<String> scanUrl = pks(Tables.orderByString(this.tables.iterator(TABLE), "url", "", SortDirection.ASC));
+
+        this.tables.createSecondaryIndex(TABLE, "url", TablesSecondaryIndex.Type.STRING);
+        this.tables.createSecondaryIndex(TABLE, "count", TablesSecondaryIndex.Type.NUMBER);
+        this.tables.createSecondaryIndex(TABLE, "date", TablesSecondaryIndex.Type.DATE);
+        assertEquals(TablesSecondaryIndex.Type.NUMBER, this.tables.getSecondaryIndexType(TABLE, "count"));
+
+        assertEquals(scanA, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/a"))));
+        assertEquals(scanCount, pks(this.tables.orderByInt(TABLE, "count", 0, SortDirection.DESC)));
+        assertEquals(scanDate, pks(this.tables.orderByDate(TABLE, "date", new Date(2000), SortDirection.ASC)));
+        assertEquals(scanUrl, pks(this.tables.orderByString(TABLE, "url", "", SortDirection.ASC)));
+        assertEquals(3, pks(this.tables.rangeIterator(TABLE, "count", UTF8.getBytes("6"), UTF8.getBytes("13"))).size());
+    }
+
+    /**
+     * Test that the index follows inserts, updates and deletes and that the declaration is persistent.
+     */
+    @Test
+    public void testMaintenance() throws IOException, SpaceExceededException {
+        this.tables.createSecondaryIndex(TABLE, "url", TablesSecondaryIndex.Type.EQUALITY);
+        this.tables.createSecondaryIndex(TABLE, "count", TablesSecondaryIndex.Type.NUMBER);
+        final byte[] pk = insert("/a", 1, null);
+        insert("/b", 2, null);
+        assertEquals(1, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/a"))).size());
+
+        // update only the count: the url stays indexed
+        final Tables.Data change = new Tables.Data();
+        change.put("count", 3);
+        this.tables.update(TABLE, pk, change);
+        assertEquals(1, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/a"))).size());
+        assertEquals(UTF8.String(pk), pks(this.tables.orderByInt(TABLE, "count", 0, SortDirection.DESC)).get(0));
+
+        // move the row to another url
+        final Tables.Data move = new Tables.Data();
+        move.put("url", "/b");
+        this.tables.update(TABLE, pk, move);
+        assertEquals(0, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/a"))).size());
+        assertEquals(2, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/b"))).size());
+
+        this.tables.delete(TABLE, pk);
+        assertEquals(1, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/b"))).size());
+
+        // the declaration survives a restart and the index is computed again from the table
+        this.tables.close();
+        this.tables = new Tables(this.dir, 12);
+        assertEquals(TablesSecondaryIndex.Type.EQUALITY, this.tables.getSecondaryIndexType(TABLE, "url"));
+        assertEquals(1, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/b"))).size());
+
+        this.tables.dropSecondaryIndex(TABLE, "url");
+        assertNull(this.tables.getSecondaryIndexType(TABLE, "url"));
+        assertEquals(1, pks(this.tables.iterator(TABLE, "url", UTF8.getBytes("/b"))).size());
+    }
+}
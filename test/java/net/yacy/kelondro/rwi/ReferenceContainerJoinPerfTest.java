@@ -0,0 +1,80 @@
+package net.yacy.kelondro.rwi;
+
+import java.util.Random;
+
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowSet;
+import net.yacy.kelondro.util.Bitfield;
+
+/**
+ * Testing the performance of the joins of containers with skewed sizes, as they appear in queries
+ * which combine a very common word with a rare word
+ */
+public class ReferenceContainerJoinPerfTest {
+
+    private static final byte[] alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes();
+
+    private static ReferenceContainer<WordReference> container(final WordReferenceFactory factory, final String word, final int size, final byte[][] shared, final Random random) throws Exception {
+        final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(factory, Word.word2hash(word), size);
+        final byte[] template = new WordReferenceVars(Word.word2hash("template"), 30, 2, 0, 1, 100, 10, 1, null, 1, 1, 0, "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0d).toKelondroEntry().bytes();
+        final Row row = rc.row();
+        for (int i = 0; i < size; i++) {
+            final byte[] b = template.clone();
+            if (i < shared.length) {
+                System.arraycopy(shared[i], 0, b, 0, Word.commonHashLength);
+            } else {
+                for (int j = 0; j < Word.commonHashLength; j++) b[j] = alphabet[random.nextInt(alphabet.length)];
+            }
+            rc.addUnique(row.newEntry(b));
+        }
+        rc.sort();
+        return rc;
+    }
+
+    private static long time(final Runnable r, final int repeat) {
+        final long t = System.nanoTime();
+        for (int i = 0; i < repeat; i++) r.run();
+        return (System.nanoTime() - t) / repeat / 1000;
+    }
+
+    /**
+     * Join containers of skewed sizes with the galloping join and the join by enumeration and print the time of each join.
+     * @param args the size of the large container (default 1000000)
+     */
+    public static void main(final String[] args) throws Exception {
+        final int largeSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final WordReferenceFactory factory = new WordReferenceFactory();
+        final Random random = new Random(1);
+        final byte[][] shared = new byte[50][Word.commonHashLength];
+        for (final byte[] h: shared) for (int j = 0; j < h.length; j++) h[j] = alphabet[random.nextInt(alphabet.length)];
+        final ReferenceContainer<WordReference> large = container(factory, "large", largeSize, shared, random);
+
+        for (final int smallSize: new int[]{100, 1000, 10000, 100000, largeSize}) {
+            final ReferenceContainer<WordReference> small = container(factory, "small", smallSize, shared, random);
+            final int repeat = Math.max(3, 1000000 / Math.max(1, smallSize));
+            final int[] found = new int[2];
+            // warm up
+            ReferenceContainer.joinConstructive(factory, small, large, Integer.MAX_VALUE);
+            ReferenceContainer.joinConstructiveByEnumeration(factory, small, large, Integer.MAX_VALUE);
+            final long gallop = time(() -> {
+                try {
+                    found[0] = ReferenceContainer.joinConstructive(factory, small, large, Integer.MAX_VALUE).size();
+                } catch (final Exception e) {}
+            }, repeat);
+            final long enumeration = time(() -> {
+                try {
+                    found[1] = ReferenceContainer.joinConstructiveByEnumeration(factory, small, large, Integer.MAX_VALUE).size();
+                } catch (final Exception e) {}
+            }, Math.min(repeat, 5));
+            final long exclude = time(() -> ReferenceContainer.excludeDestructive(factory,
+                    new ReferenceContainer<WordReference>(factory, small.getTermHash(), new RowSet(small.row(), small.size(), small.rowBytes(), small.size())), large), Math.min(repeat, 20));
+            System.out.println("join " + smallSize + " x " + largeSize + ": " + found[0] + " hits, galloping " + gallop + " us, enumeration "
+                    + enumeration + " us (" + found[1] + " hits); exclusion " + exclude + " us");
+        }
+    }
+}
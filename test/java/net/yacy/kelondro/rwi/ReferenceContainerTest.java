@@ -20,16 +20,23 @@
 package net.yacy.kelondro.rwi;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.net.MalformedURLException;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.junit.Test;
 
+import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
+import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
@@ -99,4 +106,73 @@ public class ReferenceContainerTest {
         assertEquals("distance()", wentry.distance(), wc.distance());
     }
 
+    private static ReferenceContainer<WordReference> container(final String word, final int from, final int to, final int step) throws MalformedURLException, SpaceExceededException {
+        final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(new WordReferenceFactory(), Word.word2hash(word));
+        for (int i = from; i < to; i += step) {
+            final DigestURL url = new DigestURL("http://test" + (i % 17) + ".org/page" + i + ".html");
+            rc.add(new WordReferenceVars(url.hash(), 30, 2, 0, 1, 100, 10, 1 + (i % 50), null, 1, 1, 0, "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0d));
+        }
+        return rc;
+    }
+
+    private static Set<String> keys(final ReferenceContainer<WordReference> rc) {
+        final Set<String> keys = new HashSet<String>();
+        if (rc == null) return keys;
+        final Iterator<WordReference> i = rc.entries();
+        while (i.hasNext()) keys.add(ASCII.String(i.next().urlhash()));
+        return keys;
+    }
+
+    /**
+     * Test that the galloping join of a small and a large container finds the same references as the join by enumeration.
+     */
+    @Test
+    public void testJoinConstructive() throws Exception {
+        final WordReferenceFactory factory = new WordReferenceFactory();
+        final ReferenceContainer<WordReference> large = container("large", 0, 5000, 1);
+        final ReferenceContainer<WordReference> small = container("small", 0, 10000, 97); // about the half is inside the large container
+
+        final Set<String> expected = keys(small);
+        expected.retainAll(keys(large));
+        assertFalse(expected.isEmpty());
+
+        final ReferenceContainer<WordReference> joined = ReferenceContainer.joinConstructive(factory, large, small, Integer.MAX_VALUE);
+        assertEquals(expected, keys(joined));
+        assertEquals(keys(ReferenceContainer.joinConstructiveByEnumeration(factory, large, small, Integer.MAX_VALUE)), keys(joined));
+        assertTrue(joined.isSorted());
+
+        // the order of the arguments does not matter
+        assertEquals(expected, keys(ReferenceContainer.joinConstructive(factory, small, large, Integer.MAX_VALUE)));
+
+        // no common references
+        assertTrue(ReferenceContainer.joinConstructive(factory, small, container("other", 20000, 21000, 1), Integer.MAX_VALUE).isEmpty());
+    }
+
+    /**
+     * Test the galloping exclusion with a small and with a large exclusion container.
+     */
+    @Test
+    public void testExcludeDestructive() throws Exception {
+        final WordReferenceFactory factory = new WordReferenceFactory();
+
+        // small exclusion container
+        ReferenceContainer<WordReference> pivot = container("pivot", 0, 5000, 1);
+        ReferenceContainer<WordReference> excl = container("excl", 0, 10000, 97);
+        Set<String> expected = keys(pivot);
+        expected.removeAll(keys(excl));
+        pivot = ReferenceContainer.excludeDestructive(factory, pivot, excl);
+        assertEquals(expected, keys(pivot));
+        assertTrue(pivot.isSorted());
+        assertNotNull(pivot.getReference(pivot.get(0, false).getPrimaryKeyBytes()));
+
+        // large exclusion container
+        pivot = container("pivot", 0, 10000, 97);
+        excl = container("excl", 0, 5000, 1);
+        expected = keys(pivot);
+        expected.removeAll(keys(excl));
+        pivot = ReferenceContainer.excludeDestructive(factory, pivot, excl);
+        assertEquals(expected, keys(pivot));
+        assertEquals(expected.size(), pivot.size());
+    }
+
 }
@@ -0,0 +1,123 @@
+package net.yacy.kelondro.rwi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceRow;
+import net.yacy.kelondro.util.Bitfield;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.search.index.Segment;
+
+public class TermCountTableTest {
+
+    private static final String PREFIX = "text.index";
+
+    private File dir;
+    private IODispatcher merger;
+
+    @Before
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("TermCountTableTest").toFile();
+        // the dispatcher is not started: dumps and merges are done synchronously
+        this.merger = new IODispatcher(1, 1, 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deletedelete(this.dir);
+    }
+
+    private IndexCell<WordReference> open() throws IOException {
+        return new IndexCell<WordReference>(this.dir, PREFIX, Segment.wordReferenceFactory, Segment.wordOrder,
+                Word.commonHashLength, 1000, Segment.targetFileSize, Segment.targetFileSize, 1024 * 1024, this.merger);
+    }
+
+    private static WordReferenceRow reference(final String url) throws MalformedURLException {
+        final DigestURL u = new DigestURL(url);
+        final WordReferenceRow row = new WordReferenceRow(u.hash(), url.length(), 3, 0, 1, 1,
+                System.currentTimeMillis(), System.currentTimeMillis(), UTF8.getBytes("en"), Response.DT_TEXT, 0, 0);
+        final Word word = new Word(1, 1, 1);
+        word.flags = new Bitfield(4);
+        row.setWord(word);
+        return row;
+    }
+
+    /**
+     * Test the basic counting, including removal of terms whose count drops to zero.
+     */
+    @Test
+    public void testAddDelete() throws IOException {
+        final TermCountTable table = new TermCountTable(new File(this.dir, "counts"), Segment.wordOrder, Word.commonHashLength);
+        assertFalse(table.isReady());
+        assertEquals(-1, table.get(Word.word2hash("a")));
+        table.build(new ReferenceContainerArray<WordReference>(new File(this.dir, "empty"), PREFIX, Segment.wordReferenceFactory, Segment.wordOrder, Word.commonHashLength), () -> true);
+        assertTrue(table.isReady());
+        final byte[] a = Word.word2hash("a"), b = Word.word2hash("b");
+        table.add(a, 5);
+        table.add(b, 2);
+        table.shrunk(a, 3);
+        assertEquals(2, table.get(a));
+        table.add(b, -7);
+        assertEquals(0, table.get(b));
+        table.delete(a);
+        assertEquals(0, table.get(a));
+        table.close();
+    }
+
+    /**
+     * Test that the counts of an index cell are written on close, read on open and built again if they were not written.
+     */
+    @Test
+    public void testCellCounts() throws IOException, SpaceExceededException, InterruptedException {
+        final byte[] term = Word.word2hash("test");
+        IndexCell<WordReference> cell = open();
+        waitReady(cell);
+        for (int i = 0; i < 10; i++) cell.add(term, reference("http://test" + i + ".org/"));
+        assertEquals(10, cell.count(term));
+        cell.close();
+
+        // the RAM was dumped to a BLOB and the counts were stored
+        final File countsFile = new File(this.dir, PREFIX + ".counts");
+        assertTrue(countsFile.exists());
+        cell = open();
+        assertTrue(cell.termCounts().isReady());
+        assertFalse(countsFile.exists());
+        assertEquals(10, cell.termCounts().get(term));
+        assertEquals(10, cell.count(term));
+        assertTrue(cell.remove(term, new DigestURL("http://test3.org/").hash()));
+        assertEquals(9, cell.count(term));
+        cell.close();
+
+        // simulate a crash: the counts are built from the BLOB files
+        assertTrue(countsFile.delete());
+        cell = open();
+        waitReady(cell);
+        assertEquals(9, cell.termCounts().get(term));
+        assertEquals(9, cell.count(term));
+        cell.delete(term);
+        assertEquals(0, cell.count(term));
+        assertEquals(0, cell.termCounts().get(term));
+        cell.close();
+    }
+
+    private static void waitReady(final IndexCell<WordReference> cell) throws InterruptedException {
+        for (int i = 0; i < 100 && !cell.termCounts().isReady(); i++) Thread.sleep(50);
+        assertTrue(cell.termCounts().isReady());
+    }
+}
@@ -0,0 +1,128 @@
+package net.yacy.kelondro.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MemoryGovernorTest {
+
+    private static class TestConsumer implements MemoryGovernor.Consumer {
+        private final String name;
+        private final int priority;
+        private final List<String> shrinkOrder;
+        private long used;
+
+        private TestConsumer(final String name, final int priority, final long used, final List<String> shrinkOrder) {
+            this.name = name;
+            this.priority = priority;
+            this.used = used;
+            this.shrinkOrder = shrinkOrder;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public int getPriority() {
+            return this.priority;
+        }
+
+        @Override
+        public long getUsedBytes() {
+            return this.used;
+        }
+
+        @Override
+        public long shrink(final long bytes) {
+            this.shrinkOrder.add(this.name);
+            final long freed = Math.min(bytes, this.used);
+            this.used -= freed;
+            return freed;
+        }
+
+        @Override
+        public void restore() {
+            this.shrinkOrder.add("restore " + this.name);
+        }
+    }
+
+    /**
+     * Test that consumers are shrunk in the order of their priority and only by a fraction of their size.
+     */
+    @Test
+    public void testReleaseOrder() {
+        final List<String> order = new ArrayList<String>();
+        final TestConsumer high = new TestConsumer("high", 30, 1000, order);
+        final TestConsumer low = new TestConsumer("low", 10, 1000, order);
+        final TestConsumer mid = new TestConsumer("mid", 20, 1000, order);
+        MemoryGovernor.register(high, 0.1d);
+        MemoryGovernor.register(low, 0.1d);
+        MemoryGovernor.register(mid, 0.1d);
+        try {
+            final long released = MemoryGovernor.release(600);
+            assertEquals(600, released);
+            assertEquals("low", order.get(0));
+            assertEquals("mid", order.get(1));
+            assertEquals("high", order.get(2));
+            // at normal pressure each consumer gives away at most a quarter of its memory
+            assertEquals(750, low.getUsedBytes());
+            assertEquals(750, mid.getUsedBytes());
+            assertEquals(900, high.getUsedBytes());
+        } finally {
+            MemoryGovernor.unregister(high);
+            MemoryGovernor.unregister(low);
+            MemoryGovernor.unregister(mid);
+        }
+    }
+
+    /**
+     * Test that consumers restore in the reverse order of their priority, and that the relief statistics count up.
+     */
+    @Test
+    public void testRestoreOrder() {
+        final List<String> order = new ArrayList<String>();
+        final TestConsumer high = new TestConsumer("high", 30, 1000, order);
+        final TestConsumer low = new TestConsumer("low", 10, 1000, order);
+        MemoryGovernor.register(low, 0.1d);
+        MemoryGovernor.register(high, 0.1d);
+        try {
+            final long rounds = MemoryGovernor.reliefRounds();
+            final long releasedBefore = MemoryGovernor.releasedBytes();
+            final long released = MemoryGovernor.release(100);
+            assertEquals(rounds + 1, MemoryGovernor.reliefRounds());
+            assertEquals(releasedBefore + released, MemoryGovernor.releasedBytes());
+            order.clear();
+            MemoryGovernor.restore();
+            assertEquals(2, order.size());
+            assertEquals("restore high", order.get(0));
+            assertEquals("restore low", order.get(1));
+        } finally {
+            MemoryGovernor.unregister(high);
+            MemoryGovernor.unregister(low);
+        }
+    }
+
+    /**
+     * Test the budget computation of registered and unregistered consumers.
+     */
+    @Test
+    public void testBudget() {
+        final TestConsumer c = new TestConsumer("c", 10, 0, new ArrayList<String>());
+        assertEquals(Long.MAX_VALUE, MemoryGovernor.budget(c));
+        MemoryGovernor.register(c, 0.5d);
+        try {
+            final long budget = MemoryGovernor.budget(c);
+            assertTrue(budget > 0);
+            assertTrue(budget <= Runtime.getRuntime().maxMemory() / 2);
+        } finally {
+            MemoryGovernor.unregister(c);
+        }
+        assertEquals(Long.MAX_VALUE, MemoryGovernor.budget(c));
+    }
+}
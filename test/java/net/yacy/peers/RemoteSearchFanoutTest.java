@@ -0,0 +1,155 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RemoteSearchFanoutTest {
+
+    private static Seed seed(final String hash) {
+        return new Seed(hash, new ConcurrentHashMap<String, String>());
+    }
+
+    /** the requests started by a fan-out, by peer hash, in the order of the start */
+    private final Map<String, CompletableFuture<Integer>> started = new LinkedHashMap<>();
+
+    private RemoteSearchFanout fanout(final List<List<Seed>> partitions, final int redundancy, final int maxRequests, final int enoughResults, final long hedgeDelay) {
+        return new RemoteSearchFanout(partitions, redundancy, maxRequests, enoughResults, hedgeDelay, new PeerLatencyStats(), seed -> {
+            final CompletableFuture<Integer> request = new CompletableFuture<>();
+            synchronized (this.started) {
+                this.started.put(seed.hash, request);
+            }
+            return request;
+        });
+    }
+
+    private CompletableFuture<Integer> request(final String hash) {
+        synchronized (this.started) {
+            return this.started.get(hash);
+        }
+    }
+
+    /**
+     * Test the moving averages and the order of peers by expected latency.
+     */
+    @Test
+    public void testPeerLatencyStats() {
+        final PeerLatencyStats stats = new PeerLatencyStats(0.5d);
+        assertEquals(-1.0d, stats.latency("AAAAAAAAAAAA"), 0.0d);
+        assertEquals(PeerLatencyStats.DEFAULT_LATENCY, stats.averageLatency(), 0.0d);
+        stats.record("AAAAAAAAAAAA", 100, true);
+        stats.record("AAAAAAAAAAAA", 300, false);
+        assertEquals(200.0d, stats.latency("AAAAAAAAAAAA"), 0.001d);
+        assertEquals(0.5d, stats.successRate("AAAAAAAAAAAA"), 0.001d);
+        assertEquals(400.0d, stats.expectedLatency("AAAAAAAAAAAA", 0.0d), 0.001d);
+        assertEquals(2, stats.samples("AAAAAAAAAAAA"));
+        stats.record("BBBBBBBBBBBB", 5000, true);
+        stats.record("CCCCCCCCCCCC", 50, true);
+
+        // the unknown peer gets the average latency
+        final List<Seed> ordered = stats.fastestFirst(Arrays.asList(seed("BBBBBBBBBBBB"), seed("DDDDDDDDDDDD"), seed("AAAAAAAAAAAA"), seed("CCCCCCCCCCCC")));
+        assertEquals("CCCCCCCCCCCC", ordered.get(0).hash);
+        assertEquals("AAAAAAAAAAAA", ordered.get(1).hash);
+        assertEquals("DDDDDDDDDDDD", ordered.get(2).hash);
+        assertEquals("BBBBBBBBBBBB", ordered.get(3).hash);
+    }
+
+    /**
+     * Test that only the first peer of a partition is asked and that the next peer is asked at once if the first peer fails.
+     */
+    @Test
+    public void testFailover() {
+        final List<List<Seed>> partitions = new ArrayList<>();
+        partitions.add(Arrays.asList(seed("AAAAAAAAAAAA"), seed("BBBBBBBBBBBB"), seed("CCCCCCCCCCCC")));
+        final RemoteSearchFanout fanout = this.fanout(partitions, 2, 100, 100, 60000).start();
+        assertEquals(1, fanout.requests());
+        this.request("AAAAAAAAAAAA").complete(-1);
+        assertEquals(2, fanout.requests());
+        assertFalse(fanout.finished().isDone());
+        this.request("BBBBBBBBBBBB").complete(5);
+        assertTrue(fanout.answered(0));
+        assertTrue(fanout.finished().isDone());
+        assertEquals(5, fanout.results());
+        // the redundancy of 2 is exhausted, the third peer is never asked
+        assertEquals(2, fanout.requests());
+    }
+
+    /**
+     * Test that a hedged request is sent to the next peer if the first peer is slow and that the slow peer is cancelled
+     * as a straggler when the hedged request answers.
+     */
+    @Test
+    public void testHedge() throws Exception {
+        final List<List<Seed>> partitions = new ArrayList<>();
+        partitions.add(Arrays.asList(seed("AAAAAAAAAAAA"), seed("BBBBBBBBBBBB")));
+        final RemoteSearchFanout fanout = this.fanout(partitions, 2, 100, 100, 10).start();
+        final long timeout = System.currentTimeMillis() + 10000;
+        while (this.request("BBBBBBBBBBBB") == null && System.currentTimeMillis() < timeout) Thread.sleep(5);
+        assertEquals(2, fanout.requests());
+        this.request("BBBBBBBBBBBB").complete(3);
+        assertTrue(this.request("AAAAAAAAAAAA").isCancelled());
+        assertTrue(fanout.isCancelled(seed("AAAAAAAAAAAA")));
+        fanout.finished().get(10, TimeUnit.SECONDS);
+        assertEquals(3, fanout.results());
+    }
+
+    /**
+     * Test that a peer of several partitions is asked only once and is not cancelled while one of its partitions is not answered.
+     */
+    @Test
+    public void testSharedPeer() {
+        final List<List<Seed>> partitions = new ArrayList<>();
+        partitions.add(Arrays.asList(seed("AAAAAAAAAAAA"), seed("BBBBBBBBBBBB")));
+        partitions.add(Arrays.asList(seed("CCCCCCCCCCCC"), seed("AAAAAAAAAAAA")));
+        final RemoteSearchFanout fanout = this.fanout(partitions, 2, 100, 100, 60000).start();
+        assertEquals(2, fanout.requests());
+        // C fails, the second peer of the second partition is A which is already running
+        this.request("CCCCCCCCCCCC").complete(-1);
+        assertEquals(2, fanout.requests());
+        this.request("AAAAAAAAAAAA").complete(4);
+        assertTrue(fanout.answered(0));
+        assertTrue(fanout.answered(1));
+        assertTrue(fanout.finished().isDone());
+    }
+
+    /**
+     * Test that all running requests are cancelled when enough results are found.
+     */
+    @Test
+    public void testEnoughResults() {
+        final List<List<Seed>> partitions = new ArrayList<>();
+        partitions.add(Arrays.asList(seed("AAAAAAAAAAAA")));
+        partitions.add(Arrays.asList(seed("BBBBBBBBBBBB")));
+        partitions.add(Arrays.asList(seed("CCCCCCCCCCCC")));
+        final RemoteSearchFanout fanout = this.fanout(partitions, 1, 2, 10, 60000).start();
+        // the number of requests is limited
+        assertEquals(2, fanout.requests());
+        this.request("AAAAAAAAAAAA").complete(10);
+        assertTrue(this.request("BBBBBBBBBBBB").isCancelled());
+        assertTrue(fanout.finished().isDone());
+    }
+
+    /**
+     * Test that a request which is cancelled from outside stops the fan-out without asking other peers.
+     */
+    @Test
+    public void testExternalCancel() {
+        final List<List<Seed>> partitions = new ArrayList<>();
+        partitions.add(Arrays.asList(seed("AAAAAAAAAAAA"), seed("BBBBBBBBBBBB")));
+        final RemoteSearchFanout fanout = this.fanout(partitions, 2, 100, 100, 60000).start();
+        this.request("AAAAAAAAAAAA").cancel(true);
+        assertTrue(fanout.finished().isDone());
+        assertEquals(1, fanout.requests());
+    }
+}
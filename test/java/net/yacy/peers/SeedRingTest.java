@@ -0,0 +1,171 @@
+package net.yacy.peers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.federate.yacy.Distribution;
+import net.yacy.cora.order.Base64Order;
+
+public class SeedRingTest {
+
+    private static Seed seed(final String hash, final boolean acceptRemoteIndex) {
+        final Seed seed = new Seed(hash, new ConcurrentHashMap<String, String>());
+        seed.setFlagAcceptRemoteIndex(acceptRemoteIndex);
+        return seed;
+    }
+
+    private static String randomHash(final Random random) {
+        final byte[] b = new byte[12];
+        for (int i = 0; i < b.length; i++) b[i] = (byte) Base64Order.enhancedCoder.encodeByte((byte) random.nextInt(64));
+        return ASCII.String(b);
+    }
+
+    private static long position(final Seed seed) {
+        return Distribution.horizontalDHTPosition(ASCII.getBytes(seed.hash));
+    }
+
+    private static List<Seed> randomSeeds(final Random random, final int count) {
+        final List<Seed> seeds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) seeds.add(seed(randomHash(random), true));
+        return seeds;
+    }
+
+    /**
+     * Test that the ring enumerates the seeds in the same order as a brute-force sort on the DHT position.
+     */
+    @Test
+    public void testIteratorMatchesSortedOrder() {
+        final Random random = new Random(1);
+        final List<Seed> seeds = randomSeeds(random, 200);
+        for (final int partitions: new int[]{1, 4, 16}) {
+            final SeedRing ring = new SeedRing(seeds, partitions);
+            final List<Seed> sorted = new ArrayList<>(seeds);
+            sorted.sort(Comparator.comparingLong(SeedRingTest::position));
+            assertEquals(sorted.size(), ring.size());
+            for (int t = 0; t < 100; t++) {
+                final long target = Distribution.horizontalDHTPosition(ASCII.getBytes(randomHash(random)));
+                int start = 0;
+                while (start < sorted.size() && position(sorted.get(start)) < target) start++;
+                final Iterator<Seed> i = ring.iterator(target, 5, null);
+                for (int k = 0; k < 5; k++) {
+                    assertTrue(i.hasNext());
+                    assertEquals(sorted.get((start + k) % sorted.size()).hash, i.next().hash);
+                }
+                assertFalse(i.hasNext());
+            }
+        }
+    }
+
+    /**
+     * Test the incremental put and remove against a ring which is built from scratch.
+     */
+    @Test
+    public void testPutRemove() {
+        final Random random = new Random(2);
+        final List<Seed> seeds = randomSeeds(random, 50);
+        SeedRing ring = new SeedRing(new ArrayList<Seed>(), 8);
+        assertEquals(-1, ring.ceiling(0));
+        assertFalse(ring.iterator(0, 10, null).hasNext());
+        for (final Seed seed: seeds) ring = ring.put(seed);
+        final SeedRing reference = new SeedRing(seeds, 8);
+        assertEquals(reference.size(), ring.size());
+        for (int i = 0; i < ring.size(); i++) assertEquals(reference.get(i).hash, ring.get(i).hash);
+        for (int v = 0; v <= 8; v++) assertEquals(reference.partitionStart(v), ring.partitionStart(v));
+
+        // replace a seed
+        final Seed replacement = seed(seeds.get(7).hash, true);
+        final SeedRing replaced = ring.put(replacement);
+        assertEquals(ring.size(), replaced.size());
+        assertSame(replacement, replaced.get(replaced.indexOf(replacement.hash)));
+        assertNotSame(replacement, ring.get(ring.indexOf(replacement.hash)));
+
+        // a seed which does not accept remote indexes any more is removed
+        final SeedRing removed = replaced.put(seed(seeds.get(7).hash, false));
+        assertEquals(ring.size() - 1, removed.size());
+        assertEquals(-1, removed.indexOf(seeds.get(7).hash));
+
+        ring = ring.remove(seeds.get(3).hash);
+        assertEquals(49, ring.size());
+        assertEquals(-1, ring.indexOf(seeds.get(3).hash));
+        assertSame(ring, ring.remove(seeds.get(3).hash));
+    }
+
+    private static void assertSameRing(final SeedRing expected, final SeedRing ring, final int partitions) {
+        assertEquals(expected.size(), ring.size());
+        for (int i = 0; i < ring.size(); i++) {
+            assertEquals(expected.get(i).hash, ring.get(i).hash);
+            assertEquals(expected.position(i), ring.position(i));
+        }
+        for (int v = 0; v <= partitions; v++) assertEquals(expected.partitionStart(v), ring.partitionStart(v));
+    }
+
+    /**
+     * Test that a sequence of random puts and removes has the same positions and partition starts as a ring which is built
+     * from the remaining seeds, and that the old snapshots are not changed.
+     */
+    @Test
+    public void testIncrementalUpdates() {
+        final Random random = new Random(4);
+        for (final int partitions: new int[]{1, 2, 16}) {
+            final List<Seed> seeds = new ArrayList<>();
+            SeedRing ring = new SeedRing(seeds, partitions);
+            for (int step = 0; step < 300; step++) {
+                final SeedRing before = ring;
+                final List<Seed> beforeSeeds = new ArrayList<>(seeds);
+                final int op = random.nextInt(4);
+                if (op == 0 && !seeds.isEmpty()) {
+                    ring = ring.remove(seeds.remove(random.nextInt(seeds.size())).hash);
+                } else if (op == 1 && !seeds.isEmpty()) {
+                    final int k = random.nextInt(seeds.size());
+                    seeds.set(k, seed(seeds.get(k).hash, true));
+                    ring = ring.put(seeds.get(k));
+                } else {
+                    final Seed seed = seed(randomHash(random), true);
+                    seeds.add(seed);
+                    ring = ring.put(seed);
+                }
+                assertSameRing(new SeedRing(seeds, partitions), ring, partitions);
+                assertSameRing(new SeedRing(beforeSeeds, partitions), before, partitions);
+                for (final Seed seed: seeds) assertSame(seed, ring.get(ring.indexOf(seed.hash)));
+            }
+        }
+    }
+
+    /**
+     * Test that the own seed is enumerated at its DHT position and that seeds which do not accept remote indexes are not in the ring.
+     */
+    @Test
+    public void testOwnSeedAndFilter() {
+        final Random random = new Random(3);
+        final List<Seed> seeds = randomSeeds(random, 20);
+        seeds.add(seed(randomHash(random), false));
+        final SeedRing ring = new SeedRing(seeds, 4);
+        assertEquals(20, ring.size());
+
+        final Seed own = seed(randomHash(random), false);
+        final long target = position(own) - 1;
+        final Iterator<Seed> i = ring.iterator(target, 3, own);
+        assertSame(own, i.next());
+        assertEquals(ring.get(ring.ceiling(target)).hash, i.next().hash);
+
+        // the own seed is counted in the maximum number of seeds
+        int count = 0;
+        boolean found = false;
+        for (final Iterator<Seed> j = ring.iterator(0, 100, own); j.hasNext(); count++) found |= j.next() == own;
+        assertEquals(21, count);
+        assertTrue(found);
+    }
+}
@@ -0,0 +1,133 @@
+package net.yacy.peers.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HostGraphTest {
+
+    private static String hash(final int i) {
+        return String.format("h%05d", i);
+    }
+
+    private static Map<String, Integer> out(final HostGraph graph, final int id) {
+        final Map<String, Integer> m = new HashMap<>();
+        graph.forEachOut(id, (host, count) -> m.put(graph.hash(host), count));
+        return m;
+    }
+
+    private static Map<String, Integer> in(final HostGraph graph, final int id) {
+        final Map<String, Integer> m = new HashMap<>();
+        graph.forEachIn(id, (host, count) -> m.put(graph.hash(host), count));
+        return m;
+    }
+
+    /**
+     * fill a graph with random references and a reference model of maps
+     */
+    private static HostGraph random(final Random random, final Map<String, Map<String, Integer>> model, final int hosts, final int rounds) {
+        final HostGraph graph = new HostGraph();
+        for (int i = 0; i < hosts; i++) graph.intern(hash(i), "host" + i + ".net", 20260101 + i);
+        for (int r = 0; r < rounds; r++) {
+            final int source = random.nextInt(hosts);
+            final int[] targets = new int[1 + random.nextInt(5)];
+            final Map<String, Integer> refs = model.computeIfAbsent(hash(source), k -> new HashMap<>());
+            for (int t = 0; t < targets.length; t++) {
+                targets[t] = random.nextInt(hosts);
+                refs.merge(hash(targets[t]), 1, Integer::sum);
+            }
+            graph.addReferences(graph.id(hash(source)), targets, 20260101, Integer.MAX_VALUE);
+            if (r == rounds / 2) graph.compact(Integer.MAX_VALUE);
+        }
+        return graph;
+    }
+
+    private static void assertModel(final HostGraph graph, final Map<String, Map<String, Integer>> model) {
+        int edges = 0;
+        for (int id = 0; id < graph.size(); id++) {
+            final Map<String, Integer> expected = model.getOrDefault(graph.hash(id), new HashMap<>());
+            assertEquals(expected, out(graph, id));
+            assertEquals(expected.size(), graph.outDegree(id));
+            edges += expected.size();
+            final Map<String, Integer> incoming = new HashMap<>();
+            for (final Map.Entry<String, Map<String, Integer>> e: model.entrySet()) {
+                final Integer c = e.getValue().get(graph.hash(id));
+                if (c != null) incoming.put(e.getKey(), c);
+            }
+            assertEquals(incoming, in(graph, id));
+            assertEquals(incoming.size(), graph.inDegree(id));
+        }
+        assertEquals(edges, graph.edges());
+    }
+
+    /**
+     * Test that the out and in edges are consistent before and after a compaction of the delta.
+     */
+    @Test
+    public void testDeltaAndCompaction() {
+        final Map<String, Map<String, Integer>> model = new HashMap<>();
+        final HostGraph graph = random(new Random(1), model, 100, 2000);
+        assertModel(graph, model);
+        graph.compact(Integer.MAX_VALUE);
+        assertModel(graph, model);
+        assertEquals(1, graph.ids("HOST7.net").length);
+        assertEquals(hash(7), graph.hash(graph.ids("HOST7.net")[0]));
+    }
+
+    /**
+     * Test the maximum number of references per host and the removal of the oldest hosts.
+     */
+    @Test
+    public void testLimits() {
+        final HostGraph graph = new HostGraph();
+        final int source = graph.intern(hash(0), "source.net", 20260101);
+        final int[] targets = new int[20];
+        for (int i = 0; i < targets.length; i++) targets[i] = graph.intern(hash(i + 1), "target" + i + ".net", 20260102 + i);
+        graph.addReferences(source, new int[]{targets[0], targets[0], targets[1]}, 20260101, 10);
+        graph.addReferences(source, targets, 20260101, 10);
+        // 20 targets exceed the limit of 10; 9 targets are left, those with the highest counts first
+        assertEquals(9, graph.outDegree(source));
+        assertEquals(Integer.valueOf(3), out(graph, source).get(hash(1)));
+        assertEquals(Integer.valueOf(2), out(graph, source).get(hash(2)));
+
+        // the source and the oldest targets are removed
+        graph.compact(10);
+        assertEquals(9, graph.size());
+        assertEquals(-1, graph.id(hash(0)));
+        assertEquals(-1, graph.id(hash(1)));
+        assertTrue(graph.id(hash(20)) >= 0);
+        assertEquals(0, graph.edges());
+        assertEquals(0, graph.inDegree(graph.id(hash(20))));
+    }
+
+    /**
+     * Test that the binary file restores the graph.
+     */
+    @Test
+    public void testSaveLoad() throws IOException {
+        final Map<String, Map<String, Integer>> model = new HashMap<>();
+        final HostGraph graph = random(new Random(2), model, 50, 500);
+        final File file = File.createTempFile("HostGraphTest", ".graph");
+        try {
+            graph.save(file, Integer.MAX_VALUE);
+            final HostGraph loaded = HostGraph.load(file);
+            assertEquals(graph.size(), loaded.size());
+            for (int id = 0; id < loaded.size(); id++) {
+                assertEquals(graph.name(graph.id(loaded.hash(id))), loaded.name(id));
+                assertEquals(graph.date(graph.id(loaded.hash(id))), loaded.date(id));
+                assertFalse(loaded.isLatest(id));
+            }
+            assertModel(loaded, model);
+        } finally {
+            file.delete();
+        }
+    }
+}
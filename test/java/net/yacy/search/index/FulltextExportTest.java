@@ -0,0 +1,191 @@
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.kelondro.util.FileUtils;
+import net.yacy.search.index.Fulltext.ExportFormat;
+import net.yacy.search.schema.CollectionSchema;
+
+public class FulltextExportTest {
+
+    private static final File DATA = new File("test/DATA/INDEX/export");
+    private static final String NAME = "export";
+    private static final int THREADS = 4;
+    private static final long CHUNK = 5;
+
+    static Fulltext fulltext;
+    static Map<String, String> expected; // the chunks of an export without interruption
+
+    @BeforeClass
+    public static void initTesting() throws IOException, InterruptedException {
+        FileUtils.deletedelete(DATA);
+        fulltext = new Fulltext(new File(DATA, "SEGMENTS"), new File(DATA, "ARCHIVE"), null, null);
+        fulltext.connectLocalSolr(new File("defaults/solr"));
+        for (int i = 0; i < 500; i++) {
+            final DigestURL url = new DigestURL("http://host" + (i % 17) + ".example.org/page" + i + ".html");
+            final SolrInputDocument doc = new SolrInputDocument();
+            doc.addField(CollectionSchema.id.getSolrFieldName(), ASCII.String(url.hash()));
+            doc.addField(CollectionSchema.sku.getSolrFieldName(), url.toNormalform(true));
+            doc.addField(CollectionSchema.host_s.getSolrFieldName(), url.getHost());
+            doc.addField(CollectionSchema.title.getSolrFieldName(), "page " + i);
+            doc.addField(CollectionSchema.httpstatus_i.getSolrFieldName(), 200);
+            doc.addField(CollectionSchema.load_date_dt.getSolrFieldName(), new Date());
+            fulltext.getDefaultConnector().add(doc);
+        }
+        fulltext.commit(false);
+
+        final File complete = new File(DATA, "complete");
+        final Fulltext.Export export = export(complete, false);
+        export.join();
+        assertNull(export.failed());
+        expected = chunks(complete);
+        assertFalse(expected.isEmpty());
+        assertFalse(new File(complete, NAME + "." + Fulltext.EXPORT_PROGRESS_EXT).exists());
+    }
+
+    @AfterClass
+    public static void finalizeTesting() {
+        if (fulltext != null) fulltext.close();
+        FileUtils.deletedelete(DATA);
+    }
+
+    private static Fulltext.Export export(final File path, final boolean resume) {
+        final Fulltext.Export export = fulltext.export(path, NAME, ExportFormat.rss.getExt(), null, null, ExportFormat.rss, false, false, CHUNK, false, THREADS, resume);
+        return export;
+    }
+
+    /**
+     * @return the uncompressed content of all chunks of the export, by file name
+     */
+    private static Map<String, String> chunks(final File path) throws IOException {
+        final Map<String, String> chunks = new TreeMap<>();
+        for (final File f: path.listFiles((dir, name) -> name.endsWith(".gz"))) {
+            try (final InputStream in = new GZIPInputStream(new FileInputStream(f))) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] b = new byte[4096];
+                int c;
+                while ((c = in.read(b)) > 0) out.write(b, 0, c);
+                chunks.put(f.getName(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Test that an interrupted parallel export which is resumed writes the same chunks as an export without interruption.
+     */
+    @Test
+    public void testInterruptAndResume() throws IOException, InterruptedException {
+        // interrupt an export; the progress file remains
+        final File resumed = new File(DATA, "resumed");
+        Fulltext.Export export = export(resumed, false);
+        export.interrupt();
+        export.join();
+        assertNotNull(export.failed());
+        assertTrue(new File(resumed, NAME + "." + Fulltext.EXPORT_PROGRESS_EXT).exists());
+
+        // the export can only be resumed with the same parameters
+        assertEquals(NAME, Fulltext.resumableExport(resumed, null, null, ExportFormat.rss, false, false, CHUNK, false));
+        assertNull(Fulltext.resumableExport(resumed, null, null, ExportFormat.text, false, false, CHUNK, false));
+        assertNull(Fulltext.resumableExport(resumed, ".*host1.*", null, ExportFormat.rss, false, false, CHUNK, false));
+        assertNull(Fulltext.resumableExport(resumed, null, null, ExportFormat.rss, false, true, CHUNK, false));
+        assertNull(Fulltext.resumableExport(resumed, null, null, ExportFormat.rss, false, false, CHUNK + 1, false));
+        assertNull(Fulltext.resumableExport(resumed, null, null, ExportFormat.rss, false, false, CHUNK, true));
+
+        export = export(resumed, true);
+        export.join();
+        assertNull(export.failed());
+        assertEquals(Fulltext.EXPORT_PARTITIONS, export.partitionsDone());
+        assertFalse(new File(resumed, NAME + "." + Fulltext.EXPORT_PROGRESS_EXT).exists());
+        assertEquals(expected, chunks(resumed));
+    }
+
+    /**
+     * Test that a resumed export keeps the chunks of the partitions in the progress file, ignores an incomplete last line
+     * and exports the other partitions again, replacing their stale chunks.
+     */
+    @Test
+    public void testResumePartialProgress() throws IOException, InterruptedException {
+        final File partial = new File(DATA, "partial");
+        final File progress = new File(partial, NAME + "." + Fulltext.EXPORT_PROGRESS_EXT);
+
+        // an interrupted export writes the head of the progress file
+        Fulltext.Export export = export(partial, false);
+        export.interrupt();
+        export.join();
+        assertTrue(progress.exists());
+        final String head;
+        try (final BufferedReader reader = Files.newBufferedReader(progress.toPath(), StandardCharsets.UTF_8)) {
+            head = reader.readLine();
+        }
+
+        // the first half of the partitions is done, the other partitions have stale chunks
+        final Set<String> done = new HashSet<>();
+        for (int p = 0; p < Fulltext.EXPORT_PARTITIONS / 2; p++) done.add(NAME + "_p" + String.format("%02d", p) + "_");
+        for (final File f: partial.listFiles((dir, name) -> name.endsWith(".gz"))) f.delete();
+        for (final String name: expected.keySet()) {
+            final File source = new File(new File(DATA, "complete"), name);
+            if (done.contains(name.substring(0, NAME.length() + 5))) {
+                Files.copy(source.toPath(), new File(partial, name).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.write(new File(partial, name).toPath(), new byte[]{1, 2, 3}); // not a valid gzip file
+            }
+        }
+        try (final PrintWriter pw = new PrintWriter(progress, "UTF-8")) {
+            pw.println(head);
+            for (int p = 0; p < Fulltext.EXPORT_PARTITIONS / 2; p++) pw.println(p);
+            pw.print("4"); // the incomplete last line of an export which was killed while it recorded partition 40
+        }
+
+        export = export(partial, true);
+        export.join();
+        assertNull(export.failed());
+        assertEquals(Fulltext.EXPORT_PARTITIONS, export.partitionsDone());
+        assertFalse(progress.exists());
+        assertEquals(expected, chunks(partial));
+    }
+
+    /**
+     * Test that a domain list is exported by one thread, also if several threads are requested, and writes no progress file.
+     */
+    @Test
+    public void testDomExportIsSequential() throws IOException, InterruptedException {
+        final File dom = new File(DATA, "dom");
+        final Fulltext.Export export = fulltext.export(dom, NAME, ExportFormat.text.getExt(), null, null, ExportFormat.text, true, false, 0, false, THREADS, false);
+        export.join();
+        assertNull(export.failed());
+        assertEquals(1, export.threads());
+        assertEquals(17, export.docCount());
+        assertFalse(new File(dom, NAME + "." + Fulltext.EXPORT_PROGRESS_EXT).exists());
+        final String hosts = new String(Files.readAllBytes(new File(dom, NAME + "." + ExportFormat.text.getExt()).toPath()), StandardCharsets.UTF_8);
+        for (int i = 0; i < 17; i++) assertTrue(hosts.contains("host" + i + ".example.org"));
+    }
+}
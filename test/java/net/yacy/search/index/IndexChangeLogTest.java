@@ -0,0 +1,122 @@
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexChangeLogTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        this.file = File.createTempFile("IndexChangeLogTest", ".changelog");
+        this.file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    /**
+     * Test that a new log asks for a full scan and is empty after the full scan.
+     */
+    @Test
+    public void testInitialFullScan() {
+        final IndexChangeLog log = new IndexChangeLog(this.file);
+        final IndexChangeLog.Batch batch = log.batch(10);
+        assertTrue(batch.all);
+        assertFalse(batch.isEmpty());
+        log.done(batch);
+        assertFalse(log.isAll());
+        assertTrue(log.batch(10).isEmpty());
+        log.close();
+    }
+
+    /**
+     * Test that changed documents are recorded by host and that a host which is changed again during the postprocessing stays in the log.
+     */
+    @Test
+    public void testBatchAndDone() {
+        final IndexChangeLog log = new IndexChangeLog(this.file);
+        log.done(log.batch(10));
+        log.touch("AAAAAAhost01");
+        log.touch("BBBBBBhost01");
+        log.touch("CCCCCChost02");
+        log.touch("host03");
+        assertEquals(3, log.hostBacklog());
+        assertEquals(3, log.urlBacklog());
+
+        final IndexChangeLog.Batch batch = log.batch(10);
+        assertFalse(batch.all);
+        assertEquals(new HashSet<>(Arrays.asList("host01", "host02", "host03")), new HashSet<>(batch.hosts));
+        log.touch("DDDDDDhost02");
+        log.done(batch);
+        assertEquals(1, log.hostBacklog());
+        assertEquals(2, log.urlBacklog());
+        assertEquals("host02", log.batch(10).hosts.iterator().next());
+
+        // the size of a batch is limited
+        log.touch("host04");
+        log.touch("host05");
+        assertEquals(2, log.batch(2).hosts.size());
+        log.close();
+    }
+
+    /**
+     * Test that hosts which still have documents to be postprocessed after a run remain in the log.
+     */
+    @Test
+    public void testDoneUnfinished() {
+        final IndexChangeLog log = new IndexChangeLog(this.file);
+
+        // a full scan which did not process host02 leaves only host02 in the log
+        log.done(log.batch(10), Arrays.asList("host02"));
+        assertFalse(log.isAll());
+        assertEquals(new HashSet<>(Arrays.asList("host02")), new HashSet<>(log.batch(10).hosts));
+
+        log.touch("AAAAAAhost01");
+        log.touch("host03");
+        log.done(log.batch(10), Arrays.asList("host01", "host02"));
+        assertEquals(new HashSet<>(Arrays.asList("host01", "host02")), new HashSet<>(log.batch(10).hosts));
+        assertEquals(1, log.urlBacklog());
+
+        log.done(log.batch(10), new HashSet<String>());
+        assertTrue(log.batch(10).isEmpty());
+        log.close();
+    }
+
+    /**
+     * Test that the log is persistent and that a log which was not closed cleanly asks for a full scan.
+     */
+    @Test
+    public void testPersistence() {
+        IndexChangeLog log = new IndexChangeLog(this.file);
+        log.done(log.batch(10));
+        log.touch("AAAAAAhost01");
+        log.touch("host02");
+        log.done(log.batch(1));
+        log.close();
+
+        log = new IndexChangeLog(this.file);
+        assertFalse(log.isAll());
+        assertEquals(1, log.hostBacklog());
+        log.touch("BBBBBBhost03");
+        log.batch(10); // flushes the log
+        // simulate a crash: the log is opened again without a close
+        log = new IndexChangeLog(this.file);
+        assertTrue(log.isAll());
+        assertEquals(0, log.hostBacklog()); // the full scan covers all hosts
+        log.close();
+    }
+}
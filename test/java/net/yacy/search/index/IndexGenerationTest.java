@@ -0,0 +1,87 @@
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
+import net.yacy.cora.federate.solr.instance.EmbeddedInstance;
+import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.search.query.LocalResultCache;
+import net.yacy.search.schema.CollectionSchema;
+import net.yacy.search.schema.WebgraphSchema;
+
+public class IndexGenerationTest {
+
+    static EmbeddedSolrConnector solr;
+    static EmbeddedInstance localCollectionInstance;
+
+    @BeforeClass
+    public static void initTesting() {
+        final File solr_config = new File("defaults/solr");
+        final File storage = new File("test/DATA/INDEX/generation/SEGMENTS/text/solr/");
+        storage.mkdirs();
+        try {
+            localCollectionInstance = new EmbeddedInstance(solr_config, storage, CollectionSchema.CORE_NAME, new String[]{CollectionSchema.CORE_NAME, WebgraphSchema.CORE_NAME});
+            solr = new EmbeddedSolrConnector(localCollectionInstance);
+            solr.clear();
+        } catch (final IOException ex) {
+            fail("IOException starting embedded Solr");
+        }
+    }
+
+    @AfterClass
+    public static void finalizeTesting() {
+        if (localCollectionInstance != null) localCollectionInstance.close();
+    }
+
+    private static LocalResultCache.Entry entry(final long generation, final long count) {
+        return new LocalResultCache.Entry(generation, new ArrayList<URIMetadataNode>(), null, null, (int) count);
+    }
+
+    /**
+     * Test that a result which was cached between a write and the commit making the write visible is not used after the commit.
+     */
+    @Test
+    public void testWriteSearchCommitSearch() throws IOException {
+        final IndexGeneration generation = new IndexGeneration();
+        final LocalResultCache cache = new LocalResultCache(1024 * 1024);
+        final String id = Long.toString(System.currentTimeMillis());
+        final String query = CollectionSchema.text_t.getSolrFieldName() + ":x" + id;
+
+        // write a document and signal the change as Fulltext.putDocument does, the document is not committed
+        final SolrInputDocument doc = new SolrInputDocument();
+        doc.addField(CollectionSchema.id.getSolrFieldName(), id);
+        doc.addField(CollectionSchema.text_t.getSolrFieldName(), "generation test x" + id);
+        solr.add(doc);
+        generation.changed();
+
+        // a search before the commit does not see the document, the result is cached with the current generation
+        final long g1 = generation.get(solr);
+        final long count1 = solr.getCountByQuery(query);
+        assertEquals(0, count1);
+        cache.put(query, entry(g1, count1));
+        assertNotNull(cache.get(query, generation.get(solr)));
+
+        // the commit registers a new searcher: the cached result must not be used any more
+        solr.commit(false);
+        final long g2 = generation.get(solr);
+        assertNotEquals(g1, g2);
+        assertNull(cache.get(query, g2));
+        final long count2 = solr.getCountByQuery(query);
+        assertEquals(1, count2);
+        cache.put(query, entry(g2, count2));
+        assertEquals(1, cache.get(query, generation.get(solr)).fullResource());
+    }
+}
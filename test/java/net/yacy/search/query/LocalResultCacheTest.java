@@ -0,0 +1,110 @@
+package net.yacy.search.query;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.sorting.ClusteredScoreMap;
+import net.yacy.cora.sorting.ReversibleScoreMap;
+import net.yacy.kelondro.data.meta.URIMetadataNode;
+
+public class LocalResultCacheTest {
+
+    private static LocalResultCache.Entry entry(final long generation, final int size) throws MalformedURLException {
+        final List<URIMetadataNode> nodes = new ArrayList<URIMetadataNode>();
+        final Map<String, LinkedHashSet<String>> snippets = new HashMap<String, LinkedHashSet<String>>();
+        for (int i = 0; i < size; i++) {
+            final URIMetadataNode node = new URIMetadataNode(new DigestURL("http://example.org/page" + i + ".html"));
+            node.setField("score", Float.valueOf(size - i));
+            nodes.add(node);
+            final LinkedHashSet<String> lines = new LinkedHashSet<String>();
+            lines.add("snippet of page " + i);
+            snippets.put(ASCII.String(node.hash()), lines);
+        }
+        final Map<String, ReversibleScoreMap<String>> facets = new HashMap<String, ReversibleScoreMap<String>>();
+        final ReversibleScoreMap<String> hosts = new ClusteredScoreMap<String>(true);
+        hosts.set("example.org", size);
+        facets.put("host_s", hosts);
+        return new LocalResultCache.Entry(generation, nodes, facets, snippets, size * 10);
+    }
+
+    /**
+     * Test that a cached result is returned with ranking, snippets and facets while the index generation is unchanged.
+     */
+    @Test
+    public void testGet() throws MalformedURLException {
+        final LocalResultCache cache = new LocalResultCache(1024 * 1024);
+        final LocalResultCache.Entry e = entry(1, 5);
+        cache.put("q", e);
+        final LocalResultCache.Entry c = cache.get("q", 1);
+        assertNotNull(c);
+        assertEquals(5, c.urlhashes().length);
+        assertArrayEquals(new DigestURL("http://example.org/page0.html").hash(), c.urlhashes()[0]);
+        assertEquals(5.0f, c.score(0), 0.0f);
+        assertEquals(1.0f, c.score(4), 0.0f);
+        assertEquals(50, c.fullResource());
+        assertEquals(5, c.facets().get("host_s").get("example.org"));
+        assertTrue(c.snippets().get(ASCII.String(c.urlhashes()[2])).contains("snippet of page 2"));
+        assertNull(cache.get("other", 1));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    /**
+     * Test that a change of the index generation invalidates the entries.
+     */
+    @Test
+    public void testGenerationInvalidation() throws MalformedURLException {
+        final LocalResultCache cache = new LocalResultCache(1024 * 1024);
+        cache.put("a", entry(1, 5));
+        cache.put("b", entry(1, 5));
+        assertNull(cache.get("a", 2));
+        assertEquals(1, cache.invalidations());
+        cache.invalidate(2);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.usedBytes());
+        assertEquals(2, cache.invalidations());
+    }
+
+    /**
+     * Test that the byte budget removes the least recently used entries.
+     */
+    @Test
+    public void testBudget() throws MalformedURLException {
+        final long entryBytes = entry(1, 10).bytes();
+        final LocalResultCache cache = new LocalResultCache(4 * entryBytes);
+        cache.put("a", entry(1, 10));
+        cache.put("b", entry(1, 10));
+        cache.put("c", entry(1, 10));
+        cache.put("d", entry(1, 10));
+        assertNotNull(cache.get("a", 1)); // now b is the least recently used entry
+        cache.put("e", entry(1, 10));
+        assertEquals(4, cache.size());
+        assertNull(cache.get("b", 1));
+        assertNotNull(cache.get("a", 1));
+        assertEquals(1, cache.evictions());
+        assertTrue(cache.usedBytes() <= 4 * entryBytes);
+
+        // entries larger than a quarter of the budget are not cached
+        cache.put("large", entry(1, 100));
+        assertNull(cache.get("large", 1));
+
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.size());
+        cache.put("f", entry(1, 1));
+        assertEquals(0, cache.size());
+    }
+}
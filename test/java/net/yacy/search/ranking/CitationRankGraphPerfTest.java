@@ -0,0 +1,39 @@
+package net.yacy.search.ranking;
+
+import java.util.Random;
+
+/**
+ * Testing the performance of the citation rank computation on a synthetic host
+ */
+public class CitationRankGraphPerfTest {
+
+    /**
+     * Build a host graph with a number of documents where each document links to a home page,
+     * to some section pages and to random other documents, then measure the compilation
+     * and the convergence of the citation rank.
+     * @param args the number of documents (default 1000000) and the average number of random links per document (default 10)
+     */
+    public static void main(final String[] args) {
+        final int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int links = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        final Random random = new Random(1);
+
+        long t = System.currentTimeMillis();
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(size);
+        final int sections = Math.max(1, size / 1000);
+        for (int s = 0; s < size; s++) {
+            builder.addLink(s, 0); // home page
+            builder.addLink(s, 1 + (s % sections)); // section page
+            final int n = random.nextInt(2 * links + 1);
+            for (int l = 0; l < n; l++) builder.addLink(s, random.nextInt(size));
+        }
+        final CitationRankGraph graph = builder.build();
+        System.out.println("compiled " + graph.size() + " documents with " + graph.links() + " links in " + (System.currentTimeMillis() - t) + " ms");
+
+        t = System.currentTimeMillis();
+        final int steps = graph.converge(0.85d, 6, 30);
+        final long time = System.currentTimeMillis() - t;
+        System.out.println("computed " + steps + " steps in " + time + " ms, " + (time / steps) + " ms per step");
+        System.out.println("rank of home page: " + graph.rank(0) + ", rank of a section page: " + graph.rank(1) + ", rank of a leaf page: " + graph.rank(size - 1));
+    }
+}
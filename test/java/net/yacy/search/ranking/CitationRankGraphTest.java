@@ -0,0 +1,76 @@
+package net.yacy.search.ranking;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CitationRankGraphTest {
+
+    /**
+     * Test the ranks of a small graph: a document linked by all others gets the highest rank,
+     * an unlinked document gets only the base rank.
+     */
+    @Test
+    public void testStar() {
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(4);
+        builder.addLink(1, 0);
+        builder.addLink(2, 0);
+        builder.addLink(3, 0);
+        builder.addLink(0, 1);
+        final CitationRankGraph graph = builder.build();
+        assertEquals(4, graph.size());
+        assertEquals(4, graph.links());
+        final int steps = graph.converge(0.85d, 6, 100);
+        assertTrue(steps < 100);
+        assertTrue(graph.rank(0) > graph.rank(1));
+        assertTrue(graph.rank(1) > graph.rank(2));
+        assertEquals(0.15d / 4, graph.rank(2), 1e-12);
+        assertEquals(graph.rank(2), graph.rank(3), 1e-12);
+    }
+
+    /**
+     * Test that the concurrent computation on a large random graph gives the same result as a plain
+     * computation on adjacency lists, including explicit out degrees which differ from the link count.
+     */
+    @Test
+    public void testCompareWithReference() {
+        final int size = 20000;
+        final Random random = new Random(42);
+        final CitationRankGraph.Builder builder = new CitationRankGraph.Builder(size);
+        final List<List<Integer>> incoming = new ArrayList<List<Integer>>();
+        for (int i = 0; i < size; i++) incoming.add(new ArrayList<Integer>());
+        final int[] outdegree = new int[size];
+        for (int s = 0; s < size; s++) {
+            final int links = random.nextInt(8);
+            for (int l = 0; l < links; l++) {
+                final int t = random.nextInt(size);
+                builder.addLink(s, t);
+                incoming.get(t).add(s);
+            }
+            // some documents have more internal links than known links
+            outdegree[s] = links + (s % 5 == 0 ? 2 : 0);
+            builder.setOutDegree(s, outdegree[s]);
+        }
+        final CitationRankGraph graph = builder.build();
+
+        double[] rank = new double[size];
+        Arrays.fill(rank, 1.0d / size);
+        for (int step = 0; step < 10; step++) {
+            graph.step(0.85d, 6);
+            final double[] next = new double[size];
+            for (int t = 0; t < size; t++) {
+                double ncr = 0.0d;
+                for (final int s: incoming.get(t)) if (outdegree[s] > 0) ncr += rank[s] / outdegree[s];
+                next[t] = (1.0d - 0.85d) / size + 0.85d * ncr;
+            }
+            rank = next;
+        }
+        for (int i = 0; i < size; i++) assertEquals(rank[i], graph.rank(i), 1e-15);
+    }
+}
@@ -1,17 +1,30 @@
 package net.yacy.search.ranking;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.solr.common.SolrInputDocument;
 import org.junit.Test;
 
 import net.yacy.cora.document.analysis.Classification;
 import net.yacy.cora.document.id.DigestURL;
+import net.yacy.crawler.retrieval.Response;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceColumns;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.util.Bitfield;
 import net.yacy.search.schema.CollectionConfiguration;
 
 public class ReferenceOrderTest {
@@ -51,4 +64,78 @@ public class ReferenceOrderTest {
 
     }
 
+    /**
+     * Test that the ranking computed on the decoded columns of a container is the same as the ranking of each single reference.
+     */
+    @Test
+    public void testCardinal_Columns() throws Exception {
+        final Random random = new Random(4711);
+        final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(new WordReferenceFactory(), Word.word2hash("test"));
+        final String[] languages = new String[]{"en", "de", "fr"};
+        for (int i = 0; i < 500; i++) {
+            final DigestURL url = new DigestURL("http://host" + random.nextInt(20) + ".org/" + i + "/page.html");
+            final Queue<Integer> positions = new LinkedBlockingQueue<Integer>();
+            if (random.nextBoolean()) positions.add(10 + random.nextInt(50));
+            final Bitfield flags = new Bitfield(4);
+            for (int j = 0; j < 32; j++) flags.set(j, random.nextInt(4) == 0);
+            rc.add(new WordReferenceVars(
+                    url.hash(),
+                    20 + random.nextInt(100),
+                    1 + random.nextInt(8),
+                    random.nextInt(20),
+                    1 + random.nextInt(30),
+                    10 + random.nextInt(3000),
+                    1 + random.nextInt(200),
+                    1 + random.nextInt(500),
+                    positions,
+                    random.nextInt(20),
+                    random.nextInt(100),
+                    System.currentTimeMillis() - random.nextInt(1000) * 86400000L,
+                    languages[random.nextInt(languages.length)],
+                    Response.DT_TEXT,
+                    random.nextInt(100),
+                    random.nextInt(100),
+                    flags,
+                    0.0d));
+        }
+
+        final RankingProfile profile = new RankingProfile(Classification.ContentDomain.TEXT);
+        profile.coeff_authority = 13; // include the authority heuristic
+        final ReferenceOrder order = new ReferenceOrder(profile, "de");
+        final WordReferenceColumns columns = new WordReferenceColumns(rc);
+        assertEquals(rc.size(), columns.size());
+        order.normalizeWith(columns);
+        final long[] cardinal = order.cardinal(columns);
+        for (int i = 0; i < columns.size(); i++) {
+            final WordReference ref = rc.getReference(columns.urlhash(i));
+            assertEquals("reference " + i, order.cardinal(ref), cardinal[i]);
+        }
+    }
+
+    /**
+     * Test the selection of the best references.
+     */
+    @Test
+    public void testTop() {
+        final Random random = new Random(42);
+        final long[] score = new long[1000];
+        for (int i = 0; i < score.length; i++) score[i] = random.nextInt(10000);
+        final int[] candidates = new int[score.length];
+        int count = 0;
+        for (int i = 0; i < score.length; i += 2) candidates[count++] = i;
+
+        final long[] expected = new long[count];
+        for (int c = 0; c < count; c++) expected[c] = score[candidates[c]];
+        Arrays.sort(expected);
+
+        final int[] top = ReferenceOrder.top(score, candidates, count, 50);
+        assertEquals(50, top.length);
+        for (int t = 0; t < top.length; t++) {
+            assertEquals(0, top[t] % 2);
+            assertEquals(expected[count - 1 - t], score[top[t]]);
+        }
+        assertEquals(count, ReferenceOrder.top(score, candidates, count, 3000).length);
+        assertEquals(0, ReferenceOrder.top(score, candidates, 0, 50).length);
+    }
+
 }